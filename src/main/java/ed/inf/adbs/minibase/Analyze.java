@@ -0,0 +1,44 @@
+package ed.inf.adbs.minibase;
+
+import ed.inf.adbs.minibase.dbstructures.DatabaseCatalog;
+import ed.inf.adbs.minibase.dbstructures.Relation;
+import ed.inf.adbs.minibase.dbstructures.StatisticsCollector;
+import ed.inf.adbs.minibase.dbstructures.TableStatistics;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The ANALYZE pass: gathers the statistics of every relation in the database and writes them to the statistics file next to schema.txt.
+ * Minibase loads the file along with the catalog, and the planner's cost estimates use the statistics of every relation found in it.
+ * Needs rerunning whenever the relations' files change, since the statistics aren't kept up to date otherwise.
+ */
+public class Analyze {
+
+    public static void main(String[] args) {
+
+        if (args.length != 1) {
+            System.err.println("Usage: Analyze database_dir");
+            return;
+        }
+
+        String databaseDir = args[0] + "/";
+
+        try {
+            DatabaseCatalog catalog = DatabaseCatalog.getCatalog();
+            catalog.constructRelations(databaseDir);
+
+            List<TableStatistics> statistics = new ArrayList<>();
+            for (Relation relation : catalog.getRelationMap().values()) {
+                TableStatistics tableStatistics = StatisticsCollector.analyze(relation);
+                statistics.add(tableStatistics);
+                System.out.println(tableStatistics);
+            }
+
+            TableStatistics.writeStatistics(databaseDir + TableStatistics.STATISTICS_FILE_NAME, statistics);
+        } catch (IOException ioe) {
+            ioe.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package ed.inf.adbs.minibase;
+
+import ed.inf.adbs.minibase.dbstructures.DatabaseCatalog;
+import ed.inf.adbs.minibase.dbstructures.IndexDeclaration;
+import ed.inf.adbs.minibase.dbstructures.Relation;
+
+import java.io.IOException;
+
+/**
+ * Builds every index declared in the database's indexes.txt file, writing them into its indexes directory.
+ * Indexes are built over the relations' csv files, and need rebuilding whenever those change, since Minibase ignores indexes that are out of date with their csv.
+ */
+public class BuildIndexes {
+
+    public static void main(String[] args) {
+
+        if (args.length != 1) {
+            System.err.println("Usage: BuildIndexes database_dir");
+            return;
+        }
+
+        String databaseDir = args[0] + "/";
+
+        try {
+            DatabaseCatalog catalog = DatabaseCatalog.getCatalog();
+            catalog.constructRelations(databaseDir);
+
+            for (IndexDeclaration declaration : catalog.getIndexDeclarations()) {
+                Relation relation = catalog.getRelationMap().get(declaration.getRelationName());
+
+                if (relation.getFileLocation() == null) {
+                    System.err.println("Skipping index " + declaration + " since " + relation.getName() + " has no csv file");
+                    continue;
+                }
+
+                declaration.buildIndex(relation, databaseDir);
+                System.out.println("Built index " + declaration + " in " + declaration.getIndexFileName(databaseDir));
+            }
+        } catch (IOException ioe) {
+            ioe.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package ed.inf.adbs.minibase;
+
+import ed.inf.adbs.minibase.dbstructures.ColumnarTableWriter;
+import ed.inf.adbs.minibase.dbstructures.DatabaseCatalog;
+import ed.inf.adbs.minibase.dbstructures.Relation;
+
+import java.io.IOException;
+
+/**
+ * One-time converter from the csv database layout to the binary columnar table format.
+ * Writes a .bin file next to every relation's csv in the database's files directory, which Minibase then prefers over the csv when scanning.
+ */
+public class CsvToColumnarConverter {
+
+    public static void main(String[] args) {
+
+        if (args.length != 1) {
+            System.err.println("Usage: CsvToColumnarConverter database_dir");
+            return;
+        }
+
+        String databaseDir = args[0] + "/";
+
+        try {
+            DatabaseCatalog catalog = DatabaseCatalog.getCatalog();
+            catalog.constructRelations(databaseDir);
+
+            for (Relation relation : catalog.getRelationMap().values()) {
+                if (relation.getFileLocation() == null) continue;
+
+                String binaryFileName = ColumnarTableWriter.convertCsv(relation);
+                System.out.println("Converted " + relation.getFileLocation() + " to " + binaryFileName);
+            }
+        } catch (IOException ioe) {
+            ioe.printStackTrace();
+        }
+    }
+}
@@ -7,18 +7,30 @@ import ed.inf.adbs.minibase.parser.QueryParser;
 
 import java.io.IOException;
 import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.List;
 
 /**
  * In-memory database system
  *
+ * Relations are streamed from disk by default. Passing --cache-mb=N keeps them resident in the catalog's table cache, within a budget of N megabytes.
+ * Passing --work-mem-mb=N sets the memory that sorts and joins may hold rows in before spilling them to disk, 64 megabytes by default.
+ * Passing --explain prints the join order chosen for the query and its estimated cost.
+ * Passing --dop=N evaluates the query on N threads, morsel by morsel, writing its output in no particular order unless --ordered-output is passed too.
  */
 public class Minibase {
 
+    //  whether the chosen join order gets printed before the query is evaluated
+    private static boolean explainPlans = false;
+
+    //  the number of threads the query is evaluated on, and whether its output has to come out in the order a single thread would write it in
+    private static int degreeOfParallelism = 1;
+    private static boolean orderedOutput = false;
+
     public static void main(String[] args) {
 
-        if (args.length != 3) {
-            System.err.println("Usage: Minibase database_dir input_file output_file");
+        if (args.length < 3) {
+            System.err.println("Usage: Minibase database_dir input_file output_file [--mmap] [--cache-mb=N] [--work-mem-mb=N] [--explain] [--dop=N] [--ordered-output]");
             return;
         }
 
@@ -28,16 +40,18 @@ public class Minibase {
 
         try {
             DatabaseCatalog catalog = DatabaseCatalog.getCatalog();
+            applyOptions(catalog, Arrays.copyOfRange(args, 3, args.length));
             catalog.constructRelations(databaseDir);
 
             Query baseQuery = QueryParser.parse(Paths.get(inputFile));
 
             QueryPlanner planner = new QueryPlanner(baseQuery);
+            if (explainPlans) System.out.print(planner.explain());
 
 //            QueryPlanner.evaluateCQ(databaseDir, inputFile, outputFile);
             OutputWriter.initialiseOutputWriter(outputFile);
 
-            planner.getRoot().dump();
+            new ParallelExecutor(degreeOfParallelism, orderedOutput).dump(planner.getRoot());
         } catch (IOException ioe) {
             ioe.printStackTrace();
         }
@@ -48,6 +62,27 @@ public class Minibase {
 
 
 
+    //  applies the optional flags passed after the three positional arguments
+    private static void applyOptions(DatabaseCatalog catalog, String[] options) {
+        for (String option : options) {
+            if (option.equals("--mmap")) {
+                catalog.setMemoryMappedScans(true);
+            } else if (option.startsWith("--cache-mb=")) {
+                catalog.enableTableCache(Long.parseLong(option.substring("--cache-mb=".length())) * 1024 * 1024);
+            } else if (option.startsWith("--work-mem-mb=")) {
+                catalog.setWorkMemoryBytes(Long.parseLong(option.substring("--work-mem-mb=".length())) * 1024 * 1024);
+            } else if (option.equals("--explain")) {
+                explainPlans = true;
+            } else if (option.startsWith("--dop=")) {
+                degreeOfParallelism = Integer.parseInt(option.substring("--dop=".length()));
+            } else if (option.equals("--ordered-output")) {
+                orderedOutput = true;
+            } else {
+                throw new IllegalArgumentException("Unrecognised option " + option);
+            }
+        }
+    }
+
     /**
      * Example method for getting started with the parser.
      * Reads CQ from a file and prints it to screen, then extracts Head and Body
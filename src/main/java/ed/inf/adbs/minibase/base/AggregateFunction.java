@@ -0,0 +1,17 @@
+package ed.inf.adbs.minibase.base;
+
+import java.util.Arrays;
+
+//  the aggregate functions that can be applied to a variable in the head of a query
+public enum AggregateFunction {
+    SUM,
+    AVG,
+    COUNT;
+
+    public static AggregateFunction fromString(String s) {
+        return Arrays.stream(values())
+                .filter(function -> function.name().equals(s))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown aggregate function " + s));
+    }
+}
@@ -0,0 +1,41 @@
+package ed.inf.adbs.minibase.base;
+
+import java.util.Objects;
+
+//  an aggregate function applied to a variable, such as SUM(y), which can only appear in the head of a query.
+//  The head's plain variables group the body's tuples, and the aggregate is computed over every tuple of each group
+public class AggregateTerm extends Term {
+    private AggregateFunction function;
+    private Variable variable;
+
+    public AggregateTerm(AggregateFunction function, Variable variable) {
+        this.function = function;
+        this.variable = variable;
+    }
+
+    public AggregateFunction getFunction() {
+        return function;
+    }
+
+    public Variable getVariable() {
+        return variable;
+    }
+
+    @Override
+    public String toString() {
+        return function + "(" + variable + ")";
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (!super.equals(object)) return false;
+
+        AggregateTerm other = (AggregateTerm) object;
+        return other.function == this.function && other.variable.equals(this.variable);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(function, variable);
+    }
+}
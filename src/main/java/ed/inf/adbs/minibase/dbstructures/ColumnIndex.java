@@ -0,0 +1,32 @@
+package ed.inf.adbs.minibase.dbstructures;
+
+import ed.inf.adbs.minibase.base.ComparisonOperator;
+import ed.inf.adbs.minibase.base.Constant;
+
+/**
+ * An on-disk index over a single column of a relation's csv file, mapping column values to the positions of the rows holding them.
+ * Row positions are the byte offsets the rows start at in the csv, so the rows can be read straight from the mapped file.
+ * Indexes are built ahead of time by BuildIndexes and record the size and modification time of the csv they were built from,
+ * so that an index that has gone stale since can be told apart and ignored.
+ */
+public interface ColumnIndex {
+
+    //  the position of the indexed column in the relation's rows
+    int getColumn();
+
+    //  whether the index can answer comparisons of the column against a constant with the given operator
+    boolean supports(ComparisonOperator op);
+
+    /**
+     * Finds the rows whose value in the indexed column satisfies "value op key".
+     * The rows returned may include some that don't satisfy the comparison, so callers should still check it over the rows they read.
+     *
+     * @param op a comparison operator the index supports
+     * @param key the constant the column is compared against
+     * @return the byte offsets of the rows in the csv, in increasing order
+     */
+    long[] lookup(ComparisonOperator op, Constant key);
+
+    //  whether the index was built from the current contents of the given csv file
+    boolean isCurrent(String dataFileName);
+}
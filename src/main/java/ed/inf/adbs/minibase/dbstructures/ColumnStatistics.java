@@ -0,0 +1,195 @@
+package ed.inf.adbs.minibase.dbstructures;
+
+import ed.inf.adbs.minibase.base.ComparisonOperator;
+import ed.inf.adbs.minibase.base.Constant;
+import ed.inf.adbs.minibase.base.IntegerConstant;
+import ed.inf.adbs.minibase.base.StringConstant;
+
+/**
+ * The statistics gathered by ANALYZE over a single column of a relation, and the selectivity estimates made from them.
+ * The distinct count is exact when every value of the column fitted in the sample, and a HyperLogLog estimate otherwise.
+ * The most common values and their frequencies come from the sample, and the equi-depth histogram is built over the sampled values that aren't among the most common ones,
+ * so each of its buckets holds about the same share of the remaining rows.
+ * Values are held as IntegerConstants or StringConstants depending on the column's type.
+ */
+public class ColumnStatistics {
+
+    static final double DEFAULT_RANGE_SELECTIVITY = 1.0 / 3;
+
+    private final boolean stringColumn;
+    private final long rowCount;
+    private final long nullCount;
+    private final long distinctCount;
+
+    //  null when the column has no values
+    private final Constant min;
+    private final Constant max;
+
+    private final Constant[] mostCommonValues;
+    private final double[] mostCommonFrequencies;
+
+    //  bucket i holds the values between histogramBounds[i] and histogramBounds[i + 1], empty when there were too few values left over for a histogram
+    private final Constant[] histogramBounds;
+
+    public ColumnStatistics(boolean stringColumn, long rowCount, long nullCount, long distinctCount, Constant min, Constant max,
+                            Constant[] mostCommonValues, double[] mostCommonFrequencies, Constant[] histogramBounds) {
+        if (mostCommonValues.length != mostCommonFrequencies.length) throw new IllegalArgumentException("Every most common value needs a frequency!");
+
+        this.stringColumn = stringColumn;
+        this.rowCount = rowCount;
+        this.nullCount = nullCount;
+        this.distinctCount = distinctCount;
+        this.min = min;
+        this.max = max;
+        this.mostCommonValues = mostCommonValues;
+        this.mostCommonFrequencies = mostCommonFrequencies;
+        this.histogramBounds = histogramBounds;
+    }
+
+    /**
+     * Estimates the fraction of the relation's rows whose value in this column satisfies "value op constant".
+     * Equality uses the constant's frequency if it is a most common value, and otherwise spreads the rows not covered by the most common values evenly over the other distinct values.
+     * Ranges add up the frequencies of the most common values in range and the share of the histogram below the constant, interpolating within int buckets.
+     * A constant of the wrong type never equals any value, and ordering comparisons against it get the default selectivity.
+     *
+     * @param op the comparison made, with the column on the left hand side
+     * @param constant the constant the column is compared against
+     * @return the estimated selectivity, between 0 and 1
+     */
+    public double estimateSelectivity(ComparisonOperator op, Constant constant) {
+        if (stringColumn != (constant instanceof StringConstant)) {
+            if (op == ComparisonOperator.EQ) return 0;
+            if (op == ComparisonOperator.NEQ) return 1;
+            return DEFAULT_RANGE_SELECTIVITY;
+        }
+        if (rowCount == 0) return 0;
+
+        double nonNullFraction = 1 - (double) nullCount / rowCount;
+
+        switch (op) {
+            case EQ:
+                return clamp(estimateEquals(constant));
+            case NEQ:
+                return clamp(nonNullFraction - estimateEquals(constant));
+            case LT:
+                return clamp(estimateLessThan(constant));
+            case LEQ:
+                return clamp(estimateLessThan(constant) + estimateEquals(constant));
+            case GT:
+                return clamp(nonNullFraction - estimateLessThan(constant) - estimateEquals(constant));
+            case GEQ:
+                return clamp(nonNullFraction - estimateLessThan(constant));
+            default:
+                throw new IllegalArgumentException("Unsupported comparison operator " + op);
+        }
+    }
+
+    private double estimateEquals(Constant constant) {
+        if (min == null || compare(constant, min) < 0 || compare(constant, max) > 0) return 0;
+
+        for (int i = 0; i < mostCommonValues.length; i++) {
+            if (mostCommonValues[i].equals(constant)) return mostCommonFrequencies[i];
+        }
+
+        long otherDistinctCount = distinctCount - mostCommonValues.length;
+        if (otherDistinctCount <= 0) return 0;
+        return getHistogramFraction() / otherDistinctCount;
+    }
+
+    private double estimateLessThan(Constant constant) {
+        if (min == null || compare(constant, min) <= 0) return 0;
+
+        double fraction = 0;
+        for (int i = 0; i < mostCommonValues.length; i++) {
+            if (compare(mostCommonValues[i], constant) < 0) fraction += mostCommonFrequencies[i];
+        }
+
+        return fraction + getHistogramFraction() * getFractionOfHistogramBelow(constant);
+    }
+
+    //  the fraction of rows holding a value that isn't null or one of the most common values, which is what the histogram describes
+    private double getHistogramFraction() {
+        double fraction = 1 - (double) nullCount / rowCount;
+        for (double frequency : mostCommonFrequencies) fraction -= frequency;
+        return Math.max(0, fraction);
+    }
+
+    //  the fraction of the histogram's values below the constant, from the buckets below it and the part of the bucket it falls in.
+    //  without a histogram, int columns interpolate between the min and max instead
+    private double getFractionOfHistogramBelow(Constant constant) {
+        if (histogramBounds.length < 2) {
+            if (stringColumn) return DEFAULT_RANGE_SELECTIVITY;
+            return interpolate(constant, min, max);
+        }
+
+        if (compare(constant, histogramBounds[0]) <= 0) return 0;
+        int numBuckets = histogramBounds.length - 1;
+        if (compare(constant, histogramBounds[numBuckets]) > 0) return 1;
+
+        int bucket = 0;
+        while (bucket < numBuckets - 1 && compare(constant, histogramBounds[bucket + 1]) > 0) bucket++;
+
+        double withinBucket = stringColumn ? 0.5 : interpolate(constant, histogramBounds[bucket], histogramBounds[bucket + 1]);
+        return (bucket + withinBucket) / numBuckets;
+    }
+
+    private static double interpolate(Constant constant, Constant low, Constant high) {
+        double value = ((IntegerConstant) constant).getValue();
+        double lowValue = ((IntegerConstant) low).getValue();
+        double highValue = ((IntegerConstant) high).getValue();
+
+        if (highValue <= lowValue) return (value > lowValue) ? 1 : 0;
+        return Math.min(1, Math.max(0, (value - lowValue) / (highValue - lowValue)));
+    }
+
+    static int compare(Constant constant1, Constant constant2) {
+        if (constant1 instanceof StringConstant) return ((StringConstant) constant1).compareTo((StringConstant) constant2);
+        return ((IntegerConstant) constant1).compareTo((IntegerConstant) constant2);
+    }
+
+    private static double clamp(double selectivity) {
+        return Math.min(1, Math.max(0, selectivity));
+    }
+
+    public boolean isStringColumn() {
+        return stringColumn;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public long getNullCount() {
+        return nullCount;
+    }
+
+    public long getDistinctCount() {
+        return distinctCount;
+    }
+
+    public Constant getMin() {
+        return min;
+    }
+
+    public Constant getMax() {
+        return max;
+    }
+
+    public Constant[] getMostCommonValues() {
+        return mostCommonValues;
+    }
+
+    public double[] getMostCommonFrequencies() {
+        return mostCommonFrequencies;
+    }
+
+    public Constant[] getHistogramBounds() {
+        return histogramBounds;
+    }
+
+    @Override
+    public String toString() {
+        return (stringColumn ? "string" : "int") + ", " + distinctCount + " distinct, " + nullCount + " null, min " + min + ", max " + max
+                + ", " + mostCommonValues.length + " most common values, " + Math.max(0, histogramBounds.length - 1) + " histogram buckets";
+    }
+}
@@ -0,0 +1,160 @@
+package ed.inf.adbs.minibase.dbstructures;
+
+import ed.inf.adbs.minibase.base.Constant;
+import ed.inf.adbs.minibase.base.IntegerConstant;
+import ed.inf.adbs.minibase.base.StringConstant;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads tables written by the ColumnarTableWriter, block by block.
+ * Each block is read with a single bulk transfer per column straight into int arrays, so no per-value parsing or object allocation happens while reading.
+ * The header and dictionaries are only read once, on construction, and rewinding just moves the channel back to the first block.
+ */
+public class ColumnarTableReader implements Closeable {
+
+    private final FileChannel channel;
+
+    private final List<Class<? extends Constant>> columnTypes;
+    private final String[][] dictionaries;
+
+    private final long dataOffset;
+    private final long footerOffset;
+    private final long rowCount;
+    private final int blockCount;
+
+    //  the length and modification time of the csv the table was converted from, -1 if it wasn't or if the file predates them being recorded
+    private final long dataFileLength;
+    private final long dataFileLastModified;
+
+    private final ByteBuffer blockHeaderBuffer;
+    private final ByteBuffer columnBuffer;
+
+    public ColumnarTableReader(String fileName) throws IOException {
+        this.channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
+
+        //  fixed size part of the header, followed by one type byte per column
+        ByteBuffer header = readFully(0, 12);
+        if (header.getInt() != ColumnarTableWriter.MAGIC) throw new IllegalArgumentException("File " + fileName + " is not a binary columnar table!");
+        //  the first version of the format only lacks the csv's length and modification time in the footer
+        int version = header.getInt();
+        if (version != 1 && version != ColumnarTableWriter.VERSION) throw new IllegalArgumentException("Unsupported binary columnar table version in " + fileName);
+
+        int numColumns = header.getInt();
+        ByteBuffer typeBytes = readFully(12, numColumns);
+
+        this.columnTypes = new ArrayList<>();
+        for (int i = 0; i < numColumns; i++) {
+            byte typeCode = typeBytes.get();
+            if (typeCode == ColumnarTableWriter.INT_COLUMN) columnTypes.add(IntegerConstant.class);
+            else if (typeCode == ColumnarTableWriter.STRING_COLUMN) columnTypes.add(StringConstant.class);
+            else throw new IllegalArgumentException("Unsupported column type detected in " + fileName);
+        }
+        this.dataOffset = 12 + numColumns;
+
+        //  the last 8 bytes of the file point at the start of the footer
+        this.footerOffset = readFully(channel.size() - 8, 8).getLong();
+
+        channel.position(footerOffset);
+        DataInputStream footerStream = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+
+        this.dictionaries = new String[numColumns][];
+        for (int i = 0; i < numColumns; i++) {
+            if (!columnTypes.get(i).equals(StringConstant.class)) continue;
+
+            String[] dictionary = new String[footerStream.readInt()];
+            for (int code = 0; code < dictionary.length; code++) {
+                dictionary[code] = footerStream.readUTF();
+            }
+            dictionaries[i] = dictionary;
+        }
+
+        this.rowCount = footerStream.readLong();
+        this.blockCount = footerStream.readInt();
+        this.dataFileLength = (version == 1) ? -1 : footerStream.readLong();
+        this.dataFileLastModified = (version == 1) ? -1 : footerStream.readLong();
+
+        this.blockHeaderBuffer = ByteBuffer.allocate(4);
+        this.columnBuffer = ByteBuffer.allocate(4 * ColumnarTableWriter.BLOCK_SIZE);
+
+        rewind();
+    }
+
+    /**
+     * Reads the next block of rows into the given column arrays, which need to have room for BLOCK_SIZE values each.
+     *
+     * @param columns one array per column, filled in with the int values or dictionary codes of the block
+     * @return the number of rows read, 0 once all blocks have been read
+     * @throws IOException thrown if reading the file fails
+     */
+    public int readBlock(int[][] columns) throws IOException {
+        if (channel.position() >= footerOffset) return 0;
+
+        blockHeaderBuffer.clear();
+        fill(blockHeaderBuffer);
+        int blockRowCount = blockHeaderBuffer.getInt(0);
+
+        for (int[] column : columns) {
+            columnBuffer.clear();
+            columnBuffer.limit(4 * blockRowCount);
+            fill(columnBuffer);
+            columnBuffer.asIntBuffer().get(column, 0, blockRowCount);
+        }
+
+        return blockRowCount;
+    }
+
+    //  moves back to the first block
+    public void rewind() throws IOException {
+        channel.position(dataOffset);
+    }
+
+    private void fill(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) throw new EOFException("Unexpected end of binary columnar table!");
+        }
+        buffer.flip();
+    }
+
+    private ByteBuffer readFully(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        channel.position(position);
+        fill(buffer);
+        return buffer;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    public List<Class<? extends Constant>> getColumnTypes() {
+        return columnTypes;
+    }
+
+    //  returns the dictionary of a string column, indexed by code. null for int columns
+    public String[] getDictionary(int column) {
+        return dictionaries[column];
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public int getBlockCount() {
+        return blockCount;
+    }
+
+    //  whether the table was converted from the given csv file as it is now, going by the file's length and modification time, as the indexes do
+    public boolean isCurrent(String dataFileName) {
+        File dataFile = new File(dataFileName);
+        return dataFileLength >= 0 && dataFile.length() == dataFileLength && dataFile.lastModified() == dataFileLastModified;
+    }
+}
@@ -0,0 +1,176 @@
+package ed.inf.adbs.minibase.dbstructures;
+
+import ed.inf.adbs.minibase.base.Constant;
+import ed.inf.adbs.minibase.base.IntegerConstant;
+import ed.inf.adbs.minibase.base.StringConstant;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Writes a relation out in the binary columnar table format, which is read back by the ColumnarTableReader.
+ *
+ * The file is laid out as follows (all values big-endian):
+ *  - header: magic number, format version, column count, then one type byte per column (INT_COLUMN or STRING_COLUMN)
+ *  - blocks: each block starts with its row count, followed by that many ints for every column in turn.
+ *    Int columns hold the values themselves, string columns hold codes into that column's dictionary.
+ *  - footer: the dictionary of every string column (entry count followed by the entries), the total row count, the block count,
+ *    the length and modification time of the csv the table was converted from (-1 for both if it wasn't), so that a table older than its csv can be told apart,
+ *    and finally the byte offset at which the footer starts, so that a reader can locate the dictionaries from the end of the file.
+ *
+ * Rows are buffered into blocks of BLOCK_SIZE rows, and the dictionaries are built up as rows are written, so the whole table never has to be held in memory.
+ */
+public class ColumnarTableWriter implements Closeable {
+
+    public static final int MAGIC = 0x4D424346;
+    public static final int VERSION = 2;
+    public static final String FILE_EXTENSION = "bin";
+    public static final int BLOCK_SIZE = 4096;
+
+    public static final byte INT_COLUMN = 0;
+    public static final byte STRING_COLUMN = 1;
+
+    private final DataOutputStream outputStream;
+    private final Schema schema;
+
+    //  per-column dictionaries for the string columns, null for the int columns
+    private final List<Map<String, Integer>> dictionaries;
+
+    private final int[][] block;
+    private int blockRowCount;
+
+    private long rowCount;
+    private int blockCount;
+    private long bytesWritten;
+
+    //  the length and modification time of the csv the rows are read from, recorded in the footer
+    private final long dataFileLength;
+    private final long dataFileLastModified;
+
+    public ColumnarTableWriter(String fileName, Schema schema) throws IOException {
+        this(fileName, schema, null);
+    }
+
+    //  the same as above, for a table converted from the given csv file, whose length and modification time are taken now, before any of it is read
+    public ColumnarTableWriter(String fileName, Schema schema, File dataFile) throws IOException {
+        this.outputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName)));
+        this.schema = schema;
+        this.dataFileLength = (dataFile == null) ? -1 : dataFile.length();
+        this.dataFileLastModified = (dataFile == null) ? -1 : dataFile.lastModified();
+
+        int numColumns = schema.getDataTypes().size();
+        this.dictionaries = new ArrayList<>();
+        this.block = new int[numColumns][BLOCK_SIZE];
+
+        outputStream.writeInt(MAGIC);
+        outputStream.writeInt(VERSION);
+        outputStream.writeInt(numColumns);
+        bytesWritten = 12;
+
+        for (Class<? extends Constant> dataType : schema.getDataTypes()) {
+            outputStream.writeByte(getTypeCode(dataType));
+            dictionaries.add(dataType.equals(StringConstant.class) ? new LinkedHashMap<>() : null);
+            bytesWritten++;
+        }
+    }
+
+    //  adds a row to the current block, flushing the block to the file once it is full.
+    //  string values are translated from their global dictionary codes into codes of the file's own dictionaries, since the global codes don't outlive the process
+    public void writeRow(Tuple tuple) throws IOException {
+        if (tuple.size() != block.length) throw new IllegalArgumentException("The number of fields in the row doesn't match the number of columns in the schema!");
+
+        for (int i = 0; i < tuple.size(); i++) {
+            if (dictionaries.get(i) == null) {
+                block[i][blockRowCount] = tuple.getValue(i);
+            } else {
+                Map<String, Integer> dictionary = dictionaries.get(i);
+                String value = StringDictionary.getDictionary().decode(tuple.getValue(i));
+                Integer code = dictionary.get(value);
+
+                if (code == null) {
+                    code = dictionary.size();
+                    dictionary.put(value, code);
+                }
+                block[i][blockRowCount] = code;
+            }
+        }
+
+        rowCount++;
+        if (++blockRowCount == BLOCK_SIZE) flushBlock();
+    }
+
+    private void flushBlock() throws IOException {
+        if (blockRowCount == 0) return;
+
+        outputStream.writeInt(blockRowCount);
+        for (int[] column : block) {
+            for (int row = 0; row < blockRowCount; row++) {
+                outputStream.writeInt(column[row]);
+            }
+        }
+
+        bytesWritten += 4 + 4L * blockRowCount * block.length;
+        blockCount++;
+        blockRowCount = 0;
+    }
+
+    //  flushes the last partial block and writes the footer
+    @Override
+    public void close() throws IOException {
+        flushBlock();
+
+        long footerOffset = bytesWritten;
+
+        for (Map<String, Integer> dictionary : dictionaries) {
+            if (dictionary == null) continue;
+
+            outputStream.writeInt(dictionary.size());
+            for (String value : dictionary.keySet()) {
+                outputStream.writeUTF(value);
+            }
+        }
+
+        outputStream.writeLong(rowCount);
+        outputStream.writeInt(blockCount);
+        outputStream.writeLong(dataFileLength);
+        outputStream.writeLong(dataFileLastModified);
+        outputStream.writeLong(footerOffset);
+        outputStream.close();
+    }
+
+    /**
+     * Converts a relation's csv file into a binary columnar file placed next to it, with the same name and the .bin extension.
+     * Lines are parsed with the relation's compiled tuple decoder, the same way the csv scan parses them.
+     * The csv's size and modification time are recorded in the binary file, which is ignored by the catalog once the csv changes.
+     *
+     * @param relation the relation whose csv file is converted, using its schema for the column types
+     * @return the path of the written binary file
+     * @throws IOException thrown if reading the csv or writing the binary file fails
+     */
+    public static String convertCsv(Relation relation) throws IOException {
+        String csvFileName = relation.getFileLocation();
+        String binaryFileName = csvFileName.substring(0, csvFileName.lastIndexOf('.') + 1) + FILE_EXTENSION;
+        TupleDecoder decoder = relation.getSchema().getDecoder();
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(csvFileName));
+             ColumnarTableWriter writer = new ColumnarTableWriter(binaryFileName, relation.getSchema(), new File(csvFileName))) {
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                writer.writeRow(decoder.decode(line));
+            }
+        }
+
+        return binaryFileName;
+    }
+
+    static byte getTypeCode(Class<? extends Constant> dataType) {
+        if (dataType.equals(IntegerConstant.class)) return INT_COLUMN;
+        else if (dataType.equals(StringConstant.class)) return STRING_COLUMN;
+        else throw new IllegalArgumentException("Unsupported type detected!");
+    }
+
+    public Schema getSchema() {
+        return schema;
+    }
+}
@@ -22,6 +22,19 @@ public class DatabaseCatalog {
 
     private Map<String, Schema> schemaMap;
 
+    //  whether csv relations are scanned by memory-mapping their files rather than through a buffered reader
+    private boolean memoryMappedScans;
+
+    //  cache keeping relations resident in memory, null unless it has been enabled
+    private TableCache tableCache;
+
+    //  the memory an operator may hold rows in before it has to spill them to disk
+    public static final long DEFAULT_WORK_MEMORY_BYTES = 64L * 1024 * 1024;
+    private long workMemoryBytes = DEFAULT_WORK_MEMORY_BYTES;
+
+    //  the indexes declared in the database's index declarations file
+    private List<IndexDeclaration> indexDeclarations = new ArrayList<>();
+
     //  returns if the instance if it is already initialised. Otherwise initialises a new instance and returns it.
     public static DatabaseCatalog getCatalog() {
         if (catalog != null) return catalog;
@@ -33,8 +46,11 @@ public class DatabaseCatalog {
 
     /**
      * Parses through the schema file and the table files in the given database directory.
-     * For the former, it constructs the schema map, which encodes a map from relation name to its schema.
+     * For the former, it constructs the schema map, which encodes a map from relation name to its schema, keys declared after the column types included.
      * For the latter, it utilises the entry in the schema map to construct the relevant relation object.
+     * If a binary columnar file with the relation's name exists alongside the csv, its location is recorded on the relation too, unless the csv has changed since it was converted.
+     * Finally, if the relations have been analysed, their statistics are loaded from the statistics file next to schema.txt,
+     * and the declared indexes that have been built and are up to date with their relation's csv are opened and attached to their relations.
      *
      * @param databaseDir the directory path of the database directory
      * @throws IOException thrown in case any issues happen with file construction
@@ -53,17 +69,53 @@ public class DatabaseCatalog {
         Arrays.stream(files).forEach(file -> {
             String fileName = file.getName();
             String relationName = fileName.substring(0,fileName.lastIndexOf("."));
+            String extension = fileName.substring(fileName.lastIndexOf(".") + 1);
 
             if (!this.getSchemaMap().containsKey(relationName)) throw new IllegalArgumentException("Extracted a CSV file with a name that doesnt match any of the parsed schema relation names!");
 
-            Relation dbRelation = new Relation(relationName, this.schemaMap.get(relationName), file.getPath());
-            this.getRelationMap().put(relationName, dbRelation);
+            Relation dbRelation = this.getRelationMap().computeIfAbsent(relationName, name -> new Relation(name, this.schemaMap.get(name), null));
+
+            //  a binary columnar file sitting next to the csv is recorded separately so that scans can prefer it
+            if (extension.equals(ColumnarTableWriter.FILE_EXTENSION)) {
+                dbRelation.setBinaryFileLocation(file.getPath());
+            } else {
+                dbRelation.setFileLocation(file.getPath());
+            }
         });
+
+        //  a binary file that wasn't converted from the csv as it is now is ignored, so that no reader of the relation sees an older version of its rows than the csv's
+        for (Relation relation : this.getRelationMap().values()) {
+            if (relation.getFileLocation() == null || relation.getBinaryFileLocation() == null) continue;
+
+            try (ColumnarTableReader reader = new ColumnarTableReader(relation.getBinaryFileLocation())) {
+                if (!reader.isCurrent(relation.getFileLocation())) relation.setBinaryFileLocation(null);
+            }
+        }
+
+        File statisticsFile = new File(databaseDir + TableStatistics.STATISTICS_FILE_NAME);
+        if (statisticsFile.exists()) {
+            TableStatistics.readStatistics(statisticsFile.getPath()).forEach((relationName, statistics) -> {
+                Relation relation = this.getRelationMap().get(relationName);
+                if (relation != null) relation.setStatistics(statistics);
+            });
+        }
+
+        this.indexDeclarations = IndexDeclaration.readDeclarations(databaseDir);
+        for (IndexDeclaration declaration : indexDeclarations) {
+            Relation relation = this.getRelationMap().get(declaration.getRelationName());
+            if (relation == null) throw new IllegalArgumentException("Declared an index over " + declaration.getRelationName() + ", which isn't a relation in the schema!");
+
+            if (relation.getFileLocation() == null || !new File(declaration.getIndexFileName(databaseDir)).exists()) continue;
+
+            ColumnIndex index = declaration.openIndex(databaseDir);
+            if (index.isCurrent(relation.getFileLocation())) relation.addIndex(index);
+        }
     }
 
     /**
      * contstructs the catalog's schema map using the given schema file, by creating a shcema object representing each line.
-     * The first entry from splitting the line over the spaces is counted as the relation name, while the rest encode the types of the tuple terms
+     * The first entry from splitting the line over the spaces is counted as the relation name, while the rest encode the types of the tuple terms.
+     * Each schema's tuple decoder is compiled here, once, so that scans don't need to look up how to parse each column.
      * @param schemaFile
      * @throws IOException
      */
@@ -78,10 +130,14 @@ public class DatabaseCatalog {
 
             String relationName = tableSpecList.get(0);
 
-            List<String> typeList = new ArrayList<>(tableSpecList.subList(1, tableSpecList.size()));
+            //  the column types may be followed by key declarations such as key(0) or key(0,2), giving the positions of the key's columns
+            List<String> typeList = tableSpecList.subList(1, tableSpecList.size()).stream().filter(spec -> !spec.startsWith("key(")).collect(Collectors.toList());
+            List<String> keyList = tableSpecList.subList(1, tableSpecList.size()).stream().filter(spec -> spec.startsWith("key(")).collect(Collectors.toList());
 
             List<Class<? extends Constant>> relationTypes = typeList.stream().map(this::getClassFromDBTypeString).collect(Collectors.toList());
             Schema classSchema = new Schema(relationName, relationTypes);
+            for (String keySpec : keyList) classSchema.addKey(getKeyColumnsFromDBKeyString(keySpec));
+            classSchema.compileDecoder();
             this.getSchemaMap().put(relationName, classSchema);
         }
     }
@@ -97,6 +153,52 @@ public class DatabaseCatalog {
         return (typeString.equals("string")) ? StringConstant.class : IntegerConstant.class;
     }
 
+    //  given a key declaration such as key(0,2), this returns the positions of the key's columns
+    private int[] getKeyColumnsFromDBKeyString(String keyString) {
+        if (!keyString.endsWith(")")) throw new IllegalArgumentException("Malformed key declaration " + keyString + "!");
+
+        String columns = keyString.substring("key(".length(), keyString.length() - 1);
+        try {
+            return Arrays.stream(columns.split(",")).mapToInt(column -> Integer.parseInt(column.trim())).toArray();
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed key declaration " + keyString + "!");
+        }
+    }
+
+    public boolean useMemoryMappedScans() {
+        return memoryMappedScans;
+    }
+
+    public void setMemoryMappedScans(boolean memoryMappedScans) {
+        this.memoryMappedScans = memoryMappedScans;
+    }
+
+    //  enables keeping relations in memory once they have been loaded, evicting whole relations once the budget is exceeded
+    public void enableTableCache(long memoryBudgetBytes) {
+        this.tableCache = new TableCache(memoryBudgetBytes);
+    }
+
+    public void disableTableCache() {
+        this.tableCache = null;
+    }
+
+    public TableCache getTableCache() {
+        return tableCache;
+    }
+
+    public long getWorkMemoryBytes() {
+        return workMemoryBytes;
+    }
+
+    public void setWorkMemoryBytes(long workMemoryBytes) {
+        if (workMemoryBytes <= 0) throw new IllegalArgumentException("Operators need a positive memory budget!");
+        this.workMemoryBytes = workMemoryBytes;
+    }
+
+    public List<IndexDeclaration> getIndexDeclarations() {
+        return indexDeclarations;
+    }
+
     public Map<String, Relation> getRelationMap() {
         return relationMap;
     }
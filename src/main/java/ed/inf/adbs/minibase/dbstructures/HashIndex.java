@@ -0,0 +1,188 @@
+package ed.inf.adbs.minibase.dbstructures;
+
+import ed.inf.adbs.minibase.base.ComparisonOperator;
+import ed.inf.adbs.minibase.base.Constant;
+import ed.inf.adbs.minibase.base.IntegerConstant;
+import ed.inf.adbs.minibase.base.StringConstant;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A static hash index over a column, answering equality lookups by reading a single bucket of the memory-mapped index file.
+ * Int columns are keyed on their values and string columns on String.hashCode() of their values, so a string lookup can return rows of other strings sharing the hash.
+ *
+ * The file is laid out as follows (all values big-endian):
+ *  - header: magic number, format version, whether the column holds strings, the column position, the length and modification time of the indexed csv,
+ *    the number of buckets (a power of two) and the number of entries
+ *  - the start of every bucket in the entries, plus the end of the last one
+ *  - the key of every entry, then the row position of every entry, grouped by bucket and in file order within each bucket
+ */
+public class HashIndex implements ColumnIndex {
+
+    public static final int MAGIC = 0x4D424849;
+    public static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 4 + 4 + 1 + 4 + 8 + 8 + 4 + 4;
+
+    private final boolean stringColumn;
+    private final int column;
+    private final long dataFileLength;
+    private final long dataFileLastModified;
+    private final int numBuckets;
+
+    private final IntBuffer bucketStarts;
+    private final IntBuffer keys;
+    private final LongBuffer positions;
+
+    private HashIndex(String indexFileName) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(Paths.get(indexFileName), StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (buffer.getInt() != MAGIC) throw new IllegalArgumentException("File " + indexFileName + " is not a hash index!");
+        if (buffer.getInt() != VERSION) throw new IllegalArgumentException("Unsupported hash index version in " + indexFileName);
+
+        this.stringColumn = buffer.get() != 0;
+        this.column = buffer.getInt();
+        this.dataFileLength = buffer.getLong();
+        this.dataFileLastModified = buffer.getLong();
+        this.numBuckets = buffer.getInt();
+        int numEntries = buffer.getInt();
+
+        int bucketsOffset = HEADER_SIZE;
+        int keysOffset = bucketsOffset + 4 * (numBuckets + 1);
+        int positionsOffset = keysOffset + 4 * numEntries;
+
+        this.bucketStarts = slice(buffer, bucketsOffset, 4 * (numBuckets + 1)).asIntBuffer();
+        this.keys = slice(buffer, keysOffset, 4 * numEntries).asIntBuffer();
+        this.positions = slice(buffer, positionsOffset, 8 * numEntries).asLongBuffer();
+    }
+
+    //  opens an index file written by build(), memory-mapping it
+    public static HashIndex open(String indexFileName) throws IOException {
+        return new HashIndex(indexFileName);
+    }
+
+    /**
+     * Builds a hash index over a column of the relation's csv file and writes it to the given file.
+     * The keys and row positions of the whole column are gathered in memory first, then grouped into their buckets with a counting sort.
+     *
+     * @param relation the relation to index, which needs to have a csv file
+     * @param column the position of the column to index
+     * @param indexFileName the path to write the index to
+     * @throws IOException thrown if reading the csv or writing the index fails
+     */
+    public static void build(Relation relation, int column, String indexFileName) throws IOException {
+        String dataFileName = relation.getFileLocation();
+        if (dataFileName == null) throw new IllegalArgumentException("Relation " + relation.getName() + " has no csv file to index!");
+
+        boolean stringColumn = relation.getSchema().getStringColumns()[column];
+        int numColumns = relation.getSchema().getDataTypes().size();
+        File dataFile = new File(dataFileName);
+        long dataFileLength = dataFile.length();
+        long dataFileLastModified = dataFile.lastModified();
+
+        int[][] entryKeys = {new int[1024]};
+        long[][] entryPositions = {new long[1024]};
+        int[] numEntries = {0};
+
+        IndexedColumnReader.readColumn(dataFileName, column, numColumns, (rowPosition, cell) -> {
+            if (numEntries[0] == entryKeys[0].length) {
+                entryKeys[0] = Arrays.copyOf(entryKeys[0], entryKeys[0].length * 2);
+                entryPositions[0] = Arrays.copyOf(entryPositions[0], entryPositions[0].length * 2);
+            }
+            entryKeys[0][numEntries[0]] = stringColumn ? cell.hashCode() : Integer.parseInt(cell);
+            entryPositions[0][numEntries[0]] = rowPosition;
+            numEntries[0]++;
+        });
+
+        int count = numEntries[0];
+        int numBuckets = Integer.highestOneBit(Math.max(1, count));
+        if (numBuckets < count) numBuckets <<= 1;
+
+        int[] bucketStarts = new int[numBuckets + 1];
+        for (int i = 0; i < count; i++) bucketStarts[getBucket(entryKeys[0][i], numBuckets) + 1]++;
+        for (int b = 0; b < numBuckets; b++) bucketStarts[b + 1] += bucketStarts[b];
+
+        int[] sortedKeys = new int[count];
+        long[] sortedPositions = new long[count];
+        int[] nextSlot = Arrays.copyOf(bucketStarts, numBuckets);
+        for (int i = 0; i < count; i++) {
+            int slot = nextSlot[getBucket(entryKeys[0][i], numBuckets)]++;
+            sortedKeys[slot] = entryKeys[0][i];
+            sortedPositions[slot] = entryPositions[0][i];
+        }
+
+        try (DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFileName)))) {
+            outputStream.writeInt(MAGIC);
+            outputStream.writeInt(VERSION);
+            outputStream.writeBoolean(stringColumn);
+            outputStream.writeInt(column);
+            outputStream.writeLong(dataFileLength);
+            outputStream.writeLong(dataFileLastModified);
+            outputStream.writeInt(numBuckets);
+            outputStream.writeInt(count);
+
+            for (int bucketStart : bucketStarts) outputStream.writeInt(bucketStart);
+            for (int key : sortedKeys) outputStream.writeInt(key);
+            for (long position : sortedPositions) outputStream.writeLong(position);
+        }
+    }
+
+    @Override
+    public int getColumn() {
+        return column;
+    }
+
+    @Override
+    public boolean supports(ComparisonOperator op) {
+        return op == ComparisonOperator.EQ;
+    }
+
+    //  reads through the key's bucket, keeping the entries with the key's hash
+    @Override
+    public long[] lookup(ComparisonOperator op, Constant key) {
+        if (!supports(op)) throw new UnsupportedOperationException("Hash indexes can only answer equality lookups!");
+        if (stringColumn != (key instanceof StringConstant)) return new long[0];
+
+        int hash = stringColumn ? ((StringConstant) key).getValue().hashCode() : ((IntegerConstant) key).getValue();
+        int bucket = getBucket(hash, numBuckets);
+
+        int start = bucketStarts.get(bucket);
+        int end = bucketStarts.get(bucket + 1);
+        long[] matches = new long[end - start];
+        int numMatches = 0;
+
+        for (int i = start; i < end; i++) {
+            if (keys.get(i) == hash) matches[numMatches++] = positions.get(i);
+        }
+        return Arrays.copyOf(matches, numMatches);
+    }
+
+    @Override
+    public boolean isCurrent(String dataFileName) {
+        File dataFile = new File(dataFileName);
+        return dataFile.length() == dataFileLength && dataFile.lastModified() == dataFileLastModified;
+    }
+
+    //  spreads the key's bits before taking the bucket, since int columns often hold runs of consecutive values
+    private static int getBucket(int key, int numBuckets) {
+        int mixed = key * 0x9E3779B9;
+        return (mixed ^ (mixed >>> 16)) & (numBuckets - 1);
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position(offset);
+        duplicate.limit(offset + length);
+        return duplicate.slice();
+    }
+}
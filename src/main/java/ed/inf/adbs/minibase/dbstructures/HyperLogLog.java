@@ -0,0 +1,66 @@
+package ed.inf.adbs.minibase.dbstructures;
+
+/**
+ * HyperLogLog sketch estimating the number of distinct values added to it in a fixed amount of memory.
+ * Each value is hashed to 64 bits: the top PRECISION bits pick one of the registers, and the register keeps the longest run of leading zeros seen in the rest of the hash.
+ * With 2^14 one byte registers the standard error of the estimate is about 0.8%, and small counts are corrected with linear counting over the empty registers.
+ */
+public class HyperLogLog {
+
+    static final int PRECISION = 14;
+    private static final int NUM_REGISTERS = 1 << PRECISION;
+
+    private final byte[] registers;
+
+    public HyperLogLog() {
+        this.registers = new byte[NUM_REGISTERS];
+    }
+
+    public void addInt(int value) {
+        addHash(mix(value));
+    }
+
+    //  strings are hashed with 64 bit FNV-1a over their characters before being mixed, since String.hashCode() only has 32 bits to spread over the registers
+    public void addString(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        addHash(mix(hash));
+    }
+
+    private void addHash(long hash) {
+        int register = (int) (hash >>> (Long.SIZE - PRECISION));
+        int rank = Math.min(Long.SIZE - PRECISION, Long.numberOfLeadingZeros(hash << PRECISION)) + 1;
+
+        if (rank > registers[register]) registers[register] = (byte) rank;
+    }
+
+    //  the estimated number of distinct values added so far
+    public long estimate() {
+        double sum = 0;
+        int emptyRegisters = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) emptyRegisters++;
+        }
+
+        double alpha = 0.7213 / (1 + 1.079 / NUM_REGISTERS);
+        double estimate = alpha * NUM_REGISTERS * NUM_REGISTERS / sum;
+
+        if (estimate <= 2.5 * NUM_REGISTERS && emptyRegisters > 0) estimate = NUM_REGISTERS * Math.log((double) NUM_REGISTERS / emptyRegisters);
+
+        return Math.round(estimate);
+    }
+
+    //  the finalisation step of MurmurHash3, so that nearby values end up in unrelated registers
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
@@ -0,0 +1,151 @@
+package ed.inf.adbs.minibase.dbstructures;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A relation loaded into memory in a compact column-major layout.
+ * Every column is a plain int array holding the same values as the relation's tuples: int values, and global StringDictionary codes for the string columns.
+ * Tables are immutable once loaded, so any number of cursors can read the same table at the same time.
+ */
+public class InMemoryTable {
+
+    private final String name;
+    private final int[][] columns;
+    private final int rowCount;
+    private final boolean[] stringColumns;
+
+    private InMemoryTable(String name, int[][] columns, int rowCount, boolean[] stringColumns) {
+        this.name = name;
+        this.columns = columns;
+        this.rowCount = rowCount;
+        this.stringColumns = stringColumns;
+    }
+
+    /**
+     * Loads the relation into memory, from its binary columnar file if it has one, otherwise by decoding its csv file.
+     *
+     * @param relation the relation to load
+     * @return the loaded table
+     * @throws IOException thrown if reading the relation's file fails
+     */
+    public static InMemoryTable load(Relation relation) throws IOException {
+        return relation.hasBinaryFile() ? loadBinary(relation) : loadCsv(relation);
+    }
+
+    //  reads the blocks of the binary file straight into the column arrays, translating the file's dictionary codes into global codes
+    private static InMemoryTable loadBinary(Relation relation) throws IOException {
+        try (ColumnarTableReader reader = new ColumnarTableReader(relation.getBinaryFileLocation())) {
+            int numColumns = reader.getColumnTypes().size();
+            if (reader.getRowCount() > Integer.MAX_VALUE) throw new IllegalArgumentException("Relation " + relation.getName() + " has too many rows to be held in memory!");
+
+            int[][] globalCodes = getGlobalCodes(reader);
+
+            int rowCount = (int) reader.getRowCount();
+            int[][] columns = new int[numColumns][rowCount];
+            int[][] block = new int[numColumns][ColumnarTableWriter.BLOCK_SIZE];
+
+            int offset = 0;
+            int blockRowCount;
+            while ((blockRowCount = reader.readBlock(block)) > 0) {
+                for (int i = 0; i < numColumns; i++) {
+                    if (globalCodes[i] == null) {
+                        System.arraycopy(block[i], 0, columns[i], offset, blockRowCount);
+                    } else {
+                        for (int row = 0; row < blockRowCount; row++) {
+                            columns[i][offset + row] = globalCodes[i][block[i][row]];
+                        }
+                    }
+                }
+                offset += blockRowCount;
+            }
+
+            return new InMemoryTable(relation.getName(), columns, rowCount, relation.getSchema().getStringColumns());
+        }
+    }
+
+    //  decodes the csv with the relation's compiled decoder, growing the column arrays as rows are read
+    private static InMemoryTable loadCsv(Relation relation) throws IOException {
+        TupleDecoder decoder = relation.getSchema().getDecoder();
+        int numColumns = decoder.getNumColumns();
+
+        int[][] columns = new int[numColumns][1024];
+        int rowCount = 0;
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(relation.getFileLocation()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Tuple tuple = decoder.decode(line);
+
+                if (rowCount == columns[0].length) {
+                    for (int i = 0; i < numColumns; i++) columns[i] = Arrays.copyOf(columns[i], rowCount * 2);
+                }
+
+                for (int i = 0; i < numColumns; i++) {
+                    columns[i][rowCount] = tuple.getValue(i);
+                }
+                rowCount++;
+            }
+        }
+
+        for (int i = 0; i < numColumns; i++) {
+            columns[i] = Arrays.copyOf(columns[i], rowCount);
+        }
+
+        return new InMemoryTable(relation.getName(), columns, rowCount, relation.getSchema().getStringColumns());
+    }
+
+    //  maps every code of each string column's file dictionary to its global dictionary code, null for the int columns
+    public static int[][] getGlobalCodes(ColumnarTableReader reader) {
+        StringDictionary dictionary = StringDictionary.getDictionary();
+        int[][] globalCodes = new int[reader.getColumnTypes().size()][];
+
+        for (int i = 0; i < globalCodes.length; i++) {
+            String[] fileDictionary = reader.getDictionary(i);
+            if (fileDictionary == null) continue;
+
+            globalCodes[i] = new int[fileDictionary.length];
+            for (int code = 0; code < fileDictionary.length; code++) {
+                globalCodes[i][code] = dictionary.encode(fileDictionary[code]);
+            }
+        }
+        return globalCodes;
+    }
+
+    //  builds the tuple for the given row
+    public Tuple getRow(int row) {
+        int[] values = new int[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            values[i] = columns[i][row];
+        }
+        return new Tuple(values, stringColumns);
+    }
+
+    //  a rough estimate of the heap taken up by the table, used to enforce the table cache's memory budget.
+    //  the strings themselves live in the global dictionary, so only the column arrays are counted
+    public long estimateSizeInBytes() {
+        return 16L * columns.length + 4L * rowCount * columns.length;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getNumColumns() {
+        return columns.length;
+    }
+
+    public int[] getColumn(int column) {
+        return columns[column];
+    }
+
+    public boolean[] getStringColumns() {
+        return stringColumns;
+    }
+}
@@ -0,0 +1,131 @@
+package ed.inf.adbs.minibase.dbstructures;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An index declared in the database's INDEX_DECLARATIONS_FILE_NAME file, which sits next to schema.txt.
+ * Each line of the file declares one index as the relation name, the position of the indexed column and the kind of index, separated by spaces, e.g. "R 0 hash".
+ * Hash indexes only answer equalities, while sorted indexes answer both equalities and ranges.
+ * The index files themselves are kept in the INDEX_DIRECTORY_NAME directory of the database, named after the relation, column and kind, e.g. "indexes/R.0.hash".
+ */
+public class IndexDeclaration {
+
+    public static final String INDEX_DECLARATIONS_FILE_NAME = "indexes.txt";
+    public static final String INDEX_DIRECTORY_NAME = "indexes";
+
+    public enum Kind {
+        HASH("hash"),
+        SORTED("sorted");
+
+        private final String text;
+
+        Kind(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public String toString() {
+            return text;
+        }
+
+        public static Kind fromString(String text) {
+            return Arrays.stream(values())
+                    .filter(kind -> kind.text.equalsIgnoreCase(text))
+                    .findFirst().orElseThrow(() -> new IllegalArgumentException("Unsupported index kind " + text));
+        }
+    }
+
+    private final String relationName;
+    private final int column;
+    private final Kind kind;
+
+    public IndexDeclaration(String relationName, int column, Kind kind) {
+        this.relationName = relationName;
+        this.column = column;
+        this.kind = kind;
+    }
+
+    /**
+     * Reads the index declarations of the database in the given directory.
+     *
+     * @param databaseDir the directory path of the database directory
+     * @return the declared indexes, empty if the database has no declarations file
+     * @throws IOException thrown if reading the declarations file fails
+     */
+    public static List<IndexDeclaration> readDeclarations(String databaseDir) throws IOException {
+        List<IndexDeclaration> declarations = new ArrayList<>();
+
+        File declarationsFile = new File(databaseDir + INDEX_DECLARATIONS_FILE_NAME);
+        if (!declarationsFile.exists()) return declarations;
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(declarationsFile))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().isEmpty()) continue;
+
+                String[] parts = line.trim().split("\\s+");
+                if (parts.length != 3) throw new IllegalArgumentException("Index declarations need a relation name, a column and a kind, got: " + line);
+
+                declarations.add(new IndexDeclaration(parts[0], Integer.parseInt(parts[1]), Kind.fromString(parts[2])));
+            }
+        }
+
+        return declarations;
+    }
+
+    //  opens the index's file within the given database directory
+    public ColumnIndex openIndex(String databaseDir) throws IOException {
+        switch (kind) {
+            case HASH:
+                return HashIndex.open(getIndexFileName(databaseDir));
+            case SORTED:
+                return SortedIndex.open(getIndexFileName(databaseDir));
+            default:
+                throw new UnsupportedOperationException("Unsupported index kind " + kind);
+        }
+    }
+
+    //  builds the index over the relation's csv, writing it to its file within the given database directory
+    public void buildIndex(Relation relation, String databaseDir) throws IOException {
+        new File(databaseDir + INDEX_DIRECTORY_NAME).mkdirs();
+
+        switch (kind) {
+            case HASH:
+                HashIndex.build(relation, column, getIndexFileName(databaseDir));
+                break;
+            case SORTED:
+                SortedIndex.build(relation, column, getIndexFileName(databaseDir));
+                break;
+            default:
+                throw new UnsupportedOperationException("Unsupported index kind " + kind);
+        }
+    }
+
+    //  the path of the index's file within the given database directory
+    public String getIndexFileName(String databaseDir) {
+        return databaseDir + INDEX_DIRECTORY_NAME + File.separator + relationName + "." + column + "." + kind;
+    }
+
+    public String getRelationName() {
+        return relationName;
+    }
+
+    public int getColumn() {
+        return column;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    @Override
+    public String toString() {
+        return relationName + " " + column + " " + kind;
+    }
+}
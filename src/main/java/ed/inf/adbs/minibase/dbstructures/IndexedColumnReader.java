@@ -0,0 +1,72 @@
+package ed.inf.adbs.minibase.dbstructures;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a single column of a csv file along with the byte offset of every row, for building indexes over it.
+ * Rows are split the same way the MappedScanOperator splits them, so the offsets line up with the rows it reads back from them.
+ */
+class IndexedColumnReader {
+
+    interface CellConsumer {
+        void accept(long rowPosition, String cell);
+    }
+
+    /**
+     * Calls the consumer with the position and the stripped cell of the given column of every row of the csv, in file order.
+     *
+     * @param fileName the csv file to read
+     * @param column the position of the column to read
+     * @param numColumns the number of columns in every row
+     * @param consumer called for every row
+     * @throws IOException thrown if the file can't be read
+     */
+    static void readColumn(String fileName, int column, int numColumns, CellConsumer consumer) throws IOException {
+        if (new File(fileName).length() > Integer.MAX_VALUE) throw new IllegalArgumentException("The file " + fileName + " is too large to be indexed!");
+        if (column < 0 || column >= numColumns) throw new IllegalArgumentException("Can't index column " + column + " of a relation with " + numColumns + " columns!");
+
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        int limit = buffer.limit();
+        int position = 0;
+        byte[] cellBytes = new byte[64];
+
+        while (position < limit) {
+            int rowStart = position;
+            String cell = null;
+
+            for (int i = 0; i < numColumns; i++) {
+                int cellStart = position;
+                while (position < limit && buffer.get(position) != ',' && buffer.get(position) != '\n' && buffer.get(position) != '\r') position++;
+
+                boolean lastColumn = i == numColumns - 1;
+                boolean endOfRow = position == limit || buffer.get(position) != ',';
+                if (lastColumn != endOfRow) throw new IllegalArgumentException("The number of columns and the number of classes parsed from the schema don't match!");
+
+                if (i == column) {
+                    if (cellBytes.length < position - cellStart) cellBytes = new byte[Math.max(position - cellStart, cellBytes.length * 2)];
+                    for (int j = cellStart; j < position; j++) cellBytes[j - cellStart] = buffer.get(j);
+                    cell = TupleDecoder.stripCell(new String(cellBytes, 0, position - cellStart, StandardCharsets.UTF_8));
+                }
+
+                if (lastColumn) {
+                    if (position < limit && buffer.get(position) == '\r') position++;
+                    if (position < limit && buffer.get(position) == '\n') position++;
+                } else {
+                    position++;
+                }
+            }
+
+            consumer.accept(rowStart, cell);
+        }
+    }
+}
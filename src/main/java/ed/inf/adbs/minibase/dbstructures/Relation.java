@@ -1,11 +1,33 @@
 package ed.inf.adbs.minibase.dbstructures;
 
-//  maintains a relation's name, schema and file location
+import ed.inf.adbs.minibase.base.ComparisonOperator;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+//  maintains a relation's name, schema and file location, as well as the location of its binary columnar file if one has been generated, its statistics if it has been analysed, and the indexes built over its columns
 public class Relation {
 
     private String name;
     private Schema schema;
     private String fileLocation;
+    private String binaryFileLocation;
+
+    //  how many bytes at the start of a csv file are read to estimate how many rows it holds
+    static final int ROW_COUNT_SAMPLE_BYTES = 64 * 1024;
+
+    //  the row count worked out by estimateRowCount(), -1 until it has been asked for
+    private long estimatedRowCount = -1;
+
+    //  the statistics gathered by ANALYZE, null if the relation hasn't been analysed
+    private TableStatistics statistics;
+
+    //  the indexes over the relation's csv that are up to date with it
+    private final List<ColumnIndex> indexes = new ArrayList<>();
 
     public Relation(String name, Schema schema, String fileLocation) {
         this.name = name;
@@ -36,4 +58,85 @@ public class Relation {
     public void setFileLocation(String fileLocation) {
         this.fileLocation = fileLocation;
     }
+
+    public String getBinaryFileLocation() {
+        return binaryFileLocation;
+    }
+
+    public void setBinaryFileLocation(String binaryFileLocation) {
+        this.binaryFileLocation = binaryFileLocation;
+    }
+
+    public boolean hasBinaryFile() {
+        return binaryFileLocation != null;
+    }
+
+    public TableStatistics getStatistics() {
+        return statistics;
+    }
+
+    public void setStatistics(TableStatistics statistics) {
+        this.statistics = statistics;
+        this.estimatedRowCount = -1;
+    }
+
+    public List<ColumnIndex> getIndexes() {
+        return indexes;
+    }
+
+    public void addIndex(ColumnIndex index) {
+        indexes.add(index);
+    }
+
+    //  returns an index over the given column that can answer comparisons with the given operator, null if there is none
+    public ColumnIndex getIndex(int column, ComparisonOperator op) {
+        for (ColumnIndex index : indexes) {
+            if (index.getColumn() == column && index.supports(op)) return index;
+        }
+        return null;
+    }
+
+    /**
+     * Estimates the number of rows in the relation for the planner's cost model, without scanning the whole relation.
+     * The row count recorded by ANALYZE is used if there is one, and a binary columnar file records its exact row count too. For a csv, the rows in its first ROW_COUNT_SAMPLE_BYTES are counted and scaled up to the size of the file.
+     * The estimate is worked out once and then kept.
+     *
+     * @return the estimated number of rows
+     * @throws IOException thrown if reading the relation's files fails
+     */
+    public long estimateRowCount() throws IOException {
+        if (estimatedRowCount >= 0) return estimatedRowCount;
+
+        if (statistics != null) {
+            estimatedRowCount = statistics.getRowCount();
+            return estimatedRowCount;
+        }
+
+        if (hasBinaryFile()) {
+            try (ColumnarTableReader reader = new ColumnarTableReader(binaryFileLocation)) {
+                estimatedRowCount = reader.getRowCount();
+            }
+            return estimatedRowCount;
+        }
+
+        try (InputStream inputStream = new FileInputStream(fileLocation)) {
+            byte[] sample = new byte[ROW_COUNT_SAMPLE_BYTES];
+            int sampleLength = 0;
+            int read;
+            while (sampleLength < sample.length && (read = inputStream.read(sample, sampleLength, sample.length - sampleLength)) > 0) {
+                sampleLength += read;
+            }
+
+            long lines = 0;
+            for (int i = 0; i < sampleLength; i++) {
+                if (sample[i] == '\n') lines++;
+            }
+            //  a last row without a trailing newline still counts
+            if (sampleLength > 0 && sample[sampleLength - 1] != '\n') lines++;
+
+            long fileLength = new File(fileLocation).length();
+            estimatedRowCount = (sampleLength == 0 || fileLength <= sampleLength) ? lines : Math.round((double) lines * fileLength / sampleLength);
+        }
+        return estimatedRowCount;
+    }
 }
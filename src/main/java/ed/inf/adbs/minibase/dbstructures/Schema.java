@@ -1,7 +1,10 @@
 package ed.inf.adbs.minibase.dbstructures;
 
 import ed.inf.adbs.minibase.base.Constant;
+import ed.inf.adbs.minibase.base.StringConstant;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 //  maintains a relation's schema by keeping track of the relation name and the column's types
@@ -10,6 +13,15 @@ public class Schema {
     String name;
     List<Class<? extends Constant>> dataTypes;
 
+    //  the decoder turning csv lines of this relation into tuples, compiled from the data types
+    TupleDecoder decoder;
+
+    //  the type flags shared by every tuple of this relation, marking which columns are strings
+    boolean[] stringColumns;
+
+    //  the keys declared for this relation, each as the positions of its columns. No two rows of the relation agree on all the columns of a key
+    List<int[]> keys = new ArrayList<>();
+
     public Schema(String name, List<Class<? extends Constant>> dataTypes) {
         this.name = name;
         this.dataTypes = dataTypes;
@@ -29,5 +41,42 @@ public class Schema {
 
     public void setDataTypes(List<Class<? extends Constant>> dataTypes) {
         this.dataTypes = dataTypes;
+        this.decoder = null;
+        this.stringColumns = null;
+    }
+
+    public List<int[]> getKeys() {
+        return keys;
+    }
+
+    //  declares the given columns a key of the relation, which only the relation's owner can vouch for as it isn't checked against the data
+    public void addKey(int[] columns) {
+        if (columns.length == 0) throw new IllegalArgumentException("A key needs at least one column!");
+        for (int column : columns) {
+            if (column < 0 || column >= dataTypes.size()) throw new IllegalArgumentException("Key column " + column + " is out of range for relation " + name + "!");
+        }
+        keys.add(Arrays.copyOf(columns, columns.length));
+    }
+
+    //  compiles the decoder for this schema's column types so that it can be reused by every scan over the relation
+    public void compileDecoder() {
+        this.decoder = new TupleDecoder(dataTypes, getStringColumns());
+    }
+
+    public boolean[] getStringColumns() {
+        if (stringColumns == null) {
+            boolean[] flags = new boolean[dataTypes.size()];
+            for (int i = 0; i < flags.length; i++) {
+                flags[i] = dataTypes.get(i).equals(StringConstant.class);
+            }
+            stringColumns = flags;
+        }
+        return stringColumns;
+    }
+
+    //  returns the compiled decoder, compiling it first if that hasn't happened yet
+    public TupleDecoder getDecoder() {
+        if (decoder == null) compileDecoder();
+        return decoder;
     }
 }
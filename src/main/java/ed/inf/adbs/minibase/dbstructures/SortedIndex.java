@@ -0,0 +1,271 @@
+package ed.inf.adbs.minibase.dbstructures;
+
+import ed.inf.adbs.minibase.base.ComparisonOperator;
+import ed.inf.adbs.minibase.base.Constant;
+import ed.inf.adbs.minibase.base.IntegerConstant;
+import ed.inf.adbs.minibase.base.StringConstant;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * A static sorted index over a column, answering equality and range lookups with binary searches over the memory-mapped index file.
+ * The entries are kept sorted by key, so the rows satisfying a comparison form a single run of entries found in logarithmic time,
+ * and a lookup costs little more than the number of rows it returns.
+ * Int columns are keyed on their values. String columns store their distinct values in sorted order and are keyed on the rank of each value among them,
+ * so string keys sort the same way the strings themselves compare.
+ *
+ * The file is laid out as follows (all values big-endian):
+ *  - header: magic number, format version, whether the column holds strings, the column position, the length and modification time of the indexed csv,
+ *    the number of entries, and the number of distinct strings and the length of their UTF-8 bytes (both 0 for int columns)
+ *  - for string columns, the offset of every distinct string in the string bytes plus the end of the last one, then the string bytes themselves
+ *  - the key of every entry in increasing order, then the row position of every entry, in file order among entries with equal keys
+ */
+public class SortedIndex implements ColumnIndex {
+
+    public static final int MAGIC = 0x4D424953;
+    public static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 4 + 4 + 1 + 4 + 8 + 8 + 4 + 4 + 4;
+
+    private final boolean stringColumn;
+    private final int column;
+    private final long dataFileLength;
+    private final long dataFileLastModified;
+    private final int numEntries;
+    private final int numStrings;
+
+    private final IntBuffer stringOffsets;
+    private final ByteBuffer stringBytes;
+    private final IntBuffer keys;
+    private final LongBuffer positions;
+
+    private SortedIndex(String indexFileName) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(Paths.get(indexFileName), StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (buffer.getInt() != MAGIC) throw new IllegalArgumentException("File " + indexFileName + " is not a sorted index!");
+        if (buffer.getInt() != VERSION) throw new IllegalArgumentException("Unsupported sorted index version in " + indexFileName);
+
+        this.stringColumn = buffer.get() != 0;
+        this.column = buffer.getInt();
+        this.dataFileLength = buffer.getLong();
+        this.dataFileLastModified = buffer.getLong();
+        this.numEntries = buffer.getInt();
+        this.numStrings = buffer.getInt();
+        int stringBytesLength = buffer.getInt();
+
+        int stringOffsetsOffset = HEADER_SIZE;
+        int stringBytesOffset = stringOffsetsOffset + (stringColumn ? 4 * (numStrings + 1) : 0);
+        int keysOffset = stringBytesOffset + stringBytesLength;
+        int positionsOffset = keysOffset + 4 * numEntries;
+
+        this.stringOffsets = slice(buffer, stringOffsetsOffset, stringBytesOffset - stringOffsetsOffset).asIntBuffer();
+        this.stringBytes = slice(buffer, stringBytesOffset, stringBytesLength);
+        this.keys = slice(buffer, keysOffset, 4 * numEntries).asIntBuffer();
+        this.positions = slice(buffer, positionsOffset, 8 * numEntries).asLongBuffer();
+    }
+
+    //  opens an index file written by build(), memory-mapping it
+    public static SortedIndex open(String indexFileName) throws IOException {
+        return new SortedIndex(indexFileName);
+    }
+
+    /**
+     * Builds a sorted index over a column of the relation's csv file and writes it to the given file.
+     * The keys and row positions of the whole column are gathered in memory first, then sorted on the key and the row's place in the file together.
+     *
+     * @param relation the relation to index, which needs to have a csv file
+     * @param column the position of the column to index
+     * @param indexFileName the path to write the index to
+     * @throws IOException thrown if reading the csv or writing the index fails
+     */
+    public static void build(Relation relation, int column, String indexFileName) throws IOException {
+        String dataFileName = relation.getFileLocation();
+        if (dataFileName == null) throw new IllegalArgumentException("Relation " + relation.getName() + " has no csv file to index!");
+
+        boolean stringColumn = relation.getSchema().getStringColumns()[column];
+        int numColumns = relation.getSchema().getDataTypes().size();
+        File dataFile = new File(dataFileName);
+        long dataFileLength = dataFile.length();
+        long dataFileLastModified = dataFile.lastModified();
+
+        //  string cells are first numbered in the order they're seen, and renumbered by their rank once all of them are known
+        Map<String, Integer> stringIds = new HashMap<>();
+        int[][] entryKeys = {new int[1024]};
+        long[][] entryPositions = {new long[1024]};
+        int[] numEntries = {0};
+
+        IndexedColumnReader.readColumn(dataFileName, column, numColumns, (rowPosition, cell) -> {
+            if (numEntries[0] == entryKeys[0].length) {
+                entryKeys[0] = Arrays.copyOf(entryKeys[0], entryKeys[0].length * 2);
+                entryPositions[0] = Arrays.copyOf(entryPositions[0], entryPositions[0].length * 2);
+            }
+            entryKeys[0][numEntries[0]] = stringColumn ? stringIds.computeIfAbsent(cell, c -> stringIds.size()) : Integer.parseInt(cell);
+            entryPositions[0][numEntries[0]] = rowPosition;
+            numEntries[0]++;
+        });
+
+        String[] sortedStrings = stringIds.keySet().toArray(new String[0]);
+        Arrays.sort(sortedStrings);
+        int[] ranks = new int[sortedStrings.length];
+        for (int rank = 0; rank < sortedStrings.length; rank++) ranks[stringIds.get(sortedStrings[rank])] = rank;
+
+        //  sorting the entries on their key, and their place in the file among equal keys, packed into one long each
+        //  the key's sign bit is flipped so that negative keys sort before positive ones as unsigned values
+        int count = numEntries[0];
+        long[] sortedEntries = new long[count];
+        for (int i = 0; i < count; i++) {
+            int key = stringColumn ? ranks[entryKeys[0][i]] : entryKeys[0][i];
+            sortedEntries[i] = ((long) (key ^ Integer.MIN_VALUE) << 32) | i;
+        }
+        Arrays.sort(sortedEntries);
+
+        byte[][] encodedStrings = new byte[sortedStrings.length][];
+        int stringBytesLength = 0;
+        for (int i = 0; i < sortedStrings.length; i++) {
+            encodedStrings[i] = sortedStrings[i].getBytes(StandardCharsets.UTF_8);
+            stringBytesLength += encodedStrings[i].length;
+        }
+
+        try (DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFileName)))) {
+            outputStream.writeInt(MAGIC);
+            outputStream.writeInt(VERSION);
+            outputStream.writeBoolean(stringColumn);
+            outputStream.writeInt(column);
+            outputStream.writeLong(dataFileLength);
+            outputStream.writeLong(dataFileLastModified);
+            outputStream.writeInt(count);
+            outputStream.writeInt(sortedStrings.length);
+            outputStream.writeInt(stringBytesLength);
+
+            if (stringColumn) {
+                int offset = 0;
+                for (byte[] encodedString : encodedStrings) {
+                    outputStream.writeInt(offset);
+                    offset += encodedString.length;
+                }
+                outputStream.writeInt(offset);
+                for (byte[] encodedString : encodedStrings) outputStream.write(encodedString);
+            }
+
+            for (long entry : sortedEntries) outputStream.writeInt((int) (entry >>> 32) ^ Integer.MIN_VALUE);
+            for (long entry : sortedEntries) outputStream.writeLong(entryPositions[0][(int) entry]);
+        }
+    }
+
+    @Override
+    public int getColumn() {
+        return column;
+    }
+
+    @Override
+    public boolean supports(ComparisonOperator op) {
+        return op != ComparisonOperator.NEQ;
+    }
+
+    //  finds the run of entries whose keys satisfy the comparison, then returns their positions in file order
+    @Override
+    public long[] lookup(ComparisonOperator op, Constant key) {
+        if (!supports(op)) throw new UnsupportedOperationException("Sorted indexes can't answer " + op + " lookups!");
+        if (stringColumn != (key instanceof StringConstant)) return new long[0];
+
+        //  the key to search for, and whether a column value equal to the constant has that key
+        //  for strings that's the rank of the first distinct string not below the constant, which is only equal to it if the constant occurs in the column
+        long searchKey;
+        boolean present;
+        if (stringColumn) {
+            String value = ((StringConstant) key).getValue();
+            searchKey = findStringRank(value);
+            present = searchKey < numStrings && getString((int) searchKey).equals(value);
+        } else {
+            searchKey = ((IntegerConstant) key).getValue();
+            present = true;
+        }
+        long afterKey = present ? searchKey + 1 : searchKey;
+
+        //  the entries to return are those with keys in [lowKey, highKey)
+        long lowKey = Long.MIN_VALUE;
+        long highKey = Long.MAX_VALUE;
+        switch (op) {
+            case EQ:
+                lowKey = searchKey;
+                highKey = afterKey;
+                break;
+            case LT:
+                highKey = searchKey;
+                break;
+            case LEQ:
+                highKey = afterKey;
+                break;
+            case GT:
+                lowKey = afterKey;
+                break;
+            case GEQ:
+                lowKey = searchKey;
+                break;
+        }
+
+        int start = findFirstEntry(lowKey);
+        int end = findFirstEntry(highKey);
+        if (start >= end) return new long[0];
+
+        long[] matches = new long[end - start];
+        for (int i = start; i < end; i++) matches[i - start] = positions.get(i);
+        Arrays.sort(matches);
+        return matches;
+    }
+
+    @Override
+    public boolean isCurrent(String dataFileName) {
+        File dataFile = new File(dataFileName);
+        return dataFile.length() == dataFileLength && dataFile.lastModified() == dataFileLastModified;
+    }
+
+    //  the index of the first entry with a key of at least the given one, or the number of entries if there is none
+    private int findFirstEntry(long key) {
+        int low = 0;
+        int high = numEntries;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (keys.get(middle) < key) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+
+    //  the rank of the first distinct string that isn't below the given one, or the number of distinct strings if there is none
+    private int findStringRank(String value) {
+        int low = 0;
+        int high = numStrings;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (getString(middle).compareTo(value) < 0) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+
+    private String getString(int rank) {
+        int start = stringOffsets.get(rank);
+        byte[] bytes = new byte[stringOffsets.get(rank + 1) - start];
+        for (int i = 0; i < bytes.length; i++) bytes[i] = stringBytes.get(start + i);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position(offset);
+        duplicate.limit(offset + length);
+        return duplicate.slice();
+    }
+}
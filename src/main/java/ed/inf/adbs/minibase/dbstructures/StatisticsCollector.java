@@ -0,0 +1,222 @@
+package ed.inf.adbs.minibase.dbstructures;
+
+import ed.inf.adbs.minibase.base.Constant;
+import ed.inf.adbs.minibase.base.IntegerConstant;
+import ed.inf.adbs.minibase.base.StringConstant;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Computes the statistics of a relation for ANALYZE in a single pass over it, reading its binary columnar file if it has one and its csv otherwise.
+ * The row count, min and max of every column are exact, and its distinct values are counted with a HyperLogLog sketch.
+ * Every column also keeps a uniform reservoir sample of SAMPLE_SIZE values, which the most common values and the histogram are worked out from,
+ * and which makes the distinct count exact for columns small enough to fit in it entirely.
+ * Values are read without going through the global StringDictionary, so analysing relations doesn't fill it up with strings no query asked for.
+ */
+public class StatisticsCollector {
+
+    static final int SAMPLE_SIZE = 30000;
+    static final int MOST_COMMON_VALUES = 10;
+    static final int HISTOGRAM_BUCKETS = 20;
+
+    //  the seed of the reservoir sampling, fixed so that analysing the same relation twice gives the same statistics
+    private static final long SAMPLE_SEED = 42;
+
+    /**
+     * Gathers the statistics of the given relation.
+     *
+     * @param relation the relation to analyse
+     * @return the relation's statistics
+     * @throws IOException thrown if reading the relation fails
+     */
+    public static TableStatistics analyze(Relation relation) throws IOException {
+        boolean[] stringColumns = relation.getSchema().getStringColumns();
+
+        List<ColumnCollector> collectors = new ArrayList<>();
+        for (boolean stringColumn : stringColumns) collectors.add(new ColumnCollector(stringColumn));
+
+        long rowCount = relation.hasBinaryFile() ? collectFromBinaryFile(relation.getBinaryFileLocation(), collectors) : collectFromCsv(relation.getFileLocation(), collectors);
+
+        List<ColumnStatistics> columnStatistics = new ArrayList<>();
+        for (ColumnCollector collector : collectors) columnStatistics.add(collector.build(rowCount));
+
+        return new TableStatistics(relation.getName(), rowCount, columnStatistics);
+    }
+
+    private static long collectFromBinaryFile(String fileName, List<ColumnCollector> collectors) throws IOException {
+        long rowCount = 0;
+
+        try (ColumnarTableReader reader = new ColumnarTableReader(fileName)) {
+            if (reader.getColumnTypes().size() != collectors.size()) throw new IllegalArgumentException("The number of columns in " + fileName + " doesn't match the schema!");
+
+            int[][] columns = new int[collectors.size()][ColumnarTableWriter.BLOCK_SIZE];
+            int rows;
+            while ((rows = reader.readBlock(columns)) > 0) {
+                for (int c = 0; c < collectors.size(); c++) {
+                    ColumnCollector collector = collectors.get(c);
+                    String[] dictionary = reader.getDictionary(c);
+
+                    for (int row = 0; row < rows; row++) {
+                        if (collector.stringColumn) collector.addString(dictionary[columns[c][row]]);
+                        else collector.addInt(columns[c][row]);
+                    }
+                }
+                rowCount += rows;
+            }
+        }
+
+        return rowCount;
+    }
+
+    private static long collectFromCsv(String fileName, List<ColumnCollector> collectors) throws IOException {
+        long rowCount = 0;
+        int numColumns = collectors.size();
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(fileName))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int cellStart = 0;
+                for (int c = 0; c < numColumns; c++) {
+                    int cellEnd = line.indexOf(',', cellStart);
+
+                    boolean lastColumn = c == numColumns - 1;
+                    if (lastColumn != (cellEnd < 0)) throw new IllegalArgumentException("The number of columns and the number of classes parsed from the schema don't match!");
+                    if (lastColumn) cellEnd = line.length();
+
+                    String cell = TupleDecoder.stripCell(line.substring(cellStart, cellEnd));
+                    if (collectors.get(c).stringColumn) collectors.get(c).addString(cell);
+                    else collectors.get(c).addInt(Integer.parseInt(cell));
+
+                    cellStart = cellEnd + 1;
+                }
+                rowCount++;
+            }
+        }
+
+        return rowCount;
+    }
+
+    //  accumulates the statistics of a single column as its values are added
+    private static class ColumnCollector {
+
+        private final boolean stringColumn;
+        private final HyperLogLog distinctValues;
+        private final Random random;
+
+        private long count;
+        private int minInt = Integer.MAX_VALUE;
+        private int maxInt = Integer.MIN_VALUE;
+        private String minString;
+        private String maxString;
+
+        private final int[] intSample;
+        private final String[] stringSample;
+        private int sampleSize;
+
+        ColumnCollector(boolean stringColumn) {
+            this.stringColumn = stringColumn;
+            this.distinctValues = new HyperLogLog();
+            this.random = new Random(SAMPLE_SEED);
+            this.intSample = stringColumn ? null : new int[SAMPLE_SIZE];
+            this.stringSample = stringColumn ? new String[SAMPLE_SIZE] : null;
+        }
+
+        void addInt(int value) {
+            distinctValues.addInt(value);
+            minInt = Math.min(minInt, value);
+            maxInt = Math.max(maxInt, value);
+
+            int slot = getSampleSlot();
+            if (slot >= 0) intSample[slot] = value;
+        }
+
+        void addString(String value) {
+            distinctValues.addString(value);
+            if (minString == null || value.compareTo(minString) < 0) minString = value;
+            if (maxString == null || value.compareTo(maxString) > 0) maxString = value;
+
+            int slot = getSampleSlot();
+            if (slot >= 0) stringSample[slot] = value;
+        }
+
+        //  reservoir sampling: the first SAMPLE_SIZE values fill the sample, after which the n-th value replaces a random one with probability SAMPLE_SIZE / n
+        private int getSampleSlot() {
+            count++;
+            if (sampleSize < SAMPLE_SIZE) return sampleSize++;
+
+            long slot = (long) (random.nextDouble() * count);
+            return (slot < SAMPLE_SIZE) ? (int) slot : -1;
+        }
+
+        ColumnStatistics build(long rowCount) {
+            Constant[] sorted = new Constant[sampleSize];
+            if (stringColumn) {
+                String[] values = Arrays.copyOf(stringSample, sampleSize);
+                Arrays.sort(values);
+                for (int i = 0; i < sampleSize; i++) sorted[i] = new StringConstant(values[i]);
+            } else {
+                int[] values = Arrays.copyOf(intSample, sampleSize);
+                Arrays.sort(values);
+                for (int i = 0; i < sampleSize; i++) sorted[i] = new IntegerConstant(values[i]);
+            }
+
+            //  runs of equal values in the sorted sample, as their start positions
+            List<Integer> runStarts = new ArrayList<>();
+            for (int i = 0; i < sampleSize; i++) {
+                if (i == 0 || !sorted[i].equals(sorted[i - 1])) runStarts.add(i);
+            }
+            int numRuns = runStarts.size();
+            boolean wholeColumnSampled = count == sampleSize;
+
+            long distinctCount = wholeColumnSampled ? numRuns : Math.max(numRuns, Math.min(count, distinctValues.estimate()));
+
+            //  a value is a most common value if it appears more often than the average value of the sample, or if the column has so few values that all of them fit
+            List<Integer> candidateRuns = new ArrayList<>();
+            double averageRunLength = (numRuns == 0) ? 0 : (double) sampleSize / numRuns;
+            for (int r = 0; r < numRuns; r++) {
+                int runLength = getRunEnd(runStarts, r) - runStarts.get(r);
+                if ((wholeColumnSampled && numRuns <= MOST_COMMON_VALUES) || (runLength > 1 && runLength > averageRunLength)) candidateRuns.add(r);
+            }
+            candidateRuns.sort(Comparator.comparingInt((Integer r) -> getRunEnd(runStarts, r) - runStarts.get(r)).reversed());
+            if (candidateRuns.size() > MOST_COMMON_VALUES) candidateRuns = candidateRuns.subList(0, MOST_COMMON_VALUES);
+
+            Constant[] mostCommonValues = new Constant[candidateRuns.size()];
+            double[] mostCommonFrequencies = new double[candidateRuns.size()];
+            Set<Integer> mostCommonRuns = new HashSet<>(candidateRuns);
+            for (int i = 0; i < candidateRuns.size(); i++) {
+                int r = candidateRuns.get(i);
+                mostCommonValues[i] = sorted[runStarts.get(r)];
+                mostCommonFrequencies[i] = (double) (getRunEnd(runStarts, r) - runStarts.get(r)) / sampleSize;
+            }
+
+            //  the histogram is built over the sampled values left once the most common ones are taken out
+            List<Constant> remaining = new ArrayList<>();
+            for (int r = 0; r < numRuns; r++) {
+                if (mostCommonRuns.contains(r)) continue;
+                for (int i = runStarts.get(r); i < getRunEnd(runStarts, r); i++) remaining.add(sorted[i]);
+            }
+
+            Constant[] histogramBounds = new Constant[0];
+            if (remaining.size() >= 2) {
+                int numBuckets = Math.min(HISTOGRAM_BUCKETS, remaining.size() - 1);
+                histogramBounds = new Constant[numBuckets + 1];
+                for (int i = 0; i <= numBuckets; i++) {
+                    histogramBounds[i] = remaining.get((int) ((long) i * (remaining.size() - 1) / numBuckets));
+                }
+            }
+
+            Constant min = (count == 0) ? null : (stringColumn ? new StringConstant(minString) : new IntegerConstant(minInt));
+            Constant max = (count == 0) ? null : (stringColumn ? new StringConstant(maxString) : new IntegerConstant(maxInt));
+
+            //  neither the csv nor the binary format can hold a null, so every value counted is a proper one
+            return new ColumnStatistics(stringColumn, rowCount, rowCount - count, distinctCount, min, max, mostCommonValues, mostCommonFrequencies, histogramBounds);
+        }
+
+        private int getRunEnd(List<Integer> runStarts, int run) {
+            return (run + 1 < runStarts.size()) ? runStarts.get(run + 1) : sampleSize;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package ed.inf.adbs.minibase.dbstructures;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Global dictionary assigning every distinct string value an int code, which is what tuples store in their string columns.
+ * Since there is a single dictionary for the whole database, two string cells are equal exactly when their codes are equal, regardless of which relation they come from.
+ * Codes are only stable for the lifetime of the process, so anything persisted to disk stores the strings themselves.
+ * Implemented as a singleton, and safe to use from multiple threads.
+ */
+public class StringDictionary {
+
+    //  the global singleton instance
+    private static final StringDictionary dictionary = new StringDictionary();
+
+    private final ConcurrentHashMap<String, Integer> codes;
+
+    //  strings indexed by their code. Replaced with a larger copy when full, and only ever written while holding the lock
+    private volatile String[] strings;
+    private int size;
+
+    private StringDictionary() {
+        this.codes = new ConcurrentHashMap<>();
+        this.strings = new String[1024];
+        this.size = 0;
+    }
+
+    public static StringDictionary getDictionary() {
+        return dictionary;
+    }
+
+    //  returns the code of the given string, assigning it the next free code if it hasn't been seen before
+    public int encode(String value) {
+        Integer code = codes.get(value);
+        if (code != null) return code;
+
+        synchronized (this) {
+            code = codes.get(value);
+            if (code != null) return code;
+
+            if (size == strings.length) strings = Arrays.copyOf(strings, size * 2);
+            strings[size] = value;
+            codes.put(value, size);
+            return size++;
+        }
+    }
+
+    //  returns the code of the given string, or -1 if it has never been encoded, without adding it to the dictionary
+    public int lookup(String value) {
+        Integer code = codes.get(value);
+        return (code == null) ? -1 : code;
+    }
+
+    public String decode(int code) {
+        return strings[code];
+    }
+
+    public int size() {
+        return codes.size();
+    }
+}
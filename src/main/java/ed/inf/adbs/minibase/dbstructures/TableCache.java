@@ -0,0 +1,72 @@
+package ed.inf.adbs.minibase.dbstructures;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps relations resident in memory as InMemoryTables, within a configurable memory budget.
+ * Whole relations are evicted in least recently used order once loading another one would go over the budget.
+ * Relations that would not fit in the budget on their own are never cached.
+ */
+public class TableCache {
+
+    private final long memoryBudgetBytes;
+
+    //  access-ordered, so iteration starts at the least recently used table
+    private final LinkedHashMap<String, InMemoryTable> tables;
+    private long usedBytes;
+
+    public TableCache(long memoryBudgetBytes) {
+        if (memoryBudgetBytes <= 0) throw new IllegalArgumentException("The table cache needs a positive memory budget!");
+
+        this.memoryBudgetBytes = memoryBudgetBytes;
+        this.tables = new LinkedHashMap<>(16, 0.75f, true);
+        this.usedBytes = 0;
+    }
+
+    /**
+     * Returns the cached table for the relation, loading it into the cache first if it isn't resident yet.
+     * Loading evicts least recently used tables until the new table fits in the budget.
+     *
+     * @param relation the relation to get the table for
+     * @return the in-memory table, or null if the relation is too large to be cached within the budget
+     * @throws IOException thrown if loading the relation fails
+     */
+    public synchronized InMemoryTable getTable(Relation relation) throws IOException {
+        InMemoryTable table = tables.get(relation.getName());
+        if (table != null) return table;
+
+        table = InMemoryTable.load(relation);
+        long tableSize = table.estimateSizeInBytes();
+        if (tableSize > memoryBudgetBytes) return null;
+
+        Iterator<Map.Entry<String, InMemoryTable>> leastRecentlyUsed = tables.entrySet().iterator();
+        while (usedBytes + tableSize > memoryBudgetBytes && leastRecentlyUsed.hasNext()) {
+            usedBytes -= leastRecentlyUsed.next().getValue().estimateSizeInBytes();
+            leastRecentlyUsed.remove();
+        }
+
+        tables.put(relation.getName(), table);
+        usedBytes += tableSize;
+        return table;
+    }
+
+    public synchronized boolean isResident(String relationName) {
+        return tables.containsKey(relationName);
+    }
+
+    public synchronized void clear() {
+        tables.clear();
+        usedBytes = 0;
+    }
+
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public long getMemoryBudgetBytes() {
+        return memoryBudgetBytes;
+    }
+}
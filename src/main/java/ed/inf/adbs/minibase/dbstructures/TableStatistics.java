@@ -0,0 +1,165 @@
+package ed.inf.adbs.minibase.dbstructures;
+
+import ed.inf.adbs.minibase.base.Constant;
+import ed.inf.adbs.minibase.base.IntegerConstant;
+import ed.inf.adbs.minibase.base.StringConstant;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * The statistics gathered by ANALYZE over a relation: its row count and the statistics of each of its columns.
+ *
+ * The statistics of every analysed relation are persisted together in the STATISTICS_FILE_NAME file next to schema.txt, laid out as follows (all values big-endian):
+ *  - magic number, format version and the number of relations
+ *  - per relation: its name, row count and column count, then per column: whether it's a string column, the row, null and distinct counts,
+ *    whether it has a min and max followed by them, the most common values each followed by its frequency, and the histogram bounds.
+ *    Int values are written as ints and string values in modified UTF-8, each list of values being prefixed with its length.
+ */
+public class TableStatistics {
+
+    public static final String STATISTICS_FILE_NAME = "statistics.dat";
+    public static final int MAGIC = 0x4D425354;
+    public static final int VERSION = 1;
+
+    private final String relationName;
+    private final long rowCount;
+    private final List<ColumnStatistics> columnStatistics;
+
+    public TableStatistics(String relationName, long rowCount, List<ColumnStatistics> columnStatistics) {
+        this.relationName = relationName;
+        this.rowCount = rowCount;
+        this.columnStatistics = columnStatistics;
+    }
+
+    public String getRelationName() {
+        return relationName;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public List<ColumnStatistics> getColumnStatistics() {
+        return columnStatistics;
+    }
+
+    public ColumnStatistics getColumnStatistics(int column) {
+        return columnStatistics.get(column);
+    }
+
+    /**
+     * Writes the statistics of the given relations to a single file, replacing it if it exists.
+     *
+     * @param fileName the path of the statistics file
+     * @param statistics the statistics of every analysed relation
+     * @throws IOException thrown if writing the file fails
+     */
+    public static void writeStatistics(String fileName, Collection<TableStatistics> statistics) throws IOException {
+        try (DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName)))) {
+            outputStream.writeInt(MAGIC);
+            outputStream.writeInt(VERSION);
+            outputStream.writeInt(statistics.size());
+
+            for (TableStatistics tableStatistics : statistics) {
+                outputStream.writeUTF(tableStatistics.relationName);
+                outputStream.writeLong(tableStatistics.rowCount);
+                outputStream.writeInt(tableStatistics.columnStatistics.size());
+
+                for (ColumnStatistics column : tableStatistics.columnStatistics) {
+                    outputStream.writeBoolean(column.isStringColumn());
+                    outputStream.writeLong(column.getRowCount());
+                    outputStream.writeLong(column.getNullCount());
+                    outputStream.writeLong(column.getDistinctCount());
+
+                    outputStream.writeBoolean(column.getMin() != null);
+                    if (column.getMin() != null) {
+                        writeValue(outputStream, column.getMin());
+                        writeValue(outputStream, column.getMax());
+                    }
+
+                    outputStream.writeInt(column.getMostCommonValues().length);
+                    for (int i = 0; i < column.getMostCommonValues().length; i++) {
+                        writeValue(outputStream, column.getMostCommonValues()[i]);
+                        outputStream.writeDouble(column.getMostCommonFrequencies()[i]);
+                    }
+
+                    outputStream.writeInt(column.getHistogramBounds().length);
+                    for (Constant bound : column.getHistogramBounds()) writeValue(outputStream, bound);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads back a file written by writeStatistics().
+     *
+     * @param fileName the path of the statistics file
+     * @return the statistics read, keyed by relation name
+     * @throws IOException thrown if reading the file fails
+     */
+    public static Map<String, TableStatistics> readStatistics(String fileName) throws IOException {
+        Map<String, TableStatistics> statistics = new HashMap<>();
+
+        try (DataInputStream inputStream = new DataInputStream(new BufferedInputStream(new FileInputStream(fileName)))) {
+            if (inputStream.readInt() != MAGIC) throw new IllegalArgumentException("File " + fileName + " is not a statistics file!");
+            if (inputStream.readInt() != VERSION) throw new IllegalArgumentException("Unsupported statistics file version in " + fileName);
+
+            int numRelations = inputStream.readInt();
+            for (int r = 0; r < numRelations; r++) {
+                String relationName = inputStream.readUTF();
+                long rowCount = inputStream.readLong();
+                int numColumns = inputStream.readInt();
+
+                List<ColumnStatistics> columns = new ArrayList<>();
+                for (int c = 0; c < numColumns; c++) {
+                    boolean stringColumn = inputStream.readBoolean();
+                    long columnRowCount = inputStream.readLong();
+                    long nullCount = inputStream.readLong();
+                    long distinctCount = inputStream.readLong();
+
+                    Constant min = null;
+                    Constant max = null;
+                    if (inputStream.readBoolean()) {
+                        min = readValue(inputStream, stringColumn);
+                        max = readValue(inputStream, stringColumn);
+                    }
+
+                    Constant[] mostCommonValues = new Constant[inputStream.readInt()];
+                    double[] mostCommonFrequencies = new double[mostCommonValues.length];
+                    for (int i = 0; i < mostCommonValues.length; i++) {
+                        mostCommonValues[i] = readValue(inputStream, stringColumn);
+                        mostCommonFrequencies[i] = inputStream.readDouble();
+                    }
+
+                    Constant[] histogramBounds = new Constant[inputStream.readInt()];
+                    for (int i = 0; i < histogramBounds.length; i++) histogramBounds[i] = readValue(inputStream, stringColumn);
+
+                    columns.add(new ColumnStatistics(stringColumn, columnRowCount, nullCount, distinctCount, min, max, mostCommonValues, mostCommonFrequencies, histogramBounds));
+                }
+
+                statistics.put(relationName, new TableStatistics(relationName, rowCount, columns));
+            }
+        }
+
+        return statistics;
+    }
+
+    private static void writeValue(DataOutputStream outputStream, Constant value) throws IOException {
+        if (value instanceof StringConstant) outputStream.writeUTF(((StringConstant) value).getValue());
+        else outputStream.writeInt(((IntegerConstant) value).getValue());
+    }
+
+    private static Constant readValue(DataInputStream inputStream, boolean stringColumn) throws IOException {
+        return stringColumn ? new StringConstant(inputStream.readUTF()) : new IntegerConstant(inputStream.readInt());
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(relationName + ": " + rowCount + " rows");
+        for (int i = 0; i < columnStatistics.size(); i++) {
+            builder.append(System.lineSeparator()).append("  column ").append(i).append(": ").append(columnStatistics.get(i));
+        }
+        return builder.toString();
+    }
+}
@@ -1,30 +1,128 @@
 package ed.inf.adbs.minibase.dbstructures;
 
 import ed.inf.adbs.minibase.base.Constant;
+import ed.inf.adbs.minibase.base.IntegerConstant;
+import ed.inf.adbs.minibase.base.StringConstant;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Objects;
-import java.util.stream.Collectors;
 
-//  class representing tuples, which contain a list of constants as its "fields"
+/**
+ * class representing tuples, stored compactly as a row of ints.
+ * Int fields hold their value directly, while string fields hold their code in the global StringDictionary.
+ * The stringColumns flags record which fields are strings. They are shared between all of the tuples coming from the same source rather than copied per tuple.
+ * Two tuples are equal exactly when their field lists of constants would be, so tuples can be hashed and compared without materialising any constants.
+ */
 public class Tuple {
-    private List<Constant> fields;
+    private int[] values;
+    private boolean[] stringColumns;
 
+    public Tuple(int[] values, boolean[] stringColumns) {
+        if (values.length != stringColumns.length) throw new IllegalArgumentException("Every value in the tuple needs a type flag!");
+
+        this.values = values;
+        this.stringColumns = stringColumns;
+    }
+
+    //  encodes a list of constants into the compact row layout
     public Tuple(List<Constant> fields) {
-        this.fields = fields;
+        setFields(fields);
     }
 
+    //  decodes the row back into a list of constants. This allocates a constant per field, so it is kept off the operators' per-tuple paths
     public List<Constant> getFields() {
+        List<Constant> fields = new ArrayList<>(values.length);
+        for (int i = 0; i < values.length; i++) {
+            fields.add(getField(i));
+        }
         return fields;
     }
 
     public void setFields(List<Constant> fields) {
-        this.fields = fields;
+        StringDictionary dictionary = StringDictionary.getDictionary();
+
+        this.values = new int[fields.size()];
+        this.stringColumns = new boolean[fields.size()];
+
+        for (int i = 0; i < fields.size(); i++) {
+            Constant field = fields.get(i);
+
+            if (field instanceof StringConstant) {
+                values[i] = dictionary.encode(((StringConstant) field).getValue());
+                stringColumns[i] = true;
+            } else if (field instanceof IntegerConstant) {
+                values[i] = ((IntegerConstant) field).getValue();
+            } else throw new IllegalArgumentException("Unsupported constant type!");
+        }
+    }
+
+    //  decodes a single field into a constant
+    public Constant getField(int index) {
+        return stringColumns[index] ? new StringConstant(StringDictionary.getDictionary().decode(values[index])) : new IntegerConstant(values[index]);
+    }
+
+    public int getValue(int index) {
+        return values[index];
+    }
+
+    public boolean isString(int index) {
+        return stringColumns[index];
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+    public int[] getValues() {
+        return values;
+    }
+
+    public boolean[] getStringColumns() {
+        return stringColumns;
+    }
+
+    //  a rough estimate of the heap taken up by a tuple of the given width, used to keep operators within their memory budget.
+    //  covers the tuple and its values array, but not the type flags, which are shared
+    public static long estimateSizeInBytes(int numColumns) {
+        return 40L + 4L * numColumns;
+    }
+
+    //  checks whether a field of one tuple holds the same constant as a field of another
+    public static boolean fieldsEqual(Tuple left, int leftIndex, Tuple right, int rightIndex) {
+        return left.values[leftIndex] == right.values[rightIndex] && left.stringColumns[leftIndex] == right.stringColumns[rightIndex];
+    }
+
+    //  joins the type flags of two tuples. Operators combining tuples call this once and pass the result to concat for every combined tuple
+    public static boolean[] concatStringColumns(Tuple left, Tuple right) {
+        return concatStringColumns(left.stringColumns, right.stringColumns);
+    }
+
+    public static boolean[] concatStringColumns(boolean[] left, boolean[] right) {
+        boolean[] combined = Arrays.copyOf(left, left.length + right.length);
+        System.arraycopy(right, 0, combined, left.length, right.length);
+        return combined;
+    }
+
+    //  creates the tuple made up of the left tuple's fields followed by the right tuple's fields
+    public static Tuple concat(Tuple left, Tuple right, boolean[] combinedStringColumns) {
+        int[] combined = Arrays.copyOf(left.values, left.size() + right.size());
+        System.arraycopy(right.values, 0, combined, left.size(), right.size());
+        return new Tuple(combined, combinedStringColumns);
     }
 
     @Override
     public String toString() {
-        return this.fields.stream().map(Constant::toString).collect(Collectors.joining(","));
+        StringDictionary dictionary = StringDictionary.getDictionary();
+        StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) builder.append(',');
+
+            if (stringColumns[i]) builder.append('\'').append(dictionary.decode(values[i])).append('\'');
+            else builder.append(values[i]);
+        }
+        return builder.toString();
     }
 
     @Override
@@ -32,11 +130,11 @@ public class Tuple {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Tuple tuple = (Tuple) o;
-        return fields.equals(tuple.fields);
+        return Arrays.equals(values, tuple.values) && (stringColumns == tuple.stringColumns || Arrays.equals(stringColumns, tuple.stringColumns));
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(fields);
+        return Arrays.hashCode(values);
     }
 }
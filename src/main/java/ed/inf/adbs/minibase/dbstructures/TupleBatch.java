@@ -0,0 +1,145 @@
+package ed.inf.adbs.minibase.dbstructures;
+
+/**
+ * A batch of up to capacity rows stored column by column, which is what operators exchange through Operator.getNextBatch().
+ * Each column is a plain int array holding the same values a Tuple would: int values, and global StringDictionary codes for the string columns.
+ * The selection vector lists the rows of the batch that are still live, in increasing order, so filters drop rows by compacting it instead of moving any column data.
+ * A batch returned by an operator is only valid until the next call made on that operator, since operators refill the same batch every time.
+ */
+public class TupleBatch {
+
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private final int[][] columns;
+    private final boolean[] stringColumns;
+    private final int capacity;
+    private int rowCount;
+
+    private final int[] selection;
+    private int selectedCount;
+
+    public TupleBatch(boolean[] stringColumns) {
+        this(stringColumns, DEFAULT_CAPACITY);
+    }
+
+    public TupleBatch(boolean[] stringColumns, int capacity) {
+        this.columns = new int[stringColumns.length][capacity];
+        this.stringColumns = stringColumns;
+        this.capacity = capacity;
+        this.selection = new int[capacity];
+        clear();
+    }
+
+    //  empties the batch so it can be refilled
+    public void clear() {
+        this.rowCount = 0;
+        this.selectedCount = 0;
+    }
+
+    //  marks the first rowCount rows as filled after they've been written straight into the column arrays, and selects all of them
+    public void setRowCount(int rowCount) {
+        if (rowCount > capacity) throw new IllegalArgumentException("Can't fill a batch past its capacity!");
+
+        this.rowCount = rowCount;
+        for (int i = 0; i < rowCount; i++) {
+            selection[i] = i;
+        }
+        this.selectedCount = rowCount;
+    }
+
+    //  claims the next free row, selecting it, and returns its index for the caller to write the row's values into
+    public int addRow() {
+        if (rowCount == capacity) throw new IllegalStateException("The batch is already full!");
+
+        selection[selectedCount++] = rowCount;
+        return rowCount++;
+    }
+
+    public void appendTuple(Tuple tuple) {
+        int row = addRow();
+        for (int i = 0; i < columns.length; i++) {
+            columns[i][row] = tuple.getValue(i);
+        }
+    }
+
+    //  appends the row made up of the left tuple's values followed by the right tuple's, without building the combined tuple
+    public void appendConcatenation(Tuple left, Tuple right) {
+        int row = addRow();
+        int leftSize = left.size();
+
+        for (int i = 0; i < leftSize; i++) {
+            columns[i][row] = left.getValue(i);
+        }
+        for (int i = 0; i < right.size(); i++) {
+            columns[leftSize + i][row] = right.getValue(i);
+        }
+    }
+
+    //  copies the values of a row into the given array
+    public void copyRow(int row, int[] values) {
+        for (int i = 0; i < columns.length; i++) {
+            values[i] = columns[i][row];
+        }
+    }
+
+    //  materialises a row of the batch as a tuple
+    public Tuple getTuple(int row) {
+        int[] values = new int[columns.length];
+        copyRow(row, values);
+        return new Tuple(values, stringColumns);
+    }
+
+    //  appends a row to the builder in the same format as Tuple.toString()
+    public void appendRow(StringBuilder builder, int row) {
+        StringDictionary dictionary = StringDictionary.getDictionary();
+
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) builder.append(',');
+
+            if (stringColumns[i]) builder.append('\'').append(dictionary.decode(columns[i][row])).append('\'');
+            else builder.append(columns[i][row]);
+        }
+    }
+
+    public boolean isFull() {
+        return rowCount == capacity;
+    }
+
+    public int[] getColumn(int column) {
+        return columns[column];
+    }
+
+    public int[][] getColumns() {
+        return columns;
+    }
+
+    public int getNumColumns() {
+        return columns.length;
+    }
+
+    public boolean[] getStringColumns() {
+        return stringColumns;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int[] getSelection() {
+        return selection;
+    }
+
+    public int getSelectedCount() {
+        return selectedCount;
+    }
+
+    //  shrinks the selection to its first selectedCount entries, after a filter has compacted the rows it keeps to the front of the selection vector
+    public void setSelectedCount(int selectedCount) {
+        if (selectedCount > this.selectedCount) throw new IllegalArgumentException("Filtering can't select more rows than were selected before!");
+        this.selectedCount = selectedCount;
+    }
+}
@@ -0,0 +1,94 @@
+package ed.inf.adbs.minibase.dbstructures;
+
+import ed.inf.adbs.minibase.base.Constant;
+import ed.inf.adbs.minibase.base.IntegerConstant;
+import ed.inf.adbs.minibase.base.StringConstant;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * Decodes csv lines of a single relation into tuples.
+ * The parse function for every column is picked once from the relation's column types when the decoder is compiled,
+ * so decoding a line only splits it on commas and parses each cell straight into the tuple's int row, without any reflection or regex.
+ * Int cells are parsed to their value and string cells are encoded through the global StringDictionary.
+ */
+public class TupleDecoder {
+
+    private final List<ToIntFunction<String>> cellParsers;
+    private final boolean[] stringColumns;
+
+    public TupleDecoder(List<Class<? extends Constant>> dataTypes, boolean[] stringColumns) {
+        StringDictionary dictionary = StringDictionary.getDictionary();
+
+        this.cellParsers = new ArrayList<>(dataTypes.size());
+        this.stringColumns = stringColumns;
+
+        for (Class<? extends Constant> dataType : dataTypes) {
+            if (dataType.equals(IntegerConstant.class)) {
+                cellParsers.add(cell -> Integer.parseInt(stripCell(cell)));
+            } else if (dataType.equals(StringConstant.class)) {
+                cellParsers.add(cell -> dictionary.encode(stripCell(cell)));
+            } else throw new IllegalArgumentException("Unsupported type detected!");
+        }
+    }
+
+    /**
+     * Splits a csv line on its commas and parses each cell with the parse function of its column.
+     *
+     * @param dbLine the csv line to decode
+     * @return the resultant tuple
+     */
+    public Tuple decode(String dbLine) {
+        int[] values = new int[cellParsers.size()];
+        decodeValues(dbLine, values);
+        return new Tuple(values, stringColumns);
+    }
+
+    //  decodes the line straight into the given array, which lets batch scans reuse a single scratch row
+    public void decodeValues(String dbLine, int[] values) {
+        int numColumns = cellParsers.size();
+
+        int cellStart = 0;
+        for (int i = 0; i < numColumns; i++) {
+            int cellEnd = dbLine.indexOf(',', cellStart);
+
+            boolean lastColumn = i == numColumns - 1;
+            if (lastColumn != (cellEnd < 0)) throw new IllegalArgumentException("The number of columns and the number of classes parsed from the schema don't match!");
+
+            if (lastColumn) cellEnd = dbLine.length();
+
+            values[i] = cellParsers.get(i).applyAsInt(dbLine.substring(cellStart, cellEnd));
+            cellStart = cellEnd + 1;
+        }
+    }
+
+    //  parses a single cell belonging to the given column into a constant
+    public Constant decodeCell(int column, String cell) {
+        return stringColumns[column] ? new StringConstant(stripCell(cell)) : new IntegerConstant(Integer.parseInt(stripCell(cell)));
+    }
+
+    public int getNumColumns() {
+        return cellParsers.size();
+    }
+
+    //  trims the cell and removes any single quotes from it without going through a regex.
+    //  the usual case of a string wrapped in a pair of quotes is handled with a single substring
+    static String stripCell(String cell) {
+        String trimmed = cell.trim();
+        int firstQuote = trimmed.indexOf('\'');
+        if (firstQuote < 0) return trimmed;
+
+        int length = trimmed.length();
+        if (firstQuote == 0 && length >= 2 && trimmed.lastIndexOf('\'') == length - 1 && trimmed.indexOf('\'', 1) == length - 1)
+            return trimmed.substring(1, length - 1);
+
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            char c = trimmed.charAt(i);
+            if (c != '\'') builder.append(c);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,86 @@
+package ed.inf.adbs.minibase.dbstructures;
+
+import java.io.*;
+
+/**
+ * A temporary file that an operator spills tuples to once it runs out of its memory budget, to be read back in the order they were written.
+ * Tuples are written as their raw int values, since string codes stay valid in the global StringDictionary for as long as the process runs,
+ * and every tuple in the file shares the same type flags.
+ * Tuples are all written first, then read back through any number of readers. The file is deleted once it is closed, or when the JVM exits otherwise.
+ */
+public class TupleSpillFile implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File file;
+    private final boolean[] stringColumns;
+
+    private DataOutputStream outputStream;
+    private long tupleCount;
+
+    public TupleSpillFile(boolean[] stringColumns) throws IOException {
+        this.file = File.createTempFile("minibase-", ".spill");
+        this.file.deleteOnExit();
+        this.stringColumns = stringColumns;
+        this.outputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE));
+    }
+
+    public void write(Tuple tuple) throws IOException {
+        if (outputStream == null) throw new IllegalStateException("Can't write to a spill file once it has been read from!");
+
+        for (int value : tuple.getValues()) outputStream.writeInt(value);
+        tupleCount++;
+    }
+
+    //  finishes writing the file if it hasn't been already, and opens a reader from its start
+    public Reader openReader() throws IOException {
+        if (outputStream != null) {
+            outputStream.close();
+            outputStream = null;
+        }
+        return new Reader();
+    }
+
+    public long getTupleCount() {
+        return tupleCount;
+    }
+
+    public boolean[] getStringColumns() {
+        return stringColumns;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (outputStream != null) {
+            outputStream.close();
+            outputStream = null;
+        }
+        file.delete();
+    }
+
+    //  reads the tuples of the file back in the order they were written
+    public class Reader implements Closeable {
+
+        private final DataInputStream inputStream;
+        private long tuplesRead;
+
+        private Reader() throws IOException {
+            this.inputStream = new DataInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE));
+        }
+
+        //  returns the next tuple in the file, null once all of them have been read
+        public Tuple next() throws IOException {
+            if (tuplesRead == tupleCount) return null;
+
+            int[] values = new int[stringColumns.length];
+            for (int i = 0; i < values.length; i++) values[i] = inputStream.readInt();
+            tuplesRead++;
+            return new Tuple(values, stringColumns);
+        }
+
+        @Override
+        public void close() throws IOException {
+            inputStream.close();
+        }
+    }
+}
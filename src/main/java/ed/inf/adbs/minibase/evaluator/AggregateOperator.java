@@ -0,0 +1,355 @@
+package ed.inf.adbs.minibase.evaluator;
+
+import ed.inf.adbs.minibase.base.AggregateFunction;
+import ed.inf.adbs.minibase.base.AggregateTerm;
+import ed.inf.adbs.minibase.base.RelationalAtom;
+import ed.inf.adbs.minibase.base.Term;
+import ed.inf.adbs.minibase.base.Variable;
+import ed.inf.adbs.minibase.dbstructures.StringDictionary;
+import ed.inf.adbs.minibase.dbstructures.Tuple;
+import ed.inf.adbs.minibase.dbstructures.TupleBatch;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aggregation operator for query heads with SUM, AVG or COUNT terms, which takes the place of the projection at the root of the plan.
+ * The head's plain variables group the child's tuples, and each aggregate is computed over every tuple of its group, so a tuple counts as many times as the body matches it.
+ * The child is drained a batch at a time straight into a GroupTable of running sums and counts, so its tuples are never held on to, and the groups are then emitted in the order they were first seen.
+ * Every value is an int, so AVG is the sum divided by the count rounded towards zero. Groups without any tuples aren't emitted, so an aggregate over an empty body gives no output at all.
+ * The sums and counts are kept as longs, and dump() writes them out in full. Tuples only hold ints though, so getNextTuple() throws an ArithmeticException for a group with an aggregate past the int range.
+ * Under an eager aggregation the child's rows each stand for many tuples: every row is then weighed by the product of its multiplicity columns, and variables already summed up below the joins are read from their partial sum columns.
+ * Those counts and partial sums are longs as well, each carried through the joins as two int columns: the low half under its own variable, and the high half under getHighHalf() of it.
+ */
+public class AggregateOperator extends Operator {
+
+    //  the suffix of the variables of the high halves of wide columns, which the query's own variables can't contain
+    private static final String HIGH_HALF_SUFFIX = "#high";
+
+    private Operator child;
+
+    private List<Term> outputTerms;
+    private List<RelationalAtom> childRelationalAtoms;
+
+    //  for each output term, its position among the group key columns if it's a plain variable, or among the aggregates otherwise
+    private boolean[] isAggregate;
+    private int[] outputPositions;
+
+    //  the offsets in the input tuples of the group key columns and of the aggregated variables
+    private int[] keyOffsets;
+    private int[] aggregateOffsets;
+    private AggregateFunction[] aggregateFunctions;
+
+    //  the offsets of the multiplicity columns each row is weighed by, and for each aggregate read from a partial sum the index among them of the multiplicity already counted into it, -1 for the rest
+    private int[] multiplicityOffsets;
+    private int[] aggregateMultiplicities;
+
+    //  the offsets of the high halves of the multiplicity columns and of the aggregated columns, -1 for the aggregated columns that are plain ints
+    private int[] multiplicityHighOffsets;
+    private int[] aggregateHighOffsets;
+
+    //  whether each aggregate is output as two int columns, its low half followed by its high half, as the eagerly aggregated leaves are
+    private final boolean wideAggregates;
+
+    private GroupTable groups;
+    private boolean[] outputStringColumns;
+    private boolean[] keyStringColumns;
+    private int nextGroup;
+
+    //  the number of groups the query planner expects, which a parallel aggregation chooses its accumulators by
+    private double estimatedGroupCount = Double.POSITIVE_INFINITY;
+
+    public AggregateOperator(Operator child, List<Term> outputTerms, List<RelationalAtom> childRelationalAtoms) {
+        this(child, outputTerms, childRelationalAtoms, Collections.emptyList(), Collections.emptyMap());
+    }
+
+    /**
+     * Constructs an aggregation over rows that each stand for as many tuples as the product of their multiplicity columns, as the joins of eagerly aggregated leaves put out.
+     *
+     * @param child the child operator
+     * @param outputTerms the plain variables to group by and the aggregates to compute, in the order they are output in
+     * @param childRelationalAtoms the atoms making up the child's tuples
+     * @param multiplicityVariables the variables of the child's multiplicity columns
+     * @param partialSums the partial sum column of each aggregated variable that is summed up below the joins, along with the multiplicity column of the same leaf
+     */
+    public AggregateOperator(Operator child, List<Term> outputTerms, List<RelationalAtom> childRelationalAtoms, List<Variable> multiplicityVariables, Map<Variable, PartialSum> partialSums) {
+        this(child, outputTerms, childRelationalAtoms, multiplicityVariables, partialSums, false);
+    }
+
+    //  the same as above, with the aggregates output as two int columns each if wideAggregates is set
+    AggregateOperator(Operator child, List<Term> outputTerms, List<RelationalAtom> childRelationalAtoms, List<Variable> multiplicityVariables, Map<Variable, PartialSum> partialSums,
+                      boolean wideAggregates) {
+        this.child = child;
+        this.outputTerms = outputTerms;
+        this.childRelationalAtoms = childRelationalAtoms;
+        this.wideAggregates = wideAggregates;
+
+        VariableOffsets inputOffsets = new VariableOffsets(childRelationalAtoms);
+        List<Integer> keys = new ArrayList<>();
+        List<Integer> aggregates = new ArrayList<>();
+        List<Integer> aggregateHighHalves = new ArrayList<>();
+        List<AggregateFunction> functions = new ArrayList<>();
+        List<Integer> multiplicities = new ArrayList<>();
+
+        this.multiplicityOffsets = new int[multiplicityVariables.size()];
+        this.multiplicityHighOffsets = new int[multiplicityVariables.size()];
+        for (int i = 0; i < multiplicityOffsets.length; i++) {
+            multiplicityOffsets[i] = inputOffsets.getFirstOffset(multiplicityVariables.get(i));
+            multiplicityHighOffsets[i] = inputOffsets.getFirstOffset(getHighHalf(multiplicityVariables.get(i)));
+            if (multiplicityOffsets[i] < 0 || multiplicityHighOffsets[i] < 0) throw new IllegalArgumentException("Attempting to weigh by a multiplicity that doesnt exist in the input!!");
+        }
+
+        this.isAggregate = new boolean[outputTerms.size()];
+        this.outputPositions = new int[outputTerms.size()];
+
+        for (int i = 0; i < outputTerms.size(); i++) {
+            Term term = outputTerms.get(i);
+            Variable variable = (term instanceof AggregateTerm) ? ((AggregateTerm) term).getVariable() : (Variable) term;
+
+            int offset = inputOffsets.getFirstOffset(variable);
+            int highOffset = -1;
+            int multiplicity = -1;
+
+            //  a COUNT only counts rows, so the variable it names may have been dropped by an eager aggregation
+            if (term instanceof AggregateTerm && partialSums.containsKey(variable)) {
+                offset = inputOffsets.getFirstOffset(partialSums.get(variable).getSum());
+                highOffset = inputOffsets.getFirstOffset(getHighHalf(partialSums.get(variable).getSum()));
+                multiplicity = multiplicityVariables.indexOf(partialSums.get(variable).getMultiplicity());
+                if (highOffset < 0) throw new IllegalArgumentException("Attempting to aggregate over a partial sum that doesnt exist in the input!!");
+            } else if (offset < 0 && term instanceof AggregateTerm && ((AggregateTerm) term).getFunction() == AggregateFunction.COUNT && !multiplicityVariables.isEmpty()) {
+                offset = 0;
+            }
+            if (offset < 0) throw new IllegalArgumentException("Attempting to aggregate over a variable that doesnt exist in the input!!");
+
+            if (term instanceof AggregateTerm) {
+                isAggregate[i] = true;
+                outputPositions[i] = aggregates.size();
+                aggregates.add(offset);
+                aggregateHighHalves.add(highOffset);
+                functions.add(((AggregateTerm) term).getFunction());
+                multiplicities.add(multiplicity);
+            } else {
+                outputPositions[i] = keys.size();
+                keys.add(offset);
+            }
+        }
+
+        this.keyOffsets = keys.stream().mapToInt(Integer::intValue).toArray();
+        this.aggregateOffsets = aggregates.stream().mapToInt(Integer::intValue).toArray();
+        this.aggregateHighOffsets = aggregateHighHalves.stream().mapToInt(Integer::intValue).toArray();
+        this.aggregateFunctions = functions.toArray(new AggregateFunction[0]);
+        this.aggregateMultiplicities = multiplicities.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Returns the next group's output tuple: its key values and aggregates in the order of the output terms.
+     * The groups are all worked out from the child's tuples the first time this is called.
+     *
+     * @return the next group's tuple, null if none remain
+     * @throws IOException thrown if any exceptions bubble up from the child operator
+     * @throws ArithmeticException thrown if one of the group's aggregates doesn't fit in an int, which only dump() can write out
+     */
+    @Override
+    public Tuple getNextTuple() throws IOException {
+        if (groups == null) aggregate();
+        if (nextGroup == groups.size()) return null;
+
+        int group = nextGroup++;
+        int[] values = new int[outputStringColumns.length];
+        int column = 0;
+        for (int i = 0; i < outputTerms.size(); i++) {
+            if (!isAggregate[i]) {
+                values[column++] = groups.getKey(group, outputPositions[i]);
+                continue;
+            }
+
+            long aggregate = getAggregate(group, outputPositions[i]);
+            if (wideAggregates) {
+                values[column++] = (int) aggregate;
+                values[column++] = (int) (aggregate >>> 32);
+            } else {
+                if (aggregate != (int) aggregate) throw new ArithmeticException(outputTerms.get(i) + " of " + aggregate + " doesn't fit in an int column of a tuple!");
+                values[column++] = (int) aggregate;
+            }
+        }
+        return new Tuple(values, outputStringColumns);
+    }
+
+    /**
+     * Appends the next group's row to the builder in the same format as Tuple.toString(), with its aggregates written out in full however large they are.
+     *
+     * @param builder the builder to append the row to
+     * @return whether there was a group left to append
+     * @throws IOException thrown if any exceptions bubble up from the child operator
+     */
+    boolean appendNextRow(StringBuilder builder) throws IOException {
+        if (groups == null) aggregate();
+        if (nextGroup == groups.size()) return false;
+
+        StringDictionary dictionary = StringDictionary.getDictionary();
+        int group = nextGroup++;
+        for (int i = 0; i < outputTerms.size(); i++) {
+            if (i > 0) builder.append(',');
+
+            if (isAggregate[i]) builder.append(getAggregate(group, outputPositions[i]));
+            else if (keyStringColumns[outputPositions[i]]) builder.append('\'').append(dictionary.decode(groups.getKey(group, outputPositions[i]))).append('\'');
+            else builder.append(groups.getKey(group, outputPositions[i]));
+        }
+        return true;
+    }
+
+    //  dumps the remaining groups the same way as Operator.dump(), but straight from the group table, so that sums and counts past the int range come out in full
+    @Override
+    public void dump() {
+        StringBuilder builder = new StringBuilder();
+        FileWriter outWriter = null;
+        if (OutputWriter.outputWriterInitialised()) {
+            outWriter = OutputWriter.getFileWriter();
+        }
+        try {
+            while (appendNextRow(builder)) {
+                if (outWriter != null) {
+                    outWriter.write(builder.append('\n').toString());
+                } else {
+                    System.out.println(builder);
+                }
+                builder.setLength(0);
+            }
+            if (outWriter != null)
+                outWriter.flush();
+        } catch (IOException ioe) {
+            ioe.printStackTrace();
+        }
+    }
+
+    private long getAggregate(int group, int aggregate) {
+        switch (aggregateFunctions[aggregate]) {
+            case SUM:
+                return groups.getSum(group, aggregate);
+            case AVG:
+                return groups.getSum(group, aggregate) / groups.getCount(group);
+            case COUNT:
+                return groups.getCount(group);
+            default:
+                throw new UnsupportedOperationException("Unsupported aggregate function " + aggregateFunctions[aggregate]);
+        }
+    }
+
+    //  drains the child into the group table a batch at a time
+    private void aggregate() throws IOException {
+        PartialAggregator aggregator = newPartialAggregator(null);
+
+        TupleBatch batch;
+        while ((batch = child.getNextBatch()) != null) aggregator.accumulate(batch);
+
+        setGroups(aggregator.getGroups(), aggregator.getInputStringColumns());
+    }
+
+    //  a partial aggregation over this operator's groups and aggregates, adding the groups that get a slot in the given shared accumulators there, if there are any
+    PartialAggregator newPartialAggregator(StripedAccumulators sharedAccumulators) {
+        return new PartialAggregator(keyOffsets, aggregateOffsets, aggregateHighOffsets, multiplicityOffsets, multiplicityHighOffsets, aggregateMultiplicities, sharedAccumulators);
+    }
+
+    StripedAccumulators newStripedAccumulators() {
+        return new StripedAccumulators(keyOffsets.length, aggregateOffsets.length);
+    }
+
+    GroupTable newGroupTable() {
+        return new GroupTable(keyOffsets.length, aggregateOffsets.length);
+    }
+
+    /**
+     * Sets the groups to emit, as worked out from the child's tuples elsewhere, such as by merging the partials of a parallel aggregation. The child then isn't read at all.
+     *
+     * @param groups the groups to emit
+     * @param inputStringColumns the types of the child's columns, null if the child had no tuples
+     */
+    void setGroups(GroupTable groups, boolean[] inputStringColumns) {
+        if (inputStringColumns != null) {
+            outputStringColumns = getOutputStringColumns(inputStringColumns);
+            keyStringColumns = new boolean[keyOffsets.length];
+            for (int i = 0; i < keyOffsets.length; i++) keyStringColumns[i] = inputStringColumns[keyOffsets[i]];
+        }
+
+        this.groups = groups;
+        this.nextGroup = 0;
+    }
+
+    //  the key columns keep the types of the variables they're read from, while the aggregates are always ints, taking up two columns each if they're wide
+    private boolean[] getOutputStringColumns(boolean[] inputStringColumns) {
+        boolean[] stringColumns = new boolean[keyOffsets.length + (wideAggregates ? 2 : 1) * aggregateOffsets.length];
+        int column = 0;
+        for (int i = 0; i < outputTerms.size(); i++) {
+            if (isAggregate[i]) {
+                if (aggregateFunctions[outputPositions[i]] != AggregateFunction.COUNT && inputStringColumns[aggregateOffsets[outputPositions[i]]])
+                    throw new IllegalArgumentException("Cannot compute " + outputTerms.get(i) + " over a string variable!");
+                column += wideAggregates ? 2 : 1;
+            } else {
+                stringColumns[column++] = inputStringColumns[keyOffsets[outputPositions[i]]];
+            }
+        }
+        return stringColumns;
+    }
+
+    @Override
+    public boolean[] getStringColumns() {
+        if (outputStringColumns != null) return outputStringColumns;
+
+        boolean[] inputStringColumns = child.getStringColumns();
+        return (inputStringColumns == null) ? null : getOutputStringColumns(inputStringColumns);
+    }
+
+    //  the groups only depend on the child's tuples, so they are kept across resets and only emitted again from the first one
+    @Override
+    public void reset() {
+        nextGroup = 0;
+    }
+
+    public Operator getChild() {
+        return child;
+    }
+
+    public List<Term> getOutputTerms() {
+        return outputTerms;
+    }
+
+    public List<RelationalAtom> getChildRelationalAtoms() {
+        return childRelationalAtoms;
+    }
+
+    public double getEstimatedGroupCount() {
+        return estimatedGroupCount;
+    }
+
+    public void setEstimatedGroupCount(double estimatedGroupCount) {
+        this.estimatedGroupCount = estimatedGroupCount;
+    }
+
+    //  the variable of the high half of a wide count or sum column, the low half of which is under the given variable
+    public static Variable getHighHalf(Variable variable) {
+        return new Variable(variable.getName() + HIGH_HALF_SUFFIX);
+    }
+
+    //  the column an aggregated variable was summed up into by an eager aggregation below the joins, and the column counting the tuples that went into that sum
+    public static class PartialSum {
+        private final Variable sum;
+        private final Variable multiplicity;
+
+        public PartialSum(Variable sum, Variable multiplicity) {
+            this.sum = sum;
+            this.multiplicity = multiplicity;
+        }
+
+        public Variable getSum() {
+            return sum;
+        }
+
+        public Variable getMultiplicity() {
+            return multiplicity;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package ed.inf.adbs.minibase.evaluator;
+
+/**
+ * A selection predicate compiled ahead of time to run over a whole batch of rows at once.
+ * Only the rows listed in the first selectedCount entries of the selection vector are checked,
+ * and the ones passing are compacted to the front of the selection vector in their original order.
+ */
+@FunctionalInterface
+public interface BatchPredicate {
+
+    //  returns the number of selected rows that pass the predicate
+    int filter(int[][] columns, int[] selection, int selectedCount);
+}
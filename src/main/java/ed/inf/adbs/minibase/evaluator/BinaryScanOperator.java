@@ -0,0 +1,134 @@
+package ed.inf.adbs.minibase.evaluator;
+
+import ed.inf.adbs.minibase.base.RelationalAtom;
+import ed.inf.adbs.minibase.dbstructures.ColumnarTableReader;
+import ed.inf.adbs.minibase.dbstructures.ColumnarTableWriter;
+import ed.inf.adbs.minibase.dbstructures.InMemoryTable;
+import ed.inf.adbs.minibase.dbstructures.Schema;
+import ed.inf.adbs.minibase.dbstructures.Tuple;
+import ed.inf.adbs.minibase.dbstructures.TupleBatch;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Scan operator emitting the tuples of a table stored in the binary columnar format.
+ * Rows are read a block at a time into int arrays, and string cells are translated from the file's dictionary codes to global dictionary codes through arrays built once on opening,
+ * so no text is split or parsed while scanning.
+ */
+public class BinaryScanOperator extends ScanOperator {
+
+    private final ColumnarTableReader reader;
+
+    //  the global dictionary code for each code of the file's string column dictionaries, null for the int columns
+    private final int[][] globalCodes;
+    private final boolean[] stringColumns;
+
+    private final int[][] block;
+    private int blockRowCount;
+    private int blockPosition;
+
+    /**
+     * @param fileName the path of the binary columnar file holding the table
+     * @param schema the schema entry for the table in question
+     * @param baseRelationalAtom the base relational atom from the query on which this scan is being evaluated
+     * @throws IOException thrown if the file can't be opened or its header can't be read
+     */
+    public BinaryScanOperator(String fileName, Schema schema, RelationalAtom baseRelationalAtom) throws IOException {
+        super(schema, baseRelationalAtom);
+        if (!binaryFileValid(fileName, schema)) throw new IllegalArgumentException("Illegal binary dbfile passed in!");
+
+        this.fileName = fileName;
+        this.reader = new ColumnarTableReader(fileName);
+
+        if (!reader.getColumnTypes().equals(schema.getDataTypes())) throw new IllegalArgumentException("The column types in the binary file don't match the schema!");
+
+        this.globalCodes = InMemoryTable.getGlobalCodes(reader);
+        this.stringColumns = schema.getStringColumns();
+
+        this.block = new int[stringColumns.length][ColumnarTableWriter.BLOCK_SIZE];
+        this.blockRowCount = 0;
+        this.blockPosition = 0;
+    }
+
+    //  emits the next row of the current block, reading in the next block once the current one is exhausted
+    @Override
+    public Tuple getNextTuple() throws IOException {
+        if (blockPosition == blockRowCount) {
+            blockRowCount = reader.readBlock(block);
+            blockPosition = 0;
+
+            if (blockRowCount == 0) return null;
+        }
+
+        int[] values = new int[block.length];
+        for (int i = 0; i < block.length; i++) {
+            int value = block[i][blockPosition];
+            values[i] = (globalCodes[i] == null) ? value : globalCodes[i][value];
+        }
+
+        blockPosition++;
+        return new Tuple(values, stringColumns);
+    }
+
+    //  copies the next run of rows of the current block into the batch's columns, translating the string columns' codes along the way
+    @Override
+    public TupleBatch getNextBatch() throws IOException {
+        if (blockPosition == blockRowCount) {
+            blockRowCount = reader.readBlock(block);
+            blockPosition = 0;
+
+            if (blockRowCount == 0) return null;
+        }
+
+        TupleBatch batch = getClearedBatch();
+        int rowCount = Math.min(batch.getCapacity(), blockRowCount - blockPosition);
+
+        for (int i = 0; i < block.length; i++) {
+            int[] column = batch.getColumn(i);
+
+            if (globalCodes[i] == null) {
+                System.arraycopy(block[i], blockPosition, column, 0, rowCount);
+            } else {
+                int[] columnGlobalCodes = globalCodes[i];
+                for (int row = 0; row < rowCount; row++) {
+                    column[row] = columnGlobalCodes[block[i][blockPosition + row]];
+                }
+            }
+        }
+
+        blockPosition += rowCount;
+        batch.setRowCount(rowCount);
+        return batch;
+    }
+
+    //  rewinds the reader back to the first block, keeping the already decoded dictionaries
+    @Override
+    public void reset() {
+        try {
+            reader.rewind();
+        } catch (IOException ioe) {
+            throw new RuntimeException("Failed to rewind the binary table file " + fileName, ioe);
+        }
+        blockRowCount = 0;
+        blockPosition = 0;
+    }
+
+    @Override
+    public void close() {
+        try {
+            reader.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    //  checks that the passed in filename corresponds to a binary file in the files directory with the same name as the name of the table in the schema
+    private static boolean binaryFileValid(String dbFileName, Schema schema) {
+        File dbFile = new File(dbFileName);
+        int dotIndex = dbFile.getName().lastIndexOf(".");
+        String extension = dbFile.getName().substring(dotIndex + 1);
+        String relName = dbFile.getName().substring(0, dotIndex);
+        return (dbFile.isFile() && extension.equals(ColumnarTableWriter.FILE_EXTENSION) && relName.equals(schema.getName()) && dbFile.getParentFile().getName().equals("files"));
+    }
+}
@@ -0,0 +1,58 @@
+package ed.inf.adbs.minibase.evaluator;
+
+import ed.inf.adbs.minibase.base.RelationalAtom;
+import ed.inf.adbs.minibase.dbstructures.InMemoryTable;
+import ed.inf.adbs.minibase.dbstructures.Schema;
+import ed.inf.adbs.minibase.dbstructures.Tuple;
+import ed.inf.adbs.minibase.dbstructures.TupleBatch;
+
+/**
+ * Scan operator acting as a cursor over a relation held in the catalog's table cache.
+ * No file is touched while scanning, and resetting just moves the cursor back to the first row.
+ */
+public class CachedScanOperator extends ScanOperator {
+
+    private final InMemoryTable table;
+    private int currentRow;
+
+    public CachedScanOperator(InMemoryTable table, Schema schema, RelationalAtom baseRelationalAtom) {
+        super(schema, baseRelationalAtom);
+        if (!table.getName().equals(schema.getName()) || table.getNumColumns() != schema.getDataTypes().size())
+            throw new IllegalArgumentException("The cached table doesn't match the given schema!");
+
+        this.table = table;
+        this.currentRow = 0;
+    }
+
+    @Override
+    public Tuple getNextTuple() {
+        if (currentRow == table.getRowCount()) return null;
+        return table.getRow(currentRow++);
+    }
+
+    //  copies the next run of rows out of the table's columns
+    @Override
+    public TupleBatch getNextBatch() {
+        if (currentRow == table.getRowCount()) return null;
+
+        TupleBatch batch = getClearedBatch();
+        int rowCount = Math.min(batch.getCapacity(), table.getRowCount() - currentRow);
+
+        for (int i = 0; i < table.getNumColumns(); i++) {
+            System.arraycopy(table.getColumn(i), currentRow, batch.getColumn(i), 0, rowCount);
+        }
+
+        currentRow += rowCount;
+        batch.setRowCount(rowCount);
+        return batch;
+    }
+
+    @Override
+    public void reset() {
+        currentRow = 0;
+    }
+
+    public InMemoryTable getTable() {
+        return table;
+    }
+}
@@ -0,0 +1,136 @@
+package ed.inf.adbs.minibase.evaluator;
+
+import ed.inf.adbs.minibase.base.ComparisonAtom;
+import ed.inf.adbs.minibase.base.ComparisonOperator;
+import ed.inf.adbs.minibase.base.IntegerConstant;
+import ed.inf.adbs.minibase.base.StringConstant;
+import ed.inf.adbs.minibase.base.Term;
+import ed.inf.adbs.minibase.base.Variable;
+import ed.inf.adbs.minibase.dbstructures.StringDictionary;
+import ed.inf.adbs.minibase.dbstructures.Tuple;
+
+/**
+ * A comparison atom whose terms have been resolved ahead of time, either to a column of the left or right tuple of a join, or to a pre-encoded constant.
+ * Evaluating it reads the tuples' int values directly, so no constants are materialised and nothing is allocated per tuple.
+ * Follows the semantics of ComparisonAtom: int and string values are never equal, and ordering them against each other is an error.
+ */
+public class ColumnComparison {
+
+    //  where each term's value comes from
+    private static final int LEFT = 0;
+    private static final int RIGHT = 1;
+    private static final int CONSTANT = 2;
+
+    private final ComparisonOperator op;
+
+    private final int source1;
+    private final int offset1;
+    private final int constant1;
+    private final boolean constantIsString1;
+
+    private final int source2;
+    private final int offset2;
+    private final int constant2;
+    private final boolean constantIsString2;
+
+    /**
+     * Resolves the terms of the comparison atom. A variable is looked up in the right tuple's offsets first, then in the left tuple's.
+     *
+     * @param comparisonAtom the comparison atom to resolve
+     * @param leftOffsets the offsets of the variables in the left tuple
+     * @param rightOffsets the offsets of the variables in the right tuple, null when the comparison is only ever evaluated over a single tuple
+     */
+    public ColumnComparison(ComparisonAtom comparisonAtom, VariableOffsets leftOffsets, VariableOffsets rightOffsets) {
+        this.op = comparisonAtom.getOp();
+
+        int[] resolved1 = resolveTerm(comparisonAtom.getTerm1(), leftOffsets, rightOffsets);
+        this.source1 = resolved1[0];
+        this.offset1 = resolved1[1];
+        this.constant1 = resolved1[2];
+        this.constantIsString1 = resolved1[3] == 1;
+
+        int[] resolved2 = resolveTerm(comparisonAtom.getTerm2(), leftOffsets, rightOffsets);
+        this.source2 = resolved2[0];
+        this.offset2 = resolved2[1];
+        this.constant2 = resolved2[2];
+        this.constantIsString2 = resolved2[3] == 1;
+    }
+
+    //  returns {source, offset, constant value, constant is string}
+    private static int[] resolveTerm(Term term, VariableOffsets leftOffsets, VariableOffsets rightOffsets) {
+        if (term instanceof Variable) {
+            if (rightOffsets != null && rightOffsets.contains((Variable) term)) return new int[] {RIGHT, rightOffsets.getFirstOffset((Variable) term), 0, 0};
+            if (leftOffsets.contains((Variable) term)) return new int[] {LEFT, leftOffsets.getFirstOffset((Variable) term), 0, 0};
+
+            throw new IllegalArgumentException("The variable " + term + " doesn't occur in the tuples the comparison is evaluated over!");
+
+        } else if (term instanceof StringConstant) {
+            return new int[] {CONSTANT, -1, StringDictionary.getDictionary().encode(((StringConstant) term).getValue()), 1};
+
+        } else if (term instanceof IntegerConstant) {
+            return new int[] {CONSTANT, -1, ((IntegerConstant) term).getValue(), 0};
+
+        } else throw new UnsupportedOperationException("Unsupported term type!");
+    }
+
+    //  evaluates the comparison over a single tuple, for comparisons resolved without right offsets
+    public boolean evaluate(Tuple tuple) {
+        return evaluate(tuple, null);
+    }
+
+    public boolean evaluate(Tuple leftTuple, Tuple rightTuple) {
+        int value1;
+        boolean isString1;
+        if (source1 == CONSTANT) {
+            value1 = constant1;
+            isString1 = constantIsString1;
+        } else {
+            Tuple tuple = (source1 == LEFT) ? leftTuple : rightTuple;
+            value1 = tuple.getValue(offset1);
+            isString1 = tuple.isString(offset1);
+        }
+
+        int value2;
+        boolean isString2;
+        if (source2 == CONSTANT) {
+            value2 = constant2;
+            isString2 = constantIsString2;
+        } else {
+            Tuple tuple = (source2 == LEFT) ? leftTuple : rightTuple;
+            value2 = tuple.getValue(offset2);
+            isString2 = tuple.isString(offset2);
+        }
+
+        return compareValues(value1, isString1, value2, isString2, op);
+    }
+
+    /**
+     * Compares two tuple values with the given operator. String values are dictionary codes, so they are only decoded for the ordering operators.
+     */
+    public static boolean compareValues(int value1, boolean isString1, int value2, boolean isString2, ComparisonOperator op) {
+        if (isString1 != isString2) {
+            if (op == ComparisonOperator.EQ) return false;
+            if (op == ComparisonOperator.NEQ) return true;
+            throw new IllegalArgumentException("Incompatible constant types passed in!");
+        }
+
+        if (op == ComparisonOperator.EQ) return value1 == value2;
+        if (op == ComparisonOperator.NEQ) return value1 != value2;
+
+        int comparisonResult;
+        if (isString1) {
+            StringDictionary dictionary = StringDictionary.getDictionary();
+            comparisonResult = dictionary.decode(value1).compareTo(dictionary.decode(value2));
+        } else {
+            comparisonResult = Integer.compare(value1, value2);
+        }
+
+        if (comparisonResult > 0) {
+            return (op == ComparisonOperator.GT || op == ComparisonOperator.GEQ);
+        } else if (comparisonResult < 0) {
+            return (op == ComparisonOperator.LT || op == ComparisonOperator.LEQ);
+        } else {
+            return (op == ComparisonOperator.GEQ || op == ComparisonOperator.LEQ);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package ed.inf.adbs.minibase.evaluator;
+
+import ed.inf.adbs.minibase.base.ComparisonAtom;
+import ed.inf.adbs.minibase.base.ComparisonOperator;
+import ed.inf.adbs.minibase.base.RelationalAtom;
+import ed.inf.adbs.minibase.base.Variable;
+import ed.inf.adbs.minibase.dbstructures.DatabaseCatalog;
+import ed.inf.adbs.minibase.dbstructures.Relation;
+import ed.inf.adbs.minibase.dbstructures.Tuple;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * The estimates the JoinOrderOptimizer costs join orders with, and the QueryPlanner decides on index scans with: the number of rows in each relation, and the selectivity of the comparisons made over them.
+ * Selections and distinct values are estimated by the SelectivityEstimator from the statistics of the relations that have been analysed.
+ * Without statistics, the selectivities are the usual fixed guesses, and every column is assumed to hold as many distinct values as its relation has rows.
+ */
+public class CostModel {
+
+    static final double EQUALITY_SELECTIVITY = 0.1;
+    static final double INEQUALITY_SELECTIVITY = 0.9;
+    static final double RANGE_SELECTIVITY = 1.0 / 3;
+
+    //  index scans read their rows out of file order, so they're only used for comparisons estimated to keep fewer than this fraction of the rows
+    static final double INDEX_SCAN_SELECTIVITY_LIMIT = 0.25;
+
+    //  the cost of looking a key up in an index and reading its rows, relative to reading one row of a relation in order
+    static final double INDEX_PROBE_COST = 4;
+
+    //  the heap a hash table takes up per tuple on top of the tuple itself, for its entry and the list of tuples sharing the key
+    static final long HASH_ENTRY_OVERHEAD_BYTES = 64;
+
+    //  leaves are only aggregated ahead of the joins when they're expected to be left with at most this fraction of their rows as groups
+    static final double EAGER_AGGREGATION_REDUCTION = 0.5;
+
+    private final ToLongFunction<String> tableCardinalities;
+    private final SelectivityEstimator selectivityEstimator;
+    private final long workMemoryBytes;
+
+    //  a cost model without any statistics
+    public CostModel(ToLongFunction<String> tableCardinalities) {
+        this(tableCardinalities, new SelectivityEstimator(relationName -> null));
+    }
+
+    public CostModel(ToLongFunction<String> tableCardinalities, SelectivityEstimator selectivityEstimator) {
+        this(tableCardinalities, selectivityEstimator, DatabaseCatalog.DEFAULT_WORK_MEMORY_BYTES);
+    }
+
+    public CostModel(ToLongFunction<String> tableCardinalities, SelectivityEstimator selectivityEstimator, long workMemoryBytes) {
+        this.tableCardinalities = tableCardinalities;
+        this.selectivityEstimator = selectivityEstimator;
+        this.workMemoryBytes = workMemoryBytes;
+    }
+
+    //  a cost model reading the row counts and statistics of the catalog's relations, estimating the row counts of relations that haven't been analysed from their files on first use
+    public static CostModel fromCatalog(DatabaseCatalog catalog) {
+        return new CostModel(relationName -> {
+            Relation relation = catalog.getRelationMap().get(relationName);
+            if (relation == null) throw new IllegalArgumentException("No relation named " + relationName + " in the catalog!");
+
+            try {
+                return relation.estimateRowCount();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, SelectivityEstimator.fromCatalog(catalog), catalog.getWorkMemoryBytes());
+    }
+
+    //  the number of rows in the relation the atom is over, before any selections are applied
+    public double getTableCardinality(RelationalAtom relationalAtom) {
+        return Math.max(1, tableCardinalities.applyAsLong(relationalAtom.getName()));
+    }
+
+    //  the fraction of the atom's rows that pass a comparison made within it, either against a constant or between two of its own variables
+    public double getSelectionSelectivity(ComparisonAtom comparisonAtom, RelationalAtom relationalAtom) {
+        return selectivityEstimator.estimateSelectivity(comparisonAtom, relationalAtom);
+    }
+
+    //  the fraction of pairs of rows that pass a join condition other than an equality between variables, which is estimated through distinct values instead
+    public double getJoinConditionSelectivity(ComparisonAtom comparisonAtom) {
+        return getDefaultSelectivity(comparisonAtom.getOp());
+    }
+
+    //  the number of distinct values of the variable among the given number of rows of the atom that are left after its selections, which can't be more than the rows left
+    public double getDistinctValues(RelationalAtom relationalAtom, Variable variable, double atomCardinality) {
+        double distinctValues = selectivityEstimator.estimateDistinctValues(relationalAtom, variable);
+        if (distinctValues < 0) return Math.max(1, atomCardinality);
+        return Math.max(1, Math.min(distinctValues, atomCardinality));
+    }
+
+    //  the number of groups the given variables split the joined rows of the atoms into: the product of the variables' distinct values, each in the first atom it occurs in
+    public double estimateGroupCount(Collection<Variable> groupVariables, List<RelationalAtom> relationalAtoms) {
+        double groups = 1;
+        for (Variable variable : groupVariables) {
+            for (RelationalAtom relationalAtom : relationalAtoms) {
+                if (relationalAtom.getTerms().contains(variable)) {
+                    groups *= getDistinctValues(relationalAtom, variable, getTableCardinality(relationalAtom));
+                    break;
+                }
+            }
+        }
+        return groups;
+    }
+
+    //  whether grouping the given number of rows of the atom on the given variables is expected to shrink them enough for aggregating them ahead of the joins to pay off.
+    //  Without statistics every variable is taken to be distinct in every row, so only leaves grouped on no variables at all are aggregated
+    public boolean prefersEagerAggregation(RelationalAtom relationalAtom, Collection<Variable> groupVariables, double atomCardinality) {
+        double groups = 1;
+        for (Variable variable : groupVariables) groups *= getDistinctValues(relationalAtom, variable, atomCardinality);
+        return Math.min(groups, atomCardinality) <= atomCardinality * EAGER_AGGREGATION_REDUCTION;
+    }
+
+    //  whether looking up each of the given number of outer rows in an index over the inner atom's relation is expected to be cheaper than reading the whole relation
+    public boolean prefersIndexNestedLoopJoin(double outerCardinality, RelationalAtom innerAtom) {
+        return outerCardinality * INDEX_PROBE_COST < getTableCardinality(innerAtom);
+    }
+
+    //  whether a hash table over the given number of tuples of the given width is expected to fit within the memory budget operators are given
+    public boolean fitsInWorkMemory(double cardinality, int width) {
+        return cardinality * (Tuple.estimateSizeInBytes(width) + HASH_ENTRY_OVERHEAD_BYTES) <= workMemoryBytes;
+    }
+
+    public long getWorkMemoryBytes() {
+        return workMemoryBytes;
+    }
+
+    public SelectivityEstimator getSelectivityEstimator() {
+        return selectivityEstimator;
+    }
+
+    static double getDefaultSelectivity(ComparisonOperator op) {
+        switch (op) {
+            case EQ:
+                return EQUALITY_SELECTIVITY;
+            case NEQ:
+                return INEQUALITY_SELECTIVITY;
+            default:
+                return RANGE_SELECTIVITY;
+        }
+    }
+}
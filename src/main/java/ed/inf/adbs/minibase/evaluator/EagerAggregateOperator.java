@@ -0,0 +1,30 @@
+package ed.inf.adbs.minibase.evaluator;
+
+import ed.inf.adbs.minibase.base.RelationalAtom;
+import ed.inf.adbs.minibase.base.Term;
+
+import java.util.Collections;
+import java.util.List;
+
+//  An operator that groups the tuples of one leaf of the plan ahead of the joins, as planned by an EagerAggregation,
+//  standing in for that leaf's scan, selection or semi-join reduction in the joins above it.
+//  Its rows are described by an atom of their own: the group variables, followed by the low and high halves of the count and of each partial sum
+public class EagerAggregateOperator extends AggregateOperator {
+
+    RelationalAtom baseRelationalAtom;
+    RelationalAtom outputAtom;
+
+    public EagerAggregateOperator(Operator child, List<Term> outputTerms, RelationalAtom baseRelationalAtom, RelationalAtom outputAtom) {
+        super(child, outputTerms, Collections.singletonList(baseRelationalAtom), Collections.emptyList(), Collections.emptyMap(), true);
+        this.baseRelationalAtom = baseRelationalAtom;
+        this.outputAtom = outputAtom;
+    }
+
+    public RelationalAtom getBaseRelationalAtom() {
+        return baseRelationalAtom;
+    }
+
+    public RelationalAtom getOutputAtom() {
+        return outputAtom;
+    }
+}
@@ -0,0 +1,167 @@
+package ed.inf.adbs.minibase.evaluator;
+
+import ed.inf.adbs.minibase.base.*;
+
+import java.util.*;
+
+/**
+ * Eager aggregation for queries with aggregates in their head, pushing the aggregation down below the joins onto their leaves.
+ * A leaf only has to keep the variables it shares with another atom or a join condition and those the head groups by. Grouping its tuples on those,
+ * with a count of the tuples in each group and a sum of each aggregated variable that no other atom binds, leaves the joins a single row per group.
+ * The aggregation at the root then weighs every joined row by the product of its leaves' counts: a row joined from groups of c1, ..., cn tuples stands for c1 * ... * cn tuples of the full join,
+ * and a variable summed up in the i-th leaf adds up to its partial sum times the counts of the other leaves over them. SUM, COUNT and AVG all come out exactly as without the rewrite.
+ * Which leaves are worth aggregating is left to the query planner.
+ */
+public class EagerAggregation {
+
+    //  the prefixes of the variables of the count and partial sum columns, which the query's own variables can't start with
+    private static final String COUNT_PREFIX = "#count";
+    private static final String SUM_PREFIX = "#sum";
+
+    private final RelationalAtom head;
+    private final List<RelationalAtom> relationalAtoms;
+
+    //  for each leaf, the variables it has to keep for the joins and the head, and the aggregated variables only it binds
+    private final List<List<Variable>> groupVariables;
+    private final List<List<Variable>> summedVariables;
+
+    private final boolean[] aggregated;
+
+    public EagerAggregation(RelationalAtom head, List<RelationalAtom> relationalAtoms, List<ComparisonAtom> joinConditions) {
+        this.head = head;
+        this.relationalAtoms = relationalAtoms;
+        this.groupVariables = new ArrayList<>();
+        this.summedVariables = new ArrayList<>();
+        this.aggregated = new boolean[relationalAtoms.size()];
+
+        Set<Variable> neededAbove = new HashSet<>();
+        for (Term term : head.getTerms()) {
+            if (term instanceof Variable) neededAbove.add((Variable) term);
+        }
+        for (ComparisonAtom joinCondition : joinConditions) {
+            if (joinCondition.getTerm1() instanceof Variable) neededAbove.add((Variable) joinCondition.getTerm1());
+            if (joinCondition.getTerm2() instanceof Variable) neededAbove.add((Variable) joinCondition.getTerm2());
+        }
+
+        for (int leaf = 0; leaf < relationalAtoms.size(); leaf++) {
+            List<Variable> kept = new ArrayList<>();
+            for (Variable variable : getVariables(relationalAtoms.get(leaf))) {
+                if (neededAbove.contains(variable) || isBoundElsewhere(variable, leaf)) kept.add(variable);
+            }
+            groupVariables.add(kept);
+
+            //  COUNT only counts tuples, so only the variables of SUM and AVG need summing up
+            List<Variable> summed = new ArrayList<>();
+            for (Term term : head.getTerms()) {
+                if (!(term instanceof AggregateTerm) || ((AggregateTerm) term).getFunction() == AggregateFunction.COUNT) continue;
+
+                Variable variable = ((AggregateTerm) term).getVariable();
+                if (relationalAtoms.get(leaf).getTerms().contains(variable) && !kept.contains(variable) && !summed.contains(variable)) summed.add(variable);
+            }
+            summedVariables.add(summed);
+        }
+    }
+
+    private static List<Variable> getVariables(RelationalAtom relationalAtom) {
+        List<Variable> variables = new ArrayList<>();
+        for (Term term : relationalAtom.getTerms()) {
+            if (term instanceof Variable && !variables.contains(term)) variables.add((Variable) term);
+        }
+        return variables;
+    }
+
+    private boolean isBoundElsewhere(Variable variable, int leaf) {
+        for (int other = 0; other < relationalAtoms.size(); other++) {
+            if (other != leaf && relationalAtoms.get(other).getTerms().contains(variable)) return true;
+        }
+        return false;
+    }
+
+    //  the variables the leaf is grouped on if it is aggregated
+    public List<Variable> getGroupVariables(int leaf) {
+        return groupVariables.get(leaf);
+    }
+
+    //  whether aggregating the leaf drops any of its variables, without which it would only merge duplicate tuples
+    public boolean canAggregate(int leaf) {
+        return groupVariables.get(leaf).size() < getVariables(relationalAtoms.get(leaf)).size();
+    }
+
+    //  marks the leaf to be aggregated ahead of the joins
+    public void aggregate(int leaf) {
+        if (!canAggregate(leaf)) throw new IllegalArgumentException("Aggregating " + relationalAtoms.get(leaf) + " wouldn't drop any of its variables!");
+        aggregated[leaf] = true;
+    }
+
+    public boolean isAggregated(int leaf) {
+        return aggregated[leaf];
+    }
+
+    public boolean aggregatesAnyLeaf() {
+        for (boolean leafAggregated : aggregated) {
+            if (leafAggregated) return true;
+        }
+        return false;
+    }
+
+    //  the atom the rows of the leaf are described by in the joins above it: the original atom, or the group variables followed by the count and partial sum columns of an aggregated leaf.
+    //  The counts and partial sums are longs, each split into a low half column and a high half column, so that a partial sum past the int range still comes through the joins whole
+    public RelationalAtom getLeafAtom(int leaf) {
+        RelationalAtom relationalAtom = relationalAtoms.get(leaf);
+        if (!aggregated[leaf]) return relationalAtom;
+
+        List<Term> terms = new ArrayList<>(groupVariables.get(leaf));
+        terms.add(getCountVariable(leaf));
+        terms.add(AggregateOperator.getHighHalf(getCountVariable(leaf)));
+        for (Variable variable : summedVariables.get(leaf)) {
+            terms.add(getSumVariable(leaf, variable));
+            terms.add(AggregateOperator.getHighHalf(getSumVariable(leaf, variable)));
+        }
+        return new RelationalAtom(relationalAtom.getName(), terms);
+    }
+
+    //  the leaf atom standing in for the given original one
+    public RelationalAtom getLeafAtom(RelationalAtom relationalAtom) {
+        int leaf = relationalAtoms.indexOf(relationalAtom);
+        return (leaf < 0) ? relationalAtom : getLeafAtom(leaf);
+    }
+
+    private static Variable getCountVariable(int leaf) {
+        return new Variable(COUNT_PREFIX + leaf);
+    }
+
+    private static Variable getSumVariable(int leaf, Variable variable) {
+        return new Variable(SUM_PREFIX + leaf + "_" + variable.getName());
+    }
+
+    //  wraps the leaf's scan, selection or semi-join reduction in the aggregation of its tuples if it is aggregated, otherwise returns it as it is
+    public Operator constructLeaf(int leaf, Operator child) {
+        if (!aggregated[leaf]) return child;
+
+        RelationalAtom relationalAtom = relationalAtoms.get(leaf);
+        List<Term> outputTerms = new ArrayList<>(groupVariables.get(leaf));
+        outputTerms.add(new AggregateTerm(AggregateFunction.COUNT, getVariables(relationalAtom).get(0)));
+        for (Variable variable : summedVariables.get(leaf)) outputTerms.add(new AggregateTerm(AggregateFunction.SUM, variable));
+
+        return new EagerAggregateOperator(child, outputTerms, relationalAtom, getLeafAtom(leaf));
+    }
+
+    //  the aggregation at the root over the joined leaves, weighing each row by the counts of the aggregated leaves it was joined from
+    public AggregateOperator constructRoot(Operator child, List<RelationalAtom> childRelationalAtoms) {
+        List<Variable> multiplicityVariables = new ArrayList<>();
+        Map<Variable, AggregateOperator.PartialSum> partialSums = new HashMap<>();
+
+        for (int leaf = 0; leaf < relationalAtoms.size(); leaf++) {
+            if (!aggregated[leaf]) continue;
+
+            multiplicityVariables.add(getCountVariable(leaf));
+            for (Variable variable : summedVariables.get(leaf)) partialSums.put(variable, new AggregateOperator.PartialSum(getSumVariable(leaf, variable), getCountVariable(leaf)));
+        }
+
+        return new AggregateOperator(child, head.getTerms(), childRelationalAtoms, multiplicityVariables, partialSums);
+    }
+
+    public List<RelationalAtom> getRelationalAtoms() {
+        return relationalAtoms;
+    }
+}
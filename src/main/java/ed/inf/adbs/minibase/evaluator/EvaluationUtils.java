@@ -15,7 +15,7 @@ public class EvaluationUtils {
     public static Constant getVariableSubstitutionInTuple(RelationalAtom sourceAtom, Tuple tuple, Variable variable) {
         int index = sourceAtom.getTerms().indexOf(variable);
         if (index >= 0)
-            return tuple.getFields().get(index);
+            return tuple.getField(index);
 
         else throw new IllegalArgumentException("This tuple does not contain this variable and therefore should not be allowing such a low level execution call!");
     }
@@ -31,7 +31,7 @@ public class EvaluationUtils {
      * @return a list of constants representing every instance in the tuple mapped to by the given variable's occurrences in the relational atom list
      */
     public static List<Constant> getSubsForAllInstancesOfVariableInCombinedTuple(List<RelationalAtom> leftChildAtoms, Tuple combinedTuple, Variable variable) {
-        if (leftChildAtoms.stream().map(RelationalAtom::getTerms).map(List::size).reduce(0, Integer::sum) != combinedTuple.getFields().size())
+        if (leftChildAtoms.stream().map(RelationalAtom::getTerms).map(List::size).reduce(0, Integer::sum) != combinedTuple.size())
             throw new IllegalArgumentException("The left child atoms list should have a term size sum equivalent to the number of fields in the combined tuple!");
 
         int offset = 0;
@@ -42,7 +42,7 @@ public class EvaluationUtils {
             int index = sourceAtom.getTerms().indexOf(variable);
 
             if (index >= 0) {
-                relevantConstants.add(combinedTuple.getFields().get(index + offset));
+                relevantConstants.add(combinedTuple.getField(index + offset));
             }
 
             offset += sourceAtom.getTerms().size();
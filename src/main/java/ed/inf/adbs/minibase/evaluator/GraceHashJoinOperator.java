@@ -0,0 +1,354 @@
+package ed.inf.adbs.minibase.evaluator;
+
+import ed.inf.adbs.minibase.base.ComparisonAtom;
+import ed.inf.adbs.minibase.base.RelationalAtom;
+import ed.inf.adbs.minibase.dbstructures.Tuple;
+import ed.inf.adbs.minibase.dbstructures.TupleSpillFile;
+
+import java.io.IOException;
+import java.util.*;
+
+//  GraceHashJoinOperator that implements an equi-join the same way as the HashJoinOperator while the building child fits within the memory budget,
+//  and otherwise falls back to partitioning both children into temporary files on the hash of their join key and joining the matching partitions one pair at a time.
+//  A partition of the building child that still doesn't fit is partitioned again on a differently seeded hash, up to MAX_PARTITIONING_DEPTH times,
+//  after which it is joined in memory regardless, since it's then most likely made up of a single heavily repeated key.
+//  The output tuples are the left tuple followed by the right one, and the residual join conditions are checked over every pair with equal keys, as in the HashJoinOperator
+public class GraceHashJoinOperator extends Operator {
+
+    //  the number of partitions each input is split into per level of partitioning, a power of two
+    static final int NUM_PARTITIONS = 32;
+
+    static final int MAX_PARTITIONING_DEPTH = 4;
+
+    Operator leftChild;
+    Operator rightChild;
+
+    List<RelationalAtom> leftChildAtoms;
+    RelationalAtom rightChildAtom;
+    List<ComparisonAtom> joinConditions;
+
+    //  the positions of the equi-join key columns in the left and right tuples respectively, matched up index by index
+    List<Integer> leftKeyIndices;
+    List<Integer> rightKeyIndices;
+
+    //  the join conditions that aren't already enforced through the hash key, which are checked over every candidate pair
+    List<ComparisonAtom> residualConditions;
+    RowPredicate[] compiledResidualConditions;
+
+    //  whether the hash tables are built over the left child, in which case the right child is the one probing them
+    boolean buildOnLeft;
+    Operator buildChild;
+    Operator probeChild;
+    List<Integer> buildKeyIndices;
+    List<Integer> probeKeyIndices;
+
+    long memoryBudgetBytes;
+
+    //  the hash table currently probed: over the whole building child when it fits in memory, or else over the building side of the current partition
+    Map<Tuple, List<Tuple>> hashTable;
+
+    //  once the children have been partitioned: the pairs of partitions left to join, and a reader over the probing side of the current pair
+    boolean partitioned;
+    Deque<PartitionPair> pendingPartitions;
+    TupleSpillFile probePartition;
+    TupleSpillFile.Reader probeReader;
+    int partitionsSpilled;
+
+    //  the current tuple of the probing side, and the tuples of the building side sharing its key
+    Tuple outerTuple;
+    List<Tuple> currentMatches;
+    int matchIndex;
+
+    //  the type flags of the combined tuples, worked out from the first matching pair and shared by every tuple emitted after it
+    boolean[] combinedStringColumns;
+
+    public GraceHashJoinOperator(Operator leftChild, Operator rightChild, List<RelationalAtom> leftChildAtoms, RelationalAtom rightChildAtom, List<ComparisonAtom> joinConditions, boolean buildOnLeft, long memoryBudgetBytes) {
+        if (!HashJoinOperator.hasEquiJoinKey(leftChildAtoms, rightChildAtom, joinConditions)) throw new IllegalArgumentException("A hash join can only be constructed when there is at least one equi-join key between the children!");
+        if (memoryBudgetBytes <= 0) throw new IllegalArgumentException("A grace hash join needs a positive memory budget!");
+
+        this.leftChild = leftChild;
+        this.rightChild = rightChild;
+        this.leftChildAtoms = leftChildAtoms;
+        this.rightChildAtom = rightChildAtom;
+        this.joinConditions = joinConditions;
+        this.memoryBudgetBytes = memoryBudgetBytes;
+
+        this.leftKeyIndices = new ArrayList<>();
+        this.rightKeyIndices = new ArrayList<>();
+        this.residualConditions = new ArrayList<>();
+        HashJoinOperator.extractJoinKeys(leftChildAtoms, rightChildAtom, joinConditions, leftKeyIndices, rightKeyIndices, residualConditions);
+
+        VariableOffsets leftOffsets = new VariableOffsets(leftChildAtoms);
+        VariableOffsets rightOffsets = new VariableOffsets(rightChildAtom);
+        this.compiledResidualConditions = new RowPredicate[residualConditions.size()];
+        for (int i = 0; i < residualConditions.size(); i++) {
+            compiledResidualConditions[i] = PredicateCompiler.compile(residualConditions.get(i), leftOffsets, leftChild.getStringColumns(), rightOffsets, rightChild.getStringColumns());
+        }
+
+        this.buildOnLeft = buildOnLeft;
+        this.buildChild = buildOnLeft ? leftChild : rightChild;
+        this.probeChild = buildOnLeft ? rightChild : leftChild;
+        this.buildKeyIndices = buildOnLeft ? leftKeyIndices : rightKeyIndices;
+        this.probeKeyIndices = buildOnLeft ? rightKeyIndices : leftKeyIndices;
+
+        this.currentMatches = Collections.emptyList();
+    }
+
+    /**
+     * returns the next combined tuple whose left and right parts agree on the join key and pass the residual join conditions.
+     * The building child is read the first time this is called, and partitioned along with the probing child if it turns out not to fit in memory.
+     * Once the probing tuples of a partition run out, the next pair of partitions is loaded.
+     *
+     * @return the next joined tuple, null if none such remain
+     * @throws IOException thrown if any exceptions bubble up from the child operators, or if the partitions can't be written or read
+     */
+    @Override
+    public Tuple getNextTuple() throws IOException {
+        if (hashTable == null && !partitioned) build();
+
+        while (true) {
+            while (matchIndex < currentMatches.size()) {
+                Tuple innerTuple = currentMatches.get(matchIndex++);
+                Tuple leftTuple = buildOnLeft ? innerTuple : outerTuple;
+                Tuple rightTuple = buildOnLeft ? outerTuple : innerTuple;
+
+                if (passesResidualConditions(leftTuple, rightTuple)) {
+                    if (combinedStringColumns == null) combinedStringColumns = Tuple.concatStringColumns(leftTuple, rightTuple);
+                    return Tuple.concat(leftTuple, rightTuple, combinedStringColumns);
+                }
+            }
+
+            outerTuple = partitioned ? (probeReader == null ? null : probeReader.next()) : probeChild.getNextTuple();
+            if (outerTuple == null) {
+                if (!partitioned || !loadNextPartition()) return null;
+                continue;
+            }
+
+            currentMatches = hashTable.getOrDefault(HashJoinOperator.extractKey(outerTuple, probeKeyIndices), Collections.emptyList());
+            matchIndex = 0;
+        }
+    }
+
+    private boolean passesResidualConditions(Tuple leftTuple, Tuple rightTuple) {
+        for (RowPredicate residualCondition : compiledResidualConditions) {
+            if (!residualCondition.test(leftTuple, rightTuple)) return false;
+        }
+        return true;
+    }
+
+    //  reads the building child into a hash table, switching over to partitioning both children as soon as it passes the memory budget
+    private void build() throws IOException {
+        Map<Tuple, List<Tuple>> table = new HashMap<>();
+        long tableBytes = 0;
+
+        buildChild.reset();
+        Tuple tuple;
+        while ((tuple = buildChild.getNextTuple()) != null) {
+            table.computeIfAbsent(HashJoinOperator.extractKey(tuple, buildKeyIndices), key -> new ArrayList<>()).add(tuple);
+            tableBytes += estimateSizeInBytes(tuple);
+
+            if (tableBytes > memoryBudgetBytes) {
+                partition(table, tuple);
+                return;
+            }
+        }
+
+        this.hashTable = table;
+    }
+
+    /**
+     * Partitions the building tuples read so far along with the rest of the building child, then the whole probing child, into NUM_PARTITIONS pairs of temporary files.
+     * The pairs where both sides have tuples are queued up to be joined, and the first of them is loaded.
+     */
+    private void partition(Map<Tuple, List<Tuple>> bufferedTuples, Tuple lastTuple) throws IOException {
+        boolean[] buildStringColumns = lastTuple.getStringColumns();
+        TupleSpillFile[] buildPartitions = new TupleSpillFile[NUM_PARTITIONS];
+
+        for (List<Tuple> tuples : bufferedTuples.values()) {
+            for (Tuple tuple : tuples) writeToPartition(buildPartitions, tuple, buildKeyIndices, 0, buildStringColumns);
+        }
+        bufferedTuples.clear();
+
+        Tuple tuple;
+        while ((tuple = buildChild.getNextTuple()) != null) writeToPartition(buildPartitions, tuple, buildKeyIndices, 0, buildStringColumns);
+
+        TupleSpillFile[] probePartitions = new TupleSpillFile[NUM_PARTITIONS];
+        while ((tuple = probeChild.getNextTuple()) != null) writeToPartition(probePartitions, tuple, probeKeyIndices, 0, tuple.getStringColumns());
+
+        this.partitioned = true;
+        this.pendingPartitions = new ArrayDeque<>();
+        queuePartitions(buildPartitions, probePartitions, 0);
+        loadNextPartition();
+    }
+
+    //  queues up the pairs of partitions where both sides have tuples, deleting the others since they can't produce any output
+    private void queuePartitions(TupleSpillFile[] buildPartitions, TupleSpillFile[] probePartitions, int depth) throws IOException {
+        for (int i = 0; i < NUM_PARTITIONS; i++) {
+            if (buildPartitions[i] != null && probePartitions[i] != null) {
+                pendingPartitions.push(new PartitionPair(buildPartitions[i], probePartitions[i], depth));
+            } else {
+                if (buildPartitions[i] != null) buildPartitions[i].close();
+                if (probePartitions[i] != null) probePartitions[i].close();
+            }
+        }
+    }
+
+    /**
+     * Moves on to the next pair of partitions, loading its building side into the hash table and opening a reader over its probing side.
+     * A building side that is too large for the memory budget is first split into sub-partitions along with its probing side, which are queued up in its place.
+     *
+     * @return false once there are no partitions left
+     */
+    private boolean loadNextPartition() throws IOException {
+        closeProbePartition();
+        currentMatches = Collections.emptyList();
+        matchIndex = 0;
+
+        while (!pendingPartitions.isEmpty()) {
+            PartitionPair pair = pendingPartitions.pop();
+            partitionsSpilled++;
+
+            long buildBytes = pair.build.getTupleCount() * (Tuple.estimateSizeInBytes(pair.build.getStringColumns().length) + CostModel.HASH_ENTRY_OVERHEAD_BYTES);
+            if (buildBytes > memoryBudgetBytes && pair.depth < MAX_PARTITIONING_DEPTH) {
+                repartition(pair);
+                continue;
+            }
+
+            Map<Tuple, List<Tuple>> table = new HashMap<>();
+            TupleSpillFile.Reader buildReader = pair.build.openReader();
+            Tuple tuple;
+            while ((tuple = buildReader.next()) != null) {
+                table.computeIfAbsent(HashJoinOperator.extractKey(tuple, buildKeyIndices), key -> new ArrayList<>()).add(tuple);
+            }
+            buildReader.close();
+            pair.build.close();
+
+            this.hashTable = table;
+            this.probePartition = pair.probe;
+            this.probeReader = pair.probe.openReader();
+            return true;
+        }
+
+        this.hashTable = Collections.emptyMap();
+        return false;
+    }
+
+    //  closes the reader over the probing side of the current pair of partitions and deletes its file, since each pair is only joined once
+    private void closeProbePartition() throws IOException {
+        if (probeReader != null) probeReader.close();
+        if (probePartition != null) probePartition.close();
+        probeReader = null;
+        probePartition = null;
+    }
+
+    //  splits both sides of a pair of partitions on the hash seeded by the next depth, queueing up the resulting pairs
+    private void repartition(PartitionPair pair) throws IOException {
+        int depth = pair.depth + 1;
+
+        TupleSpillFile[] buildPartitions = new TupleSpillFile[NUM_PARTITIONS];
+        TupleSpillFile.Reader buildReader = pair.build.openReader();
+        Tuple tuple;
+        while ((tuple = buildReader.next()) != null) writeToPartition(buildPartitions, tuple, buildKeyIndices, depth, pair.build.getStringColumns());
+        buildReader.close();
+        pair.build.close();
+
+        TupleSpillFile[] probePartitions = new TupleSpillFile[NUM_PARTITIONS];
+        TupleSpillFile.Reader probeReader = pair.probe.openReader();
+        while ((tuple = probeReader.next()) != null) writeToPartition(probePartitions, tuple, probeKeyIndices, depth, pair.probe.getStringColumns());
+        probeReader.close();
+        pair.probe.close();
+
+        queuePartitions(buildPartitions, probePartitions, depth);
+    }
+
+    private static void writeToPartition(TupleSpillFile[] partitions, Tuple tuple, List<Integer> keyIndices, int depth, boolean[] stringColumns) throws IOException {
+        int partition = getPartition(HashJoinOperator.extractKey(tuple, keyIndices), depth);
+        if (partitions[partition] == null) partitions[partition] = new TupleSpillFile(stringColumns);
+        partitions[partition].write(tuple);
+    }
+
+    //  the partition of a key at the given depth of partitioning. Each depth mixes the key's hash with a different seed and takes the top bits,
+    //  so the keys of a partition are spread out again when it is split
+    static int getPartition(Tuple key, int depth) {
+        int hash = key.hashCode() ^ (depth * 0x9E3779B9);
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        hash *= 0xC2B2AE35;
+        hash ^= hash >>> 16;
+        return hash >>> (32 - Integer.numberOfTrailingZeros(NUM_PARTITIONS));
+    }
+
+    private static long estimateSizeInBytes(Tuple tuple) {
+        return Tuple.estimateSizeInBytes(tuple.size()) + CostModel.HASH_ENTRY_OVERHEAD_BYTES;
+    }
+
+    @Override
+    public boolean[] getStringColumns() {
+        boolean[] leftStringColumns = leftChild.getStringColumns();
+        boolean[] rightStringColumns = rightChild.getStringColumns();
+
+        return (leftStringColumns == null || rightStringColumns == null) ? null : Tuple.concatStringColumns(leftStringColumns, rightStringColumns);
+    }
+
+    //  an in-memory hash table is kept across resets and only the probing child is restarted, as in the HashJoinOperator.
+    //  Partitions are deleted as they are joined, so once the children have been partitioned the join starts over from reading them
+    @Override
+    public void reset() {
+        if (partitioned) {
+            try {
+                closeProbePartition();
+                for (PartitionPair pair : pendingPartitions) {
+                    pair.build.close();
+                    pair.probe.close();
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+
+            partitioned = false;
+            pendingPartitions = null;
+            hashTable = null;
+        }
+
+        probeChild.reset();
+        outerTuple = null;
+        currentMatches = Collections.emptyList();
+        matchIndex = 0;
+    }
+
+    //  whether the children turned out to be too large to join in memory and were partitioned
+    public boolean isPartitioned() {
+        return partitioned;
+    }
+
+    //  the number of pairs of partitions taken off the queue so far, including those that were split further
+    public int getPartitionsSpilled() {
+        return partitionsSpilled;
+    }
+
+    public List<ComparisonAtom> getResidualConditions() {
+        return residualConditions;
+    }
+
+    public RelationalAtom getRightChildAtom() {
+        return rightChildAtom;
+    }
+
+    public boolean buildsOnLeft() {
+        return buildOnLeft;
+    }
+
+    //  the building and probing sides of one partition, and how many times their tuples have been partitioned
+    private static class PartitionPair {
+        final TupleSpillFile build;
+        final TupleSpillFile probe;
+        final int depth;
+
+        PartitionPair(TupleSpillFile build, TupleSpillFile probe, int depth) {
+            this.build = build;
+            this.probe = probe;
+            this.depth = depth;
+        }
+    }
+}
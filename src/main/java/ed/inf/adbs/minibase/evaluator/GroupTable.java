@@ -0,0 +1,179 @@
+package ed.inf.adbs.minibase.evaluator;
+
+import java.util.Arrays;
+
+/**
+ * The groups of an aggregation, held in flat primitive arrays rather than as a map of tuples: an open-addressing hash table over group ids with linear probing,
+ * the group key values laid out one group after another, and a running sum per aggregate and a row count per group.
+ * Groups are numbered in the order they were first seen, which is the order they are output in.
+ */
+public class GroupTable {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final int keyWidth;
+    private final int numSums;
+
+    //  the id of the group in each slot plus one, 0 for an empty slot
+    private int[] slots;
+    private int[] keys;
+    private long[] sums;
+    private long[] counts;
+    private int size;
+
+    public GroupTable(int keyWidth, int numSums) {
+        this.keyWidth = keyWidth;
+        this.numSums = numSums;
+
+        this.slots = new int[INITIAL_CAPACITY];
+        this.keys = new int[INITIAL_CAPACITY / 2 * keyWidth];
+        this.sums = new long[INITIAL_CAPACITY / 2 * numSums];
+        this.counts = new long[INITIAL_CAPACITY / 2];
+        this.size = 0;
+    }
+
+    /**
+     * Finds the group of the given row of the columns, adding a new group for it if there isn't one yet.
+     *
+     * @param columns the columns the row is read from
+     * @param row the row
+     * @param keyColumns the positions of the key columns among the columns
+     * @return the id of the row's group
+     */
+    public int findOrInsert(int[][] columns, int row, int[] keyColumns) {
+        int hash = 1;
+        for (int keyColumn : keyColumns) hash = 31 * hash + columns[keyColumn][row];
+
+        int mask = slots.length - 1;
+        for (int slot = mix(hash) & mask; ; slot = (slot + 1) & mask) {
+            int group = slots[slot] - 1;
+            if (group == -1) return insert(slot, columns, row, keyColumns);
+            if (keyEquals(group, columns, row, keyColumns)) return group;
+        }
+    }
+
+    //  the same as above for a key given on its own, as when merging one table into another
+    public int findOrInsert(int[] key) {
+        int hash = 1;
+        for (int value : key) hash = 31 * hash + value;
+
+        int mask = slots.length - 1;
+        for (int slot = mix(hash) & mask; ; slot = (slot + 1) & mask) {
+            int group = slots[slot] - 1;
+            if (group == -1) {
+                int[][] columns = new int[keyWidth][1];
+                int[] keyColumns = new int[keyWidth];
+                for (int i = 0; i < keyWidth; i++) {
+                    columns[i][0] = key[i];
+                    keyColumns[i] = i;
+                }
+                return insert(slot, columns, 0, keyColumns);
+            }
+            if (Arrays.equals(getKey(group), key)) return group;
+        }
+    }
+
+    /**
+     * Adds the sums and counts of every group of another table over the same key and aggregates into this one's, adding the groups this one doesn't have yet
+     * in the order the other table saw them. Groups the other table never counted a tuple towards are skipped.
+     *
+     * @param other the table to merge in
+     */
+    public void mergeFrom(GroupTable other) {
+        if (other.keyWidth != keyWidth || other.numSums != numSums) throw new IllegalArgumentException("Only tables over the same key and aggregates can be merged!");
+
+        for (int otherGroup = 0; otherGroup < other.size; otherGroup++) {
+            if (other.counts[otherGroup] == 0) continue;
+
+            int group = findOrInsert(other.getKey(otherGroup));
+            counts[group] += other.counts[otherGroup];
+            for (int sum = 0; sum < numSums; sum++) sums[group * numSums + sum] += other.sums[otherGroup * numSums + sum];
+        }
+    }
+
+    private boolean keyEquals(int group, int[][] columns, int row, int[] keyColumns) {
+        int offset = group * keyWidth;
+        for (int i = 0; i < keyWidth; i++) {
+            if (keys[offset + i] != columns[keyColumns[i]][row]) return false;
+        }
+        return true;
+    }
+
+    private int insert(int slot, int[][] columns, int row, int[] keyColumns) {
+        int group = size++;
+        if (group == counts.length) growGroups();
+
+        for (int i = 0; i < keyWidth; i++) keys[group * keyWidth + i] = columns[keyColumns[i]][row];
+        slots[slot] = group + 1;
+
+        //  keeping the table at most half full so that probe sequences stay short
+        if (2 * size > slots.length) rehash();
+        return group;
+    }
+
+    private void growGroups() {
+        keys = Arrays.copyOf(keys, 2 * counts.length * keyWidth);
+        sums = Arrays.copyOf(sums, 2 * counts.length * numSums);
+        counts = Arrays.copyOf(counts, 2 * counts.length);
+    }
+
+    private void rehash() {
+        slots = new int[2 * slots.length];
+        int mask = slots.length - 1;
+
+        for (int group = 0; group < size; group++) {
+            int hash = 1;
+            for (int i = 0; i < keyWidth; i++) hash = 31 * hash + keys[group * keyWidth + i];
+
+            int slot = mix(hash) & mask;
+            while (slots[slot] != 0) slot = (slot + 1) & mask;
+            slots[slot] = group + 1;
+        }
+    }
+
+    private static int mix(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        hash *= 0xC2B2AE35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+
+    public void addToSum(int group, int sum, long value) {
+        sums[group * numSums + sum] += value;
+    }
+
+    public void addToCount(int group, long count) {
+        counts[group] += count;
+    }
+
+    public int getKey(int group, int index) {
+        return keys[group * keyWidth + index];
+    }
+
+    //  the whole key of a group, copied out of the table
+    public int[] getKey(int group) {
+        return Arrays.copyOfRange(keys, group * keyWidth, (group + 1) * keyWidth);
+    }
+
+    public long getSum(int group, int sum) {
+        return sums[group * numSums + sum];
+    }
+
+    public long getCount(int group) {
+        return counts[group];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getKeyWidth() {
+        return keyWidth;
+    }
+
+    public int getNumSums() {
+        return numSums;
+    }
+}
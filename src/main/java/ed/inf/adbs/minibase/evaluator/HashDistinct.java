@@ -0,0 +1,180 @@
+package ed.inf.adbs.minibase.evaluator;
+
+import ed.inf.adbs.minibase.dbstructures.Tuple;
+import ed.inf.adbs.minibase.dbstructures.TupleSpillFile;
+
+import java.io.IOException;
+
+/**
+ * Duplicate elimination within a memory budget, over rows hash-partitioned into NUM_PARTITIONS IntRowSets. While the sets fit within the budget every row is told apart straight away.
+ * Once they don't, the largest partition is spilled: the rows it has already let through are written to a temporary file, and the rows falling into it from then on are written to a second one
+ * and held back. When the input is done, each spilled partition is gone through on its own, loading the rows it let through and then letting through those of its held back rows that are new.
+ * A spilled partition is told apart by a HashDistinct of its own on a differently seeded hash, so one that still doesn't fit is spilled again, up to MAX_PARTITIONING_DEPTH times,
+ * after which it is held in memory regardless, as the GraceHashJoinOperator does with its partitions.
+ */
+public class HashDistinct implements RowDeduplicator {
+
+    //  the number of partitions the rows are split into per level of partitioning, a power of two
+    static final int NUM_PARTITIONS = 32;
+
+    static final int MAX_PARTITIONING_DEPTH = 4;
+
+    private final boolean[] stringColumns;
+    private final long memoryBudgetBytes;
+    private final int depth;
+
+    //  the rows let through by each partition still held in memory, null for partitions that haven't had any rows yet or that have been spilled
+    private final IntRowSet[] partitions;
+    private long residentBytes;
+
+    //  for each spilled partition, the rows it had let through before it was spilled, and the rows held back since. Both are null for partitions that haven't been spilled
+    private final TupleSpillFile[] seenFiles;
+    private final TupleSpillFile[] pendingFiles;
+    private int partitionsSpilled;
+
+    //  while the held back rows are handed out: the next partition to go through, and the deduplicator over the current one with a reader over its held back rows
+    private boolean inputDone;
+    private int nextPartition;
+    private int currentPartition;
+    private HashDistinct current;
+    private TupleSpillFile.Reader pendingReader;
+
+    public HashDistinct(boolean[] stringColumns, long memoryBudgetBytes) {
+        this(stringColumns, memoryBudgetBytes, 0);
+    }
+
+    private HashDistinct(boolean[] stringColumns, long memoryBudgetBytes, int depth) {
+        if (memoryBudgetBytes <= 0) throw new IllegalArgumentException("A hash distinct needs a positive memory budget!");
+
+        this.stringColumns = stringColumns;
+        this.memoryBudgetBytes = memoryBudgetBytes;
+        this.depth = depth;
+
+        this.partitions = new IntRowSet[NUM_PARTITIONS];
+        this.seenFiles = new TupleSpillFile[NUM_PARTITIONS];
+        this.pendingFiles = new TupleSpillFile[NUM_PARTITIONS];
+    }
+
+    @Override
+    public boolean add(int[] row) throws IOException {
+        if (inputDone) throw new IllegalStateException("Can't add rows once the held back ones are being handed out!");
+        return add(row, false);
+    }
+
+    //  adds a row to its partition, which for a row that has already been let through only records it as seen
+    private boolean add(int[] row, boolean seen) throws IOException {
+        int partition = getPartition(row, depth);
+        if (pendingFiles[partition] != null) {
+            (seen ? seenFiles : pendingFiles)[partition].write(new Tuple(row, stringColumns));
+            return false;
+        }
+
+        if (partitions[partition] == null) partitions[partition] = new IntRowSet(row.length);
+        IntRowSet rows = partitions[partition];
+
+        long bytesBefore = rows.estimateSizeInBytes();
+        if (!rows.add(row)) return false;
+        residentBytes += rows.estimateSizeInBytes() - bytesBefore;
+
+        if (residentBytes > memoryBudgetBytes) spillLargestPartition();
+        return !seen;
+    }
+
+    //  writes the rows of the partition taking up the most memory out to its file of rows already let through, holding back any more rows falling into it
+    private void spillLargestPartition() throws IOException {
+        int largest = -1;
+        for (int partition = 0; partition < NUM_PARTITIONS; partition++) {
+            if (partitions[partition] != null && (largest < 0 || partitions[partition].estimateSizeInBytes() > partitions[largest].estimateSizeInBytes())) largest = partition;
+        }
+
+        IntRowSet rows = partitions[largest];
+        seenFiles[largest] = new TupleSpillFile(stringColumns);
+        for (int row = 0; row < rows.size(); row++) seenFiles[largest].write(new Tuple(rows.getRow(row), stringColumns));
+        pendingFiles[largest] = new TupleSpillFile(stringColumns);
+
+        residentBytes -= rows.estimateSizeInBytes();
+        partitions[largest] = null;
+        partitionsSpilled++;
+    }
+
+    //  the partition of a row at the given depth of partitioning. Each depth mixes the row's hash with a different seed and takes the top bits,
+    //  so the rows of a partition are spread out again when it is split, and independently of the slots they take in its set
+    static int getPartition(int[] row, int depth) {
+        return IntRowSet.mix(IntRowSet.hash(row) ^ (depth * 0x9E3779B9)) >>> (32 - Integer.numberOfTrailingZeros(NUM_PARTITIONS));
+    }
+
+    @Override
+    public int[] nextDeferred() throws IOException {
+        //  the rows held in memory have all been let through already, and none of the held back ones can match them, so they can go
+        if (!inputDone) {
+            inputDone = true;
+            for (int partition = 0; partition < NUM_PARTITIONS; partition++) partitions[partition] = null;
+            residentBytes = 0;
+        }
+
+        while (true) {
+            if (current != null) {
+                Tuple tuple;
+                while (pendingReader != null && (tuple = pendingReader.next()) != null) {
+                    if (current.add(tuple.getValues())) return tuple.getValues();
+                }
+                closePendingReader();
+
+                int[] row = current.nextDeferred();
+                if (row != null) return row;
+
+                current.close();
+                current = null;
+            }
+
+            if (nextPartition == NUM_PARTITIONS) return null;
+            int partition = nextPartition++;
+            if (pendingFiles[partition] != null) startPartition(partition);
+        }
+    }
+
+    //  loads the rows a spilled partition let through into a deduplicator of its own, which the partition's held back rows are then told apart by
+    private void startPartition(int partition) throws IOException {
+        long budget = (depth + 1 < MAX_PARTITIONING_DEPTH) ? memoryBudgetBytes : Long.MAX_VALUE;
+        current = new HashDistinct(stringColumns, budget, depth + 1);
+
+        TupleSpillFile.Reader seenReader = seenFiles[partition].openReader();
+        Tuple tuple;
+        while ((tuple = seenReader.next()) != null) current.add(tuple.getValues(), true);
+        seenReader.close();
+        seenFiles[partition].close();
+        seenFiles[partition] = null;
+
+        currentPartition = partition;
+        pendingReader = pendingFiles[partition].openReader();
+    }
+
+    private void closePendingReader() throws IOException {
+        if (pendingReader == null) return;
+
+        pendingReader.close();
+        pendingFiles[currentPartition].close();
+        pendingFiles[currentPartition] = null;
+        pendingReader = null;
+    }
+
+    //  the number of partitions spilled at the top level of partitioning
+    public int getPartitionsSpilled() {
+        return partitionsSpilled;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closePendingReader();
+        if (current != null) current.close();
+        current = null;
+
+        for (int partition = 0; partition < NUM_PARTITIONS; partition++) {
+            partitions[partition] = null;
+            if (seenFiles[partition] != null) seenFiles[partition].close();
+            if (pendingFiles[partition] != null) pendingFiles[partition].close();
+            seenFiles[partition] = null;
+            pendingFiles[partition] = null;
+        }
+    }
+}
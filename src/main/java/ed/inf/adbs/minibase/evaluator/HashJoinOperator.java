@@ -0,0 +1,368 @@
+package ed.inf.adbs.minibase.evaluator;
+
+import ed.inf.adbs.minibase.base.ComparisonAtom;
+import ed.inf.adbs.minibase.base.ComparisonOperator;
+import ed.inf.adbs.minibase.base.RelationalAtom;
+import ed.inf.adbs.minibase.base.Term;
+import ed.inf.adbs.minibase.base.Variable;
+import ed.inf.adbs.minibase.dbstructures.Tuple;
+import ed.inf.adbs.minibase.dbstructures.TupleBatch;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+
+//  HashJoinOperator that implements an equi-join by building a hash table over the tuples of the right child, keyed on the join variables, then probing it with the tuples from the left child.
+//  It can also be told to build over the left child and probe with the right one instead, for when the left child is the smaller of the two. Either way, the output tuples are the left tuple followed by the right one
+public class HashJoinOperator extends Operator {
+
+    Operator leftChild;
+    Operator rightChild;
+
+    List<RelationalAtom> leftChildAtoms;
+    RelationalAtom rightChildAtom;
+    List<ComparisonAtom> joinConditions;
+
+    //  the positions of the equi-join key columns in the left and right tuples respectively, matched up index by index
+    List<Integer> leftKeyIndices;
+    List<Integer> rightKeyIndices;
+
+    //  the join conditions that aren't already enforced through the hash key, which are checked over every candidate pair
+    List<ComparisonAtom> residualConditions;
+    RowPredicate[] compiledResidualConditions;
+
+    //  keyed on tuples made up of just the join key columns, so key equality follows tuple equality
+    Map<Tuple, List<Tuple>> hashTable;
+
+    //  the hash table when it was built on several threads, in place of hashTable
+    RadixPartitionedHashTable partitionedHashTable;
+
+    //  whether the hash table is built over the left child, in which case the right child is the one probing it
+    boolean buildOnLeft;
+    Operator buildChild;
+    Operator probeChild;
+    List<Integer> buildKeyIndices;
+    List<Integer> probeKeyIndices;
+
+    //  the current tuple of the probing child, and the tuples of the building child sharing its key
+    Tuple outerTuple;
+    List<Tuple> currentMatches;
+    int matchIndex;
+
+    //  the type flags of the combined tuples, worked out from the first matching pair and shared by every tuple emitted after it
+    boolean[] combinedStringColumns;
+
+    //  the state of probing through batches: the current batch of the probing child, the position in its selection vector, and the batch being filled
+    TupleBatch outerBatch;
+    int outerSelectionIndex;
+    TupleBatch outputBatch;
+
+    public HashJoinOperator(Operator leftChild, Operator rightChild, List<RelationalAtom> leftChildAtoms, RelationalAtom rightChildAtom, List<ComparisonAtom> joinConditions) {
+        this(leftChild, rightChild, leftChildAtoms, rightChildAtom, joinConditions, false);
+    }
+
+    public HashJoinOperator(Operator leftChild, Operator rightChild, List<RelationalAtom> leftChildAtoms, RelationalAtom rightChildAtom, List<ComparisonAtom> joinConditions, boolean buildOnLeft) {
+        if (!hasEquiJoinKey(leftChildAtoms, rightChildAtom, joinConditions)) throw new IllegalArgumentException("A hash join can only be constructed when there is at least one equi-join key between the children!");
+
+        this.leftChild = leftChild;
+        this.rightChild = rightChild;
+        this.leftChildAtoms = leftChildAtoms;
+        this.rightChildAtom = rightChildAtom;
+        this.joinConditions = joinConditions;
+
+        this.leftKeyIndices = new ArrayList<>();
+        this.rightKeyIndices = new ArrayList<>();
+        this.residualConditions = new ArrayList<>();
+        extractJoinKeys(leftChildAtoms, rightChildAtom, joinConditions, leftKeyIndices, rightKeyIndices, residualConditions);
+
+        VariableOffsets leftOffsets = new VariableOffsets(leftChildAtoms);
+        VariableOffsets rightOffsets = new VariableOffsets(rightChildAtom);
+        this.compiledResidualConditions = new RowPredicate[residualConditions.size()];
+        for (int i = 0; i < residualConditions.size(); i++) {
+            compiledResidualConditions[i] = PredicateCompiler.compile(residualConditions.get(i), leftOffsets, leftChild.getStringColumns(), rightOffsets, rightChild.getStringColumns());
+        }
+
+        this.buildOnLeft = buildOnLeft;
+        this.buildChild = buildOnLeft ? leftChild : rightChild;
+        this.probeChild = buildOnLeft ? rightChild : leftChild;
+        this.buildKeyIndices = buildOnLeft ? leftKeyIndices : rightKeyIndices;
+        this.probeKeyIndices = buildOnLeft ? rightKeyIndices : leftKeyIndices;
+
+        this.hashTable = null;
+        this.outerTuple = null;
+        this.currentMatches = Collections.emptyList();
+        this.matchIndex = 0;
+    }
+
+    /**
+     * returns the next combined tuple whose left and right parts agree on the join key and pass the residual join conditions.
+     * The hash table over the building child is built the first time this is called. After that, the current outer tuple's bucket is run through before the next outer tuple from the probing child is probed.
+     *
+     * @return the next joined tuple, null if none such remain
+     * @throws IOException thrown if any exceptions bubble up from the child operators
+     */
+    @Override
+    public Tuple getNextTuple() throws IOException {
+        if (hashTable == null && partitionedHashTable == null) buildHashTable();
+
+        while (true) {
+            while (matchIndex < currentMatches.size()) {
+                Tuple innerTuple = currentMatches.get(matchIndex++);
+                Tuple leftTuple = buildOnLeft ? innerTuple : outerTuple;
+                Tuple rightTuple = buildOnLeft ? outerTuple : innerTuple;
+
+                if (passesResidualConditions(leftTuple, rightTuple)) {
+                    if (combinedStringColumns == null) combinedStringColumns = Tuple.concatStringColumns(leftTuple, rightTuple);
+                    return Tuple.concat(leftTuple, rightTuple, combinedStringColumns);
+                }
+            }
+
+            if ((outerTuple = probeChild.getNextTuple()) == null) return null;
+
+            currentMatches = getMatches(extractKey(outerTuple, probeKeyIndices));
+            matchIndex = 0;
+        }
+    }
+
+    /**
+     * the batch equivalent of getNextTuple(), probing the hash table with every selected row of the probing child's batches in turn.
+     * The probing row is only materialised as a tuple once it has at least one match, and matching pairs are written straight into the output batch's columns.
+     * If the output batch fills up part way through a bucket, the next call picks up from the same position.
+     *
+     * @return the next batch of joined rows, null if none such remain
+     * @throws IOException thrown if any exceptions bubble up from the child operators
+     */
+    @Override
+    public TupleBatch getNextBatch() throws IOException {
+        if (hashTable == null && partitionedHashTable == null) buildHashTable();
+        if (outputBatch != null) outputBatch.clear();
+
+        while (true) {
+            while (matchIndex < currentMatches.size()) {
+                Tuple innerTuple = currentMatches.get(matchIndex++);
+                Tuple leftTuple = buildOnLeft ? innerTuple : outerTuple;
+                Tuple rightTuple = buildOnLeft ? outerTuple : innerTuple;
+
+                if (passesResidualConditions(leftTuple, rightTuple)) {
+                    appendCombinedRow(leftTuple, rightTuple);
+                    if (outputBatch.isFull()) return outputBatch;
+                }
+            }
+
+            if (outerBatch == null || outerSelectionIndex == outerBatch.getSelectedCount()) {
+                outerBatch = probeChild.getNextBatch();
+                outerSelectionIndex = 0;
+
+                if (outerBatch == null) {
+                    currentMatches = Collections.emptyList();
+                    return (outputBatch == null || outputBatch.getSelectedCount() == 0) ? null : outputBatch;
+                }
+            }
+
+            int outerRow = outerBatch.getSelection()[outerSelectionIndex++];
+            currentMatches = getMatches(extractKey(outerBatch, outerRow, probeKeyIndices));
+            matchIndex = 0;
+
+            if (!currentMatches.isEmpty()) outerTuple = outerBatch.getTuple(outerRow);
+        }
+    }
+
+    private List<Tuple> getMatches(Tuple key) {
+        return (partitionedHashTable != null) ? partitionedHashTable.get(key) : hashTable.getOrDefault(key, Collections.emptyList());
+    }
+
+    private void appendCombinedRow(Tuple leftTuple, Tuple rightTuple) {
+        if (outputBatch == null) {
+            if (combinedStringColumns == null) combinedStringColumns = Tuple.concatStringColumns(leftTuple, rightTuple);
+            outputBatch = new TupleBatch(combinedStringColumns);
+        }
+        outputBatch.appendConcatenation(leftTuple, rightTuple);
+    }
+
+    private boolean passesResidualConditions(Tuple leftTuple, Tuple rightTuple) {
+        for (RowPredicate residualCondition : compiledResidualConditions) {
+            if (!residualCondition.test(leftTuple, rightTuple)) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean[] getStringColumns() {
+        boolean[] leftStringColumns = leftChild.getStringColumns();
+        boolean[] rightStringColumns = rightChild.getStringColumns();
+
+        return (leftStringColumns == null || rightStringColumns == null) ? null : Tuple.concatStringColumns(leftStringColumns, rightStringColumns);
+    }
+
+    //  the hash table only depends on the building child, so it is kept across resets and only the probing side is restarted
+    @Override
+    public void reset() {
+        probeChild.reset();
+        outerTuple = null;
+        currentMatches = Collections.emptyList();
+        matchIndex = 0;
+        outerBatch = null;
+        outerSelectionIndex = 0;
+    }
+
+    //  builds the hash table now if it hasn't been built yet, rather than on the first call for a tuple
+    void ensureHashTableBuilt() throws IOException {
+        if (hashTable == null && partitionedHashTable == null) buildHashTable();
+    }
+
+    /**
+     * Creates a join probing this join's hash table with the tuples of another probing child, with every other setting the same as this one's.
+     * The hash table is built first if it hasn't been already, and is only ever read from then on, so any number of copies can probe it from different threads.
+     *
+     * @param probeChild the operator producing the probing tuples in place of this join's probing child
+     * @return the join sharing this join's hash table
+     */
+    HashJoinOperator withProbeChild(Operator probeChild) throws IOException {
+        ensureHashTableBuilt();
+
+        HashJoinOperator copy = buildOnLeft
+                ? new HashJoinOperator(leftChild, probeChild, leftChildAtoms, rightChildAtom, joinConditions, true)
+                : new HashJoinOperator(probeChild, rightChild, leftChildAtoms, rightChildAtom, joinConditions, false);
+        copy.hashTable = hashTable;
+        copy.partitionedHashTable = partitionedHashTable;
+        return copy;
+    }
+
+    /**
+     * Builds the hash table on several threads of the given pool, radix-partitioning the building child's tuples and building the partitions in parallel,
+     * unless it has been built already. The building child itself is still read on the calling thread.
+     *
+     * @param pool the pool to build the table on
+     * @param threads the number of threads to build the table on
+     * @throws IOException thrown if any exceptions bubble up from the building child, or if building the table fails
+     */
+    void buildHashTableInParallel(ExecutorService pool, int threads) throws IOException {
+        if (hashTable != null || partitionedHashTable != null) return;
+
+        List<Tuple> buildTuples = new ArrayList<>();
+        buildChild.reset();
+
+        TupleBatch innerBatch;
+        while ((innerBatch = buildChild.getNextBatch()) != null) {
+            int[] selection = innerBatch.getSelection();
+            for (int i = 0; i < innerBatch.getSelectedCount(); i++) buildTuples.add(innerBatch.getTuple(selection[i]));
+        }
+
+        partitionedHashTable = RadixPartitionedHashTable.build(buildTuples, buildKeyIndices, pool, threads);
+    }
+
+    //  drains the building child into the hash table a batch at a time, grouping its tuples by their join key values
+    private void buildHashTable() throws IOException {
+        hashTable = new HashMap<>();
+        buildChild.reset();
+
+        TupleBatch innerBatch;
+        while ((innerBatch = buildChild.getNextBatch()) != null) {
+            int[] selection = innerBatch.getSelection();
+
+            for (int i = 0; i < innerBatch.getSelectedCount(); i++) {
+                hashTable.computeIfAbsent(extractKey(innerBatch, selection[i], buildKeyIndices), key -> new ArrayList<>()).add(innerBatch.getTuple(selection[i]));
+            }
+        }
+    }
+
+    static Tuple extractKey(Tuple tuple, List<Integer> keyIndices) {
+        int[] values = new int[keyIndices.size()];
+        boolean[] stringColumns = new boolean[keyIndices.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = tuple.getValue(keyIndices.get(i));
+            stringColumns[i] = tuple.isString(keyIndices.get(i));
+        }
+        return new Tuple(values, stringColumns);
+    }
+
+    private static Tuple extractKey(TupleBatch batch, int row, List<Integer> keyIndices) {
+        int[] values = new int[keyIndices.size()];
+        boolean[] stringColumns = new boolean[keyIndices.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = batch.getColumn(keyIndices.get(i))[row];
+            stringColumns[i] = batch.getStringColumns()[keyIndices.get(i)];
+        }
+        return new Tuple(values, stringColumns);
+    }
+
+    /**
+     * Splits the join into the key columns used for hashing and the residual conditions.
+     * Every variable of the right child atom that also occurs in the left child atoms contributes a key column pair,
+     * as does every explicit equality join condition relating a left variable to a right variable.
+     * All other join conditions are kept as residual conditions.
+     * The sort-merge join splits its join conditions the same way.
+     */
+    static void extractJoinKeys(List<RelationalAtom> leftChildAtoms, RelationalAtom rightChildAtom, List<ComparisonAtom> joinConditions,
+                                List<Integer> leftKeyIndices, List<Integer> rightKeyIndices, List<ComparisonAtom> residualConditions) {
+        VariableOffsets leftOffsets = new VariableOffsets(leftChildAtoms);
+        VariableOffsets rightOffsets = new VariableOffsets(rightChildAtom);
+
+        for (Term term : rightChildAtom.getTerms()) {
+            if (!(term instanceof Variable)) throw new IllegalArgumentException("Shouldnt be getting constants embedded in relational atoms at this stage!");
+
+            int leftIndex = leftOffsets.getFirstOffset((Variable) term);
+            int rightIndex = rightOffsets.getFirstOffset((Variable) term);
+
+            //  only adding the first occurrence of the variable in the right atom, mirroring the check made in the nested loop join
+            if (leftIndex >= 0 && !rightKeyIndices.contains(rightIndex)) {
+                leftKeyIndices.add(leftIndex);
+                rightKeyIndices.add(rightIndex);
+            }
+        }
+
+        for (ComparisonAtom joinCondition : joinConditions) {
+            int[] keyPair = getEquiJoinKeyPair(joinCondition, leftOffsets, rightOffsets);
+
+            if (keyPair == null) {
+                residualConditions.add(joinCondition);
+            } else {
+                leftKeyIndices.add(keyPair[0]);
+                rightKeyIndices.add(keyPair[1]);
+            }
+        }
+    }
+
+    //  checks whether joining the given left atoms with the right atom has at least one equality between the two sides that can be hashed on
+    public static boolean hasEquiJoinKey(List<RelationalAtom> leftChildAtoms, RelationalAtom rightChildAtom, List<ComparisonAtom> joinConditions) {
+        VariableOffsets leftOffsets = new VariableOffsets(leftChildAtoms);
+        VariableOffsets rightOffsets = new VariableOffsets(rightChildAtom);
+
+        boolean sharesVariable = rightChildAtom.getTerms().stream()
+                .anyMatch(term -> term instanceof Variable && leftOffsets.contains((Variable) term));
+
+        return sharesVariable || joinConditions.stream().anyMatch(joinCondition -> getEquiJoinKeyPair(joinCondition, leftOffsets, rightOffsets) != null);
+    }
+
+    //  if the comparison atom is an equality between a variable on the left side and a variable on the right side, returns the pair of {leftIndex, rightIndex} for it, otherwise null
+    private static int[] getEquiJoinKeyPair(ComparisonAtom comparisonAtom, VariableOffsets leftOffsets, VariableOffsets rightOffsets) {
+        if (comparisonAtom.getOp() != ComparisonOperator.EQ) return null;
+        if (!(comparisonAtom.getTerm1() instanceof Variable && comparisonAtom.getTerm2() instanceof Variable)) return null;
+
+        int leftIndex1 = leftOffsets.getFirstOffset((Variable) comparisonAtom.getTerm1());
+        int rightIndex2 = rightOffsets.getFirstOffset((Variable) comparisonAtom.getTerm2());
+        if (leftIndex1 >= 0 && rightIndex2 >= 0) return new int[] {leftIndex1, rightIndex2};
+
+        int leftIndex2 = leftOffsets.getFirstOffset((Variable) comparisonAtom.getTerm2());
+        int rightIndex1 = rightOffsets.getFirstOffset((Variable) comparisonAtom.getTerm1());
+        if (leftIndex2 >= 0 && rightIndex1 >= 0) return new int[] {leftIndex2, rightIndex1};
+
+        return null;
+    }
+
+    public List<Integer> getLeftKeyIndices() {
+        return leftKeyIndices;
+    }
+
+    public List<Integer> getRightKeyIndices() {
+        return rightKeyIndices;
+    }
+
+    public List<ComparisonAtom> getResidualConditions() {
+        return residualConditions;
+    }
+
+    public boolean buildsOnLeft() {
+        return buildOnLeft;
+    }
+}
@@ -0,0 +1,269 @@
+package ed.inf.adbs.minibase.evaluator;
+
+import ed.inf.adbs.minibase.base.ComparisonAtom;
+import ed.inf.adbs.minibase.base.ComparisonOperator;
+import ed.inf.adbs.minibase.base.RelationalAtom;
+import ed.inf.adbs.minibase.base.Term;
+import ed.inf.adbs.minibase.base.Variable;
+import ed.inf.adbs.minibase.dbstructures.ColumnIndex;
+import ed.inf.adbs.minibase.dbstructures.Tuple;
+import ed.inf.adbs.minibase.dbstructures.TupleBatch;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+//  IndexNestedLoopJoinOperator that implements an equi-join by looking every left tuple's join key up in an index over a column of the right relation,
+//  then reading just the rows the index returns straight out of the right relation's memory-mapped csv.
+//  Unlike the tuple nested loop join the right relation is never rescanned, so the cost follows the number of left tuples and their matches rather than the size of the right relation.
+//  The right atom's own selections are checked over the rows read, since there is no select operator between the join and the relation
+public class IndexNestedLoopJoinOperator extends Operator {
+
+    Operator leftChild;
+    MappedScanOperator rightScan;
+
+    List<RelationalAtom> leftChildAtoms;
+    RelationalAtom rightChildAtom;
+    List<ComparisonAtom> rightSelections;
+    List<ComparisonAtom> joinConditions;
+
+    ColumnIndex index;
+
+    //  the position in the left tuples of the value looked up in the index
+    int leftKeyOffset;
+
+    //  the pairs of left and right offsets that have to hold equal values, one per occurrence in the left tuple of each variable in the right atom
+    int[] leftEqualityOffsets;
+    int[] rightEqualityOffsets;
+
+    RowPredicate[] compiledRightSelections;
+    RowPredicate[] compiledJoinConditions;
+
+    //  the current left tuple, and the positions of the right rows the index returned for it
+    Tuple outerTuple;
+    long[] matchPositions;
+    int matchIndex;
+
+    //  the type flags of the combined tuples, worked out from the first matching pair and shared by every tuple emitted after it
+    boolean[] combinedStringColumns;
+
+    //  the state of probing through batches: the current batch of the left child, the position in its selection vector, and the batch being filled
+    TupleBatch outerBatch;
+    int outerSelectionIndex;
+    TupleBatch outputBatch;
+
+    /**
+     * @param leftChild the operator producing the left tuples
+     * @param rightScan a scan over the right relation's csv, which the index was built over. Its rows are only read through the index
+     * @param leftChildAtoms the relational atoms making up the left tuples
+     * @param rightChildAtom the relational atom over the right relation
+     * @param rightSelections the selections over the right atom alone, checked over every right row read
+     * @param joinConditions the comparisons relating the left atoms to the right atom
+     * @param index an index over the right relation answering equalities, on a column that is joined on by equality with the left side
+     */
+    public IndexNestedLoopJoinOperator(Operator leftChild, MappedScanOperator rightScan, List<RelationalAtom> leftChildAtoms, RelationalAtom rightChildAtom, List<ComparisonAtom> rightSelections, List<ComparisonAtom> joinConditions, ColumnIndex index) {
+        if (!index.supports(ComparisonOperator.EQ)) throw new IllegalArgumentException("An index nested loop join needs an index answering equalities!");
+
+        this.leftChild = leftChild;
+        this.rightScan = rightScan;
+        this.leftChildAtoms = leftChildAtoms;
+        this.rightChildAtom = rightChildAtom;
+        this.rightSelections = rightSelections;
+        this.joinConditions = joinConditions;
+        this.index = index;
+
+        this.leftKeyOffset = getLeftKeyOffset(leftChildAtoms, rightChildAtom, joinConditions, index.getColumn());
+        if (leftKeyOffset < 0) throw new IllegalArgumentException("The indexed column isn't joined on by equality with the left side!");
+
+        bindConditions();
+    }
+
+    //  resolves the variable equalities to fixed offsets in the left and right tuples and compiles the selections and join conditions, as the nested loop join does
+    private void bindConditions() {
+        VariableOffsets leftOffsets = new VariableOffsets(leftChildAtoms);
+        VariableOffsets rightOffsets = new VariableOffsets(rightChildAtom);
+
+        List<int[]> equalityPairs = new ArrayList<>();
+        for (Term term : rightChildAtom.getTerms()) {
+            if (!(term instanceof Variable)) throw new IllegalArgumentException("Shouldnt be getting constants embedded in relational atoms at this stage!");
+
+            int rightOffset = rightOffsets.getFirstOffset((Variable) term);
+            for (int leftOffset : leftOffsets.getOffsets((Variable) term)) {
+                equalityPairs.add(new int[] {leftOffset, rightOffset});
+            }
+        }
+
+        this.leftEqualityOffsets = new int[equalityPairs.size()];
+        this.rightEqualityOffsets = new int[equalityPairs.size()];
+        for (int i = 0; i < equalityPairs.size(); i++) {
+            leftEqualityOffsets[i] = equalityPairs.get(i)[0];
+            rightEqualityOffsets[i] = equalityPairs.get(i)[1];
+        }
+
+        this.compiledRightSelections = new RowPredicate[rightSelections.size()];
+        for (int i = 0; i < rightSelections.size(); i++) {
+            compiledRightSelections[i] = PredicateCompiler.compile(rightSelections.get(i), rightOffsets, rightScan.getStringColumns());
+        }
+
+        this.compiledJoinConditions = new RowPredicate[joinConditions.size()];
+        for (int i = 0; i < joinConditions.size(); i++) {
+            compiledJoinConditions[i] = PredicateCompiler.compile(joinConditions.get(i), leftOffsets, leftChild.getStringColumns(), rightOffsets, rightScan.getStringColumns());
+        }
+    }
+
+    /**
+     * returns the next combined tuple of a left tuple and one of the right rows the index returns for its key, which passes the selections and join conditions.
+     * The rows returned for the current left tuple are run through before the next left tuple is looked up.
+     *
+     * @return the next joined tuple, null if none such remain
+     * @throws IOException thrown if any exceptions bubble up from the left child
+     */
+    @Override
+    public Tuple getNextTuple() throws IOException {
+        while (true) {
+            Tuple innerTuple = nextMatch();
+            if (innerTuple != null) {
+                if (combinedStringColumns == null) combinedStringColumns = Tuple.concatStringColumns(outerTuple, innerTuple);
+                return Tuple.concat(outerTuple, innerTuple, combinedStringColumns);
+            }
+
+            if ((outerTuple = leftChild.getNextTuple()) == null) return null;
+            lookUp();
+        }
+    }
+
+    /**
+     * the batch equivalent of getNextTuple(), looking up every selected row of the left child's batches in turn and writing the matching pairs straight into the output batch's columns.
+     * If the output batch fills up part way through the rows of a left tuple, the next call picks up from the same position.
+     *
+     * @return the next batch of joined rows, null if none such remain
+     * @throws IOException thrown if any exceptions bubble up from the left child
+     */
+    @Override
+    public TupleBatch getNextBatch() throws IOException {
+        if (outputBatch != null) outputBatch.clear();
+
+        while (true) {
+            Tuple innerTuple;
+            while ((innerTuple = nextMatch()) != null) {
+                if (outputBatch == null) {
+                    if (combinedStringColumns == null) combinedStringColumns = Tuple.concatStringColumns(outerTuple, innerTuple);
+                    outputBatch = new TupleBatch(combinedStringColumns);
+                }
+                outputBatch.appendConcatenation(outerTuple, innerTuple);
+                if (outputBatch.isFull()) return outputBatch;
+            }
+
+            if (outerBatch == null || outerSelectionIndex == outerBatch.getSelectedCount()) {
+                outerBatch = leftChild.getNextBatch();
+                outerSelectionIndex = 0;
+
+                if (outerBatch == null) {
+                    matchPositions = null;
+                    return (outputBatch == null || outputBatch.getSelectedCount() == 0) ? null : outputBatch;
+                }
+            }
+
+            outerTuple = outerBatch.getTuple(outerBatch.getSelection()[outerSelectionIndex++]);
+            lookUp();
+        }
+    }
+
+    private void lookUp() {
+        matchPositions = index.lookup(ComparisonOperator.EQ, outerTuple.getField(leftKeyOffset));
+        matchIndex = 0;
+    }
+
+    //  reads the right rows returned for the current left tuple until one of them passes the selections and join conditions, null once they run out
+    private Tuple nextMatch() {
+        if (matchPositions == null) return null;
+
+        boolean[] rightStringColumns = rightScan.stringColumns;
+        while (matchIndex < matchPositions.length) {
+            rightScan.buffer.position((int) matchPositions[matchIndex++]);
+
+            int[] values = new int[rightStringColumns.length];
+            rightScan.parseRow(values);
+            Tuple innerTuple = new Tuple(values, rightStringColumns);
+
+            if (passesConditions(outerTuple, innerTuple)) return innerTuple;
+        }
+        return null;
+    }
+
+    private boolean passesConditions(Tuple leftTuple, Tuple rightTuple) {
+        for (RowPredicate rightSelection : compiledRightSelections) {
+            if (!rightSelection.test(rightTuple, null)) return false;
+        }
+
+        for (int i = 0; i < leftEqualityOffsets.length; i++) {
+            if (!Tuple.fieldsEqual(leftTuple, leftEqualityOffsets[i], rightTuple, rightEqualityOffsets[i])) return false;
+        }
+
+        for (RowPredicate joinCondition : compiledJoinConditions) {
+            if (!joinCondition.test(leftTuple, rightTuple)) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean[] getStringColumns() {
+        boolean[] leftStringColumns = leftChild.getStringColumns();
+        boolean[] rightStringColumns = rightScan.getStringColumns();
+
+        return (leftStringColumns == null || rightStringColumns == null) ? null : Tuple.concatStringColumns(leftStringColumns, rightStringColumns);
+    }
+
+    //  the right relation is only ever read through the index, so only the left child needs restarting
+    @Override
+    public void reset() {
+        leftChild.reset();
+        outerTuple = null;
+        matchPositions = null;
+        matchIndex = 0;
+        outerBatch = null;
+        outerSelectionIndex = 0;
+    }
+
+    /**
+     * Finds the position in the left tuples of the value that the right atom's given column has to equal.
+     * That is the variable at the column itself if it also occurs on the left, or a left variable it's equated with through one of the join conditions.
+     *
+     * @return the offset in the left tuples, -1 if the column isn't joined on by equality with the left side
+     */
+    public static int getLeftKeyOffset(List<RelationalAtom> leftChildAtoms, RelationalAtom rightChildAtom, List<ComparisonAtom> joinConditions, int column) {
+        if (column >= rightChildAtom.getTerms().size() || !(rightChildAtom.getTerms().get(column) instanceof Variable)) return -1;
+
+        Variable variable = (Variable) rightChildAtom.getTerms().get(column);
+        VariableOffsets leftOffsets = new VariableOffsets(leftChildAtoms);
+        if (leftOffsets.contains(variable)) return leftOffsets.getFirstOffset(variable);
+
+        for (ComparisonAtom joinCondition : joinConditions) {
+            if (joinCondition.getOp() != ComparisonOperator.EQ) continue;
+
+            Term other;
+            if (joinCondition.getTerm1().equals(variable)) other = joinCondition.getTerm2();
+            else if (joinCondition.getTerm2().equals(variable)) other = joinCondition.getTerm1();
+            else continue;
+
+            if (other instanceof Variable && leftOffsets.contains((Variable) other)) return leftOffsets.getFirstOffset((Variable) other);
+        }
+        return -1;
+    }
+
+    //  returns the first of the given indexes that can be looked up with the left tuples' join keys, null if there is none
+    public static ColumnIndex findUsableIndex(List<RelationalAtom> leftChildAtoms, RelationalAtom rightChildAtom, List<ComparisonAtom> joinConditions, List<ColumnIndex> indexes) {
+        for (ColumnIndex index : indexes) {
+            if (index.supports(ComparisonOperator.EQ) && getLeftKeyOffset(leftChildAtoms, rightChildAtom, joinConditions, index.getColumn()) >= 0) return index;
+        }
+        return null;
+    }
+
+    public ColumnIndex getIndex() {
+        return index;
+    }
+
+    public RelationalAtom getRightChildAtom() {
+        return rightChildAtom;
+    }
+}
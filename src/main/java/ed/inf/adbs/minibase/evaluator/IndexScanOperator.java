@@ -0,0 +1,127 @@
+package ed.inf.adbs.minibase.evaluator;
+
+import ed.inf.adbs.minibase.base.*;
+import ed.inf.adbs.minibase.dbstructures.ColumnIndex;
+import ed.inf.adbs.minibase.dbstructures.Schema;
+import ed.inf.adbs.minibase.dbstructures.Tuple;
+import ed.inf.adbs.minibase.dbstructures.TupleBatch;
+
+import java.io.IOException;
+
+/**
+ * Scan operator that only reads the rows of a table matching a comparison against a constant on an indexed column.
+ * The index is looked up once, the first time rows are asked for, giving the positions of the candidate rows in the memory-mapped csv,
+ * and each of them is then tokenized straight from its position, in file order.
+ * Since an index may return rows that don't match (e.g. strings sharing a hash), the comparison is checked again over every row read.
+ */
+public class IndexScanOperator extends MappedScanOperator {
+
+    private final ColumnIndex index;
+    private final ComparisonAtom indexPredicate;
+
+    //  the comparison normalised to "column op key"
+    private final ComparisonOperator op;
+    private final Constant key;
+
+    private final RowPredicate rowPredicate;
+    private final BatchPredicate batchPredicate;
+
+    //  the positions of the candidate rows, null until the index has been looked up
+    private long[] rowPositions;
+    private int nextRow;
+
+    /**
+     * @param fileName the relative filename and path for the csv file the index was built over
+     * @param schema the schema entry for the table in question
+     * @param baseRelationalAtom the base relational atom from the query on which this scan is being evaluated
+     * @param index the index over the relation's csv
+     * @param indexPredicate a comparison between the variable at the index's column and a constant, which the index supports
+     * @throws IOException thrown if the csv can't be opened or mapped
+     */
+    public IndexScanOperator(String fileName, Schema schema, RelationalAtom baseRelationalAtom, ColumnIndex index, ComparisonAtom indexPredicate) throws IOException {
+        super(fileName, schema, baseRelationalAtom);
+
+        if (indexPredicate.getTerm1() instanceof Variable && indexPredicate.getTerm2() instanceof Constant) {
+            this.op = indexPredicate.getOp();
+            this.key = (Constant) indexPredicate.getTerm2();
+            checkIndexedVariable((Variable) indexPredicate.getTerm1(), index, baseRelationalAtom);
+        } else if (indexPredicate.getTerm1() instanceof Constant && indexPredicate.getTerm2() instanceof Variable) {
+            this.op = PredicateCompiler.flip(indexPredicate.getOp());
+            this.key = (Constant) indexPredicate.getTerm1();
+            checkIndexedVariable((Variable) indexPredicate.getTerm2(), index, baseRelationalAtom);
+        } else throw new IllegalArgumentException("Index scans need a comparison between a variable and a constant!");
+
+        if (!index.supports(op)) throw new IllegalArgumentException("The index can't answer comparisons with " + op);
+
+        this.index = index;
+        this.indexPredicate = indexPredicate;
+
+        VariableOffsets offsets = new VariableOffsets(baseRelationalAtom);
+        this.rowPredicate = PredicateCompiler.compile(indexPredicate, offsets, schema.getStringColumns());
+        this.batchPredicate = PredicateCompiler.compileBatch(indexPredicate, offsets, schema.getStringColumns());
+    }
+
+    private static void checkIndexedVariable(Variable variable, ColumnIndex index, RelationalAtom baseRelationalAtom) {
+        if (index.getColumn() >= baseRelationalAtom.getTerms().size() || !baseRelationalAtom.getTerms().get(index.getColumn()).equals(variable))
+            throw new IllegalArgumentException("The comparison isn't over the indexed column!");
+    }
+
+    //  reads the candidate rows in turn until one of them passes the comparison
+    @Override
+    public Tuple getNextTuple() {
+        if (rowPositions == null) rowPositions = index.lookup(op, key);
+
+        while (nextRow < rowPositions.length) {
+            buffer.position((int) rowPositions[nextRow++]);
+
+            int[] values = new int[stringColumns.length];
+            parseRow(values);
+            Tuple tuple = new Tuple(values, stringColumns);
+
+            if (rowPredicate.test(tuple, null)) return tuple;
+        }
+        return null;
+    }
+
+    //  reads candidate rows into the batch, then drops the ones failing the comparison from its selection vector
+    @Override
+    public TupleBatch getNextBatch() {
+        if (rowPositions == null) rowPositions = index.lookup(op, key);
+
+        while (nextRow < rowPositions.length) {
+            TupleBatch batch = getClearedBatch();
+            int[][] columns = batch.getColumns();
+            int[] values = new int[columns.length];
+
+            int rowCount = 0;
+            while (rowCount < batch.getCapacity() && nextRow < rowPositions.length) {
+                buffer.position((int) rowPositions[nextRow++]);
+                parseRow(values);
+
+                for (int i = 0; i < columns.length; i++) {
+                    columns[i][rowCount] = values[i];
+                }
+                rowCount++;
+            }
+
+            batch.setRowCount(rowCount);
+            batch.setSelectedCount(batchPredicate.filter(columns, batch.getSelection(), batch.getSelectedCount()));
+            if (batch.getSelectedCount() > 0) return batch;
+        }
+        return null;
+    }
+
+    //  the candidate rows are kept, so rescanning just starts from the first of them again
+    @Override
+    public void reset() {
+        nextRow = 0;
+    }
+
+    public ColumnIndex getIndex() {
+        return index;
+    }
+
+    public ComparisonAtom getIndexPredicate() {
+        return indexPredicate;
+    }
+}
@@ -0,0 +1,113 @@
+package ed.inf.adbs.minibase.evaluator;
+
+import java.util.Arrays;
+
+/**
+ * A set of rows of a fixed number of int columns, with string columns held as their dictionary codes, kept in flat primitive arrays rather than as a set of tuples:
+ * an open-addressing hash table over row ids with linear probing, and the rows' values laid out one row after another.
+ * A row costs its values and a couple of slots, against a Tuple object, its arrays and a hash map entry in a HashSet, which also lets its memory be told exactly.
+ */
+public class IntRowSet {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final int width;
+
+    //  the id of the row in each slot plus one, 0 for an empty slot
+    private int[] slots;
+    private int[] rows;
+    private int size;
+
+    public IntRowSet(int width) {
+        this.width = width;
+        clear();
+    }
+
+    /**
+     * Adds the row to the set if it isn't in it already.
+     *
+     * @param values the row's values
+     * @return true if the row wasn't in the set before
+     */
+    public boolean add(int[] values) {
+        int mask = slots.length - 1;
+        for (int slot = mix(hash(values)) & mask; ; slot = (slot + 1) & mask) {
+            int row = slots[slot] - 1;
+            if (row == -1) {
+                insert(slot, values);
+                return true;
+            }
+            if (rowEquals(row, values)) return false;
+        }
+    }
+
+    private boolean rowEquals(int row, int[] values) {
+        int offset = row * width;
+        for (int i = 0; i < width; i++) {
+            if (rows[offset + i] != values[i]) return false;
+        }
+        return true;
+    }
+
+    private void insert(int slot, int[] values) {
+        int row = size++;
+        if ((row + 1) * width > rows.length) rows = Arrays.copyOf(rows, Math.max(2 * rows.length, (row + 1) * width));
+
+        System.arraycopy(values, 0, rows, row * width, width);
+        slots[slot] = row + 1;
+
+        //  keeping the table at most half full so that probe sequences stay short
+        if (2 * size > slots.length) rehash();
+    }
+
+    private void rehash() {
+        slots = new int[2 * slots.length];
+        int mask = slots.length - 1;
+
+        for (int row = 0; row < size; row++) {
+            int hash = 1;
+            for (int i = 0; i < width; i++) hash = 31 * hash + rows[row * width + i];
+
+            int slot = mix(hash) & mask;
+            while (slots[slot] != 0) slot = (slot + 1) & mask;
+            slots[slot] = row + 1;
+        }
+    }
+
+    //  the hash of a row's values, which callers can further mix with a seed of their own to split rows up independently of the slots they take
+    public static int hash(int[] values) {
+        int hash = 1;
+        for (int value : values) hash = 31 * hash + value;
+        return hash;
+    }
+
+    static int mix(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        hash *= 0xC2B2AE35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+
+    //  the row with the given id, ids running from 0 in the order the rows were added
+    public int[] getRow(int row) {
+        return Arrays.copyOfRange(rows, row * width, (row + 1) * width);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    //  the heap taken up by the slots and rows
+    public long estimateSizeInBytes() {
+        return 4L * (slots.length + rows.length);
+    }
+
+    //  empties the set, letting go of its arrays
+    public void clear() {
+        this.slots = new int[INITIAL_CAPACITY];
+        this.rows = new int[INITIAL_CAPACITY / 2 * width];
+        this.size = 0;
+    }
+}
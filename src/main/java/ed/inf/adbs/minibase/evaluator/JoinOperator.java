@@ -3,8 +3,10 @@ package ed.inf.adbs.minibase.evaluator;
 import ed.inf.adbs.minibase.base.ComparisonAtom;
 import ed.inf.adbs.minibase.base.Constant;
 import ed.inf.adbs.minibase.base.RelationalAtom;
+import ed.inf.adbs.minibase.base.Term;
 import ed.inf.adbs.minibase.base.Variable;
 import ed.inf.adbs.minibase.dbstructures.Tuple;
+import ed.inf.adbs.minibase.dbstructures.TupleBatch;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -23,6 +25,21 @@ public class JoinOperator extends Operator {
     Tuple outerTuple;
     Tuple innerTuple;
 
+    //  the pairs of left and right offsets that have to hold equal values, one per occurrence in the left tuple of each variable in the right atom
+    int[] leftEqualityOffsets;
+    int[] rightEqualityOffsets;
+
+    //  the join conditions compiled over the left and right tuples
+    RowPredicate[] compiledJoinConditions;
+
+    //  the type flags of the combined tuples, worked out from the first matching pair and shared by every tuple emitted after it
+    boolean[] combinedStringColumns;
+
+    //  the state of joining through batches: the current batch of the left child, the position in its selection vector, and the batch being filled
+    TupleBatch outerBatch;
+    int outerSelectionIndex;
+    TupleBatch outputBatch;
+
     public JoinOperator(Operator leftChild, Operator rightChild, List<RelationalAtom> leftChildAtoms, RelationalAtom rightChildAtom, List<ComparisonAtom> joinConditions) {
         this.leftChild = leftChild;
         this.rightChild = rightChild;
@@ -31,6 +48,36 @@ public class JoinOperator extends Operator {
         this.joinConditions = joinConditions;
         this.innerTuple = null;
         this.outerTuple = null;
+
+        bindJoinConditions();
+    }
+
+    //  resolves the variable equalities to fixed offsets in the left and right tuples and compiles the join conditions, so that they can be checked per pair without any lookups
+    private void bindJoinConditions() {
+        VariableOffsets leftOffsets = new VariableOffsets(leftChildAtoms);
+        VariableOffsets rightOffsets = new VariableOffsets(rightChildAtom);
+
+        List<int[]> equalityPairs = new ArrayList<>();
+        for (Term term : rightChildAtom.getTerms()) {
+            if (!(term instanceof Variable)) throw new IllegalArgumentException("Shouldnt be getting constants embedded in relational atoms at this stage!");
+
+            int rightOffset = rightOffsets.getFirstOffset((Variable) term);
+            for (int leftOffset : leftOffsets.getOffsets((Variable) term)) {
+                equalityPairs.add(new int[] {leftOffset, rightOffset});
+            }
+        }
+
+        this.leftEqualityOffsets = new int[equalityPairs.size()];
+        this.rightEqualityOffsets = new int[equalityPairs.size()];
+        for (int i = 0; i < equalityPairs.size(); i++) {
+            leftEqualityOffsets[i] = equalityPairs.get(i)[0];
+            rightEqualityOffsets[i] = equalityPairs.get(i)[1];
+        }
+
+        this.compiledJoinConditions = new RowPredicate[joinConditions.size()];
+        for (int i = 0; i < joinConditions.size(); i++) {
+            compiledJoinConditions[i] = PredicateCompiler.compile(joinConditions.get(i), leftOffsets, leftChild.getStringColumns(), rightOffsets, rightChild.getStringColumns());
+        }
     }
 
     //
@@ -49,10 +96,8 @@ public class JoinOperator extends Operator {
 
             while ((innerTuple = rightChild.getNextTuple()) != null) {
 
-                if (passesSelectionPredicatesMultipleRelations(outerTuple, innerTuple, this.leftChildAtoms, this.rightChildAtom, this.joinConditions)) {
-                    List<Constant> combinedTerms = new ArrayList<>(outerTuple.getFields());
-                    combinedTerms.addAll(innerTuple.getFields());
-                    return new Tuple(combinedTerms);
+                if (passesBoundJoinConditions(outerTuple, innerTuple)) {
+                    return combineTuples(outerTuple, innerTuple);
                 }
             }
         }
@@ -63,10 +108,8 @@ public class JoinOperator extends Operator {
 
             while ((innerTuple = rightChild.getNextTuple()) != null) {
 
-                if (passesSelectionPredicatesMultipleRelations(outerTuple, innerTuple, this.leftChildAtoms, this.rightChildAtom, this.joinConditions)) {
-                    List<Constant> combinedTerms = new ArrayList<>(outerTuple.getFields());
-                    combinedTerms.addAll(innerTuple.getFields());
-                    return new Tuple(combinedTerms);
+                if (passesBoundJoinConditions(outerTuple, innerTuple)) {
+                    return combineTuples(outerTuple, innerTuple);
                 }
             }
         }
@@ -74,10 +117,84 @@ public class JoinOperator extends Operator {
         return null;
     }
 
+    /**
+     * the batch equivalent of getNextTuple(). The left child is pulled a batch at a time, and for each of its selected rows the right child is rescanned in full,
+     * with the matching pairs written straight into the output batch's columns. If the output batch fills up part way through a rescan, the next call picks up from the same position.
+     *
+     * @return the next batch of joined rows, null if none such remain
+     * @throws IOException thrown if any exceptions bubble up from the child operators
+     */
+    @Override
+    public TupleBatch getNextBatch() throws IOException {
+        if (outputBatch != null) outputBatch.clear();
+
+        while (true) {
+            if (outerTuple != null) {
+                while ((innerTuple = rightChild.getNextTuple()) != null) {
+
+                    if (passesBoundJoinConditions(outerTuple, innerTuple)) {
+                        appendCombinedRow(outerTuple, innerTuple);
+                        if (outputBatch.isFull()) return outputBatch;
+                    }
+                }
+            }
+
+            if (outerBatch == null || outerSelectionIndex == outerBatch.getSelectedCount()) {
+                outerBatch = leftChild.getNextBatch();
+                outerSelectionIndex = 0;
+
+                if (outerBatch == null) {
+                    outerTuple = null;
+                    return (outputBatch == null || outputBatch.getSelectedCount() == 0) ? null : outputBatch;
+                }
+            }
+
+            outerTuple = outerBatch.getTuple(outerBatch.getSelection()[outerSelectionIndex++]);
+            rightChild.reset();
+        }
+    }
+
+    private void appendCombinedRow(Tuple leftTuple, Tuple rightTuple) {
+        if (outputBatch == null) {
+            if (combinedStringColumns == null) combinedStringColumns = Tuple.concatStringColumns(leftTuple, rightTuple);
+            outputBatch = new TupleBatch(combinedStringColumns);
+        }
+        outputBatch.appendConcatenation(leftTuple, rightTuple);
+    }
+
     @Override
     public void reset() {
         leftChild.reset();
         rightChild.reset();
+        outerTuple = null;
+        innerTuple = null;
+        outerBatch = null;
+        outerSelectionIndex = 0;
+    }
+
+    //  the per pair equivalent of passesSelectionPredicatesMultipleRelations, using the offsets resolved on construction
+    private boolean passesBoundJoinConditions(Tuple leftTuple, Tuple rightTuple) {
+        for (int i = 0; i < leftEqualityOffsets.length; i++) {
+            if (!Tuple.fieldsEqual(leftTuple, leftEqualityOffsets[i], rightTuple, rightEqualityOffsets[i])) return false;
+        }
+
+        for (RowPredicate joinCondition : compiledJoinConditions) {
+            if (!joinCondition.test(leftTuple, rightTuple)) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean[] getStringColumns() {
+        boolean[] leftStringColumns = leftChild.getStringColumns();
+        boolean[] rightStringColumns = rightChild.getStringColumns();
+
+        return (leftStringColumns == null || rightStringColumns == null) ? null : Tuple.concatStringColumns(leftStringColumns, rightStringColumns);
+    }
+
+    private Tuple combineTuples(Tuple leftTuple, Tuple rightTuple) {
+        if (combinedStringColumns == null) combinedStringColumns = Tuple.concatStringColumns(leftTuple, rightTuple);
+        return Tuple.concat(leftTuple, rightTuple, combinedStringColumns);
     }
 
     /**
@@ -0,0 +1,400 @@
+package ed.inf.adbs.minibase.evaluator;
+
+import ed.inf.adbs.minibase.base.ComparisonAtom;
+import ed.inf.adbs.minibase.base.ComparisonOperator;
+import ed.inf.adbs.minibase.base.RelationalAtom;
+import ed.inf.adbs.minibase.base.Term;
+import ed.inf.adbs.minibase.base.Variable;
+
+import java.util.*;
+
+/**
+ * Chooses the order the relational atoms of a query are joined in by the planner's left-deep join tree.
+ * Orders are costed by the sum of the estimated sizes of the intermediate join results, with the sizes estimated through a CostModel.
+ * Queries with up to DYNAMIC_PROGRAMMING_LIMIT atoms are ordered optimally with dynamic programming over the subsets of atoms,
+ * while larger ones are ordered greedily by always joining in the atom giving the smallest intermediate result next.
+ * Either way, an atom is only joined in once it is connected to the atoms before it, through a shared variable or a join condition, unless nothing left is connected to them.
+ * So cross products are only ever used when the query itself is disconnected.
+ */
+public class JoinOrderOptimizer {
+
+    public static final int DYNAMIC_PROGRAMMING_LIMIT = 10;
+
+    private final List<RelationalAtom> relationalAtoms;
+    private final int numAtoms;
+
+    //  the estimated number of rows of each atom once the selections that can be applied at its leaf have been applied
+    private final double[] atomCardinalities;
+
+    //  the atoms each atom shares a variable or a join condition with. Sets of atoms are BitSets over their positions so that any number of atoms can be ordered greedily,
+    //  and only the dynamic programming, which is limited to a few atoms anyway, goes through the subsets as int bitmasks
+    private final BitSet[] adjacentAtoms;
+
+    //  for each variable occurring in more than one atom, the atoms it occurs in and its distinct values in each of them
+    private final List<BitSet> sharedVariableMasks;
+    private final List<double[]> sharedVariableDistinctValues;
+
+    //  equality join conditions between variables of different atoms, as the atoms holding each of the two variables, and the distinct values of each variable per atom
+    private final List<BitSet[]> equalityConditionMasks;
+    private final List<double[][]> equalityConditionDistinctValues;
+
+    //  the other join conditions, as the atoms holding each variable, along with their selectivity
+    private final List<BitSet[]> otherConditionMasks;
+    private final List<Double> otherConditionSelectivities;
+
+    public JoinOrderOptimizer(List<RelationalAtom> relationalAtoms, List<ComparisonAtom> comparisonAtoms, CostModel costModel) {
+        if (relationalAtoms.isEmpty()) throw new IllegalArgumentException("Need at least one relational atom to order!");
+
+        this.relationalAtoms = relationalAtoms;
+        this.numAtoms = relationalAtoms.size();
+        this.atomCardinalities = new double[numAtoms];
+        this.adjacentAtoms = new BitSet[numAtoms];
+        this.sharedVariableMasks = new ArrayList<>();
+        this.sharedVariableDistinctValues = new ArrayList<>();
+        this.equalityConditionMasks = new ArrayList<>();
+        this.equalityConditionDistinctValues = new ArrayList<>();
+        this.otherConditionMasks = new ArrayList<>();
+        this.otherConditionSelectivities = new ArrayList<>();
+
+        Map<Variable, BitSet> variableMasks = new LinkedHashMap<>();
+        for (int i = 0; i < numAtoms; i++) {
+            atomCardinalities[i] = costModel.getTableCardinality(relationalAtoms.get(i));
+            adjacentAtoms[i] = new BitSet(numAtoms);
+
+            Set<Variable> seen = new HashSet<>();
+            for (Term term : relationalAtoms.get(i).getTerms()) {
+                if (!(term instanceof Variable)) throw new IllegalArgumentException("Shouldnt be getting constants embedded in relational atoms at this stage!");
+
+                //  a variable repeated within an atom acts as an equality selection over it
+                if (!seen.add((Variable) term)) atomCardinalities[i] *= CostModel.EQUALITY_SELECTIVITY;
+                variableMasks.computeIfAbsent((Variable) term, variable -> new BitSet(numAtoms)).set(i);
+            }
+        }
+
+        List<ComparisonAtom> joinConditions = new ArrayList<>();
+        for (ComparisonAtom comparisonAtom : comparisonAtoms) {
+            List<Variable> variables = new ArrayList<>();
+            if (comparisonAtom.getTerm1() instanceof Variable) variables.add((Variable) comparisonAtom.getTerm1());
+            if (comparisonAtom.getTerm2() instanceof Variable) variables.add((Variable) comparisonAtom.getTerm2());
+            if (variables.isEmpty()) continue;
+
+            //  the comparison is applied as a selection over every atom holding all of its variables, and as a join condition if there is no such atom
+            BitSet leafMask = new BitSet(numAtoms);
+            leafMask.set(0, numAtoms);
+            for (Variable variable : variables) leafMask.and(variableMasks.getOrDefault(variable, new BitSet()));
+
+            if (!leafMask.isEmpty()) {
+                for (int i = leafMask.nextSetBit(0); i >= 0; i = leafMask.nextSetBit(i + 1)) {
+                    atomCardinalities[i] *= costModel.getSelectionSelectivity(comparisonAtom, relationalAtoms.get(i));
+                }
+            } else if (variables.size() == 2) {
+                joinConditions.add(comparisonAtom);
+            }
+        }
+
+        for (int i = 0; i < numAtoms; i++) {
+            atomCardinalities[i] = Math.max(1, atomCardinalities[i]);
+        }
+
+        for (Map.Entry<Variable, BitSet> entry : variableMasks.entrySet()) {
+            BitSet mask = entry.getValue();
+            for (int i = mask.nextSetBit(0); i >= 0; i = mask.nextSetBit(i + 1)) {
+                adjacentAtoms[i].or(mask);
+                adjacentAtoms[i].clear(i);
+            }
+
+            if (mask.cardinality() > 1) {
+                sharedVariableMasks.add(mask);
+                sharedVariableDistinctValues.add(getDistinctValues(costModel, entry.getKey(), mask));
+            }
+        }
+
+        for (ComparisonAtom joinCondition : joinConditions) {
+            Variable variable1 = (Variable) joinCondition.getTerm1();
+            Variable variable2 = (Variable) joinCondition.getTerm2();
+            BitSet mask1 = variableMasks.get(variable1);
+            BitSet mask2 = variableMasks.get(variable2);
+            if (mask1 == null || mask2 == null) continue;
+
+            for (int i = mask1.nextSetBit(0); i >= 0; i = mask1.nextSetBit(i + 1)) adjacentAtoms[i].or(mask2);
+            for (int i = mask2.nextSetBit(0); i >= 0; i = mask2.nextSetBit(i + 1)) adjacentAtoms[i].or(mask1);
+
+            if (joinCondition.getOp() == ComparisonOperator.EQ) {
+                equalityConditionMasks.add(new BitSet[] {mask1, mask2});
+                equalityConditionDistinctValues.add(new double[][] {getDistinctValues(costModel, variable1, mask1), getDistinctValues(costModel, variable2, mask2)});
+            } else {
+                otherConditionMasks.add(new BitSet[] {mask1, mask2});
+                otherConditionSelectivities.add(costModel.getJoinConditionSelectivity(joinCondition));
+            }
+        }
+    }
+
+    private double[] getDistinctValues(CostModel costModel, Variable variable, BitSet mask) {
+        double[] distinctValues = new double[numAtoms];
+        for (int i = mask.nextSetBit(0); i >= 0; i = mask.nextSetBit(i + 1)) {
+            distinctValues[i] = costModel.getDistinctValues(relationalAtoms.get(i), variable, atomCardinalities[i]);
+        }
+        return distinctValues;
+    }
+
+    /**
+     * Finds the cheapest order to join the atoms in, with dynamic programming when there are at most DYNAMIC_PROGRAMMING_LIMIT of them and greedily otherwise.
+     *
+     * @return the chosen order, along with its estimated cost and the build side of each join
+     */
+    public JoinOrder optimise() {
+        return (numAtoms <= DYNAMIC_PROGRAMMING_LIMIT) ? optimiseWithDynamicProgramming() : optimiseGreedily();
+    }
+
+    /**
+     * Works out the cheapest left-deep order of every subset of the atoms, from the smaller subsets up.
+     * The cheapest order of a subset ends in whichever of its atoms gives the lowest cost when joined onto the cheapest order of the rest of the subset.
+     * Since the estimated size of a join result only depends on the set of atoms joined, the cost of a subset is the cost of the rest plus the size of the subset's join.
+     * The subsets are enumerated as int bitmasks, so this is only ever used for up to DYNAMIC_PROGRAMMING_LIMIT atoms.
+     */
+    JoinOrder optimiseWithDynamicProgramming() {
+        if (numAtoms > DYNAMIC_PROGRAMMING_LIMIT) throw new UnsupportedOperationException("Too many relational atoms to order with dynamic programming!");
+
+        int fullMask = (1 << numAtoms) - 1;
+        double[] costs = new double[fullMask + 1];
+        int[] lastAtoms = new int[fullMask + 1];
+        Arrays.fill(costs, Double.POSITIVE_INFINITY);
+
+        for (int i = 0; i < numAtoms; i++) {
+            costs[1 << i] = 0;
+            lastAtoms[1 << i] = i;
+        }
+
+        for (int mask = 1; mask <= fullMask; mask++) {
+            if (Integer.bitCount(mask) < 2) continue;
+
+            double cardinality = estimateCardinality(mask);
+            for (int i = 0; i < numAtoms; i++) {
+                if ((mask & (1 << i)) == 0) continue;
+
+                int rest = mask & ~(1 << i);
+                if (costs[rest] == Double.POSITIVE_INFINITY || !canJoin(toBitSet(rest), i)) continue;
+
+                double cost = costs[rest] + cardinality;
+                if (cost < costs[mask]) {
+                    costs[mask] = cost;
+                    lastAtoms[mask] = i;
+                }
+            }
+        }
+
+        int[] order = new int[numAtoms];
+        int mask = fullMask;
+        for (int position = numAtoms - 1; position >= 0; position--) {
+            order[position] = lastAtoms[mask];
+            mask &= ~(1 << order[position]);
+        }
+
+        return buildJoinOrder(order, "dynamic programming");
+    }
+
+    //  starts from the smallest atom and keeps joining in the atom that gives the smallest intermediate result
+    JoinOrder optimiseGreedily() {
+        int[] order = new int[numAtoms];
+
+        BitSet joined = new BitSet(numAtoms);
+        for (int position = 0; position < numAtoms; position++) {
+            int bestAtom = -1;
+            double bestCardinality = Double.POSITIVE_INFINITY;
+
+            for (int i = 0; i < numAtoms; i++) {
+                if (joined.get(i) || (!joined.isEmpty() && !canJoin(joined, i))) continue;
+
+                joined.set(i);
+                double cardinality = (position == 0) ? atomCardinalities[i] : estimateCardinality(joined);
+                joined.clear(i);
+
+                //  estimates over many atoms can overflow to infinity, so some atom is taken even then
+                if (bestAtom < 0 || cardinality < bestCardinality) {
+                    bestCardinality = cardinality;
+                    bestAtom = i;
+                }
+            }
+
+            order[position] = bestAtom;
+            joined.set(bestAtom);
+        }
+
+        return buildJoinOrder(order, "greedy");
+    }
+
+    //  the atom can be joined onto the given atoms if it is connected to them, or if none of the remaining atoms are
+    private boolean canJoin(BitSet joined, int atom) {
+        if (adjacentAtoms[atom].intersects(joined)) return true;
+
+        for (int i = joined.nextSetBit(0); i >= 0; i = joined.nextSetBit(i + 1)) {
+            for (int neighbour = adjacentAtoms[i].nextSetBit(0); neighbour >= 0; neighbour = adjacentAtoms[i].nextSetBit(neighbour + 1)) {
+                if (!joined.get(neighbour)) return false;
+            }
+        }
+        return true;
+    }
+
+    private static BitSet toBitSet(int mask) {
+        return BitSet.valueOf(new long[] {mask});
+    }
+
+    //  the same as below, with the atoms joined given as a bitmask
+    double estimateCardinality(int mask) {
+        return estimateCardinality(toBitSet(mask));
+    }
+
+    /**
+     * Estimates the number of rows in the join of the given atoms.
+     * Starting from the product of the atoms' sizes, a variable shared by k of the atoms divides it by the distinct values of the variable in all but the one of those atoms with the fewest,
+     * which is the usual estimate assuming the smaller set of values is contained in the larger one.
+     * An equality join condition divides it by the larger number of distinct values of its two variables, and other join conditions scale it by their selectivity.
+     *
+     * @param joined the atoms joined
+     * @return the estimated number of rows, at least 1
+     */
+    double estimateCardinality(BitSet joined) {
+        double cardinality = 1;
+        for (int i = joined.nextSetBit(0); i >= 0; i = joined.nextSetBit(i + 1)) {
+            cardinality *= atomCardinalities[i];
+        }
+
+        for (int v = 0; v < sharedVariableMasks.size(); v++) {
+            BitSet shared = sharedVariableMasks.get(v);
+            if (countJoined(shared, joined) < 2) continue;
+
+            double[] distinctValues = sharedVariableDistinctValues.get(v);
+            double smallest = Double.POSITIVE_INFINITY;
+            for (int i = shared.nextSetBit(0); i >= 0; i = shared.nextSetBit(i + 1)) {
+                if (!joined.get(i)) continue;
+                cardinality /= distinctValues[i];
+                smallest = Math.min(smallest, distinctValues[i]);
+            }
+            cardinality *= smallest;
+        }
+
+        for (int c = 0; c < equalityConditionMasks.size(); c++) {
+            BitSet[] masks = equalityConditionMasks.get(c);
+            if (!masks[0].intersects(joined) || !masks[1].intersects(joined)) continue;
+
+            double distinctValues1 = getFewestDistinctValues(equalityConditionDistinctValues.get(c)[0], masks[0], joined);
+            double distinctValues2 = getFewestDistinctValues(equalityConditionDistinctValues.get(c)[1], masks[1], joined);
+            cardinality /= Math.max(distinctValues1, distinctValues2);
+        }
+
+        for (int c = 0; c < otherConditionMasks.size(); c++) {
+            if (otherConditionMasks.get(c)[0].intersects(joined) && otherConditionMasks.get(c)[1].intersects(joined)) cardinality *= otherConditionSelectivities.get(c);
+        }
+
+        return Math.max(1, cardinality);
+    }
+
+    private static int countJoined(BitSet atoms, BitSet joined) {
+        int count = 0;
+        for (int i = atoms.nextSetBit(0); i >= 0; i = atoms.nextSetBit(i + 1)) {
+            if (joined.get(i)) count++;
+        }
+        return count;
+    }
+
+    //  the fewest distinct values among the given atoms that have been joined
+    private static double getFewestDistinctValues(double[] distinctValues, BitSet atoms, BitSet joined) {
+        double fewest = Double.POSITIVE_INFINITY;
+        for (int i = atoms.nextSetBit(0); i >= 0; i = atoms.nextSetBit(i + 1)) {
+            if (joined.get(i)) fewest = Math.min(fewest, distinctValues[i]);
+        }
+        return fewest;
+    }
+
+    //  costs the given order and picks the build side of each join, hashing whichever of the two inputs is estimated to be smaller
+    private JoinOrder buildJoinOrder(int[] order, String strategy) {
+        List<RelationalAtom> orderedAtoms = new ArrayList<>();
+        double[] orderedAtomCardinalities = new double[numAtoms];
+        double[] joinCardinalities = new double[numAtoms];
+        boolean[] buildOnLeft = new boolean[numAtoms];
+        double cost = 0;
+
+        BitSet joined = new BitSet(numAtoms);
+        for (int position = 0; position < numAtoms; position++) {
+            int atom = order[position];
+            orderedAtoms.add(relationalAtoms.get(atom));
+            orderedAtomCardinalities[position] = atomCardinalities[atom];
+
+            if (position > 0) buildOnLeft[position] = joinCardinalities[position - 1] < atomCardinalities[atom];
+
+            joined.set(atom);
+            joinCardinalities[position] = (position == 0) ? atomCardinalities[atom] : estimateCardinality(joined);
+            if (position > 0) cost += joinCardinalities[position];
+        }
+
+        return new JoinOrder(orderedAtoms, orderedAtomCardinalities, joinCardinalities, buildOnLeft, cost, strategy);
+    }
+
+    /**
+     * The outcome of join ordering: the relational atoms in the order the left-deep tree should join them in, with the estimates made for them.
+     * The join at position i (from 1) joins the result of the atoms before it with the atom at position i.
+     */
+    public static class JoinOrder {
+
+        private final List<RelationalAtom> relationalAtoms;
+        private final double[] atomCardinalities;
+        private final double[] joinCardinalities;
+        private final boolean[] buildOnLeft;
+        private final double cost;
+        private final String strategy;
+
+        JoinOrder(List<RelationalAtom> relationalAtoms, double[] atomCardinalities, double[] joinCardinalities, boolean[] buildOnLeft, double cost, String strategy) {
+            this.relationalAtoms = relationalAtoms;
+            this.atomCardinalities = atomCardinalities;
+            this.joinCardinalities = joinCardinalities;
+            this.buildOnLeft = buildOnLeft;
+            this.cost = cost;
+            this.strategy = strategy;
+        }
+
+        public List<RelationalAtom> getRelationalAtoms() {
+            return relationalAtoms;
+        }
+
+        //  whether a hash join at the given position should build its hash table over its left input rather than its right one
+        public boolean buildsOnLeft(int position) {
+            return buildOnLeft[position];
+        }
+
+        public double getAtomCardinality(int position) {
+            return atomCardinalities[position];
+        }
+
+        public double getJoinCardinality(int position) {
+            return joinCardinalities[position];
+        }
+
+        //  the estimated number of rows the join at the given position reads from its left input
+        public double getOuterCardinality(int position) {
+            return position == 1 ? atomCardinalities[0] : joinCardinalities[position - 1];
+        }
+
+        //  the sum of the estimated sizes of the intermediate join results
+        public double getCost() {
+            return cost;
+        }
+
+        public String getStrategy() {
+            return strategy;
+        }
+
+        //  a readable description of the order, one line per atom with the estimated size of the atom and of the join it takes part in
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder();
+            builder.append(String.format("join order (%s), estimated cost %.0f%n", strategy, cost));
+
+            for (int position = 0; position < relationalAtoms.size(); position++) {
+                builder.append(String.format("  %d. %s, estimated rows %.0f", position + 1, relationalAtoms.get(position), atomCardinalities[position]));
+                if (position > 0) builder.append(String.format(", join estimated rows %.0f, hash build side %s", joinCardinalities[position], buildOnLeft[position] ? "left" : "right"));
+                builder.append(System.lineSeparator());
+            }
+            return builder.toString();
+        }
+    }
+}
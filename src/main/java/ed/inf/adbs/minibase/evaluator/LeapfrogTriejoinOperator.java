@@ -0,0 +1,428 @@
+package ed.inf.adbs.minibase.evaluator;
+
+import ed.inf.adbs.minibase.base.ComparisonAtom;
+import ed.inf.adbs.minibase.base.RelationalAtom;
+import ed.inf.adbs.minibase.base.Term;
+import ed.inf.adbs.minibase.base.Variable;
+import ed.inf.adbs.minibase.dbstructures.Tuple;
+
+import java.io.IOException;
+import java.util.*;
+
+//  LeapfrogTriejoinOperator that joins any number of relational atoms at once, rather than two at a time, using the leapfrog triejoin algorithm.
+//  Each child's tuples are sorted into a trie over the atom's variables, taken in one global variable order. The variables are then bound one at a time,
+//  each to the values found in every trie over that variable, by leapfrogging the tries' iterators past each other with seeks until they agree on a value.
+//  This never builds the intermediate results of pairwise joins, so cyclic queries such as triangles take time bounded by the worst-case size of their output.
+//  The output tuples are the tuples of the atoms concatenated in the order the atoms are given, the same as a left-deep join tree over them emits,
+//  and every combination of duplicate tuples is emitted as with pairwise joins. Comparisons across atoms are checked over each full binding
+public class LeapfrogTriejoinOperator extends Operator {
+
+    //  added to the codes of string fields when packing them into keys, which puts every string after every int
+    private static final long STRING_KEY_OFFSET = 1L << 33;
+
+    List<Operator> children;
+    List<RelationalAtom> relationalAtoms;
+    List<ComparisonAtom> joinConditions;
+
+    //  the variables in the order they are bound in, and for every output column the position in that order of the variable it holds
+    List<Variable> variableOrder;
+    int[] outputVariables;
+
+    RowPredicate[] compiledJoinConditions;
+
+    //  one trie iterator per atom, and for every variable the iterators of the atoms it occurs in. Null until the children have been read
+    TrieIterator[] iterators;
+    TrieIterator[][] levelIterators;
+
+    //  the values bound to the variables so far, and for every bound variable whether its iterators ran out and which of them leapfrogs next
+    long[] binding;
+    boolean[] levelAtEnd;
+    int[] levelPositions;
+    int depth;
+    boolean finished;
+
+    //  the tuple of the current binding, emitted once for every combination of duplicate tuples it was made from
+    Tuple currentTuple;
+    long copiesLeft;
+
+    public LeapfrogTriejoinOperator(List<Operator> children, List<RelationalAtom> relationalAtoms, List<ComparisonAtom> joinConditions) {
+        if (children.size() != relationalAtoms.size()) throw new IllegalArgumentException("Every atom of a leapfrog triejoin needs exactly one child operator!");
+        if (relationalAtoms.stream().anyMatch(relationalAtom -> relationalAtom.getTerms().isEmpty() || !relationalAtom.getTerms().stream().allMatch(Variable.class::isInstance)))
+            throw new IllegalArgumentException("A leapfrog triejoin can only join atoms made up of variables!");
+
+        this.children = children;
+        this.relationalAtoms = relationalAtoms;
+        this.joinConditions = joinConditions;
+        this.variableOrder = chooseVariableOrder(relationalAtoms);
+
+        List<Integer> outputVariableList = new ArrayList<>();
+        for (RelationalAtom relationalAtom : relationalAtoms) {
+            for (Term term : relationalAtom.getTerms()) outputVariableList.add(variableOrder.indexOf(term));
+        }
+        this.outputVariables = outputVariableList.stream().mapToInt(Integer::intValue).toArray();
+
+        VariableOffsets offsets = new VariableOffsets(relationalAtoms);
+        boolean[] stringColumns = getStringColumns();
+        this.compiledJoinConditions = new RowPredicate[joinConditions.size()];
+        for (int i = 0; i < joinConditions.size(); i++) {
+            compiledJoinConditions[i] = PredicateCompiler.compile(joinConditions.get(i), offsets, stringColumns);
+        }
+
+        this.binding = new long[variableOrder.size()];
+        this.levelAtEnd = new boolean[variableOrder.size()];
+        this.levelPositions = new int[variableOrder.size()];
+        this.depth = -1;
+    }
+
+    //  orders the variables by the number of atoms they occur in, most first, so that the most constrained variables are bound early.
+    //  Ties keep the order the variables first occur in
+    static List<Variable> chooseVariableOrder(List<RelationalAtom> relationalAtoms) {
+        Map<Variable, Integer> occurrences = new LinkedHashMap<>();
+        for (RelationalAtom relationalAtom : relationalAtoms) {
+            for (Variable variable : QueryHypergraph.getVariables(relationalAtom)) occurrences.merge(variable, 1, Integer::sum);
+        }
+
+        List<Variable> order = new ArrayList<>(occurrences.keySet());
+        order.sort((variable1, variable2) -> Integer.compare(occurrences.get(variable2), occurrences.get(variable1)));
+        return order;
+    }
+
+    /**
+     * returns the next combined tuple of the atoms that agree on every shared variable and pass the join conditions.
+     * The children are read into tries the first time this is called.
+     *
+     * @return the next joined tuple, null if none such remain
+     * @throws IOException thrown if any exceptions bubble up from the child operators
+     */
+    @Override
+    public Tuple getNextTuple() throws IOException {
+        if (iterators == null) buildTries();
+
+        while (true) {
+            if (copiesLeft > 0) {
+                copiesLeft--;
+                return currentTuple;
+            }
+
+            if (!nextBinding()) return null;
+
+            Tuple tuple = bindingToTuple();
+            if (passesJoinConditions(tuple)) {
+                currentTuple = tuple;
+                copiesLeft = 1;
+                for (TrieIterator iterator : iterators) copiesLeft *= iterator.runLength();
+            }
+        }
+    }
+
+    /**
+     * Moves on to the next binding of every variable, backtracking to the previous variable whenever the iterators of a variable run out of common values.
+     *
+     * @return false once there are no bindings left
+     */
+    private boolean nextBinding() {
+        if (finished) return false;
+
+        if (depth < 0) {
+            depth = 0;
+            openLevel(0);
+        } else {
+            leapfrogNext(depth);
+        }
+
+        while (true) {
+            if (levelAtEnd[depth]) {
+                for (TrieIterator iterator : levelIterators[depth]) iterator.up();
+                if (--depth < 0) {
+                    finished = true;
+                    return false;
+                }
+                leapfrogNext(depth);
+            } else if (depth == variableOrder.size() - 1) {
+                return true;
+            } else {
+                openLevel(++depth);
+            }
+        }
+    }
+
+    //  opens the tries of the atoms containing the variable at the given depth one level down, and finds their first common value
+    private void openLevel(int level) {
+        TrieIterator[] levelIteratorsAt = levelIterators[level];
+        boolean empty = false;
+        for (TrieIterator iterator : levelIteratorsAt) {
+            iterator.open();
+            empty |= iterator.atEnd();
+        }
+
+        levelAtEnd[level] = empty;
+        if (empty) return;
+
+        //  the leapfrog goes round the iterators in the order of their current values
+        for (int i = 1; i < levelIteratorsAt.length; i++) {
+            TrieIterator iterator = levelIteratorsAt[i];
+            int j = i - 1;
+            while (j >= 0 && levelIteratorsAt[j].key() > iterator.key()) {
+                levelIteratorsAt[j + 1] = levelIteratorsAt[j];
+                j--;
+            }
+            levelIteratorsAt[j + 1] = iterator;
+        }
+
+        levelPositions[level] = 0;
+        leapfrogSearch(level);
+    }
+
+    //  seeks each iterator in turn to the largest current value among them, until all of them are at the same value
+    private void leapfrogSearch(int level) {
+        TrieIterator[] levelIteratorsAt = levelIterators[level];
+        int count = levelIteratorsAt.length;
+        int position = levelPositions[level];
+        long maxKey = levelIteratorsAt[(position + count - 1) % count].key();
+
+        while (true) {
+            TrieIterator iterator = levelIteratorsAt[position];
+            if (iterator.key() == maxKey) {
+                binding[level] = maxKey;
+                levelPositions[level] = position;
+                return;
+            }
+
+            iterator.seek(maxKey);
+            if (iterator.atEnd()) {
+                levelAtEnd[level] = true;
+                return;
+            }
+            maxKey = iterator.key();
+            position = (position + 1) % count;
+        }
+    }
+
+    private void leapfrogNext(int level) {
+        TrieIterator[] levelIteratorsAt = levelIterators[level];
+        TrieIterator iterator = levelIteratorsAt[levelPositions[level]];
+
+        iterator.next();
+        if (iterator.atEnd()) {
+            levelAtEnd[level] = true;
+            return;
+        }
+        levelPositions[level] = (levelPositions[level] + 1) % levelIteratorsAt.length;
+        leapfrogSearch(level);
+    }
+
+    private Tuple bindingToTuple() {
+        int[] values = new int[outputVariables.length];
+        boolean[] stringColumns = new boolean[outputVariables.length];
+        for (int i = 0; i < outputVariables.length; i++) {
+            long key = binding[outputVariables[i]];
+            stringColumns[i] = isStringKey(key);
+            values[i] = decodeKey(key);
+        }
+        return new Tuple(values, stringColumns);
+    }
+
+    private boolean passesJoinConditions(Tuple tuple) {
+        for (RowPredicate joinCondition : compiledJoinConditions) {
+            if (!joinCondition.test(tuple, null)) return false;
+        }
+        return true;
+    }
+
+    //  reads every child into a trie over its atom's variables, taken in the global variable order
+    private void buildTries() throws IOException {
+        iterators = new TrieIterator[relationalAtoms.size()];
+        List<List<TrieIterator>> iteratorsPerLevel = new ArrayList<>();
+        for (int level = 0; level < variableOrder.size(); level++) iteratorsPerLevel.add(new ArrayList<>());
+
+        for (int i = 0; i < relationalAtoms.size(); i++) {
+            RelationalAtom relationalAtom = relationalAtoms.get(i);
+            List<Variable> atomVariables = new ArrayList<>(QueryHypergraph.getVariables(relationalAtom));
+            atomVariables.sort(Comparator.comparingInt(variableOrder::indexOf));
+
+            List<Term> terms = relationalAtom.getTerms();
+            int[] trieColumns = atomVariables.stream().mapToInt(terms::indexOf).toArray();
+            int[] termColumns = new int[terms.size()];
+            for (int column = 0; column < terms.size(); column++) termColumns[column] = terms.indexOf(terms.get(column));
+
+            iterators[i] = new TrieIterator(readTrie(children.get(i), trieColumns, termColumns));
+            for (Variable variable : atomVariables) iteratorsPerLevel.get(variableOrder.indexOf(variable)).add(iterators[i]);
+        }
+
+        levelIterators = new TrieIterator[variableOrder.size()][];
+        for (int level = 0; level < variableOrder.size(); level++) levelIterators[level] = iteratorsPerLevel.get(level).toArray(new TrieIterator[0]);
+
+        //  any atom without tuples empties the whole join
+        finished = Arrays.stream(iterators).anyMatch(iterator -> iterator.size == 0);
+    }
+
+    /**
+     * Reads a child's tuples into the columns of a trie, sorted on the given columns in turn.
+     * A variable occurring more than once in the atom only gets one level, so the tuples whose columns for it don't agree are dropped.
+     *
+     * @param trieColumns the column of each level of the trie
+     * @param termColumns for each column of the atom, the first column holding the same variable
+     * @return the key columns of the trie, one array per level
+     */
+    private static long[][] readTrie(Operator child, int[] trieColumns, int[] termColumns) throws IOException {
+        List<long[]> rows = new ArrayList<>();
+
+        child.reset();
+        Tuple tuple;
+        tuples:
+        while ((tuple = child.getNextTuple()) != null) {
+            for (int column = 0; column < termColumns.length; column++) {
+                if (!Tuple.fieldsEqual(tuple, column, tuple, termColumns[column])) continue tuples;
+            }
+
+            long[] row = new long[trieColumns.length];
+            for (int level = 0; level < trieColumns.length; level++) row[level] = encodeKey(tuple, trieColumns[level]);
+            rows.add(row);
+        }
+
+        rows.sort((row1, row2) -> {
+            for (int level = 0; level < row1.length; level++) {
+                int comparison = Long.compare(row1[level], row2[level]);
+                if (comparison != 0) return comparison;
+            }
+            return 0;
+        });
+
+        long[][] levels = new long[trieColumns.length][rows.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            for (int level = 0; level < trieColumns.length; level++) levels[level][i] = rows.get(i)[level];
+        }
+        return levels;
+    }
+
+    //  packs a field into a single long ordered the same way as SortOperator.compareKeys, ints before strings and then by int value or dictionary code
+    static long encodeKey(Tuple tuple, int column) {
+        return tuple.isString(column) ? STRING_KEY_OFFSET + tuple.getValue(column) : tuple.getValue(column);
+    }
+
+    private static boolean isStringKey(long key) {
+        return key > Integer.MAX_VALUE;
+    }
+
+    private static int decodeKey(long key) {
+        return (int) (isStringKey(key) ? key - STRING_KEY_OFFSET : key);
+    }
+
+    @Override
+    public boolean[] getStringColumns() {
+        boolean[] stringColumns = new boolean[0];
+        for (Operator child : children) {
+            boolean[] childStringColumns = child.getStringColumns();
+            if (childStringColumns == null) return null;
+            stringColumns = Tuple.concatStringColumns(stringColumns, childStringColumns);
+        }
+        return stringColumns;
+    }
+
+    //  the tries are kept, so resetting only starts binding the variables over again
+    @Override
+    public void reset() {
+        if (iterators != null) {
+            for (TrieIterator iterator : iterators) iterator.depth = -1;
+            finished = Arrays.stream(iterators).anyMatch(iterator -> iterator.size == 0);
+        }
+        depth = -1;
+        copiesLeft = 0;
+        currentTuple = null;
+    }
+
+    public List<Variable> getVariableOrder() {
+        return variableOrder;
+    }
+
+    public List<RelationalAtom> getRelationalAtoms() {
+        return relationalAtoms;
+    }
+
+    /**
+     * An iterator over a trie stored as sorted key columns, one column per level. At each level it moves through the distinct keys
+     * within the range of rows sharing the keys it is at on the levels above.
+     */
+    static class TrieIterator {
+
+        final long[][] levels;
+        final int size;
+
+        //  the level the iterator is at, -1 before it is opened, along with the row it is at on each level and the end of the range of rows it can move within
+        int depth;
+        final int[] positions;
+        final int[] ends;
+
+        TrieIterator(long[][] levels) {
+            this.levels = levels;
+            this.size = levels[0].length;
+            this.depth = -1;
+            this.positions = new int[levels.length];
+            this.ends = new int[levels.length];
+        }
+
+        //  moves down to the first key on the next level under the current key
+        void open() {
+            if (depth < 0) {
+                positions[0] = 0;
+                ends[0] = size;
+            } else {
+                positions[depth + 1] = positions[depth];
+                ends[depth + 1] = runEnd();
+            }
+            depth++;
+        }
+
+        void up() {
+            depth--;
+        }
+
+        long key() {
+            return levels[depth][positions[depth]];
+        }
+
+        boolean atEnd() {
+            return positions[depth] >= ends[depth];
+        }
+
+        //  moves on to the next distinct key on the current level
+        void next() {
+            positions[depth] = runEnd();
+        }
+
+        //  moves on to the first key on the current level that is at least the given key, staying put if the current key already is
+        void seek(long key) {
+            positions[depth] = lowerBound(levels[depth], positions[depth], ends[depth], key);
+        }
+
+        //  the number of rows sharing the current key on the current level
+        long runLength() {
+            return runEnd() - positions[depth];
+        }
+
+        private int runEnd() {
+            return lowerBound(levels[depth], positions[depth], ends[depth], key() + 1);
+        }
+
+        //  the first position in [from, to) holding a key at least the given one, found by galloping forwards from the start and then binary searching
+        static int lowerBound(long[] keys, int from, int to, long key) {
+            if (from >= to || keys[from] >= key) return from;
+
+            int low = from;
+            int step = 1;
+            while (low + step < to && keys[low + step] < key) {
+                low += step;
+                step <<= 1;
+            }
+
+            int high = Math.min(low + step, to);
+            low++;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (keys[middle] < key) low = middle + 1;
+                else high = middle;
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package ed.inf.adbs.minibase.evaluator;
+
+import ed.inf.adbs.minibase.base.RelationalAtom;
+import ed.inf.adbs.minibase.dbstructures.Schema;
+import ed.inf.adbs.minibase.dbstructures.StringDictionary;
+import ed.inf.adbs.minibase.dbstructures.Tuple;
+import ed.inf.adbs.minibase.dbstructures.TupleBatch;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Scan operator over a table's csv file that memory-maps the file instead of reading it through a BufferedReader.
+ * Rows are tokenized directly from the mapped bytes: int cells are parsed straight from their digits and only string cells are turned into Strings for the dictionary lookup,
+ * so no String is allocated for the line or for the int cells.
+ * The cell semantics match the buffered scan: cells are split on commas, trimmed, and have any single quotes removed.
+ * Resetting only rewinds the buffer position, which makes rescanning the inner side of a nested loop join cheap.
+ */
+public class MappedScanOperator extends ScanOperator {
+
+    //  shared with the IndexScanOperator, which moves the position to each matching row itself
+    final MappedByteBuffer buffer;
+    final boolean[] stringColumns;
+
+    //  scratch space that string cells are copied into with their quotes removed before being decoded
+    private byte[] cellBytes;
+
+    //  scratch row that batches are tokenized into before being copied into the batch's columns
+    private final int[] scratchRow;
+
+    /**
+     * @param fileName the relative filename and path for the csv file containing the tuples in the table being scanned
+     * @param schema the schema entry for the table in question
+     * @param baseRelationalAtom the base relational atom from the query on which this scan is being evaluated
+     * @throws IOException thrown if the file can't be opened or mapped
+     */
+    public MappedScanOperator(String fileName, Schema schema, RelationalAtom baseRelationalAtom) throws IOException {
+        super(schema, baseRelationalAtom);
+        if (!canMap(fileName)) throw new IllegalArgumentException("The file " + fileName + " can't be memory-mapped in one piece!");
+
+        this.fileName = fileName;
+
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+            this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        this.stringColumns = schema.getStringColumns();
+
+        this.cellBytes = new byte[64];
+        this.scratchRow = new int[stringColumns.length];
+    }
+
+    //  checks that the file exists and is small enough to be mapped as a single buffer
+    public static boolean canMap(String fileName) {
+        File file = new File(fileName);
+        return file.isFile() && file.length() <= Integer.MAX_VALUE;
+    }
+
+    //  tokenizes and returns the next row in the mapped file as a tuple
+    @Override
+    public Tuple getNextTuple() {
+        if (!buffer.hasRemaining()) return null;
+
+        int[] values = new int[stringColumns.length];
+        parseRow(values);
+        return new Tuple(values, stringColumns);
+    }
+
+    //  tokenizes rows until the batch is full or the end of the file is reached
+    @Override
+    public TupleBatch getNextBatch() {
+        if (!buffer.hasRemaining()) return null;
+
+        TupleBatch batch = getClearedBatch();
+        int[][] columns = batch.getColumns();
+
+        int rowCount = 0;
+        while (rowCount < batch.getCapacity() && buffer.hasRemaining()) {
+            parseRow(scratchRow);
+
+            for (int i = 0; i < columns.length; i++) {
+                columns[i][rowCount] = scratchRow[i];
+            }
+            rowCount++;
+        }
+
+        batch.setRowCount(rowCount);
+        return batch;
+    }
+
+    //  tokenizes the row at the buffer's position into the given array, leaving the buffer at the start of the next row
+    void parseRow(int[] values) {
+        for (int i = 0; i < stringColumns.length; i++) {
+            int cellStart = buffer.position();
+            int cellEnd = findCellEnd(cellStart);
+
+            boolean lastColumn = i == stringColumns.length - 1;
+            boolean endOfRow = cellEnd == buffer.limit() || buffer.get(cellEnd) != ',';
+            if (lastColumn != endOfRow) throw new IllegalArgumentException("The number of columns and the number of classes parsed from the schema don't match!");
+
+            values[i] = stringColumns[i] ? parseStringCell(cellStart, cellEnd) : parseIntCell(cellStart, cellEnd);
+
+            //  moving past the comma, or past the line terminator for the last cell
+            buffer.position(lastColumn ? skipLineTerminator(cellEnd) : cellEnd + 1);
+        }
+    }
+
+    //  rewinds to the start of the mapped file
+    @Override
+    public void reset() {
+        buffer.rewind();
+    }
+
+    //  returns the position of the comma or line terminator that ends the cell starting at the given position, or the buffer limit at the end of the file
+    private int findCellEnd(int position) {
+        int limit = buffer.limit();
+        while (position < limit) {
+            byte b = buffer.get(position);
+            if (b == ',' || b == '\n' || b == '\r') return position;
+            position++;
+        }
+        return limit;
+    }
+
+    private int skipLineTerminator(int position) {
+        if (position < buffer.limit() && buffer.get(position) == '\r') position++;
+        if (position < buffer.limit() && buffer.get(position) == '\n') position++;
+        return position;
+    }
+
+    //  parses the digits of an int cell straight from the buffer, skipping surrounding whitespace and any quotes
+    private int parseIntCell(int start, int end) {
+        while (start < end && isWhitespace(buffer.get(start))) start++;
+        while (end > start && isWhitespace(buffer.get(end - 1))) end--;
+
+        boolean negative = false;
+        boolean sawDigit = false;
+        long value = 0;
+
+        for (int position = start; position < end; position++) {
+            byte b = buffer.get(position);
+
+            if (b >= '0' && b <= '9') {
+                value = value * 10 + (b - '0');
+                sawDigit = true;
+                if (value > (long) Integer.MAX_VALUE + 1) throw new NumberFormatException("Int cell out of range in " + fileName);
+            } else if ((b == '-' || b == '+') && !sawDigit && position == start) {
+                negative = b == '-';
+            } else if (b != '\'') {
+                throw new NumberFormatException("Invalid int cell in " + fileName);
+            }
+        }
+
+        if (!sawDigit) throw new NumberFormatException("Empty int cell in " + fileName);
+
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) throw new NumberFormatException("Int cell out of range in " + fileName);
+        return (int) value;
+    }
+
+    //  copies the trimmed bytes of a string cell, without any quotes, into the scratch array, decodes them and returns the string's dictionary code
+    private int parseStringCell(int start, int end) {
+        while (start < end && isWhitespace(buffer.get(start))) start++;
+        while (end > start && isWhitespace(buffer.get(end - 1))) end--;
+
+        if (cellBytes.length < end - start) cellBytes = new byte[Math.max(end - start, cellBytes.length * 2)];
+
+        int length = 0;
+        for (int position = start; position < end; position++) {
+            byte b = buffer.get(position);
+            if (b != '\'') cellBytes[length++] = b;
+        }
+
+        return StringDictionary.getDictionary().encode(new String(cellBytes, 0, length, StandardCharsets.UTF_8));
+    }
+
+    //  matches the characters removed by String.trim() that can occur within a csv line
+    private static boolean isWhitespace(byte b) {
+        return b >= 0 && b <= ' ';
+    }
+}
@@ -0,0 +1,68 @@
+package ed.inf.adbs.minibase.evaluator;
+
+import ed.inf.adbs.minibase.base.RelationalAtom;
+import ed.inf.adbs.minibase.dbstructures.Schema;
+import ed.inf.adbs.minibase.dbstructures.Tuple;
+import ed.inf.adbs.minibase.dbstructures.TupleBatch;
+
+/**
+ * Scan operator over one range of rows of a relation held column by column in memory, which is the morsel a worker of the ParallelExecutor is currently running.
+ * The columns are shared with the other workers' scans and only ever read. The worker moves the scan on to its next morsel through setRange().
+ */
+public class MorselScanOperator extends ScanOperator {
+
+    private final int[][] columns;
+    private final boolean[] stringColumns;
+
+    private int start;
+    private int end;
+    private int currentRow;
+
+    public MorselScanOperator(int[][] columns, boolean[] stringColumns, Schema schema, RelationalAtom baseRelationalAtom) {
+        super(schema, baseRelationalAtom);
+        if (columns.length != schema.getDataTypes().size()) throw new IllegalArgumentException("The columns don't match the given schema!");
+
+        this.columns = columns;
+        this.stringColumns = stringColumns;
+    }
+
+    //  moves the scan on to the rows in [start, end)
+    public void setRange(int start, int end) {
+        this.start = start;
+        this.end = end;
+        this.currentRow = start;
+    }
+
+    @Override
+    public Tuple getNextTuple() {
+        if (currentRow == end) return null;
+
+        int[] values = new int[columns.length];
+        for (int i = 0; i < columns.length; i++) values[i] = columns[i][currentRow];
+        currentRow++;
+        return new Tuple(values, stringColumns);
+    }
+
+    //  copies the next run of rows of the range out of the columns
+    @Override
+    public TupleBatch getNextBatch() {
+        if (currentRow == end) return null;
+
+        TupleBatch batch = getClearedBatch();
+        int rowCount = Math.min(batch.getCapacity(), end - currentRow);
+
+        for (int i = 0; i < columns.length; i++) {
+            System.arraycopy(columns[i], currentRow, batch.getColumn(i), 0, rowCount);
+        }
+
+        currentRow += rowCount;
+        batch.setRowCount(rowCount);
+        return batch;
+    }
+
+    //  rewinds to the start of the current range
+    @Override
+    public void reset() {
+        currentRow = start;
+    }
+}
@@ -1,34 +1,75 @@
 package ed.inf.adbs.minibase.evaluator;
 
 import ed.inf.adbs.minibase.dbstructures.Tuple;
+import ed.inf.adbs.minibase.dbstructures.TupleBatch;
 
 import java.io.FileWriter;
 import java.io.IOException;
 
 //  abstract superclass for all operators that form the query evaluation tree.
-//  Contains abstract definitions for getNextTuple() and reset() as well asa an implementation of dump() utilising these
+//  Contains abstract definitions for getNextTuple() and reset() as well asa an implementation of dump() utilising these.
+//  Operators can also be pulled from a batch at a time through getNextBatch(). A consumer should stick to one of the two calls on a given operator between resets,
+//  since both of them advance the same underlying position
 public abstract class Operator {
 
+    //  the batch refilled by the default getNextBatch() for operators that only produce a tuple at a time
+    private TupleBatch adapterBatch;
+
     public abstract Tuple getNextTuple() throws IOException;
 
     public abstract void reset();
 
+    //  the types of the columns of the tuples this operator emits, true for the string columns.
+    //  Known while the plan is being built for every operator over base relations, and null when an operator can't tell ahead of time
+    public boolean[] getStringColumns() {
+        return null;
+    }
+
+    /**
+     * Returns the next batch of rows emitted by this operator, with only the rows in its selection vector being part of the output.
+     * This default implementation adapts tuple-at-a-time operators by collecting their tuples into a batch. Operators that can work over whole batches override it.
+     *
+     * @return the next non-empty batch, or null once the operator is exhausted
+     * @throws IOException thrown if any exceptions bubble up from the operator
+     */
+    public TupleBatch getNextBatch() throws IOException {
+        Tuple tuple = getNextTuple();
+        if (tuple == null) return null;
+
+        if (adapterBatch == null) adapterBatch = new TupleBatch(tuple.getStringColumns());
+        adapterBatch.clear();
+
+        do {
+            adapterBatch.appendTuple(tuple);
+        } while (!adapterBatch.isFull() && (tuple = getNextTuple()) != null);
+
+        return adapterBatch;
+    }
+
     //  dumps the remaining tuples that will be emitted from this operator.
     //  checks the global singleton output writer for the file writer. If initialised, this dumps the tuples to the output file.
-    //  Otherwise, it prints the tuples to System.out
+    //  Otherwise, it prints the tuples to System.out.
+    //  Rows are pulled a batch at a time and written straight out of the batch's columns
     public void dump() {
-        Tuple nextTuple;
+        TupleBatch batch;
+        StringBuilder builder = new StringBuilder();
         FileWriter outWriter = null;
         if (OutputWriter.outputWriterInitialised()) {
             outWriter = OutputWriter.getFileWriter();
         }
         try {
-            while ((nextTuple = getNextTuple()) != null) {
+            while ((batch = getNextBatch()) != null) {
+                int[] selection = batch.getSelection();
+
+                for (int i = 0; i < batch.getSelectedCount(); i++) {
+                    builder.setLength(0);
+                    batch.appendRow(builder, selection[i]);
 
-                if (outWriter != null) {
-                    outWriter.write(nextTuple.toString() + "\n");
-                } else {
-                    System.out.println(nextTuple);
+                    if (outWriter != null) {
+                        outWriter.write(builder.append('\n').toString());
+                    } else {
+                        System.out.println(builder);
+                    }
                 }
             }
             if (outWriter != null)
@@ -0,0 +1,361 @@
+package ed.inf.adbs.minibase.evaluator;
+
+import ed.inf.adbs.minibase.base.ComparisonAtom;
+import ed.inf.adbs.minibase.base.RelationalAtom;
+import ed.inf.adbs.minibase.dbstructures.*;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Evaluates a query plan on several threads at once, morsel by morsel, and writes its output the same way as Operator.dump().
+ * Plans made up of a scan, an optional selection, any number of hash joins probed from the left and a projection or aggregation on top form a single pipeline,
+ * which is the shape the QueryPlanner gives most queries. For those, the hash tables are built first, each radix-partitioned across all the threads, and the relation at the bottom of the pipeline
+ * is then split into morsels of MORSEL_SIZE rows. Each worker of a work-stealing pool runs its own copy of the pipeline, probing the shared hash tables,
+ * and keeps taking the next morsel left until there are none. The projections of all workers deduplicate their output through one concurrent set,
+ * while aggregations are done in two phases, each worker accumulating partial aggregates of its own that are merged at the end.
+ * Output is written as soon as a morsel is done, in whichever order the morsels finish, unless the output is ordered, in which case it comes out in the same order as from a single thread.
+ * Plans of any other shape are evaluated on the calling thread as usual.
+ */
+public class ParallelExecutor {
+
+    //  the number of rows in a morsel, a whole number of batches
+    static final int MORSEL_SIZE = 16 * TupleBatch.DEFAULT_CAPACITY;
+
+    private final int degreeOfParallelism;
+    private final boolean orderedOutput;
+
+    /**
+     * @param degreeOfParallelism the number of worker threads
+     * @param orderedOutput whether the output has to come out in the order a single thread would write it in, which holds back each morsel's output until the ones before it are done and have been written
+     */
+    public ParallelExecutor(int degreeOfParallelism, boolean orderedOutput) {
+        if (degreeOfParallelism < 1) throw new IllegalArgumentException("The degree of parallelism has to be at least 1!");
+
+        this.degreeOfParallelism = degreeOfParallelism;
+        this.orderedOutput = orderedOutput;
+    }
+
+    /**
+     * Evaluates the plan under the given root, writing its output to the output writer if it has been initialised, otherwise to System.out.
+     *
+     * @param root the root of the plan
+     * @throws IOException thrown if any exceptions bubble up from the operators, or if the output can't be written
+     */
+    public void dump(Operator root) throws IOException {
+        Pipeline pipeline = (degreeOfParallelism > 1) ? Pipeline.of(root) : null;
+        if (pipeline == null) {
+            root.dump();
+            return;
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(degreeOfParallelism);
+        try {
+            //  loading the bottom relation in the background while the hash tables are built one after the other, each across all the threads
+            Future<Void> loading = pool.submit(() -> {
+                pipeline.loadColumns();
+                return null;
+            });
+            for (HashJoinOperator join : pipeline.joins) join.buildHashTableInParallel(pool, degreeOfParallelism);
+            waitForAll(Collections.singletonList(loading));
+
+            if (pipeline.aggregate != null) {
+                aggregate(pool, pipeline);
+                pipeline.aggregate.dump();
+            } else {
+                run(pool, pipeline);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private void run(ForkJoinPool pool, Pipeline pipeline) throws IOException {
+        int morselCount = (pipeline.rowCount + MORSEL_SIZE - 1) / MORSEL_SIZE;
+        AtomicInteger nextMorsel = new AtomicInteger();
+
+        Set<Tuple> sharedOutput = ConcurrentHashMap.newKeySet();
+        List<List<Tuple>> orderedResults = orderedOutput ? new ArrayList<>(Collections.nCopies(morselCount, null)) : null;
+        //  in ordered mode, the first morsel not yet written out, and the tuples written out so far
+        AtomicInteger nextMorselToWrite = new AtomicInteger();
+        Set<Tuple> tuplesOutputSoFar = new HashSet<>();
+        FileWriter outWriter = OutputWriter.outputWriterInitialised() ? OutputWriter.getFileWriter() : null;
+        Object outputLock = new Object();
+
+        List<Callable<Void>> workers = new ArrayList<>();
+        for (int i = 0; i < Math.min(degreeOfParallelism, morselCount); i++) {
+            workers.add(() -> {
+                //  in ordered mode a worker only deduplicates within a morsel, and the rest is left to the writing out since it has to keep the first occurrence in order
+                Set<Tuple> workerOutput = orderedOutput ? new HashSet<>() : sharedOutput;
+                MorselScanOperator scan = pipeline.newScan();
+                Operator workerRoot = pipeline.newPipeline(scan, workerOutput);
+
+                StringBuilder builder = new StringBuilder();
+                int morsel;
+                while ((morsel = nextMorsel.getAndIncrement()) < morselCount) {
+                    scan.setRange(morsel * MORSEL_SIZE, Math.min((morsel + 1) * MORSEL_SIZE, pipeline.rowCount));
+                    workerRoot.reset();
+
+                    List<Tuple> morselTuples = orderedOutput ? new ArrayList<>() : null;
+                    builder.setLength(0);
+
+                    TupleBatch batch;
+                    while ((batch = workerRoot.getNextBatch()) != null) {
+                        int[] selection = batch.getSelection();
+                        for (int j = 0; j < batch.getSelectedCount(); j++) {
+                            if (orderedOutput) {
+                                morselTuples.add(batch.getTuple(selection[j]));
+                            } else {
+                                batch.appendRow(builder, selection[j]);
+                                builder.append('\n');
+                            }
+                        }
+                    }
+
+                    if (orderedOutput) {
+                        workerOutput.clear();
+                        synchronized (outputLock) {
+                            orderedResults.set(morsel, morselTuples);
+                            writeCompletedMorsels(outWriter, pipeline, orderedResults, nextMorselToWrite, tuplesOutputSoFar, builder);
+                        }
+                    } else if (builder.length() > 0) {
+                        synchronized (outputLock) {
+                            write(outWriter, builder.toString());
+                        }
+                    }
+                }
+                return null;
+            });
+        }
+        runAll(pool, workers);
+
+        if (outWriter != null) outWriter.flush();
+    }
+
+    /**
+     * Writes out every finished morsel from the first one not yet written up to the first one still running, dropping the tuples already written out, and lets go of their tuples.
+     * It is called with the output lock held each time a morsel finishes, so only the morsels finishing ahead of an earlier one are held on to.
+     */
+    private static void writeCompletedMorsels(FileWriter outWriter, Pipeline pipeline, List<List<Tuple>> orderedResults, AtomicInteger nextMorselToWrite,
+                                              Set<Tuple> tuplesOutputSoFar, StringBuilder builder) throws IOException {
+        int morsel = nextMorselToWrite.get();
+        while (morsel < orderedResults.size() && orderedResults.get(morsel) != null) {
+            builder.setLength(0);
+            for (Tuple tuple : orderedResults.get(morsel)) {
+                if (pipeline.project.hasDistinctInput() || tuplesOutputSoFar.add(tuple)) builder.append(tuple).append('\n');
+            }
+            write(outWriter, builder.toString());
+            //  the slot is never looked at again, so its tuples can go
+            orderedResults.set(morsel, Collections.emptyList());
+            morsel++;
+        }
+        nextMorselToWrite.set(morsel);
+    }
+
+    /**
+     * Aggregates the pipeline's joined tuples in two phases, leaving the groups in its AggregateOperator to be emitted.
+     * Each worker accumulates the morsels it runs into its own PartialAggregator, and the partials are merged once all the workers are done.
+     * When the query planner expects only a few groups, those get shared StripedAccumulators instead, which the workers add into directly without any merge.
+     * For ordered output, every morsel gets its own partial instead, and merging those in morsel order lists the groups in the order a single thread would have first seen them in.
+     *
+     * @param pool the pool to run the workers on
+     * @param pipeline the pipeline, with an AggregateOperator on top
+     * @throws IOException thrown if any exceptions bubble up from the operators
+     */
+    void aggregate(ExecutorService pool, Pipeline pipeline) throws IOException {
+        AggregateOperator aggregate = pipeline.aggregate;
+        int morselCount = (pipeline.rowCount + MORSEL_SIZE - 1) / MORSEL_SIZE;
+        AtomicInteger nextMorsel = new AtomicInteger();
+
+        StripedAccumulators sharedAccumulators = (!orderedOutput && aggregate.getEstimatedGroupCount() <= StripedAccumulators.MAX_GROUPS) ? aggregate.newStripedAccumulators() : null;
+        List<PartialAggregator> partials = orderedOutput ? new ArrayList<>(Collections.nCopies(morselCount, null)) : new ArrayList<>();
+
+        List<Callable<Void>> workers = new ArrayList<>();
+        for (int i = 0; i < Math.min(degreeOfParallelism, morselCount); i++) {
+            workers.add(() -> {
+                MorselScanOperator scan = pipeline.newScan();
+                Operator probe = pipeline.newProbePipeline(scan);
+                PartialAggregator workerPartial = orderedOutput ? null : aggregate.newPartialAggregator(sharedAccumulators);
+
+                int morsel;
+                while ((morsel = nextMorsel.getAndIncrement()) < morselCount) {
+                    scan.setRange(morsel * MORSEL_SIZE, Math.min((morsel + 1) * MORSEL_SIZE, pipeline.rowCount));
+                    probe.reset();
+
+                    PartialAggregator partial = orderedOutput ? aggregate.newPartialAggregator(null) : workerPartial;
+                    TupleBatch batch;
+                    while ((batch = probe.getNextBatch()) != null) partial.accumulate(batch);
+
+                    if (orderedOutput) {
+                        synchronized (partials) {
+                            partials.set(morsel, partial);
+                        }
+                    }
+                }
+
+                if (!orderedOutput) {
+                    synchronized (partials) {
+                        partials.add(workerPartial);
+                    }
+                }
+                return null;
+            });
+        }
+        runAll(pool, workers);
+
+        GroupTable groups = aggregate.newGroupTable();
+        boolean[] inputStringColumns = null;
+        if (sharedAccumulators != null) sharedAccumulators.drainInto(groups);
+        for (PartialAggregator partial : partials) {
+            groups.mergeFrom(partial.getGroups());
+            if (inputStringColumns == null) inputStringColumns = partial.getInputStringColumns();
+        }
+        aggregate.setGroups(groups, inputStringColumns);
+    }
+
+    private static void write(FileWriter outWriter, String output) throws IOException {
+        if (outWriter != null) outWriter.write(output);
+        else System.out.print(output);
+    }
+
+    //  runs the tasks on the pool and waits for all of them, rethrowing the first exception any of them threw
+    static void runAll(ExecutorService pool, List<Callable<Void>> tasks) throws IOException {
+        List<Future<Void>> futures;
+        try {
+            futures = pool.invokeAll(tasks);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while evaluating the query!", e);
+        }
+        waitForAll(futures);
+    }
+
+    //  waits for the tasks behind the futures, rethrowing the first exception any of them threw
+    private static void waitForAll(List<Future<Void>> futures) throws IOException {
+        try {
+            for (Future<Void> future : futures) future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while evaluating the query!", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * The pieces of a plan that can be run as a single pipeline, from the bottom up: the operator producing the bottom relation's tuples,
+     * the selection over them if there is one, the hash joins probed by them and the projection on top.
+     */
+    static class Pipeline {
+
+        Operator leaf;
+        RelationalAtom leafAtom;
+        List<ComparisonAtom> selectionPredicates;
+        List<HashJoinOperator> joins;
+
+        //  the operator on top, which is exactly one of the two
+        ProjectOperator project;
+        AggregateOperator aggregate;
+
+        //  the bottom relation's tuples column by column, shared by every worker's scan
+        Schema schema;
+        int[][] columns;
+        boolean[] stringColumns;
+        int rowCount;
+
+        //  the pipeline of the given plan, null if the plan isn't a single pipeline
+        static Pipeline of(Operator root) {
+            Pipeline pipeline = new Pipeline();
+            pipeline.joins = new ArrayList<>();
+
+            Operator operator;
+            if (root instanceof ProjectOperator) {
+                pipeline.project = (ProjectOperator) root;
+                operator = pipeline.project.getChild();
+            } else if (root instanceof AggregateOperator) {
+                pipeline.aggregate = (AggregateOperator) root;
+                operator = pipeline.aggregate.getChild();
+            } else {
+                return null;
+            }
+
+            while (operator instanceof HashJoinOperator && !((HashJoinOperator) operator).buildOnLeft) {
+                pipeline.joins.add(0, (HashJoinOperator) operator);
+                operator = ((HashJoinOperator) operator).leftChild;
+            }
+
+            if (operator instanceof SelectOperator) {
+                pipeline.selectionPredicates = ((SelectOperator) operator).getSelectionPredicates();
+                operator = ((SelectOperator) operator).getChild();
+            }
+
+            //  an index scan only reads the rows matching its predicate, which splitting the whole relation would lose
+            if (operator instanceof ScanOperator && !(operator instanceof IndexScanOperator)) {
+                pipeline.leafAtom = ((ScanOperator) operator).getBaseRelationalAtom();
+            } else if (operator instanceof ReducedRelationOperator && pipeline.selectionPredicates == null) {
+                pipeline.leafAtom = ((ReducedRelationOperator) operator).getBaseRelationalAtom();
+            } else {
+                return null;
+            }
+
+            pipeline.leaf = operator;
+            pipeline.schema = DatabaseCatalog.getCatalog().getSchemaMap().get(pipeline.leafAtom.getName());
+            return pipeline;
+        }
+
+        //  reads the bottom relation into columns: from the table cache if it's enabled, from the semi-join reduction for a reduced relation, otherwise by loading the relation, closing the leaf's own scan
+        void loadColumns() throws IOException {
+            if (leaf instanceof ReducedRelationOperator) {
+                ReducedRelationOperator reduced = (ReducedRelationOperator) leaf;
+                List<Tuple> tuples = reduced.reducer.getReducedTuples(reduced.atom);
+
+                stringColumns = schema.getStringColumns();
+                rowCount = tuples.size();
+                columns = new int[stringColumns.length][rowCount];
+                for (int row = 0; row < rowCount; row++) {
+                    for (int i = 0; i < stringColumns.length; i++) columns[i][row] = tuples.get(row).getValue(i);
+                }
+                return;
+            }
+
+            DatabaseCatalog catalog = DatabaseCatalog.getCatalog();
+            Relation relation = catalog.getRelationMap().get(leafAtom.getName());
+            InMemoryTable table = (catalog.getTableCache() != null) ? catalog.getTableCache().getTable(relation) : InMemoryTable.load(relation);
+
+            stringColumns = table.getStringColumns();
+            rowCount = table.getRowCount();
+            columns = new int[table.getNumColumns()][];
+            for (int i = 0; i < columns.length; i++) columns[i] = table.getColumn(i);
+
+            //  the workers scan the columns instead, so the scan the planner built for the leaf is let go of
+            ((ScanOperator) leaf).close();
+        }
+
+        MorselScanOperator newScan() {
+            return new MorselScanOperator(columns, stringColumns, schema, leafAtom);
+        }
+
+        //  a copy of the pipeline over the given scan up to its last join, probing the same hash tables
+        Operator newProbePipeline(MorselScanOperator scan) throws IOException {
+            Operator operator = (selectionPredicates == null) ? scan : new SelectOperator(scan, leafAtom, selectionPredicates);
+            for (HashJoinOperator join : joins) operator = join.withProbeChild(operator);
+            return operator;
+        }
+
+        //  a copy of the whole pipeline over the given scan, deduplicating through the given set unless the projection knows its input to be free of duplicates
+        Operator newPipeline(MorselScanOperator scan, Set<Tuple> tuplesOutputSoFar) throws IOException {
+            Operator operator = newProbePipeline(scan);
+
+            ProjectOperator workerProject = (project.getRelationalAtomList() != null)
+                    ? new ProjectOperator(operator, project.getOutputVariables(), project.getRelationalAtomList(), tuplesOutputSoFar)
+                    : new ProjectOperator(operator, project.getOutputVariables(), project.getBaseRelationalAtom(), tuplesOutputSoFar);
+            workerProject.setDistinctInput(project.hasDistinctInput());
+            return workerProject;
+        }
+    }
+}
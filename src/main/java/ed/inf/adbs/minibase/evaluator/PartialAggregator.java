@@ -0,0 +1,115 @@
+package ed.inf.adbs.minibase.evaluator;
+
+import ed.inf.adbs.minibase.dbstructures.TupleBatch;
+
+import java.util.Arrays;
+
+/**
+ * Accumulates batches of an aggregation's input into a GroupTable of partial sums and counts, which is merged with the other partials once the input is done.
+ * Each worker of a parallel aggregation keeps its own, so the workers never contend over a group while adding to it, and the AggregateOperator uses one for the whole input when running alone.
+ * Given shared StripedAccumulators, groups that get a slot in them are added there instead, and the local table then only maps their keys to their slots.
+ * Rows with multiplicity columns count as the product of them, scaling the values they add up, with partial sums only scaled by the multiplicities of the other leaves.
+ * The multiplicities and partial sums are longs, each read from the two int columns holding its low and high halves.
+ */
+public class PartialAggregator {
+
+    private final int[] keyOffsets;
+    private final int[] aggregateOffsets;
+    private final int[] aggregateHighOffsets;
+    private final int[] multiplicityOffsets;
+    private final int[] multiplicityHighOffsets;
+    private final int[] aggregateMultiplicities;
+    private final StripedAccumulators sharedAccumulators;
+
+    private final GroupTable groups;
+
+    //  the shared slot of each local group, -1 if it didn't get one, and -2 if it hasn't been asked for yet
+    private int[] sharedSlots;
+
+    //  the types of the input's columns, taken from its first batch
+    private boolean[] inputStringColumns;
+
+    /**
+     * @param keyOffsets the offsets of the group key columns in the input
+     * @param aggregateOffsets the offsets of the columns each aggregate adds up
+     * @param aggregateHighOffsets the offsets of the high halves of the columns each aggregate adds up, -1 for those that are plain ints
+     * @param multiplicityOffsets the offsets of the columns whose product is the number of tuples each row stands for, empty if every row is a single tuple
+     * @param multiplicityHighOffsets the offsets of the high halves of the multiplicity columns
+     * @param aggregateMultiplicities for each aggregate, the index among the multiplicity columns of the one already counted into its column, -1 if none is
+     * @param sharedAccumulators the accumulators shared with the other workers, null if there are none
+     */
+    public PartialAggregator(int[] keyOffsets, int[] aggregateOffsets, int[] aggregateHighOffsets, int[] multiplicityOffsets, int[] multiplicityHighOffsets,
+                             int[] aggregateMultiplicities, StripedAccumulators sharedAccumulators) {
+        this.keyOffsets = keyOffsets;
+        this.aggregateOffsets = aggregateOffsets;
+        this.aggregateHighOffsets = aggregateHighOffsets;
+        this.multiplicityOffsets = multiplicityOffsets;
+        this.multiplicityHighOffsets = multiplicityHighOffsets;
+        this.aggregateMultiplicities = aggregateMultiplicities;
+        this.sharedAccumulators = sharedAccumulators;
+
+        this.groups = new GroupTable(keyOffsets.length, aggregateOffsets.length);
+        this.sharedSlots = new int[0];
+    }
+
+    //  adds every selected row of the batch to its group
+    public void accumulate(TupleBatch batch) {
+        if (inputStringColumns == null) inputStringColumns = batch.getStringColumns();
+
+        int[][] columns = new int[inputStringColumns.length][];
+        for (int i = 0; i < columns.length; i++) columns[i] = batch.getColumn(i);
+
+        int[] selection = batch.getSelection();
+        for (int i = 0; i < batch.getSelectedCount(); i++) {
+            int row = selection[i];
+            int group = groups.findOrInsert(columns, row, keyOffsets);
+            int slot = getSharedSlot(group);
+
+            long multiplicity = 1;
+            for (int j = 0; j < multiplicityOffsets.length; j++) multiplicity *= getValue(columns, row, multiplicityOffsets[j], multiplicityHighOffsets[j]);
+
+            if (slot >= 0) {
+                sharedAccumulators.addToCount(slot, multiplicity);
+                for (int aggregate = 0; aggregate < aggregateOffsets.length; aggregate++) sharedAccumulators.addToSum(slot, aggregate, getWeightedValue(columns, row, aggregate, multiplicity));
+            } else {
+                groups.addToCount(group, multiplicity);
+                for (int aggregate = 0; aggregate < aggregateOffsets.length; aggregate++) groups.addToSum(group, aggregate, getWeightedValue(columns, row, aggregate, multiplicity));
+            }
+        }
+    }
+
+    //  the aggregate's value in the row times the number of tuples it stands for, leaving out the multiplicity a partial sum has already been added up over
+    private long getWeightedValue(int[][] columns, int row, int aggregate, long multiplicity) {
+        long value = getValue(columns, row, aggregateOffsets[aggregate], aggregateHighOffsets[aggregate]);
+        int counted = aggregateMultiplicities[aggregate];
+        return value * ((counted < 0) ? multiplicity : multiplicity / getValue(columns, row, multiplicityOffsets[counted], multiplicityHighOffsets[counted]));
+    }
+
+    //  the value in a row of an int column, or of a long split into the low half in the given column and the high half in the one at highOffset
+    private static long getValue(int[][] columns, int row, int offset, int highOffset) {
+        if (highOffset < 0) return columns[offset][row];
+        return ((long) columns[highOffset][row] << 32) | (columns[offset][row] & 0xFFFFFFFFL);
+    }
+
+    private int getSharedSlot(int group) {
+        if (sharedAccumulators == null) return -1;
+
+        if (group >= sharedSlots.length) {
+            int oldLength = sharedSlots.length;
+            sharedSlots = Arrays.copyOf(sharedSlots, Math.max(16, 2 * oldLength));
+            Arrays.fill(sharedSlots, oldLength, sharedSlots.length, -2);
+        }
+        if (sharedSlots[group] == -2) sharedSlots[group] = sharedAccumulators.slotOf(groups.getKey(group));
+        return sharedSlots[group];
+    }
+
+    //  the partial sums and counts of the groups that didn't get a shared slot, with zero counts for those that did
+    public GroupTable getGroups() {
+        return groups;
+    }
+
+    //  the types of the input's columns, null if it hasn't seen any batches
+    public boolean[] getInputStringColumns() {
+        return inputStringColumns;
+    }
+}
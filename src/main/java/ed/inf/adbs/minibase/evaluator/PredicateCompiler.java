@@ -0,0 +1,445 @@
+package ed.inf.adbs.minibase.evaluator;
+
+import ed.inf.adbs.minibase.base.ComparisonAtom;
+import ed.inf.adbs.minibase.base.ComparisonOperator;
+import ed.inf.adbs.minibase.base.IntegerConstant;
+import ed.inf.adbs.minibase.base.StringConstant;
+import ed.inf.adbs.minibase.base.Term;
+import ed.inf.adbs.minibase.base.Variable;
+import ed.inf.adbs.minibase.dbstructures.StringDictionary;
+
+/**
+ * Compiles comparison atoms into RowPredicates specialised on the operator and on the types and positions of their terms, for example an int column against a constant with <.
+ * Each specialised predicate is its own small lambda that only reads ints out of the tuples, so the JIT can inline it at the call site and nothing is allocated per tuple.
+ * The column types come from the operators' getStringColumns(). When they aren't known, the generic ColumnComparison is used instead, which checks the types per tuple.
+ * Comparing an int with a string follows ComparisonAtom: equality is always false, inequality always true, and the ordering operators throw when evaluated.
+ * Selection predicates can also be compiled into BatchPredicates, which filter a batch's selection vector in one loop over its columns.
+ */
+public class PredicateCompiler {
+
+    private PredicateCompiler() {
+    }
+
+    //  compiles a predicate over the tuples of a single operator
+    public static RowPredicate compile(ComparisonAtom comparisonAtom, VariableOffsets offsets, boolean[] stringColumns) {
+        return compile(comparisonAtom, offsets, stringColumns, null, null);
+    }
+
+    /**
+     * Compiles a predicate over pairs of left and right tuples. A variable is looked up in the right tuple's offsets first, then in the left tuple's.
+     *
+     * @param comparisonAtom the comparison atom to compile
+     * @param leftOffsets the offsets of the variables in the left tuple
+     * @param leftStringColumns the column types of the left tuple, null if unknown
+     * @param rightOffsets the offsets of the variables in the right tuple, null when compiling over a single tuple
+     * @param rightStringColumns the column types of the right tuple, null if unknown or when compiling over a single tuple
+     * @return the compiled predicate
+     */
+    public static RowPredicate compile(ComparisonAtom comparisonAtom, VariableOffsets leftOffsets, boolean[] leftStringColumns, VariableOffsets rightOffsets, boolean[] rightStringColumns) {
+        BoundTerm term1 = bindTerm(comparisonAtom.getTerm1(), leftOffsets, leftStringColumns, rightOffsets, rightStringColumns);
+        BoundTerm term2 = bindTerm(comparisonAtom.getTerm2(), leftOffsets, leftStringColumns, rightOffsets, rightStringColumns);
+        ComparisonOperator op = comparisonAtom.getOp();
+
+        if (term1.typeUnknown || term2.typeUnknown) {
+            ColumnComparison comparison = new ColumnComparison(comparisonAtom, leftOffsets, rightOffsets);
+            return comparison::evaluate;
+        }
+
+        if (term1.isString != term2.isString) return compileMixedTypes(op);
+
+        if (term1.isConstant && term2.isConstant) {
+            return ColumnComparison.compareValues(term1.value, term1.isString, term2.value, term2.isString, op) ? RowPredicate.ALWAYS_TRUE : RowPredicate.ALWAYS_FALSE;
+        }
+
+        //  normalising column against constant comparisons so that the column is always the first term
+        if (term1.isConstant) return compileColumnAgainstConstant(term2, term1, flip(op));
+        if (term2.isConstant) return compileColumnAgainstConstant(term1, term2, op);
+
+        //  normalising column against column comparisons so that a left column always comes first
+        if (term1.fromRight && !term2.fromRight) return compileColumnAgainstColumn(term2, term1, flip(op));
+        return compileColumnAgainstColumn(term1, term2, op);
+    }
+
+    private static RowPredicate compileMixedTypes(ComparisonOperator op) {
+        if (op == ComparisonOperator.EQ) return RowPredicate.ALWAYS_FALSE;
+        if (op == ComparisonOperator.NEQ) return RowPredicate.ALWAYS_TRUE;
+
+        return (leftTuple, rightTuple) -> {
+            throw new IllegalArgumentException("Incompatible constant types passed in!");
+        };
+    }
+
+    private static RowPredicate compileColumnAgainstConstant(BoundTerm column, BoundTerm constant, ComparisonOperator op) {
+        RowPredicate overLeftTuple = column.isString ?
+                stringColumnAgainstConstant(column.offset, constant.value, op)
+                : intColumnAgainstConstant(column.offset, constant.value, op);
+
+        return column.fromRight ? onRightTuple(overLeftTuple) : overLeftTuple;
+    }
+
+    private static RowPredicate compileColumnAgainstColumn(BoundTerm column1, BoundTerm column2, ComparisonOperator op) {
+        //  both columns in the same tuple, which is then always passed in as the left tuple
+        if (column1.fromRight == column2.fromRight) {
+            RowPredicate overLeftTuple = column1.isString ?
+                    stringColumnAgainstColumn(column1.offset, column2.offset, op)
+                    : intColumnAgainstColumn(column1.offset, column2.offset, op);
+
+            return column1.fromRight ? onRightTuple(overLeftTuple) : overLeftTuple;
+        }
+
+        return column1.isString ?
+                stringLeftColumnAgainstRightColumn(column1.offset, column2.offset, op)
+                : intLeftColumnAgainstRightColumn(column1.offset, column2.offset, op);
+    }
+
+    //  evaluates a predicate written over the left tuple against the right tuple instead
+    private static RowPredicate onRightTuple(RowPredicate overLeftTuple) {
+        return (leftTuple, rightTuple) -> overLeftTuple.test(rightTuple, null);
+    }
+
+    private static RowPredicate intColumnAgainstConstant(int offset, int constant, ComparisonOperator op) {
+        switch (op) {
+            case EQ: return (leftTuple, rightTuple) -> leftTuple.getValue(offset) == constant;
+            case NEQ: return (leftTuple, rightTuple) -> leftTuple.getValue(offset) != constant;
+            case GT: return (leftTuple, rightTuple) -> leftTuple.getValue(offset) > constant;
+            case GEQ: return (leftTuple, rightTuple) -> leftTuple.getValue(offset) >= constant;
+            case LT: return (leftTuple, rightTuple) -> leftTuple.getValue(offset) < constant;
+            case LEQ: return (leftTuple, rightTuple) -> leftTuple.getValue(offset) <= constant;
+            default: throw new UnsupportedOperationException("Unsupported comparison operator!");
+        }
+    }
+
+    private static RowPredicate intColumnAgainstColumn(int offset1, int offset2, ComparisonOperator op) {
+        switch (op) {
+            case EQ: return (leftTuple, rightTuple) -> leftTuple.getValue(offset1) == leftTuple.getValue(offset2);
+            case NEQ: return (leftTuple, rightTuple) -> leftTuple.getValue(offset1) != leftTuple.getValue(offset2);
+            case GT: return (leftTuple, rightTuple) -> leftTuple.getValue(offset1) > leftTuple.getValue(offset2);
+            case GEQ: return (leftTuple, rightTuple) -> leftTuple.getValue(offset1) >= leftTuple.getValue(offset2);
+            case LT: return (leftTuple, rightTuple) -> leftTuple.getValue(offset1) < leftTuple.getValue(offset2);
+            case LEQ: return (leftTuple, rightTuple) -> leftTuple.getValue(offset1) <= leftTuple.getValue(offset2);
+            default: throw new UnsupportedOperationException("Unsupported comparison operator!");
+        }
+    }
+
+    private static RowPredicate intLeftColumnAgainstRightColumn(int leftOffset, int rightOffset, ComparisonOperator op) {
+        switch (op) {
+            case EQ: return (leftTuple, rightTuple) -> leftTuple.getValue(leftOffset) == rightTuple.getValue(rightOffset);
+            case NEQ: return (leftTuple, rightTuple) -> leftTuple.getValue(leftOffset) != rightTuple.getValue(rightOffset);
+            case GT: return (leftTuple, rightTuple) -> leftTuple.getValue(leftOffset) > rightTuple.getValue(rightOffset);
+            case GEQ: return (leftTuple, rightTuple) -> leftTuple.getValue(leftOffset) >= rightTuple.getValue(rightOffset);
+            case LT: return (leftTuple, rightTuple) -> leftTuple.getValue(leftOffset) < rightTuple.getValue(rightOffset);
+            case LEQ: return (leftTuple, rightTuple) -> leftTuple.getValue(leftOffset) <= rightTuple.getValue(rightOffset);
+            default: throw new UnsupportedOperationException("Unsupported comparison operator!");
+        }
+    }
+
+    //  string equality is code equality under the global dictionary, so only the ordering operators decode the strings
+    private static RowPredicate stringColumnAgainstConstant(int offset, int constantCode, ComparisonOperator op) {
+        StringDictionary dictionary = StringDictionary.getDictionary();
+        String constant = dictionary.decode(constantCode);
+
+        switch (op) {
+            case EQ: return (leftTuple, rightTuple) -> leftTuple.getValue(offset) == constantCode;
+            case NEQ: return (leftTuple, rightTuple) -> leftTuple.getValue(offset) != constantCode;
+            case GT: return (leftTuple, rightTuple) -> dictionary.decode(leftTuple.getValue(offset)).compareTo(constant) > 0;
+            case GEQ: return (leftTuple, rightTuple) -> dictionary.decode(leftTuple.getValue(offset)).compareTo(constant) >= 0;
+            case LT: return (leftTuple, rightTuple) -> dictionary.decode(leftTuple.getValue(offset)).compareTo(constant) < 0;
+            case LEQ: return (leftTuple, rightTuple) -> dictionary.decode(leftTuple.getValue(offset)).compareTo(constant) <= 0;
+            default: throw new UnsupportedOperationException("Unsupported comparison operator!");
+        }
+    }
+
+    private static RowPredicate stringColumnAgainstColumn(int offset1, int offset2, ComparisonOperator op) {
+        StringDictionary dictionary = StringDictionary.getDictionary();
+
+        switch (op) {
+            case EQ: return (leftTuple, rightTuple) -> leftTuple.getValue(offset1) == leftTuple.getValue(offset2);
+            case NEQ: return (leftTuple, rightTuple) -> leftTuple.getValue(offset1) != leftTuple.getValue(offset2);
+            case GT: return (leftTuple, rightTuple) -> dictionary.decode(leftTuple.getValue(offset1)).compareTo(dictionary.decode(leftTuple.getValue(offset2))) > 0;
+            case GEQ: return (leftTuple, rightTuple) -> dictionary.decode(leftTuple.getValue(offset1)).compareTo(dictionary.decode(leftTuple.getValue(offset2))) >= 0;
+            case LT: return (leftTuple, rightTuple) -> dictionary.decode(leftTuple.getValue(offset1)).compareTo(dictionary.decode(leftTuple.getValue(offset2))) < 0;
+            case LEQ: return (leftTuple, rightTuple) -> dictionary.decode(leftTuple.getValue(offset1)).compareTo(dictionary.decode(leftTuple.getValue(offset2))) <= 0;
+            default: throw new UnsupportedOperationException("Unsupported comparison operator!");
+        }
+    }
+
+    private static RowPredicate stringLeftColumnAgainstRightColumn(int leftOffset, int rightOffset, ComparisonOperator op) {
+        StringDictionary dictionary = StringDictionary.getDictionary();
+
+        switch (op) {
+            case EQ: return (leftTuple, rightTuple) -> leftTuple.getValue(leftOffset) == rightTuple.getValue(rightOffset);
+            case NEQ: return (leftTuple, rightTuple) -> leftTuple.getValue(leftOffset) != rightTuple.getValue(rightOffset);
+            case GT: return (leftTuple, rightTuple) -> dictionary.decode(leftTuple.getValue(leftOffset)).compareTo(dictionary.decode(rightTuple.getValue(rightOffset))) > 0;
+            case GEQ: return (leftTuple, rightTuple) -> dictionary.decode(leftTuple.getValue(leftOffset)).compareTo(dictionary.decode(rightTuple.getValue(rightOffset))) >= 0;
+            case LT: return (leftTuple, rightTuple) -> dictionary.decode(leftTuple.getValue(leftOffset)).compareTo(dictionary.decode(rightTuple.getValue(rightOffset))) < 0;
+            case LEQ: return (leftTuple, rightTuple) -> dictionary.decode(leftTuple.getValue(leftOffset)).compareTo(dictionary.decode(rightTuple.getValue(rightOffset))) <= 0;
+            default: throw new UnsupportedOperationException("Unsupported comparison operator!");
+        }
+    }
+
+    /**
+     * Compiles a selection predicate over whole batches of the tuples of a single operator.
+     * Int comparisons and string (in)equalities become a tight loop per operator over the column arrays, while string orderings decode the strings of each row.
+     *
+     * @param comparisonAtom the comparison atom to compile
+     * @param offsets the offsets of the variables in the batches' rows
+     * @param stringColumns the column types of the batches' rows
+     * @return the compiled batch predicate
+     */
+    public static BatchPredicate compileBatch(ComparisonAtom comparisonAtom, VariableOffsets offsets, boolean[] stringColumns) {
+        if (stringColumns == null) throw new IllegalArgumentException("Batch predicates can only be compiled over known column types!");
+
+        BoundTerm term1 = bindTerm(comparisonAtom.getTerm1(), offsets, stringColumns, null, null);
+        BoundTerm term2 = bindTerm(comparisonAtom.getTerm2(), offsets, stringColumns, null, null);
+        ComparisonOperator op = comparisonAtom.getOp();
+
+        if (term1.isString != term2.isString) {
+            if (op == ComparisonOperator.EQ) return (columns, selection, selectedCount) -> 0;
+            if (op == ComparisonOperator.NEQ) return (columns, selection, selectedCount) -> selectedCount;
+
+            return (columns, selection, selectedCount) -> {
+                if (selectedCount > 0) throw new IllegalArgumentException("Incompatible constant types passed in!");
+                return 0;
+            };
+        }
+
+        if (term1.isConstant && term2.isConstant) {
+            boolean result = ColumnComparison.compareValues(term1.value, term1.isString, term2.value, term2.isString, op);
+            return (columns, selection, selectedCount) -> result ? selectedCount : 0;
+        }
+
+        if (term1.isConstant) {
+            BoundTerm constant = term1;
+            term1 = term2;
+            term2 = constant;
+            op = flip(op);
+        }
+
+        //  string codes are equal exactly when the strings are, so string (in)equalities are run as int comparisons
+        boolean comparesCodes = !term1.isString || op == ComparisonOperator.EQ || op == ComparisonOperator.NEQ;
+
+        if (term2.isConstant) {
+            return comparesCodes ? intColumnAgainstConstantBatch(term1.offset, term2.value, op) : stringColumnAgainstConstantBatch(term1.offset, term2.value, op);
+        }
+        return comparesCodes ? intColumnAgainstColumnBatch(term1.offset, term2.offset, op) : stringColumnAgainstColumnBatch(term1.offset, term2.offset, op);
+    }
+
+    private static BatchPredicate intColumnAgainstConstantBatch(int offset, int constant, ComparisonOperator op) {
+        switch (op) {
+            case EQ: return (columns, selection, selectedCount) -> {
+                int[] column = columns[offset];
+                int kept = 0;
+                for (int i = 0; i < selectedCount; i++) {
+                    int row = selection[i];
+                    if (column[row] == constant) selection[kept++] = row;
+                }
+                return kept;
+            };
+            case NEQ: return (columns, selection, selectedCount) -> {
+                int[] column = columns[offset];
+                int kept = 0;
+                for (int i = 0; i < selectedCount; i++) {
+                    int row = selection[i];
+                    if (column[row] != constant) selection[kept++] = row;
+                }
+                return kept;
+            };
+            case GT: return (columns, selection, selectedCount) -> {
+                int[] column = columns[offset];
+                int kept = 0;
+                for (int i = 0; i < selectedCount; i++) {
+                    int row = selection[i];
+                    if (column[row] > constant) selection[kept++] = row;
+                }
+                return kept;
+            };
+            case GEQ: return (columns, selection, selectedCount) -> {
+                int[] column = columns[offset];
+                int kept = 0;
+                for (int i = 0; i < selectedCount; i++) {
+                    int row = selection[i];
+                    if (column[row] >= constant) selection[kept++] = row;
+                }
+                return kept;
+            };
+            case LT: return (columns, selection, selectedCount) -> {
+                int[] column = columns[offset];
+                int kept = 0;
+                for (int i = 0; i < selectedCount; i++) {
+                    int row = selection[i];
+                    if (column[row] < constant) selection[kept++] = row;
+                }
+                return kept;
+            };
+            case LEQ: return (columns, selection, selectedCount) -> {
+                int[] column = columns[offset];
+                int kept = 0;
+                for (int i = 0; i < selectedCount; i++) {
+                    int row = selection[i];
+                    if (column[row] <= constant) selection[kept++] = row;
+                }
+                return kept;
+            };
+            default: throw new UnsupportedOperationException("Unsupported comparison operator!");
+        }
+    }
+
+    private static BatchPredicate intColumnAgainstColumnBatch(int offset1, int offset2, ComparisonOperator op) {
+        switch (op) {
+            case EQ: return (columns, selection, selectedCount) -> {
+                int[] column1 = columns[offset1];
+                int[] column2 = columns[offset2];
+                int kept = 0;
+                for (int i = 0; i < selectedCount; i++) {
+                    int row = selection[i];
+                    if (column1[row] == column2[row]) selection[kept++] = row;
+                }
+                return kept;
+            };
+            case NEQ: return (columns, selection, selectedCount) -> {
+                int[] column1 = columns[offset1];
+                int[] column2 = columns[offset2];
+                int kept = 0;
+                for (int i = 0; i < selectedCount; i++) {
+                    int row = selection[i];
+                    if (column1[row] != column2[row]) selection[kept++] = row;
+                }
+                return kept;
+            };
+            case GT: return (columns, selection, selectedCount) -> {
+                int[] column1 = columns[offset1];
+                int[] column2 = columns[offset2];
+                int kept = 0;
+                for (int i = 0; i < selectedCount; i++) {
+                    int row = selection[i];
+                    if (column1[row] > column2[row]) selection[kept++] = row;
+                }
+                return kept;
+            };
+            case GEQ: return (columns, selection, selectedCount) -> {
+                int[] column1 = columns[offset1];
+                int[] column2 = columns[offset2];
+                int kept = 0;
+                for (int i = 0; i < selectedCount; i++) {
+                    int row = selection[i];
+                    if (column1[row] >= column2[row]) selection[kept++] = row;
+                }
+                return kept;
+            };
+            case LT: return (columns, selection, selectedCount) -> {
+                int[] column1 = columns[offset1];
+                int[] column2 = columns[offset2];
+                int kept = 0;
+                for (int i = 0; i < selectedCount; i++) {
+                    int row = selection[i];
+                    if (column1[row] < column2[row]) selection[kept++] = row;
+                }
+                return kept;
+            };
+            case LEQ: return (columns, selection, selectedCount) -> {
+                int[] column1 = columns[offset1];
+                int[] column2 = columns[offset2];
+                int kept = 0;
+                for (int i = 0; i < selectedCount; i++) {
+                    int row = selection[i];
+                    if (column1[row] <= column2[row]) selection[kept++] = row;
+                }
+                return kept;
+            };
+            default: throw new UnsupportedOperationException("Unsupported comparison operator!");
+        }
+    }
+
+    private static BatchPredicate stringColumnAgainstConstantBatch(int offset, int constantCode, ComparisonOperator op) {
+        StringDictionary dictionary = StringDictionary.getDictionary();
+        String constant = dictionary.decode(constantCode);
+
+        return (columns, selection, selectedCount) -> {
+            int[] column = columns[offset];
+            int kept = 0;
+            for (int i = 0; i < selectedCount; i++) {
+                int row = selection[i];
+                if (orderingHolds(op, dictionary.decode(column[row]).compareTo(constant))) selection[kept++] = row;
+            }
+            return kept;
+        };
+    }
+
+    private static BatchPredicate stringColumnAgainstColumnBatch(int offset1, int offset2, ComparisonOperator op) {
+        StringDictionary dictionary = StringDictionary.getDictionary();
+
+        return (columns, selection, selectedCount) -> {
+            int[] column1 = columns[offset1];
+            int[] column2 = columns[offset2];
+            int kept = 0;
+            for (int i = 0; i < selectedCount; i++) {
+                int row = selection[i];
+                if (orderingHolds(op, dictionary.decode(column1[row]).compareTo(dictionary.decode(column2[row])))) selection[kept++] = row;
+            }
+            return kept;
+        };
+    }
+
+    //  checks whether an ordering operator holds given the result of comparing its first term to its second
+    private static boolean orderingHolds(ComparisonOperator op, int comparisonResult) {
+        switch (op) {
+            case GT: return comparisonResult > 0;
+            case GEQ: return comparisonResult >= 0;
+            case LT: return comparisonResult < 0;
+            case LEQ: return comparisonResult <= 0;
+            default: throw new UnsupportedOperationException("Unsupported comparison operator!");
+        }
+    }
+
+    //  the operator that keeps the comparison's meaning when its two terms are swapped around
+    static ComparisonOperator flip(ComparisonOperator op) {
+        switch (op) {
+            case GT: return ComparisonOperator.LT;
+            case GEQ: return ComparisonOperator.LEQ;
+            case LT: return ComparisonOperator.GT;
+            case LEQ: return ComparisonOperator.GEQ;
+            default: return op;
+        }
+    }
+
+    private static BoundTerm bindTerm(Term term, VariableOffsets leftOffsets, boolean[] leftStringColumns, VariableOffsets rightOffsets, boolean[] rightStringColumns) {
+        BoundTerm boundTerm = new BoundTerm();
+
+        if (term instanceof Variable) {
+            if (rightOffsets != null && rightOffsets.contains((Variable) term)) {
+                boundTerm.fromRight = true;
+                boundTerm.offset = rightOffsets.getFirstOffset((Variable) term);
+                boundTerm.typeUnknown = rightStringColumns == null;
+                boundTerm.isString = rightStringColumns != null && rightStringColumns[boundTerm.offset];
+
+            } else if (leftOffsets.contains((Variable) term)) {
+                boundTerm.offset = leftOffsets.getFirstOffset((Variable) term);
+                boundTerm.typeUnknown = leftStringColumns == null;
+                boundTerm.isString = leftStringColumns != null && leftStringColumns[boundTerm.offset];
+
+            } else throw new IllegalArgumentException("The variable " + term + " doesn't occur in the tuples the comparison is evaluated over!");
+
+        } else if (term instanceof StringConstant) {
+            boundTerm.isConstant = true;
+            boundTerm.isString = true;
+            boundTerm.value = StringDictionary.getDictionary().encode(((StringConstant) term).getValue());
+
+        } else if (term instanceof IntegerConstant) {
+            boundTerm.isConstant = true;
+            boundTerm.value = ((IntegerConstant) term).getValue();
+
+        } else throw new UnsupportedOperationException("Unsupported term type!");
+
+        return boundTerm;
+    }
+
+    //  a term of the comparison resolved to either a column of one of the tuples or an encoded constant
+    private static class BoundTerm {
+        boolean isConstant;
+        boolean fromRight;
+        boolean typeUnknown;
+        boolean isString;
+        int offset;
+        int value;
+    }
+}
@@ -1,18 +1,20 @@
 package ed.inf.adbs.minibase.evaluator;
 
-import ed.inf.adbs.minibase.base.Constant;
 import ed.inf.adbs.minibase.base.RelationalAtom;
 import ed.inf.adbs.minibase.base.Variable;
 import ed.inf.adbs.minibase.dbstructures.Tuple;
+import ed.inf.adbs.minibase.dbstructures.TupleBatch;
 
 import java.io.IOException;
-import java.util.HashSet;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 
-//   project operator implementation
+//   project operator implementation.
+//   Duplicates are eliminated by a HashDistinct over the output rows, which spills to disk beyond the memory budget, or by a SortedDistinct when the child is known to emit its rows sorted on output columns.
+//   Projections that share their dedup sink with others, as the workers of a parallel plan do, check their rows against a shared set of tuples instead.
+//   When the query planner can tell that the input can't project to the same row twice, the projection is told so and lets every row straight through
 public class ProjectOperator extends Operator {
 
     private Operator child;
@@ -21,110 +23,294 @@ public class ProjectOperator extends Operator {
     private RelationalAtom baseRelationalAtom;
 
     private List<RelationalAtom> relationalAtomList;
+
+    //  the tuples emitted so far by this and the other projections sharing it, null when this projection eliminates duplicates on its own
     private Set<Tuple> tuplesOutputSoFar;
 
+    //  this projection's own duplicate elimination, made once the first row comes through, and the memory it may hold rows in before spilling
+    private RowDeduplicator deduplicator;
+    private long memoryBudgetBytes;
+
+    //  whether no two input rows project to the same output row, in which case nothing is deduplicated at all
+    private boolean distinctInput;
+
+    //  the columns of the input the child emits its rows sorted on, in order, null if it isn't known to be sorted
+    private int[] sortedInputColumns;
+
+    //  whether the child has run out of rows, after which only the rows the deduplicator held back remain
+    private boolean childExhausted;
+
+    //  the offset in the input tuples that each output variable is read from, resolved on construction
+    private int[] outputOffsets;
+    private int inputWidth;
+
+    //  the type flags of the output tuples, worked out from the first input tuple and shared by every output tuple
+    private boolean[] outputStringColumns;
+
+    private TupleBatch outputBatch;
+
     //  checking that all of the requested output variables are actually inside the base relational atom before initialising the members
     //  this constructor creates a projection operator projecting over tuples emitted from a single source table (and thus relational atom)
     public ProjectOperator(Operator child, List<Variable> outputVariables, RelationalAtom baseRelationalAtom) {
+        this(child, outputVariables, baseRelationalAtom, Long.MAX_VALUE);
+    }
+
+    //  the same as above, with the memory the duplicate elimination may take up before spilling rows to disk
+    public ProjectOperator(Operator child, List<Variable> outputVariables, RelationalAtom baseRelationalAtom, long memoryBudgetBytes) {
+        this(child, outputVariables, baseRelationalAtom, null, memoryBudgetBytes);
+    }
+
+    //  the same as above, but with the set of tuples already emitted given, which lets several projections share one dedup sink.
+    //  The set has to be thread-safe if the projections run on different threads
+    public ProjectOperator(Operator child, List<Variable> outputVariables, RelationalAtom baseRelationalAtom, Set<Tuple> tuplesOutputSoFar) {
+        this(child, outputVariables, baseRelationalAtom, tuplesOutputSoFar, Long.MAX_VALUE);
+    }
+
+    private ProjectOperator(Operator child, List<Variable> outputVariables, RelationalAtom baseRelationalAtom, Set<Tuple> tuplesOutputSoFar, long memoryBudgetBytes) {
         if (!baseRelationalAtom.getTerms().containsAll(outputVariables)) throw new IllegalArgumentException("Attempting to project out to a variable that doesnt exit in the input!!");
+        if (memoryBudgetBytes <= 0) throw new IllegalArgumentException("A projection needs a positive memory budget!");
 
         this.child = child;
         this.outputVariables = outputVariables;
         this.baseRelationalAtom = baseRelationalAtom;
 
-        this.tuplesOutputSoFar = new HashSet<>();
+        this.tuplesOutputSoFar = tuplesOutputSoFar;
+        this.memoryBudgetBytes = memoryBudgetBytes;
+        bindOutputOffsets(new VariableOffsets(baseRelationalAtom));
     }
 
     //  this constructor creates a projection operator perojecting over tuples resulting from a varying number of joins
     public ProjectOperator(Operator child, List<Variable> outputVariables, List<RelationalAtom> childRelationalAtoms) {
+        this(child, outputVariables, childRelationalAtoms, Long.MAX_VALUE);
+    }
+
+    public ProjectOperator(Operator child, List<Variable> outputVariables, List<RelationalAtom> childRelationalAtoms, long memoryBudgetBytes) {
+        this(child, outputVariables, childRelationalAtoms, null, memoryBudgetBytes);
+    }
+
+    public ProjectOperator(Operator child, List<Variable> outputVariables, List<RelationalAtom> childRelationalAtoms, Set<Tuple> tuplesOutputSoFar) {
+        this(child, outputVariables, childRelationalAtoms, tuplesOutputSoFar, Long.MAX_VALUE);
+    }
+
+    private ProjectOperator(Operator child, List<Variable> outputVariables, List<RelationalAtom> childRelationalAtoms, Set<Tuple> tuplesOutputSoFar, long memoryBudgetBytes) {
         if (!childRelationalAtoms.stream().flatMap(relationalAtom -> relationalAtom.getTerms().stream()).collect(Collectors.toList()).containsAll(outputVariables))
             throw new IllegalArgumentException("Attempting to project out to a variable that doesnt exit in the input!!");
+        if (memoryBudgetBytes <= 0) throw new IllegalArgumentException("A projection needs a positive memory budget!");
 
         this.child = child;
         this.outputVariables = outputVariables;
         this.relationalAtomList = childRelationalAtoms;
 
-        this.tuplesOutputSoFar = new HashSet<>();
+        this.tuplesOutputSoFar = tuplesOutputSoFar;
+        this.memoryBudgetBytes = memoryBudgetBytes;
+        bindOutputOffsets(new VariableOffsets(childRelationalAtoms));
+    }
+
+    //  any occurrence of a variable holds the same value once the joins below have been applied, so the first occurrence is the one that gets read
+    private void bindOutputOffsets(VariableOffsets inputOffsets) {
+        this.inputWidth = inputOffsets.getWidth();
+        this.outputOffsets = new int[outputVariables.size()];
+
+        for (int i = 0; i < outputOffsets.length; i++) {
+            outputOffsets[i] = inputOffsets.getFirstOffset(outputVariables.get(i));
+        }
+
+        boolean[] inputStringColumns = child.getStringColumns();
+        if (inputStringColumns != null) {
+            this.outputStringColumns = new boolean[outputOffsets.length];
+            for (int i = 0; i < outputOffsets.length; i++) {
+                outputStringColumns[i] = inputStringColumns[outputOffsets[i]];
+            }
+        }
     }
 
     /**
      * Gets the next tuple from the child operator and returns the relevant columns as specified in the operator
-     * Incorporates set semantics by adding to an accumulator set of tuples emitted, updating the set using the tuples resultant from only keeping the required columns.
-     * If the projected version of the current child tuple has already been emitted, repeat until encountering a new one. Then emit it and add it to the set of emitted tuples.
+     * Incorporates set semantics by checking the tuples resultant from only keeping the required columns against the ones emitted before.
+     * If the projected version of the current child tuple has already been emitted, repeat until encountering a new one. Then emit it.
+     * Once the child runs out, the rows the deduplicator held back after spilling are emitted.
      * @return the next valid tuple. if none found, return null.
-     * @throws IOException throws IOException if any exceptions bubble up from child operators
+     * @throws IOException throws IOException if any exceptions bubble up from child operators, or if spilled rows can't be written or read
      */
     @Override
     public Tuple getNextTuple() throws IOException {
+        Tuple nextChildTuple;
+
+        while (!childExhausted && (nextChildTuple = child.getNextTuple()) != null) {
+            Tuple possibleOutputTuple = this.getOutputTupleFromProjection(nextChildTuple);
+            if (isNewRow(possibleOutputTuple.getValues())) return possibleOutputTuple;
+        }
+        childExhausted = true;
 
-        Tuple nextChildTuple = child.getNextTuple();
+        int[] deferredRow = nextDeferredRow();
+        return (deferredRow == null) ? null : new Tuple(deferredRow, outputStringColumns);
+    }
 
-        if (nextChildTuple == null) return null;
+    //  checks whether the row hasn't been emitted before, recording it as emitted if so.
+    //  Checking and adding happen in a single call, so two projections sharing the set can't both emit the same tuple
+    private boolean isNewRow(int[] values) throws IOException {
+        if (distinctInput) return true;
+        if (tuplesOutputSoFar != null) return tuplesOutputSoFar.add(new Tuple(values, outputStringColumns));
 
-        Tuple possibleOutputTuple = this.getOutputTupleFromProjection(nextChildTuple);
+        if (deduplicator == null) deduplicator = newDeduplicator();
+        return deduplicator.add(values);
+    }
 
-        while (this.tuplesOutputSoFar.contains(possibleOutputTuple)) {
-            if ((nextChildTuple = child.getNextTuple()) == null) return null;
-            possibleOutputTuple = this.getOutputTupleFromProjection(nextChildTuple);
-        }
+    //  a sorted distinct when the child emits its rows sorted on some of the output columns, otherwise a hash distinct within the memory budget
+    private RowDeduplicator newDeduplicator() {
+        int[] sortedOutputColumns = getSortedOutputColumns();
+        if (sortedOutputColumns.length > 0) return new SortedDistinct(outputOffsets.length, sortedOutputColumns);
 
-        this.tuplesOutputSoFar.add(possibleOutputTuple);
-        return possibleOutputTuple;
+        return new HashDistinct(outputStringColumns, memoryBudgetBytes);
     }
 
-    @Override
-    public void reset() {
-        child.reset();
+    //  the output positions of the columns the child is sorted on, as far as the output keeps them from the first one on
+    int[] getSortedOutputColumns() {
+        List<Integer> positions = new ArrayList<>();
+        if (sortedInputColumns != null) {
+            for (int inputColumn : sortedInputColumns) {
+                int position = -1;
+                for (int i = 0; i < outputOffsets.length && position < 0; i++) {
+                    if (outputOffsets[i] == inputColumn) position = i;
+                }
+                if (position < 0) break;
+                positions.add(position);
+            }
+        }
+        return positions.stream().mapToInt(Integer::intValue).toArray();
     }
 
-    //  gets a tuple with the projection result by substituting variables from the output variables
-    private Tuple getOutputTupleFromProjection(Tuple inputTuple) {
-        if (inputTuple.getFields().size() != getTotalNumTerms()) throw new IllegalArgumentException("Mismatched input tuple and relationalAtom sizes!!");
+    //  the next row held back by the deduplicator, closing it once there are none left
+    private int[] nextDeferredRow() throws IOException {
+        if (deduplicator == null) return null;
 
-        return new Tuple(
-                outputVariables.stream()
-                        .map(variable -> getVariableSubstitutionBasedOnState(variable, inputTuple))
-                        .collect(Collectors.toList())
-        );
+        int[] row = deduplicator.nextDeferred();
+        if (row == null) closeDeduplicator();
+        return row;
+    }
+
+    private void closeDeduplicator() {
+        if (deduplicator == null) return;
+
+        try {
+            deduplicator.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        deduplicator = null;
     }
 
     /**
-     * Extracts relevant constant from substituting the variable over the input tuple.
-     * Based on whether the operator operates over a single relational atom or a list of them, the relevant substitution function call is made.
+     * Projects the selected rows of each child batch into the output batch, keeping only the rows that haven't been emitted before.
+     * Each child batch is projected whole, and the output batch has the same capacity as the child's, so it can never overflow.
+     * Once the child is exhausted, the rows the deduplicator held back are emitted a batch at a time.
      *
-     * @param variable the variable to sub out
-     * @param inputTuple the input tuple
-     * @return
+     * @return the next batch with at least one new row, null once the child and the held back rows are exhausted
+     * @throws IOException throws IOException if any exceptions bubble up from child operators, or if spilled rows can't be written or read
      */
-    private Constant getVariableSubstitutionBasedOnState(Variable variable, Tuple inputTuple) {
-        assertEitherBaseRelationalAtomOrRelationalAtomListInitialized();
+    @Override
+    public TupleBatch getNextBatch() throws IOException {
+        TupleBatch childBatch;
+
+        while (!childExhausted && (childBatch = child.getNextBatch()) != null) {
+            if (childBatch.getNumColumns() != inputWidth) throw new IllegalArgumentException("Mismatched input tuple and relationalAtom sizes!!");
+
+            if (outputBatch == null || outputBatch.getCapacity() < childBatch.getCapacity()) {
+                if (outputStringColumns == null) {
+                    outputStringColumns = new boolean[outputOffsets.length];
+                    for (int i = 0; i < outputOffsets.length; i++) {
+                        outputStringColumns[i] = childBatch.getStringColumns()[outputOffsets[i]];
+                    }
+                }
+                outputBatch = new TupleBatch(outputStringColumns, childBatch.getCapacity());
+            }
+            outputBatch.clear();
+
+            int[][] inputColumns = childBatch.getColumns();
+            int[][] outputColumns = outputBatch.getColumns();
+            int[] selection = childBatch.getSelection();
+
+            for (int i = 0; i < childBatch.getSelectedCount(); i++) {
+                int inputRow = selection[i];
+
+                if (distinctInput) {
+                    int outputRow = outputBatch.addRow();
+                    for (int j = 0; j < outputOffsets.length; j++) {
+                        outputColumns[j][outputRow] = inputColumns[outputOffsets[j]][inputRow];
+                    }
+                    continue;
+                }
+
+                int[] values = new int[outputOffsets.length];
+                for (int j = 0; j < outputOffsets.length; j++) {
+                    values[j] = inputColumns[outputOffsets[j]][inputRow];
+                }
+
+                if (isNewRow(values)) {
+                    int outputRow = outputBatch.addRow();
+                    for (int j = 0; j < values.length; j++) {
+                        outputColumns[j][outputRow] = values[j];
+                    }
+                }
+            }
+
+            if (outputBatch.getSelectedCount() > 0) return outputBatch;
+        }
+        childExhausted = true;
+
+        if (deduplicator == null) return null;
+
+        outputBatch.clear();
+        int[][] outputColumns = outputBatch.getColumns();
+        int[] row;
+        while (!outputBatch.isFull() && (row = nextDeferredRow()) != null) {
+            int outputRow = outputBatch.addRow();
+            for (int j = 0; j < row.length; j++) {
+                outputColumns[j][outputRow] = row[j];
+            }
+        }
+        return (outputBatch.getSelectedCount() > 0) ? outputBatch : null;
+    }
 
-        if (this.baseRelationalAtom == null) {
-            List<Constant> variableSubs = EvaluationUtils.getSubsForAllInstancesOfVariableInCombinedTuple(this.relationalAtomList, inputTuple, variable);
-            if (variableSubs.stream().distinct().count() > 1) throw new IllegalArgumentException("There shouldn't be different values assigned to the same variable at this point!");
+    //  a projection with its own duplicate elimination starts it over, emitting every distinct row again, while a shared set is left to whoever shares it
+    @Override
+    public void reset() {
+        child.reset();
+        childExhausted = false;
+        closeDeduplicator();
+    }
 
-            return variableSubs.get(0);
-        } else {
-            return EvaluationUtils.getVariableSubstitutionInTuple(this.getBaseRelationalAtom(), inputTuple, variable);
-        }
+    @Override
+    public boolean[] getStringColumns() {
+        return outputStringColumns;
     }
 
-    //  gets the total number of terms in the relational atom(s) over which this operator operates
-    private int getTotalNumTerms() {
-        assertEitherBaseRelationalAtomOrRelationalAtomListInitialized();
-        if (this.baseRelationalAtom == null) {
-            Optional<Integer> optionalCount = this.relationalAtomList.stream().map(relationalAtom -> relationalAtom.getTerms().size()).reduce(Integer::sum);
-            if (!optionalCount.isPresent()) throw new IllegalArgumentException("Somehow no count retreived??");
-            return optionalCount.get();
-        } else {
-            return this.baseRelationalAtom.getTerms().size();
+    //  gets a tuple with the projection result by copying the values at the output offsets
+    private Tuple getOutputTupleFromProjection(Tuple inputTuple) {
+        if (inputTuple.size() != inputWidth) throw new IllegalArgumentException("Mismatched input tuple and relationalAtom sizes!!");
+
+        if (outputStringColumns == null) {
+            outputStringColumns = new boolean[outputOffsets.length];
+            for (int i = 0; i < outputOffsets.length; i++) {
+                outputStringColumns[i] = inputTuple.isString(outputOffsets[i]);
+            }
         }
+
+        int[] values = new int[outputOffsets.length];
+        for (int i = 0; i < outputOffsets.length; i++) {
+            values[i] = inputTuple.getValue(outputOffsets[i]);
+        }
+        return new Tuple(values, outputStringColumns);
     }
 
-    //  checks that either the base relational atom or relational atom list have been initialised
-    private void assertEitherBaseRelationalAtomOrRelationalAtomListInitialized() {
+    //  re-resolves the output offsets after the output variables or input atoms have been changed
+    private void rebindOutputOffsets() {
         if (this.baseRelationalAtom == null && this.relationalAtomList == null)
             throw new UnsupportedOperationException("Either the base relational atom or the relational atom list has to be non-null for this to be callable!");
+
+        this.outputStringColumns = null;
+        this.outputBatch = null;
+        bindOutputOffsets((baseRelationalAtom != null) ? new VariableOffsets(baseRelationalAtom) : new VariableOffsets(relationalAtomList));
     }
 
     public Operator getChild() {
@@ -135,19 +321,39 @@ public class ProjectOperator extends Operator {
         this.child = child;
     }
 
+    //  tells the projection that its child emits its rows sorted on the given input columns, in order, so that it can eliminate duplicates one run at a time
+    public void setSortedInputColumns(int[] sortedInputColumns) {
+        this.sortedInputColumns = sortedInputColumns;
+    }
+
+    //  tells the projection that no two rows of its input project to the same output row, so that it emits them without eliminating duplicates
+    public void setDistinctInput(boolean distinctInput) {
+        this.distinctInput = distinctInput;
+    }
+
+    public boolean hasDistinctInput() {
+        return distinctInput;
+    }
+
     public List<Variable> getOutputVariables() {
         return outputVariables;
     }
 
     public void setOutputVariables(List<Variable> outputVariables) {
         this.outputVariables = outputVariables;
+        rebindOutputOffsets();
     }
 
     public RelationalAtom getBaseRelationalAtom() {
         return baseRelationalAtom;
     }
 
+    public List<RelationalAtom> getRelationalAtomList() {
+        return relationalAtomList;
+    }
+
     public void setBaseRelationalAtom(RelationalAtom baseRelationalAtom) {
         this.baseRelationalAtom = baseRelationalAtom;
+        rebindOutputOffsets();
     }
 }
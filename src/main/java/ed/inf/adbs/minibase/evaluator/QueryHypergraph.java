@@ -0,0 +1,136 @@
+package ed.inf.adbs.minibase.evaluator;
+
+import ed.inf.adbs.minibase.base.RelationalAtom;
+import ed.inf.adbs.minibase.base.Term;
+import ed.inf.adbs.minibase.base.Variable;
+
+import java.util.*;
+
+/**
+ * The hypergraph of a query body, with the variables as its vertices and the variables of each relational atom as one hyperedge.
+ * Used by the QueryPlanner to tell acyclic queries, which pairwise joins handle well, from cyclic ones such as triangles, whose pairwise joins can blow up
+ * intermediate results far past the size of the final output. The join trees of acyclic queries drive their semi-join reduction.
+ */
+public class QueryHypergraph {
+
+    private QueryHypergraph() {
+    }
+
+    //  whether the atoms form an alpha-acyclic hypergraph, which is exactly when they have a join tree
+    public static boolean isAcyclic(List<RelationalAtom> relationalAtoms) {
+        return buildJoinTree(relationalAtoms) != null;
+    }
+
+    /**
+     * Builds a join tree over the atoms through GYO reduction, repeatedly removing an ear: an atom whose variables shared with the remaining atoms
+     * all occur in one other remaining atom, which becomes its parent. The atoms form an acyclic hypergraph exactly when this goes on until a single atom,
+     * the root, is left. Only the variables shared through the atoms count; equalities between variables in comparison atoms aren't taken into account.
+     *
+     * @param relationalAtoms the relational atoms of the query body
+     * @return the join tree over the atoms, null if they are cyclic
+     */
+    public static JoinTree buildJoinTree(List<RelationalAtom> relationalAtoms) {
+        if (relationalAtoms.isEmpty()) throw new IllegalArgumentException("A join tree needs at least one atom!");
+
+        List<Set<Variable>> hyperedges = new ArrayList<>();
+        for (RelationalAtom relationalAtom : relationalAtoms) hyperedges.add(getVariables(relationalAtom));
+
+        int[] parents = new int[relationalAtoms.size()];
+        int[] eliminationOrder = new int[relationalAtoms.size()];
+        List<Integer> remaining = new ArrayList<>();
+        for (int i = 0; i < relationalAtoms.size(); i++) remaining.add(i);
+
+        int eliminated = 0;
+        while (remaining.size() > 1) {
+            int ear = -1;
+            int parent = -1;
+
+            for (int candidate : remaining) {
+                Set<Variable> shared = new HashSet<>();
+                for (int other : remaining) {
+                    if (other == candidate) continue;
+                    for (Variable variable : hyperedges.get(candidate)) {
+                        if (hyperedges.get(other).contains(variable)) shared.add(variable);
+                    }
+                }
+
+                for (int other : remaining) {
+                    if (other != candidate && hyperedges.get(other).containsAll(shared)) {
+                        parent = other;
+                        break;
+                    }
+                }
+                if (parent != -1) {
+                    ear = candidate;
+                    break;
+                }
+            }
+
+            if (ear == -1) return null;
+
+            parents[ear] = parent;
+            eliminationOrder[eliminated++] = ear;
+            remaining.remove(Integer.valueOf(ear));
+        }
+
+        int root = remaining.get(0);
+        parents[root] = -1;
+        eliminationOrder[eliminated] = root;
+        return new JoinTree(relationalAtoms, parents, eliminationOrder);
+    }
+
+    //  the distinct variables of an atom, in the order they first occur in it
+    static Set<Variable> getVariables(RelationalAtom relationalAtom) {
+        Set<Variable> variables = new LinkedHashSet<>();
+        for (Term term : relationalAtom.getTerms()) {
+            if (term instanceof Variable) variables.add((Variable) term);
+        }
+        return variables;
+    }
+
+    /**
+     * A join tree over the atoms of an acyclic query, where the atoms sharing any variable are connected through atoms that all contain it too.
+     * Atoms are referred to by their positions in the list the tree was built from.
+     */
+    public static class JoinTree {
+
+        private final List<RelationalAtom> relationalAtoms;
+        private final int[] parents;
+        private final int[] eliminationOrder;
+
+        JoinTree(List<RelationalAtom> relationalAtoms, int[] parents, int[] eliminationOrder) {
+            this.relationalAtoms = relationalAtoms;
+            this.parents = parents;
+            this.eliminationOrder = eliminationOrder;
+        }
+
+        //  the parent of the atom at the given position, -1 for the root
+        public int getParent(int atom) {
+            return parents[atom];
+        }
+
+        public int getRoot() {
+            return eliminationOrder[eliminationOrder.length - 1];
+        }
+
+        //  the positions of the atoms in the order they were removed as ears, which puts every atom before its parent and ends with the root
+        public int[] getEliminationOrder() {
+            return eliminationOrder;
+        }
+
+        public List<RelationalAtom> getRelationalAtoms() {
+            return relationalAtoms;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder();
+            for (int atom : eliminationOrder) {
+                if (builder.length() > 0) builder.append(", ");
+                builder.append(relationalAtoms.get(atom));
+                if (parents[atom] != -1) builder.append(" under ").append(relationalAtoms.get(parents[atom]));
+            }
+            return builder.toString();
+        }
+    }
+}
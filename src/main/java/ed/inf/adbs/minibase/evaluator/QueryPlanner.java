@@ -1,9 +1,13 @@
 package ed.inf.adbs.minibase.evaluator;
 
 import ed.inf.adbs.minibase.base.*;
+import ed.inf.adbs.minibase.dbstructures.ColumnIndex;
 import ed.inf.adbs.minibase.dbstructures.DatabaseCatalog;
+import ed.inf.adbs.minibase.dbstructures.InMemoryTable;
+import ed.inf.adbs.minibase.dbstructures.Relation;
+import ed.inf.adbs.minibase.dbstructures.Schema;
 
-import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -11,6 +15,29 @@ public class QueryPlanner {
     Operator root;
     Query inputQuery;
 
+    //  the order the relational atoms are joined in, null for single atom queries
+    JoinOrderOptimizer.JoinOrder joinOrder;
+
+    //  the leaves of the plan that read their relation through an index, and the joins that read their right relation through one
+    List<IndexScanOperator> indexScans;
+    List<IndexNestedLoopJoinOperator> indexJoins = new ArrayList<>();
+
+    //  the joins made by sorting and merging their two sides
+    List<SortMergeJoinOperator> sortMergeJoins = new ArrayList<>();
+    List<GraceHashJoinOperator> graceHashJoins = new ArrayList<>();
+
+    //  the join over every atom at once that cyclic queries are planned with instead of a join tree, null for acyclic queries
+    LeapfrogTriejoinOperator leapfrogJoin;
+
+    //  the semi-join reduction run over the leaves of acyclic queries ahead of their joins, null when there is none
+    SemiJoinReducer semiJoinReducer;
+
+    //  the aggregation of the leaves of a query with aggregates in its head ahead of its joins, null when no leaf is aggregated
+    EagerAggregation eagerAggregation;
+
+    //  whether the head determines a declared key of every atom, so that the projection at the root has no duplicates to eliminate
+    boolean duplicateFree;
+
     public QueryPlanner(Query inputQuery) {
         this.inputQuery = inputQuery;
         constructQueryTree();
@@ -18,8 +45,12 @@ public class QueryPlanner {
 
     /**
      *  given an inputQuery (inputQuery), construct a query plan tree which utilises scan operators at the leaves,
-     *  Uses a left-deep join tree structure and pushes selections down as far as possible.
-     *  Uses projection as the root of the tree.
+     *  Uses a left-deep join tree structure (hash joins wherever an equi-join key exists) and pushes selections down as far as possible.
+     *  The atoms are joined in the order chosen by the JoinOrderOptimizer rather than the order they're written in, with the hash joins building over whichever side it estimates to be smaller.
+     *  Cyclic queries, as told by the QueryHypergraph, are instead joined over all their atoms at once by a LeapfrogTriejoinOperator,
+     *  while the leaves of acyclic ones are first semi-join reduced by a SemiJoinReducer along their join tree.
+     *  Uses projection as the root of the tree, or aggregation for heads with aggregate terms. The leaves of acyclic queries with aggregates are grouped ahead of the joins
+     *  by an EagerAggregation wherever the cost model expects that to shrink them. A projection whose input provably can't repeat a row, as told by isDuplicateFree, skips duplicate elimination.
      *
      *  Sets the QueryPlanner's root to be the relevant operator in the end.
      */
@@ -32,14 +63,31 @@ public class QueryPlanner {
                 .filter(RelationalAtom.class::isInstance)
                 .map(RelationalAtom.class::cast).collect(Collectors.toList());
 
-        //  have now formed the leaves of the query tree
-        List<ScanOperator> scanOperators = constructScans(relationalAtoms);
-
         //  collecting the list of comparison atoms in a similar vein
         List<ComparisonAtom> comparisonAtoms = query.getBody().stream()
                 .filter(ComparisonAtom.class::isInstance)
                 .map(ComparisonAtom.class::cast).collect(Collectors.toList());
 
+        CostModel costModel = CostModel.fromCatalog(DatabaseCatalog.getCatalog());
+
+        this.duplicateFree = !hasAggregates(query.getHead()) && isDuplicateFree(query.getHead().getTerms().stream().map(Variable.class::cast).collect(Collectors.toList()),
+                relationalAtoms, comparisonAtoms, DatabaseCatalog.getCatalog().getSchemaMap());
+
+        //  cyclic queries are joined over all of their atoms at once by a leapfrog triejoin, so their atoms aren't put in a join order
+        boolean cyclic = relationalAtoms.size() > 2 && !QueryHypergraph.isAcyclic(relationalAtoms);
+
+        //  reordering the relational atoms into the cheapest join order, everything below then follows that order
+        if (relationalAtoms.size() > 1 && !cyclic) {
+            this.joinOrder = new JoinOrderOptimizer(relationalAtoms, comparisonAtoms, costModel).optimise();
+            relationalAtoms = joinOrder.getRelationalAtoms();
+        }
+
+        //  have now formed the leaves of the query tree
+        List<ScanOperator> scanOperators = constructScans(relationalAtoms, comparisonAtoms, costModel);
+        this.indexScans = scanOperators.stream()
+                .filter(IndexScanOperator.class::isInstance)
+                .map(IndexScanOperator.class::cast).collect(Collectors.toList());
+
         //  filtering out the comparison atoms that could be applied right above the scan operators in the leaf of the tree by checking whether they can be applied at a leaf
         List<ComparisonAtom> nonJoinComparisonAtoms = comparisonAtoms.stream().filter(comparisonAtom -> isSingleAtomSelection(comparisonAtom, scanOperators) || canBeAppliedAtLeaf(comparisonAtom, scanOperators)).collect(Collectors.toList());
 
@@ -72,20 +120,66 @@ public class QueryPlanner {
 
             RelationalAtom relationalAtom = getRelationalAtomFromSelectOrScanOperator(childOperator);
 
-            this.root =  new ProjectOperator(childOperator, query
+            if (hasAggregates(query.getHead())) {
+                this.root = constructRoot(childOperator, query.getHead(), Collections.singletonList(relationalAtom), costModel);
+                return;
+            }
+
+            ProjectOperator project = new ProjectOperator(childOperator, query
                     .getHead()
                     .getTerms()
                     .stream()
                     .map(Variable.class::cast)
                     .collect(Collectors.toList())
-                    , relationalAtom);
+                    , relationalAtom, costModel.getWorkMemoryBytes());
+            project.setDistinctInput(duplicateFree);
 
+            this.root = project;
             return;
         }
 
         //  getting the list of comparison atoms that contain conditions applying over multiple relational atoms
         List<ComparisonAtom> joinConditions = comparisonAtoms.stream().filter(comparisonAtom -> !isSingleAtomSelection(comparisonAtom, scanOperators)).collect(Collectors.toList());
 
+        if (cyclic) {
+            List<RelationalAtom> childAtoms = childrenOfJoins.stream().map(QueryPlanner::getRelationalAtomFromSelectOrScanOperator).collect(Collectors.toList());
+            this.leapfrogJoin = new LeapfrogTriejoinOperator(childrenOfJoins, childAtoms, joinConditions);
+
+            this.root = constructRoot(leapfrogJoin, query.getHead(), childAtoms, costModel);
+
+            return;
+        }
+
+        //  the leaves of acyclic queries over three or more atoms are semi-join reduced along their join tree before being joined,
+        //  unless some join is expected to look its right side up through an index, which reading every leaf in full would defeat
+        if (relationalAtoms.size() > 2 && !prefersIndexJoins(relationalAtoms, costModel)) {
+            List<RelationalAtom> childAtoms = childrenOfJoins.stream().map(QueryPlanner::getRelationalAtomFromSelectOrScanOperator).collect(Collectors.toList());
+            this.semiJoinReducer = new SemiJoinReducer(childrenOfJoins, QueryHypergraph.buildJoinTree(childAtoms));
+
+            List<Operator> reducedChildren = new ArrayList<>();
+            for (int i = 0; i < childrenOfJoins.size(); i++) reducedChildren.add(new ReducedRelationOperator(semiJoinReducer, i, childrenOfJoins.get(i), childAtoms.get(i)));
+            childrenOfJoins = reducedChildren;
+        }
+
+        //  aggregating the leaves expected to shrink enough when grouped on the variables needed above them, apart from those a join would rather look up through an index
+        if (hasAggregates(query.getHead())) {
+            List<RelationalAtom> childAtoms = childrenOfJoins.stream().map(QueryPlanner::getRelationalAtomFromSelectOrScanOperator).collect(Collectors.toList());
+            EagerAggregation eager = new EagerAggregation(query.getHead(), childAtoms, joinConditions);
+
+            for (int leaf = 0; leaf < childAtoms.size(); leaf++) {
+                if (eager.canAggregate(leaf) && !mayJoinThroughIndex(leaf, childAtoms.get(leaf), costModel)
+                        && costModel.prefersEagerAggregation(childAtoms.get(leaf), eager.getGroupVariables(leaf), joinOrder.getAtomCardinality(leaf))) eager.aggregate(leaf);
+            }
+
+            if (eager.aggregatesAnyLeaf()) {
+                this.eagerAggregation = eager;
+
+                List<Operator> aggregatedChildren = new ArrayList<>();
+                for (int leaf = 0; leaf < childrenOfJoins.size(); leaf++) aggregatedChildren.add(eager.constructLeaf(leaf, childrenOfJoins.get(leaf)));
+                childrenOfJoins = aggregatedChildren;
+            }
+        }
+
         //  next step is to construct a join tree using childrenOfJoins
         //  we know here that there are at least 2 children in the list.
         //  here we remove the operators from the list of children of joins since we use that list to track "remaining" operators to contsruct joins over
@@ -94,7 +188,8 @@ public class QueryPlanner {
 
         //  generating a map of relationalAtom -> list of comparison atoms that use this relational atom as the "last" relevant atom from the list of relational atoms.
         //  This is necessary in order to figure out which join each comparison atom belongs to.
-        Map<RelationalAtom, List<ComparisonAtom>> joinConditionMap = joinConditions.stream().collect(Collectors.groupingBy(comparisonAtom -> getLastRelationalAtomUtilisingComparison(comparisonAtom, scanOperators)));
+        //  The conditions of an aggregated leaf are filed under the atom standing in for it.
+        Map<RelationalAtom, List<ComparisonAtom>> joinConditionMap = joinConditions.stream().collect(Collectors.groupingBy(comparisonAtom -> getLeafAtom(getLastRelationalAtomUtilisingComparison(comparisonAtom, scanOperators))));
 
         //  initialises the list tracking the "current" left child relational atoms with the relational atom from the first operator.
         List<RelationalAtom> leftRelationalAtoms = new ArrayList<RelationalAtom>() {{
@@ -105,7 +200,8 @@ public class QueryPlanner {
         RelationalAtom rightRelationalAtom =  getRelationalAtomFromSelectOrScanOperator(secondOperator);
 
         //  initialising the bottom left-most join in the tree with the current leftrelational atoms, right relational atom, leftChild and rightChild operators
-        JoinOperator currentLeftChild = new JoinOperator(firstOperator, secondOperator, new ArrayList<>(leftRelationalAtoms), rightRelationalAtom, joinConditionMap.getOrDefault(rightRelationalAtom, new ArrayList<>()));
+        Operator currentLeftChild = constructJoinAt(1, firstOperator, secondOperator, new ArrayList<>(leftRelationalAtoms), rightRelationalAtom, joinConditionMap.getOrDefault(rightRelationalAtom, new ArrayList<>()),
+                isOrderReusedByNextJoin(leftRelationalAtoms, rightRelationalAtom, childrenOfJoins, joinConditionMap), costModel);
 
         //  adding the relational atom from the second operator to the current left relationalatoms for use in the next join.
         leftRelationalAtoms.add(rightRelationalAtom);
@@ -117,25 +213,216 @@ public class QueryPlanner {
 
             rightRelationalAtom = getRelationalAtomFromSelectOrScanOperator(rightChild);
 
-            currentLeftChild = new JoinOperator(currentLeftChild, rightChild, new ArrayList<>(leftRelationalAtoms), rightRelationalAtom, joinConditionMap.getOrDefault(rightRelationalAtom, new ArrayList<>()));
+            currentLeftChild = constructJoinAt(leftRelationalAtoms.size(), currentLeftChild, rightChild, new ArrayList<>(leftRelationalAtoms), rightRelationalAtom, joinConditionMap.getOrDefault(rightRelationalAtom, new ArrayList<>()),
+                    isOrderReusedByNextJoin(leftRelationalAtoms, rightRelationalAtom, childrenOfJoins, joinConditionMap), costModel);
 
             leftRelationalAtoms.add(rightRelationalAtom);
         }
 
         //  having built the join tree, this constructs the projection operator that forms the root of the query plan.
         //  note that projection operators are designed to accept cases where both there is a projection to be done and when the tuples are passed through unaffected.
-        this.root = new ProjectOperator(currentLeftChild,
-                query.getHead()
-                .getTerms()
+        this.root = constructRoot(currentLeftChild, query.getHead(), leftRelationalAtoms, costModel);
+
+    }
+
+    //  constructs the root of the plan over the joined tuples: an aggregation if the head has any aggregate terms, told how many groups to expect, otherwise a projection onto the head's variables.
+    //  Over eagerly aggregated leaves, the aggregation weighs its rows by their counts, and the groups are estimated over the original atoms.
+    //  A projection eliminates duplicates within the memory budget, and one run of keys at a time over the sorted output of a sort-merge join, unless the query is known to be free of them
+    private Operator constructRoot(Operator child, RelationalAtom head, List<RelationalAtom> childRelationalAtoms, CostModel costModel) {
+        if (hasAggregates(head)) {
+            AggregateOperator aggregate = (eagerAggregation != null) ? eagerAggregation.constructRoot(child, childRelationalAtoms)
+                    : new AggregateOperator(child, head.getTerms(), childRelationalAtoms);
+
+            Set<Variable> groupVariables = head.getTerms().stream()
+                    .filter(Variable.class::isInstance)
+                    .map(Variable.class::cast).collect(Collectors.toCollection(LinkedHashSet::new));
+            aggregate.setEstimatedGroupCount(costModel.estimateGroupCount(groupVariables, (eagerAggregation != null) ? eagerAggregation.getRelationalAtoms() : childRelationalAtoms));
+            return aggregate;
+        }
+
+        ProjectOperator project = new ProjectOperator(child, head.getTerms()
                 .stream()
                 .map(Variable.class::cast)
-                .collect(Collectors.toList()), leftRelationalAtoms);
+                .collect(Collectors.toList()), childRelationalAtoms, costModel.getWorkMemoryBytes());
+
+        if (child instanceof SortMergeJoinOperator) project.setSortedInputColumns(((SortMergeJoinOperator) child).getLeftKeyIndices());
+        project.setDistinctInput(duplicateFree);
+        return project;
+    }
+
+    /**
+     * Tells whether a query's output can't hold the same row twice, which lets its projection emit every row without eliminating duplicates.
+     * Relations may hold repeated rows, so covering every column of every atom isn't enough on its own: each atom has to be over a relation with a declared key,
+     * all of whose columns the head determines. Head variables are determined, and so are variables the equalities tie to a determined variable or to a constant,
+     * as well as every variable of an atom whose key is determined, since no two of its rows share the key.
+     * Two combinations of joined rows agreeing on the head then agree on every determined variable, and so on the key of every atom, which makes them the same rows.
+     *
+     * @param headVariables the variables of the query's head
+     * @param relationalAtoms the relational atoms of the body, with their constants already extracted
+     * @param comparisonAtoms the comparison atoms of the body
+     * @param schemas the relations' schemas, by relation name, holding their declared keys
+     * @return true if no two rows of the query's output can be the same
+     */
+    static boolean isDuplicateFree(List<Variable> headVariables, List<RelationalAtom> relationalAtoms, List<ComparisonAtom> comparisonAtoms, Map<String, Schema> schemas) {
+        if (relationalAtoms.stream().anyMatch(relationalAtom -> !schemas.containsKey(relationalAtom.getName()))) return false;
+
+        Set<Term> determined = new HashSet<>(headVariables);
+
+        //  spreading along the equalities and the determined keys until no more variables are determined
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (ComparisonAtom comparisonAtom : comparisonAtoms) {
+                if (comparisonAtom.getOp() != ComparisonOperator.EQ) continue;
+
+                if (isDetermined(comparisonAtom.getTerm1(), determined) && comparisonAtom.getTerm2() instanceof Variable) changed |= determined.add(comparisonAtom.getTerm2());
+                if (isDetermined(comparisonAtom.getTerm2(), determined) && comparisonAtom.getTerm1() instanceof Variable) changed |= determined.add(comparisonAtom.getTerm1());
+            }
+            for (RelationalAtom relationalAtom : relationalAtoms) {
+                if (!hasDeterminedKey(relationalAtom, schemas.get(relationalAtom.getName()), determined)) continue;
+
+                for (Term term : relationalAtom.getTerms()) {
+                    if (term instanceof Variable) changed |= determined.add(term);
+                }
+            }
+        }
+
+        return relationalAtoms.stream().allMatch(relationalAtom -> hasDeterminedKey(relationalAtom, schemas.get(relationalAtom.getName()), determined));
+    }
 
+    private static boolean hasDeterminedKey(RelationalAtom relationalAtom, Schema schema, Set<Term> determined) {
+        return schema.getKeys().stream().anyMatch(key -> Arrays.stream(key)
+                .allMatch(column -> column < relationalAtom.getTerms().size() && isDetermined(relationalAtom.getTerms().get(column), determined)));
     }
 
-    //  given an operator that should be either a select or scan operator, this returns the base relational atom that this operator works over in the query.
+    private static boolean isDetermined(Term term, Set<Term> determined) {
+        return term instanceof Constant || determined.contains(term);
+    }
+
+    static boolean hasAggregates(RelationalAtom head) {
+        return head.getTerms().stream().anyMatch(AggregateTerm.class::isInstance);
+    }
+
+    //  constructs the join at the given position of the join order.
+    //  When the right relation has an index that the left side's join keys can be looked up in, and few enough left tuples are expected for looking each of them up to beat reading the whole right relation,
+    //  an index nested loop join reads the right relation through the index instead.
+    //  Otherwise equi-joins whose left side is already sorted on the key are made by sorting and merging the two sides. So are those whose hash table isn't expected to fit in the memory budget
+    //  when the next join can merge over their sorted output without sorting it again, while the rest of those are made by a grace hash join partitioning both sides to disk.
+    //  The remaining joins are built as below
+    private Operator constructJoinAt(int position, Operator leftChild, Operator rightChild, List<RelationalAtom> leftChildAtoms, RelationalAtom rightChildAtom, List<ComparisonAtom> joinConditions,
+                                     boolean orderReusedByNextJoin, CostModel costModel) {
+        Relation relation = DatabaseCatalog.getCatalog().getRelationMap().get(rightChildAtom.getName());
+        ScanOperator rightScan = (rightChild instanceof ReducedRelationOperator || rightChild instanceof EagerAggregateOperator) ? null
+                : (rightChild instanceof SelectOperator) ? (ScanOperator) ((SelectOperator) rightChild).getChild() : (ScanOperator) rightChild;
+
+        //  an index scan already reads only the rows matching a selection, which is left to the hash join to make use of, and a semi-join reduced or aggregated leaf has already been read
+        if (rightScan != null && !relation.getIndexes().isEmpty() && !(rightScan instanceof IndexScanOperator) && MappedScanOperator.canMap(relation.getFileLocation())
+                && costModel.prefersIndexNestedLoopJoin(joinOrder.getOuterCardinality(position), rightChildAtom)) {
+            ColumnIndex index = IndexNestedLoopJoinOperator.findUsableIndex(leftChildAtoms, rightChildAtom, joinConditions, relation.getIndexes());
+
+            if (index != null) {
+                List<ComparisonAtom> rightSelections = (rightChild instanceof SelectOperator) ? ((SelectOperator) rightChild).getSelectionPredicates() : Collections.emptyList();
+                try {
+                    IndexNestedLoopJoinOperator indexJoin = new IndexNestedLoopJoinOperator(leftChild, new MappedScanOperator(relation.getFileLocation(), relation.getSchema(), rightChildAtom),
+                            leftChildAtoms, rightChildAtom, rightSelections, joinConditions, index);
+                    indexJoins.add(indexJoin);
+
+                    //  the index join reads the relation through a scan of its own, so the one built for the leaf is let go of
+                    rightScan.close();
+                    return indexJoin;
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        //  sorting and merging is preferred to hashing when the left side already comes out sorted on the join key,
+        //  and a hash table that isn't expected to fit in memory is either replaced by a sort when its order pays off again in the next join, or else partitioned
+        if (HashJoinOperator.hasEquiJoinKey(leftChildAtoms, rightChildAtom, joinConditions)) {
+            boolean leftSorted = leftChild instanceof SortMergeJoinOperator
+                    && ((SortMergeJoinOperator) leftChild).isSortedOn(SortMergeJoinOperator.getLeftKeyIndices(leftChildAtoms, rightChildAtom, joinConditions));
+
+            boolean buildOnLeft = joinOrder.buildsOnLeft(position);
+            double buildCardinality = buildOnLeft ? joinOrder.getOuterCardinality(position) : joinOrder.getAtomCardinality(position);
+            int buildWidth = buildOnLeft ? new VariableOffsets(leftChildAtoms).getWidth() : rightChildAtom.getTerms().size();
+
+            boolean fitsInMemory = costModel.fitsInWorkMemory(buildCardinality, buildWidth);
+
+            if (leftSorted || (!fitsInMemory && orderReusedByNextJoin)) {
+                SortMergeJoinOperator sortMergeJoin = new SortMergeJoinOperator(leftChild, rightChild, leftChildAtoms, rightChildAtom, joinConditions, leftSorted, costModel.getWorkMemoryBytes());
+                sortMergeJoins.add(sortMergeJoin);
+                return sortMergeJoin;
+            }
+
+            if (!fitsInMemory) {
+                GraceHashJoinOperator graceHashJoin = new GraceHashJoinOperator(leftChild, rightChild, leftChildAtoms, rightChildAtom, joinConditions, buildOnLeft, costModel.getWorkMemoryBytes());
+                graceHashJoins.add(graceHashJoin);
+                return graceHashJoin;
+            }
+        }
+
+        return constructJoin(leftChild, rightChild, leftChildAtoms, rightChildAtom, joinConditions, joinOrder.buildsOnLeft(position));
+    }
+
+    //  checks whether the join after the one into the given right atom, if there is one, has left key columns starting off the left key columns of this join,
+    //  in which case a sort-merge join here would hand the next join its left side already sorted
+    private static boolean isOrderReusedByNextJoin(List<RelationalAtom> leftChildAtoms, RelationalAtom rightChildAtom, List<Operator> remainingChildren, Map<RelationalAtom, List<ComparisonAtom>> joinConditionMap) {
+        if (remainingChildren.isEmpty()) return false;
+
+        List<ComparisonAtom> joinConditions = joinConditionMap.getOrDefault(rightChildAtom, new ArrayList<>());
+        if (!HashJoinOperator.hasEquiJoinKey(leftChildAtoms, rightChildAtom, joinConditions)) return false;
+        int[] leftKeyIndices = SortMergeJoinOperator.getLeftKeyIndices(leftChildAtoms, rightChildAtom, joinConditions);
+
+        List<RelationalAtom> nextLeftChildAtoms = new ArrayList<>(leftChildAtoms);
+        nextLeftChildAtoms.add(rightChildAtom);
+        RelationalAtom nextRightChildAtom = getRelationalAtomFromSelectOrScanOperator(remainingChildren.get(0));
+        int[] nextLeftKeyIndices = SortMergeJoinOperator.getLeftKeyIndices(nextLeftChildAtoms, nextRightChildAtom, joinConditionMap.getOrDefault(nextRightChildAtom, new ArrayList<>()));
+
+        if (nextLeftKeyIndices.length == 0 || nextLeftKeyIndices.length > leftKeyIndices.length) return false;
+        for (int i = 0; i < nextLeftKeyIndices.length; i++) {
+            if (nextLeftKeyIndices[i] != leftKeyIndices[i]) return false;
+        }
+        return true;
+    }
+
+    //  constructs the join between the current left subtree and the next right child.
+    //  A hash join is used whenever there is an equi-join key between the two sides, falling back to the tuple nested loop join for cartesian products and pure non-equi joins
+    private static Operator constructJoin(Operator leftChild, Operator rightChild, List<RelationalAtom> leftChildAtoms, RelationalAtom rightChildAtom, List<ComparisonAtom> joinConditions, boolean buildOnLeft) {
+        if (HashJoinOperator.hasEquiJoinKey(leftChildAtoms, rightChildAtom, joinConditions))
+            return new HashJoinOperator(leftChild, rightChild, leftChildAtoms, rightChildAtom, joinConditions, buildOnLeft);
+
+        else return new JoinOperator(leftChild, rightChild, leftChildAtoms, rightChildAtom, joinConditions);
+    }
+
+    //  checks whether any join of the join order is expected to be an index nested loop join
+    private boolean prefersIndexJoins(List<RelationalAtom> relationalAtoms, CostModel costModel) {
+        for (int position = 1; position < relationalAtoms.size(); position++) {
+            if (mayJoinThroughIndex(position, relationalAtoms.get(position), costModel)) return true;
+        }
+        return false;
+    }
+
+    //  checks whether the join at the given position of the join order is expected to be an index nested loop join into the atom, going by the same cost model check as constructJoinAt
+    private boolean mayJoinThroughIndex(int position, RelationalAtom relationalAtom, CostModel costModel) {
+        if (position == 0) return false;
+
+        Relation relation = DatabaseCatalog.getCatalog().getRelationMap().get(relationalAtom.getName());
+        return !relation.getIndexes().isEmpty() && costModel.prefersIndexNestedLoopJoin(joinOrder.getOuterCardinality(position), relationalAtom);
+    }
+
+    //  the atom standing in for the given one in the joins, which differs from it when the leaf is eagerly aggregated
+    private RelationalAtom getLeafAtom(RelationalAtom relationalAtom) {
+        return (eagerAggregation == null) ? relationalAtom : eagerAggregation.getLeafAtom(relationalAtom);
+    }
+
+    //  given an operator that should be either a select or scan operator, or a semi-join reduced one, this returns the base relational atom that this operator works over in the query.
+    //  For an eagerly aggregated leaf, it is the atom describing the aggregated rows instead
     private static RelationalAtom getRelationalAtomFromSelectOrScanOperator(Operator selectOrScan) {
-        if (selectOrScan instanceof SelectOperator) {
+        if (selectOrScan instanceof EagerAggregateOperator) {
+            return ((EagerAggregateOperator) selectOrScan).getOutputAtom();
+        } else if (selectOrScan instanceof ReducedRelationOperator) {
+            return ((ReducedRelationOperator) selectOrScan).getBaseRelationalAtom();
+        } else if (selectOrScan instanceof SelectOperator) {
             return ((SelectOperator) selectOrScan).getBaseRelationalAtom();
         } else if (selectOrScan instanceof ScanOperator) {
             return ((ScanOperator) selectOrScan).getBaseRelationalAtom();
@@ -154,15 +441,47 @@ public class QueryPlanner {
                 .collect(Collectors.toSet());
     }
 
-    //  uses the database catalog to construct a list of scan operators over the passed in relational atoms
-    private static List<ScanOperator> constructScans(List<RelationalAtom> relationalAtoms) {
+    //  uses the database catalog to construct a list of scan operators over the passed in relational atoms.
+    //  an atom with a comparison against a constant on an indexed column is read through an index scan of the matching rows, when the comparison is estimated to be selective enough.
+    //  Otherwise relations are read from the catalog's table cache when it is enabled and they fit in it,
+    //  relations that have a binary columnar file are scanned from it rather than from their csv, and csv files are memory-mapped if the catalog is set to do so
+    private static List<ScanOperator> constructScans(List<RelationalAtom> relationalAtoms, List<ComparisonAtom> comparisonAtoms, CostModel costModel) {
         DatabaseCatalog catalog = DatabaseCatalog.getCatalog();
 
         return relationalAtoms.stream()
                 .map(relationalAtom -> {
+                    Relation relation = catalog.getRelationMap().get(relationalAtom.getName());
                     try {
-                        return new ScanOperator(catalog.getRelationMap().get(relationalAtom.getName()).getFileLocation(),catalog.getRelationMap().get(relationalAtom.getName()).getSchema(), relationalAtom);
-                    } catch (FileNotFoundException e) {
+                        //  picking the comparison an index can answer that is estimated to keep the fewest rows, if it keeps few enough of them
+                        ComparisonAtom indexPredicate = null;
+                        ColumnIndex index = null;
+                        double indexSelectivity = CostModel.INDEX_SCAN_SELECTIVITY_LIMIT;
+                        for (ComparisonAtom comparisonAtom : comparisonAtoms) {
+                            ColumnIndex candidateIndex = getIndexForPredicate(comparisonAtom, relationalAtom, relation);
+                            if (candidateIndex == null) continue;
+
+                            double selectivity = costModel.getSelectionSelectivity(comparisonAtom, relationalAtom);
+                            if (selectivity < indexSelectivity) {
+                                indexPredicate = comparisonAtom;
+                                index = candidateIndex;
+                                indexSelectivity = selectivity;
+                            }
+                        }
+                        if (index != null)
+                            return new IndexScanOperator(relation.getFileLocation(), relation.getSchema(), relationalAtom, index, indexPredicate);
+
+                        InMemoryTable cachedTable = (catalog.getTableCache() != null) ? catalog.getTableCache().getTable(relation) : null;
+                        if (cachedTable != null)
+                            return new CachedScanOperator(cachedTable, relation.getSchema(), relationalAtom);
+
+                        if (relation.hasBinaryFile())
+                            return new BinaryScanOperator(relation.getBinaryFileLocation(), relation.getSchema(), relationalAtom);
+
+                        if (catalog.useMemoryMappedScans() && MappedScanOperator.canMap(relation.getFileLocation()))
+                            return new MappedScanOperator(relation.getFileLocation(), relation.getSchema(), relationalAtom);
+
+                        return new ScanOperator(relation.getFileLocation(), relation.getSchema(), relationalAtom);
+                    } catch (IOException e) {
                         e.printStackTrace();
                         return null;
                     }
@@ -170,6 +489,31 @@ public class QueryPlanner {
                 .collect(Collectors.toList());
     }
 
+    //  returns an index of the relation that can answer the comparison over the atom, if it compares one of the atom's variables to a constant.
+    //  null if there is no such index, or if the comparison isn't one an index can answer
+    private static ColumnIndex getIndexForPredicate(ComparisonAtom comparisonAtom, RelationalAtom relationalAtom, Relation relation) {
+        if (relation.getIndexes().isEmpty() || !MappedScanOperator.canMap(relation.getFileLocation())) return null;
+
+        Variable variable;
+        ComparisonOperator op;
+        if (comparisonAtom.getTerm1() instanceof Variable && comparisonAtom.getTerm2() instanceof Constant) {
+            variable = (Variable) comparisonAtom.getTerm1();
+            op = comparisonAtom.getOp();
+        } else if (comparisonAtom.getTerm1() instanceof Constant && comparisonAtom.getTerm2() instanceof Variable) {
+            variable = (Variable) comparisonAtom.getTerm2();
+            op = PredicateCompiler.flip(comparisonAtom.getOp());
+        } else return null;
+
+        List<Term> terms = relationalAtom.getTerms();
+        for (int column = 0; column < terms.size(); column++) {
+            if (!terms.get(column).equals(variable)) continue;
+
+            ColumnIndex index = relation.getIndex(column, op);
+            if (index != null) return index;
+        }
+        return null;
+    }
+
     //  checks if a given comparison atom is a "single atom selection", as in it doesn't make a check that spans across multiple relational atoms
     public static boolean isSingleAtomSelectionInRelationalAtoms(ComparisonAtom comparisonAtom, List<RelationalAtom> relationalAtoms) {
         int numVariables = getNumVariablesInComparisonAtom(comparisonAtom);
@@ -226,6 +570,52 @@ public class QueryPlanner {
             return scanOperators.stream().anyMatch(scanOperator -> scanOperator.getBaseRelationalAtom().getTerms().contains(comparisonAtom.getTerm1()) && scanOperator.getBaseRelationalAtom().getTerms().contains(comparisonAtom.getTerm2()));
     }
 
+    //  describes the join order the plan was built with and its estimated cost, or the leapfrog triejoin for cyclic queries, followed by the atoms read through an index and the joins not made by hashing
+    public String explain() {
+        StringBuilder builder = new StringBuilder();
+        if (leapfrogJoin != null) {
+            builder.append("leapfrog triejoin over ").append(leapfrogJoin.getRelationalAtoms())
+                    .append(" in variable order ").append(leapfrogJoin.getVariableOrder()).append(System.lineSeparator());
+        } else {
+            builder.append(joinOrder == null ? "single relation, no joins" + System.lineSeparator() : joinOrder.toString());
+        }
+        if (semiJoinReducer != null) {
+            builder.append("semi-join reduction over the join tree ").append(semiJoinReducer.getJoinTree()).append(System.lineSeparator());
+        }
+        for (IndexScanOperator indexScan : indexScans) {
+            builder.append("index scan of ").append(indexScan.getBaseRelationalAtom())
+                    .append(" for ").append(indexScan.getIndexPredicate()).append(System.lineSeparator());
+        }
+        for (IndexNestedLoopJoinOperator indexJoin : indexJoins) {
+            builder.append("index nested loop join into ").append(indexJoin.getRightChildAtom())
+                    .append(" on column ").append(indexJoin.getIndex().getColumn()).append(System.lineSeparator());
+        }
+        for (SortMergeJoinOperator sortMergeJoin : sortMergeJoins) {
+            builder.append("sort-merge join into ").append(sortMergeJoin.getRightChildAtom()).append(System.lineSeparator());
+        }
+        for (GraceHashJoinOperator graceHashJoin : graceHashJoins) {
+            builder.append("grace hash join into ").append(graceHashJoin.getRightChildAtom()).append(System.lineSeparator());
+        }
+        if (eagerAggregation != null) {
+            for (int leaf = 0; leaf < eagerAggregation.getRelationalAtoms().size(); leaf++) {
+                if (!eagerAggregation.isAggregated(leaf)) continue;
+                builder.append("eager aggregation of ").append(eagerAggregation.getRelationalAtoms().get(leaf))
+                        .append(" on ").append(eagerAggregation.getGroupVariables(leaf)).append(System.lineSeparator());
+            }
+        }
+        if (duplicateFree) {
+            builder.append("no duplicate elimination, the head determines a key of every atom").append(System.lineSeparator());
+        }
+        if (root instanceof AggregateOperator) {
+            builder.append("hash aggregation into ").append(((AggregateOperator) root).getOutputTerms()).append(System.lineSeparator());
+        }
+        return builder.toString();
+    }
+
+    public JoinOrderOptimizer.JoinOrder getJoinOrder() {
+        return joinOrder;
+    }
+
     public Operator getRoot() {
         return root;
     }
@@ -0,0 +1,156 @@
+package ed.inf.adbs.minibase.evaluator;
+
+import ed.inf.adbs.minibase.dbstructures.Tuple;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The hash table of a hash join, split into partitions on the top radix bits of its keys' hashes so that several threads can build it at once.
+ * The build tuples are radix-partitioned in two passes over slices of the input, one thread per slice: the first counts how many of each slice's tuples
+ * fall into every partition, and the second scatters them into one array laid out partition by partition at the offsets those counts give.
+ * The partitions are then built into separate hash maps, each by whichever thread takes it next, and are small enough to stay in the cache while that happens.
+ * Every key's tuples keep the order they came in, the same as in a hash table built on one thread. Once built, the table is only ever read, so any number of threads can probe it.
+ */
+public class RadixPartitionedHashTable {
+
+    //  the number of build tuples aimed for in a partition, whose hash map then fits in a core's cache
+    static final int TUPLES_PER_PARTITION = 4096;
+    static final int MAX_RADIX_BITS = 12;
+
+    private final int radixBits;
+    private final List<Map<Tuple, List<Tuple>>> partitions;
+
+    private RadixPartitionedHashTable(int radixBits, List<Map<Tuple, List<Tuple>>> partitions) {
+        this.radixBits = radixBits;
+        this.partitions = partitions;
+    }
+
+    /**
+     * Builds the table over the given tuples on the given number of threads of the pool.
+     *
+     * @param tuples the build tuples, in the order they were read from the building child
+     * @param keyIndices the positions of the join key columns in the build tuples
+     * @param pool the pool to run the partitioning and building on
+     * @param threads the number of threads to split the partitioning between
+     * @return the built table
+     * @throws IOException thrown if the threads are interrupted, or if any of them fails
+     */
+    public static RadixPartitionedHashTable build(List<Tuple> tuples, List<Integer> keyIndices, ExecutorService pool, int threads) throws IOException {
+        if (threads < 1) throw new IllegalArgumentException("The hash table has to be built on at least one thread!");
+
+        int radixBits = chooseRadixBits(tuples.size(), threads);
+        int numPartitions = 1 << radixBits;
+        int numSlices = Math.max(1, Math.min(threads, tuples.size()));
+
+        //  counting the tuples of every slice that fall into each partition, remembering each tuple's key and partition for the scatter
+        Tuple[] keys = new Tuple[tuples.size()];
+        int[] partitionOf = new int[tuples.size()];
+        int[][] histograms = new int[numSlices][numPartitions];
+
+        List<Callable<Void>> countTasks = new ArrayList<>();
+        for (int slice = 0; slice < numSlices; slice++) {
+            int sliceIndex = slice;
+            countTasks.add(() -> {
+                for (int i = sliceStart(sliceIndex, numSlices, tuples.size()); i < sliceStart(sliceIndex + 1, numSlices, tuples.size()); i++) {
+                    keys[i] = HashJoinOperator.extractKey(tuples.get(i), keyIndices);
+                    partitionOf[i] = getPartition(keys[i], radixBits);
+                    histograms[sliceIndex][partitionOf[i]]++;
+                }
+                return null;
+            });
+        }
+        ParallelExecutor.runAll(pool, countTasks);
+
+        //  the partitions are laid out one after the other, with each partition's tuples in slice order so that they keep their input order
+        int[] partitionStarts = new int[numPartitions + 1];
+        int[][] sliceOffsets = new int[numSlices][numPartitions];
+        int offset = 0;
+        for (int partition = 0; partition < numPartitions; partition++) {
+            partitionStarts[partition] = offset;
+            for (int slice = 0; slice < numSlices; slice++) {
+                sliceOffsets[slice][partition] = offset;
+                offset += histograms[slice][partition];
+            }
+        }
+        partitionStarts[numPartitions] = offset;
+
+        Tuple[] scatteredTuples = new Tuple[tuples.size()];
+        Tuple[] scatteredKeys = new Tuple[tuples.size()];
+
+        List<Callable<Void>> scatterTasks = new ArrayList<>();
+        for (int slice = 0; slice < numSlices; slice++) {
+            int sliceIndex = slice;
+            scatterTasks.add(() -> {
+                int[] nextOffsets = sliceOffsets[sliceIndex];
+                for (int i = sliceStart(sliceIndex, numSlices, tuples.size()); i < sliceStart(sliceIndex + 1, numSlices, tuples.size()); i++) {
+                    int position = nextOffsets[partitionOf[i]]++;
+                    scatteredTuples[position] = tuples.get(i);
+                    scatteredKeys[position] = keys[i];
+                }
+                return null;
+            });
+        }
+        ParallelExecutor.runAll(pool, scatterTasks);
+
+        //  building the partitions' hash maps, with the threads taking the next partition left until there are none
+        List<Map<Tuple, List<Tuple>>> partitions = new ArrayList<>(Collections.nCopies(numPartitions, null));
+        AtomicInteger nextPartition = new AtomicInteger();
+
+        List<Callable<Void>> buildTasks = new ArrayList<>();
+        for (int thread = 0; thread < Math.min(threads, numPartitions); thread++) {
+            buildTasks.add(() -> {
+                int partition;
+                while ((partition = nextPartition.getAndIncrement()) < numPartitions) {
+                    Map<Tuple, List<Tuple>> hashTable = new HashMap<>();
+                    for (int i = partitionStarts[partition]; i < partitionStarts[partition + 1]; i++) {
+                        hashTable.computeIfAbsent(scatteredKeys[i], key -> new ArrayList<>()).add(scatteredTuples[i]);
+                    }
+                    partitions.set(partition, hashTable);
+                }
+                return null;
+            });
+        }
+        ParallelExecutor.runAll(pool, buildTasks);
+
+        return new RadixPartitionedHashTable(radixBits, partitions);
+    }
+
+    //  the tuples sharing the given key, in the order they were read from the building child
+    public List<Tuple> get(Tuple key) {
+        return partitions.get(getPartition(key, radixBits)).getOrDefault(key, Collections.emptyList());
+    }
+
+    public int getNumPartitions() {
+        return partitions.size();
+    }
+
+    //  enough bits for partitions of about TUPLES_PER_PARTITION tuples, and for every thread to have a few partitions to build
+    static int chooseRadixBits(int numTuples, int threads) {
+        int radixBits = 0;
+        while (radixBits < MAX_RADIX_BITS && ((long) TUPLES_PER_PARTITION << radixBits) < numTuples) radixBits++;
+        if (threads > 1) {
+            while (radixBits < MAX_RADIX_BITS && (1 << radixBits) < 4 * threads) radixBits++;
+        }
+        return radixBits;
+    }
+
+    //  the partition of a key, from the top bits of its mixed hash. The hash maps within a partition hash on the low bits, which stay spread out
+    static int getPartition(Tuple key, int radixBits) {
+        if (radixBits == 0) return 0;
+
+        int hash = key.hashCode();
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        hash *= 0xC2B2AE35;
+        hash ^= hash >>> 16;
+        return hash >>> (32 - radixBits);
+    }
+
+    private static int sliceStart(int slice, int numSlices, int numTuples) {
+        return (int) ((long) slice * numTuples / numSlices);
+    }
+}
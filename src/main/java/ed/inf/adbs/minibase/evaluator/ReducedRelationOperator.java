@@ -0,0 +1,54 @@
+package ed.inf.adbs.minibase.evaluator;
+
+import ed.inf.adbs.minibase.base.RelationalAtom;
+import ed.inf.adbs.minibase.dbstructures.Tuple;
+
+import java.io.IOException;
+import java.util.List;
+
+//  An operator that emits the tuples of one leaf of the plan left after the semi-join reduction of a SemiJoinReducer,
+//  standing in for that leaf's scan or selection in the joins above it
+public class ReducedRelationOperator extends Operator {
+
+    SemiJoinReducer reducer;
+    int atom;
+
+    //  the scan or selection the tuples originally come from
+    Operator child;
+    RelationalAtom baseRelationalAtom;
+
+    List<Tuple> tuples;
+    int position;
+
+    public ReducedRelationOperator(SemiJoinReducer reducer, int atom, Operator child, RelationalAtom baseRelationalAtom) {
+        this.reducer = reducer;
+        this.atom = atom;
+        this.child = child;
+        this.baseRelationalAtom = baseRelationalAtom;
+    }
+
+    @Override
+    public Tuple getNextTuple() throws IOException {
+        if (tuples == null) tuples = reducer.getReducedTuples(atom);
+        return position < tuples.size() ? tuples.get(position++) : null;
+    }
+
+    //  the reduced tuples are kept, so resetting only starts emitting them over again
+    @Override
+    public void reset() {
+        position = 0;
+    }
+
+    @Override
+    public boolean[] getStringColumns() {
+        return child.getStringColumns();
+    }
+
+    public RelationalAtom getBaseRelationalAtom() {
+        return baseRelationalAtom;
+    }
+
+    public Operator getChild() {
+        return child;
+    }
+}
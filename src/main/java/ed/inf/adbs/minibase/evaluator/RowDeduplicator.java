@@ -0,0 +1,15 @@
+package ed.inf.adbs.minibase.evaluator;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+//  RowDeduplicator that tells the rows of a projection's output apart from the rows before them, so that every distinct row is emitted exactly once.
+//  Rows are given as their int values, with string columns held as their dictionary codes. Rows it can't tell about straight away are held back and handed out once the input is done
+public interface RowDeduplicator extends Closeable {
+
+    //  whether the row hasn't been seen before and should be emitted now. False both for repeated rows and for rows held back
+    boolean add(int[] row) throws IOException;
+
+    //  once every row has been added, the next of the rows held back that turned out to be new, null once there are none left
+    int[] nextDeferred() throws IOException;
+}
@@ -0,0 +1,16 @@
+package ed.inf.adbs.minibase.evaluator;
+
+import ed.inf.adbs.minibase.dbstructures.Tuple;
+
+/**
+ * A predicate compiled ahead of time over the rows flowing through an operator.
+ * Join predicates read from both the left and right tuple, while selection predicates only ever get a left tuple, with the right tuple being null.
+ */
+@FunctionalInterface
+public interface RowPredicate {
+
+    RowPredicate ALWAYS_TRUE = (leftTuple, rightTuple) -> true;
+    RowPredicate ALWAYS_FALSE = (leftTuple, rightTuple) -> false;
+
+    boolean test(Tuple leftTuple, Tuple rightTuple);
+}
@@ -1,15 +1,11 @@
 package ed.inf.adbs.minibase.evaluator;
 
-import ed.inf.adbs.minibase.base.Constant;
 import ed.inf.adbs.minibase.base.RelationalAtom;
 import ed.inf.adbs.minibase.dbstructures.Schema;
 import ed.inf.adbs.minibase.dbstructures.Tuple;
+import ed.inf.adbs.minibase.dbstructures.TupleBatch;
 
 import java.io.*;
-import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
 /**
  * Implements the scan operator which is responsible for emitting all of the Tuple(s) from the assigned table
@@ -21,6 +17,10 @@ public class ScanOperator extends Operator {
     Schema schema;
     RelationalAtom baseRelationalAtom;
 
+    //  the batch refilled by every call to getNextBatch(), shared with the subclasses
+    private TupleBatch batch;
+    private int[] scratchRow;
+
     /**
      * ScanOperator constructor which checks that the given file name matches the expected location and that its name matches the name of the associated relation in the schema
      *
@@ -37,6 +37,12 @@ public class ScanOperator extends Operator {
         this.baseRelationalAtom = baseRelationalAtom;
     }
 
+    //  constructor for subclasses reading the table from a different file format, which take care of opening their own files
+    protected ScanOperator(Schema schema, RelationalAtom baseRelationalAtom) {
+        this.schema = schema;
+        this.baseRelationalAtom = baseRelationalAtom;
+    }
+
     //  parses and returns the next line in the table's csv as a tuple
     @Override
     public Tuple getNextTuple() throws IOException {
@@ -49,6 +55,37 @@ public class ScanOperator extends Operator {
         else return null;
     }
 
+    //  decodes lines straight into the columns of the reused batch
+    @Override
+    public TupleBatch getNextBatch() throws IOException {
+        TupleBatch batch = getClearedBatch();
+        int[][] columns = batch.getColumns();
+        if (scratchRow == null) scratchRow = new int[columns.length];
+
+        int rowCount = 0;
+        String nextLine;
+        while (rowCount < batch.getCapacity() && (nextLine = bufferedReader.readLine()) != null) {
+            this.schema.getDecoder().decodeValues(nextLine, scratchRow);
+
+            for (int i = 0; i < columns.length; i++) {
+                columns[i][rowCount] = scratchRow[i];
+            }
+            rowCount++;
+        }
+
+        if (rowCount == 0) return null;
+
+        batch.setRowCount(rowCount);
+        return batch;
+    }
+
+    //  returns the scan's batch emptied and ready to be refilled, creating it on the first call
+    protected TupleBatch getClearedBatch() {
+        if (batch == null) batch = new TupleBatch(schema.getStringColumns());
+        batch.clear();
+        return batch;
+    }
+
     //  resets the operator state by resetting the readers reading the file
     @Override
     public void reset() {
@@ -59,32 +96,20 @@ public class ScanOperator extends Operator {
         }
     }
 
-    /**
-     * parses a csv line into a tuple using the object's associated schema.
-     * This is done by iterating over the cells obtained from splitting the line on the commas, then creating the respective constant type using the relevant entry in the schema.
-     *
-     * @param dbLine the csv line to take in as a string-based input
-     * @return the resultant tuple from parsing this line
-     */
-    private Tuple parseTupleFromDBLine(String dbLine) {
-        String[] cells = dbLine.split(",");
-        if (this.schema.getDataTypes().size() != cells.length) throw new IllegalArgumentException("The number of columns and the number of classes parsed from the schema don't match!");
-
+    //  releases the file the scan reads from, for scans the planner has built but ends up reading the relation some other way
+    public void close() {
+        if (bufferedReader == null) return;
 
-        //  utilises the list of classnames representing the sequence of column types in the schema to instantiate the relevant Constant subclass given the cell content.
-        return new Tuple(IntStream.range(0, cells.length)
-                .mapToObj(i -> {
-                    try {
-                        //  utilises the String-based constructor available in both Constant subclasses to instantiate the contents of cell i.
-                        //  Calls the constructor of the relevant entry in the column data types list in the schema
-                        Constructor<? extends Constant> constructor = this.schema.getDataTypes().get(i).getDeclaredConstructor(String.class);
-                        return constructor.newInstance(cells[i].trim().replaceAll("'", ""));
-                    } catch (NoSuchMethodException | InstantiationException | InvocationTargetException | IllegalAccessException e) {
-                        e.printStackTrace();
-                        throw new RuntimeException("Something has gone wrong in the method invocation!");
-                    }
+        try {
+            bufferedReader.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
 
-                }).collect(Collectors.toList()));
+    //  parses a csv line into a tuple using the decoder compiled for the object's associated schema
+    private Tuple parseTupleFromDBLine(String dbLine) {
+        return this.schema.getDecoder().decode(dbLine);
     }
 
     //  checks that the passed in filename corresponds to a csv with the same name as the name of the table in the schema
@@ -96,6 +121,11 @@ public class ScanOperator extends Operator {
         return (dbFile.isFile() && extension.equals("csv") && relName.equals(schema.getName()) && dbFile.getParentFile().getName().equals("files"));
     }
 
+    @Override
+    public boolean[] getStringColumns() {
+        return schema.getStringColumns();
+    }
+
     public BufferedReader getBufferedReader() {
         return bufferedReader;
     }
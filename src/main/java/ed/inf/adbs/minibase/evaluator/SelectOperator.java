@@ -5,6 +5,7 @@ import ed.inf.adbs.minibase.base.Constant;
 import ed.inf.adbs.minibase.base.RelationalAtom;
 import ed.inf.adbs.minibase.base.Variable;
 import ed.inf.adbs.minibase.dbstructures.Tuple;
+import ed.inf.adbs.minibase.dbstructures.TupleBatch;
 
 import java.io.IOException;
 import java.util.List;
@@ -19,6 +20,12 @@ public class SelectOperator extends Operator {
     private RelationalAtom baseRelationalAtom;
     private List<ComparisonAtom> selectionPredicates;
 
+    //  the selection predicates compiled over the child's tuples
+    private RowPredicate[] compiledPredicates;
+
+    //  the selection predicates compiled over whole batches, compiled from the types of the first batch pulled from the child
+    private BatchPredicate[] compiledBatchPredicates;
+
     /**
      *
      * @param child the child operator that this pulls tuples from
@@ -31,6 +38,40 @@ public class SelectOperator extends Operator {
         this.child = child;
         this.baseRelationalAtom = baseRelationalAtom;
         this.selectionPredicates = selectionPredicates;
+        bindPredicates();
+    }
+
+    private void bindPredicates() {
+        for (ComparisonAtom selectionPredicate : selectionPredicates) {
+            if (!relationalAtomContainsPredicateVariables(baseRelationalAtom, selectionPredicate))
+                throw new UnsupportedOperationException("Still haven't decided what to do with queries with complex predicates outside the scope of the base relationalatom!");
+        }
+
+        VariableOffsets offsets = new VariableOffsets(baseRelationalAtom);
+        boolean[] stringColumns = child.getStringColumns();
+
+        this.compiledPredicates = new RowPredicate[selectionPredicates.size()];
+        for (int i = 0; i < selectionPredicates.size(); i++) {
+            compiledPredicates[i] = PredicateCompiler.compile(selectionPredicates.get(i), offsets, stringColumns);
+        }
+        this.compiledBatchPredicates = null;
+    }
+
+    private void compileBatchPredicates(boolean[] stringColumns) {
+        VariableOffsets offsets = new VariableOffsets(baseRelationalAtom);
+
+        this.compiledBatchPredicates = new BatchPredicate[selectionPredicates.size()];
+        for (int i = 0; i < selectionPredicates.size(); i++) {
+            compiledBatchPredicates[i] = PredicateCompiler.compileBatch(selectionPredicates.get(i), offsets, stringColumns);
+        }
+    }
+
+    //  checks the tuple against the compiled predicates
+    private boolean passesCompiledPredicates(Tuple tuple) {
+        for (RowPredicate predicate : compiledPredicates) {
+            if (!predicate.test(tuple, null)) return false;
+        }
+        return true;
     }
 
     /**
@@ -46,7 +87,7 @@ public class SelectOperator extends Operator {
         Tuple tupleInQuestion;
 
         while ((tupleInQuestion  = child.getNextTuple()) != null) {
-            if (passesSelectionPredicates(tupleInQuestion, this.selectionPredicates ,this.baseRelationalAtom)) {
+            if (passesCompiledPredicates(tupleInQuestion)) {
                 nextTuple = tupleInQuestion;
                 break;
             }
@@ -55,11 +96,43 @@ public class SelectOperator extends Operator {
         return nextTuple;
     }
 
+    /**
+     * filters the child's batches in place by narrowing down their selection vectors with each predicate in turn
+     *
+     * @return the next batch with at least one row passing the predicates, null once the child is exhausted
+     * @throws IOException thrown if any exceptions bubble up from the child operator
+     */
+    @Override
+    public TupleBatch getNextBatch() throws IOException {
+        TupleBatch batch;
+
+        while ((batch = child.getNextBatch()) != null) {
+            if (batch.getNumColumns() != baseRelationalAtom.getTerms().size()) throw new IllegalArgumentException("Mismatched tuple length with relationalatom!");
+            if (compiledBatchPredicates == null) compileBatchPredicates(batch.getStringColumns());
+
+            int selectedCount = batch.getSelectedCount();
+            for (BatchPredicate predicate : compiledBatchPredicates) {
+                if (selectedCount == 0) break;
+                selectedCount = predicate.filter(batch.getColumns(), batch.getSelection(), selectedCount);
+            }
+            batch.setSelectedCount(selectedCount);
+
+            if (selectedCount > 0) return batch;
+        }
+
+        return null;
+    }
+
     @Override
     public void reset() {
         child.reset();
     }
 
+    @Override
+    public boolean[] getStringColumns() {
+        return child.getStringColumns();
+    }
+
     //  checks if all the predicates are true
     public static boolean passesSelectionPredicates(Tuple tuple, List<ComparisonAtom> comparisonAtomList, RelationalAtom sourceAtom) {
         return comparisonAtomList.stream().allMatch(comparisonAtom -> passesPredicate(tuple, comparisonAtom, sourceAtom));
@@ -67,7 +140,7 @@ public class SelectOperator extends Operator {
 
 
     public static boolean passesPredicate(Tuple tuple, ComparisonAtom comparisonAtom, RelationalAtom sourceAtom) {
-        if (tuple.getFields().size() != sourceAtom.getTerms().size()) throw new IllegalArgumentException("Mismatched tuple length with relationalatom!");
+        if (tuple.size() != sourceAtom.getTerms().size()) throw new IllegalArgumentException("Mismatched tuple length with relationalatom!");
 
         //  currently have a function that takes in a comparisonAtom, ex y > 5. Relational atom - ex R(x,y,z), and tuple (1,2,3)
         //  to check if the comparisonAtom predicate is passed, we need to extract the relevant constant for each variable in the relational atom.
@@ -131,6 +204,7 @@ public class SelectOperator extends Operator {
 
     public void setBaseRelationalAtom(RelationalAtom baseRelationalAtom) {
         this.baseRelationalAtom = baseRelationalAtom;
+        bindPredicates();
     }
 
     public List<ComparisonAtom> getSelectionPredicates() {
@@ -139,5 +213,6 @@ public class SelectOperator extends Operator {
 
     public void setSelectionPredicates(List<ComparisonAtom> selectionPredicates) {
         this.selectionPredicates = selectionPredicates;
+        bindPredicates();
     }
 }
@@ -0,0 +1,85 @@
+package ed.inf.adbs.minibase.evaluator;
+
+import ed.inf.adbs.minibase.base.*;
+import ed.inf.adbs.minibase.dbstructures.ColumnStatistics;
+import ed.inf.adbs.minibase.dbstructures.DatabaseCatalog;
+import ed.inf.adbs.minibase.dbstructures.Relation;
+import ed.inf.adbs.minibase.dbstructures.TableStatistics;
+
+import java.util.function.Function;
+
+/**
+ * Estimates the selectivity of comparisons over relational atoms from the statistics gathered by ANALYZE.
+ * A comparison between a variable and a constant is estimated from the statistics of the column the variable is bound to,
+ * and an equality between two variables of the same atom from their distinct counts.
+ * Anything that can't be estimated from statistics, including every comparison over a relation that hasn't been analysed, gets the usual fixed default selectivity.
+ */
+public class SelectivityEstimator {
+
+    //  looks up the statistics of a relation by name, giving null for relations that haven't been analysed
+    private final Function<String, TableStatistics> statisticsLookup;
+
+    public SelectivityEstimator(Function<String, TableStatistics> statisticsLookup) {
+        this.statisticsLookup = statisticsLookup;
+    }
+
+    //  an estimator over the statistics loaded into the catalog's relations
+    public static SelectivityEstimator fromCatalog(DatabaseCatalog catalog) {
+        return new SelectivityEstimator(relationName -> {
+            Relation relation = catalog.getRelationMap().get(relationName);
+            return (relation == null) ? null : relation.getStatistics();
+        });
+    }
+
+    /**
+     * Estimates the fraction of the atom's rows that pass a comparison made within it.
+     *
+     * @param comparisonAtom the comparison, against a constant or between two variables of the atom
+     * @param relationalAtom the atom the comparison is applied over
+     * @return the estimated selectivity, between 0 and 1
+     */
+    public double estimateSelectivity(ComparisonAtom comparisonAtom, RelationalAtom relationalAtom) {
+        Term term1 = comparisonAtom.getTerm1();
+        Term term2 = comparisonAtom.getTerm2();
+        ComparisonOperator op = comparisonAtom.getOp();
+
+        if (term1 instanceof Variable && term2 instanceof Constant) {
+            ColumnStatistics column = getColumnStatistics(relationalAtom, (Variable) term1);
+            if (column != null) return column.estimateSelectivity(op, (Constant) term2);
+        } else if (term1 instanceof Constant && term2 instanceof Variable) {
+            ColumnStatistics column = getColumnStatistics(relationalAtom, (Variable) term2);
+            if (column != null) return column.estimateSelectivity(PredicateCompiler.flip(op), (Constant) term1);
+        } else if (term1 instanceof Variable && term2 instanceof Variable && (op == ComparisonOperator.EQ || op == ComparisonOperator.NEQ)) {
+            ColumnStatistics column1 = getColumnStatistics(relationalAtom, (Variable) term1);
+            ColumnStatistics column2 = getColumnStatistics(relationalAtom, (Variable) term2);
+
+            if (column1 != null && column2 != null) {
+                double equalSelectivity = 1.0 / Math.max(1, Math.max(column1.getDistinctCount(), column2.getDistinctCount()));
+                return (op == ComparisonOperator.EQ) ? equalSelectivity : 1 - equalSelectivity;
+            }
+        }
+
+        return CostModel.getDefaultSelectivity(op);
+    }
+
+    //  the number of distinct values of the variable in the relation the atom is over, or -1 if the relation hasn't been analysed
+    public double estimateDistinctValues(RelationalAtom relationalAtom, Variable variable) {
+        ColumnStatistics column = getColumnStatistics(relationalAtom, variable);
+        return (column == null) ? -1 : Math.max(1, column.getDistinctCount());
+    }
+
+    //  the statistics of the relation the atom is over, null if it hasn't been analysed
+    public TableStatistics getStatistics(RelationalAtom relationalAtom) {
+        return statisticsLookup.apply(relationalAtom.getName());
+    }
+
+    //  the statistics of the first column the variable is bound to in the atom, null if there are none
+    private ColumnStatistics getColumnStatistics(RelationalAtom relationalAtom, Variable variable) {
+        TableStatistics statistics = getStatistics(relationalAtom);
+        if (statistics == null) return null;
+
+        int column = relationalAtom.getTerms().indexOf(variable);
+        if (column < 0 || column >= statistics.getColumnStatistics().size()) return null;
+        return statistics.getColumnStatistics(column);
+    }
+}
@@ -0,0 +1,130 @@
+package ed.inf.adbs.minibase.evaluator;
+
+import ed.inf.adbs.minibase.base.RelationalAtom;
+import ed.inf.adbs.minibase.base.Term;
+import ed.inf.adbs.minibase.base.Variable;
+import ed.inf.adbs.minibase.dbstructures.Tuple;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Runs the semi-join reduction of the Yannakakis algorithm over the leaves of an acyclic query's plan, ahead of its joins.
+ * Every leaf is read into memory once, then the tuples of each atom that can't join with its children in the join tree are dropped bottom-up,
+ * and after that those that can't join with their parent top-down. Every tuple left takes part in at least one output tuple of the full join,
+ * so none of the joins above build intermediate results with dangling tuples that are thrown away later on.
+ * The reduced tuples are read back through a ReducedRelationOperator per leaf, the first of which to be read runs the reduction.
+ */
+public class SemiJoinReducer {
+
+    List<Operator> children;
+    QueryHypergraph.JoinTree joinTree;
+
+    //  for every atom other than the root, the columns of the variables it shares with its parent, in its own tuples and in its parent's respectively
+    List<List<Integer>> childKeyColumns;
+    List<List<Integer>> parentKeyColumns;
+
+    //  the tuples of every atom left after the reduction, null until it has run
+    List<List<Tuple>> reducedTuples;
+    long tuplesRead;
+
+    /**
+     * @param children the leaves of the plan, one per atom of the join tree and in the same order
+     * @param joinTree the join tree over the atoms of the leaves
+     */
+    public SemiJoinReducer(List<Operator> children, QueryHypergraph.JoinTree joinTree) {
+        List<RelationalAtom> relationalAtoms = joinTree.getRelationalAtoms();
+        if (children.size() != relationalAtoms.size()) throw new IllegalArgumentException("A semi-join reduction needs exactly one child operator per atom of the join tree!");
+
+        this.children = children;
+        this.joinTree = joinTree;
+        this.childKeyColumns = new ArrayList<>();
+        this.parentKeyColumns = new ArrayList<>();
+
+        for (int atom = 0; atom < relationalAtoms.size(); atom++) {
+            List<Integer> childColumns = new ArrayList<>();
+            List<Integer> parentColumns = new ArrayList<>();
+
+            int parent = joinTree.getParent(atom);
+            if (parent != -1) {
+                List<Term> childTerms = relationalAtoms.get(atom).getTerms();
+                List<Term> parentTerms = relationalAtoms.get(parent).getTerms();
+                for (Variable variable : QueryHypergraph.getVariables(relationalAtoms.get(atom))) {
+                    if (parentTerms.contains(variable)) {
+                        childColumns.add(childTerms.indexOf(variable));
+                        parentColumns.add(parentTerms.indexOf(variable));
+                    }
+                }
+            }
+
+            childKeyColumns.add(childColumns);
+            parentKeyColumns.add(parentColumns);
+        }
+    }
+
+    //  the tuples of the atom at the given position left after the reduction, which is run first if it hasn't been already; synchronized since parallel pipelines may ask at once
+    synchronized List<Tuple> getReducedTuples(int atom) throws IOException {
+        if (reducedTuples == null) reduce();
+        return reducedTuples.get(atom);
+    }
+
+    private void reduce() throws IOException {
+        List<List<Tuple>> tuples = new ArrayList<>();
+        for (Operator child : children) {
+            List<Tuple> childTuples = new ArrayList<>();
+            child.reset();
+            Tuple tuple;
+            while ((tuple = child.getNextTuple()) != null) childTuples.add(tuple);
+            tuples.add(childTuples);
+            tuplesRead += childTuples.size();
+        }
+
+        int[] eliminationOrder = joinTree.getEliminationOrder();
+
+        //  bottom-up, every parent keeps the tuples joining with its child. Children come before their parents in the elimination order,
+        //  so a child has already been reduced by its own children by the time it reduces its parent
+        for (int i = 0; i < eliminationOrder.length - 1; i++) {
+            int atom = eliminationOrder[i];
+            int parent = joinTree.getParent(atom);
+            tuples.set(parent, semiJoin(tuples.get(parent), parentKeyColumns.get(atom), tuples.get(atom), childKeyColumns.get(atom)));
+        }
+
+        //  top-down, every child keeps the tuples joining with its fully reduced parent
+        for (int i = eliminationOrder.length - 2; i >= 0; i--) {
+            int atom = eliminationOrder[i];
+            int parent = joinTree.getParent(atom);
+            tuples.set(atom, semiJoin(tuples.get(atom), childKeyColumns.get(atom), tuples.get(parent), parentKeyColumns.get(atom)));
+        }
+
+        this.reducedTuples = tuples;
+    }
+
+    //  the tuples whose key columns match the key columns of some filtering tuple. With no key columns that's all of them, unless there are no filtering tuples
+    private static List<Tuple> semiJoin(List<Tuple> tuples, List<Integer> keyColumns, List<Tuple> filteringTuples, List<Integer> filteringKeyColumns) {
+        if (filteringTuples.isEmpty()) return new ArrayList<>();
+        if (keyColumns.isEmpty()) return tuples;
+
+        Set<Tuple> keys = new HashSet<>();
+        for (Tuple tuple : filteringTuples) keys.add(HashJoinOperator.extractKey(tuple, filteringKeyColumns));
+
+        List<Tuple> kept = new ArrayList<>();
+        for (Tuple tuple : tuples) {
+            if (keys.contains(HashJoinOperator.extractKey(tuple, keyColumns))) kept.add(tuple);
+        }
+        return kept;
+    }
+
+    //  the number of tuples the leaves produced before the reduction, and left after it
+    public long getTuplesRead() {
+        return tuplesRead;
+    }
+
+    public long getTuplesKept() {
+        if (reducedTuples == null) return 0;
+        return reducedTuples.stream().mapToLong(List::size).sum();
+    }
+
+    public QueryHypergraph.JoinTree getJoinTree() {
+        return joinTree;
+    }
+}
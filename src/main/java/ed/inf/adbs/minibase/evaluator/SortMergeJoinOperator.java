@@ -0,0 +1,188 @@
+package ed.inf.adbs.minibase.evaluator;
+
+import ed.inf.adbs.minibase.base.ComparisonAtom;
+import ed.inf.adbs.minibase.base.RelationalAtom;
+import ed.inf.adbs.minibase.dbstructures.Tuple;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+//  SortMergeJoinOperator that implements an equi-join by sorting both children on their join key columns, then merging through the two sorted inputs side by side.
+//  The right tuples sharing a key are gathered into a run, which is joined with every left tuple holding that key, so duplicate keys on both sides are handled.
+//  Both sides are sorted through SortOperators, which spill to disk beyond the memory budget, unless the left child is already known to be sorted on its key columns.
+//  The output comes out ordered on the left key columns, as compared by SortOperator.compareKeys
+public class SortMergeJoinOperator extends Operator {
+
+    Operator leftChild;
+    Operator rightChild;
+
+    List<RelationalAtom> leftChildAtoms;
+    RelationalAtom rightChildAtom;
+    List<ComparisonAtom> joinConditions;
+
+    //  the positions of the equi-join key columns in the left and right tuples respectively, matched up index by index
+    int[] leftKeyIndices;
+    int[] rightKeyIndices;
+
+    //  the join conditions that aren't already enforced through the key, which are checked over every pair with equal keys
+    List<ComparisonAtom> residualConditions;
+    RowPredicate[] compiledResidualConditions;
+
+    //  the children sorted on their key columns
+    Operator sortedLeft;
+    Operator sortedRight;
+
+    //  the current left tuple, the run of right tuples sharing its key and the position in that run, and the first right tuple past the run
+    Tuple leftTuple;
+    List<Tuple> rightRun;
+    int runIndex;
+    Tuple nextRightTuple;
+    boolean rightStarted;
+
+    //  the type flags of the combined tuples, worked out from the first matching pair and shared by every tuple emitted after it
+    boolean[] combinedStringColumns;
+
+    /**
+     * @param leftChild the operator producing the left tuples
+     * @param rightChild the operator producing the right tuples
+     * @param leftChildAtoms the relational atoms making up the left tuples
+     * @param rightChildAtom the relational atom making up the right tuples
+     * @param joinConditions the comparisons relating the left atoms to the right atom
+     * @param leftSorted whether the left child already emits its tuples ordered on the join's left key columns, in which case it isn't sorted again
+     * @param memoryBudgetBytes the memory each of the sorts may hold tuples in before spilling them
+     */
+    public SortMergeJoinOperator(Operator leftChild, Operator rightChild, List<RelationalAtom> leftChildAtoms, RelationalAtom rightChildAtom, List<ComparisonAtom> joinConditions, boolean leftSorted, long memoryBudgetBytes) {
+        if (!HashJoinOperator.hasEquiJoinKey(leftChildAtoms, rightChildAtom, joinConditions)) throw new IllegalArgumentException("A sort-merge join can only be constructed when there is at least one equi-join key between the children!");
+
+        this.leftChild = leftChild;
+        this.rightChild = rightChild;
+        this.leftChildAtoms = leftChildAtoms;
+        this.rightChildAtom = rightChildAtom;
+        this.joinConditions = joinConditions;
+
+        List<Integer> leftKeys = new ArrayList<>();
+        List<Integer> rightKeys = new ArrayList<>();
+        this.residualConditions = new ArrayList<>();
+        HashJoinOperator.extractJoinKeys(leftChildAtoms, rightChildAtom, joinConditions, leftKeys, rightKeys, residualConditions);
+        this.leftKeyIndices = leftKeys.stream().mapToInt(Integer::intValue).toArray();
+        this.rightKeyIndices = rightKeys.stream().mapToInt(Integer::intValue).toArray();
+
+        VariableOffsets leftOffsets = new VariableOffsets(leftChildAtoms);
+        VariableOffsets rightOffsets = new VariableOffsets(rightChildAtom);
+        this.compiledResidualConditions = new RowPredicate[residualConditions.size()];
+        for (int i = 0; i < residualConditions.size(); i++) {
+            compiledResidualConditions[i] = PredicateCompiler.compile(residualConditions.get(i), leftOffsets, leftChild.getStringColumns(), rightOffsets, rightChild.getStringColumns());
+        }
+
+        this.sortedLeft = leftSorted ? leftChild : new SortOperator(leftChild, leftKeyIndices, memoryBudgetBytes);
+        this.sortedRight = new SortOperator(rightChild, rightKeyIndices, memoryBudgetBytes);
+        this.rightRun = new ArrayList<>();
+    }
+
+    /**
+     * returns the next combined tuple whose left and right parts agree on the join key and pass the residual join conditions.
+     * The current left tuple is paired with the remaining tuples of the right run before moving on to the next left tuple.
+     * A left tuple with the same key as the one before it reuses the run, otherwise the right input is advanced to the run of the new key, if there is one.
+     *
+     * @return the next joined tuple, null if none such remain
+     * @throws IOException thrown if any exceptions bubble up from the child operators
+     */
+    @Override
+    public Tuple getNextTuple() throws IOException {
+        while (true) {
+            while (leftTuple != null && runIndex < rightRun.size()) {
+                Tuple rightTuple = rightRun.get(runIndex++);
+
+                if (passesResidualConditions(leftTuple, rightTuple)) {
+                    if (combinedStringColumns == null) combinedStringColumns = Tuple.concatStringColumns(leftTuple, rightTuple);
+                    return Tuple.concat(leftTuple, rightTuple, combinedStringColumns);
+                }
+            }
+
+            Tuple previousLeftTuple = leftTuple;
+            if ((leftTuple = sortedLeft.getNextTuple()) == null) return null;
+            runIndex = 0;
+
+            if (previousLeftTuple != null && SortOperator.compareKeys(previousLeftTuple, leftKeyIndices, leftTuple, leftKeyIndices) == 0) continue;
+
+            if (!rightStarted) {
+                nextRightTuple = sortedRight.getNextTuple();
+                rightStarted = true;
+            }
+
+            rightRun.clear();
+            while (nextRightTuple != null && SortOperator.compareKeys(leftTuple, leftKeyIndices, nextRightTuple, rightKeyIndices) > 0) {
+                nextRightTuple = sortedRight.getNextTuple();
+            }
+
+            //  no left tuple from here on can match once the right input has run out
+            if (nextRightTuple == null) return null;
+
+            while (nextRightTuple != null && SortOperator.compareKeys(leftTuple, leftKeyIndices, nextRightTuple, rightKeyIndices) == 0) {
+                rightRun.add(nextRightTuple);
+                nextRightTuple = sortedRight.getNextTuple();
+            }
+        }
+    }
+
+    private boolean passesResidualConditions(Tuple leftTuple, Tuple rightTuple) {
+        for (RowPredicate residualCondition : compiledResidualConditions) {
+            if (!residualCondition.test(leftTuple, rightTuple)) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean[] getStringColumns() {
+        boolean[] leftStringColumns = leftChild.getStringColumns();
+        boolean[] rightStringColumns = rightChild.getStringColumns();
+
+        return (leftStringColumns == null || rightStringColumns == null) ? null : Tuple.concatStringColumns(leftStringColumns, rightStringColumns);
+    }
+
+    //  the sorts keep their output, so resetting rewinds them rather than sorting the children again
+    @Override
+    public void reset() {
+        sortedLeft.reset();
+        sortedRight.reset();
+        leftTuple = null;
+        rightRun.clear();
+        runIndex = 0;
+        nextRightTuple = null;
+        rightStarted = false;
+    }
+
+    //  the left key columns for joining the given atoms, which the join's output is ordered on
+    public static int[] getLeftKeyIndices(List<RelationalAtom> leftChildAtoms, RelationalAtom rightChildAtom, List<ComparisonAtom> joinConditions) {
+        List<Integer> leftKeys = new ArrayList<>();
+        HashJoinOperator.extractJoinKeys(leftChildAtoms, rightChildAtom, joinConditions, leftKeys, new ArrayList<>(), new ArrayList<>());
+        return leftKeys.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    //  whether the output is ordered on the given columns, which holds when they start off the left key columns the output is sorted on
+    public boolean isSortedOn(int[] columns) {
+        if (columns.length == 0 || columns.length > leftKeyIndices.length) return false;
+
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i] != leftKeyIndices[i]) return false;
+        }
+        return true;
+    }
+
+    public int[] getLeftKeyIndices() {
+        return leftKeyIndices;
+    }
+
+    public int[] getRightKeyIndices() {
+        return rightKeyIndices;
+    }
+
+    public List<ComparisonAtom> getResidualConditions() {
+        return residualConditions;
+    }
+
+    public RelationalAtom getRightChildAtom() {
+        return rightChildAtom;
+    }
+}
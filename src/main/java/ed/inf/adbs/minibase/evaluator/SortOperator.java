@@ -0,0 +1,194 @@
+package ed.inf.adbs.minibase.evaluator;
+
+import ed.inf.adbs.minibase.dbstructures.Tuple;
+import ed.inf.adbs.minibase.dbstructures.TupleSpillFile;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+//  SortOperator that emits the tuples of its child ordered on the given key columns.
+//  The child is drained and sorted the first time a tuple is asked for. While the tuples fit within the memory budget they're sorted in memory,
+//  otherwise every budget's worth of them is sorted and spilled to disk as a run, and the runs are then merged back together as tuples are asked for.
+//  Key columns are ordered by their int values, and for string columns that means by their codes in the global dictionary rather than alphabetically,
+//  which keeps equal keys together the same way across operators without decoding any strings
+public class SortOperator extends Operator {
+
+    //  the most runs merged at once. Beyond this many, groups of runs are merged into longer runs on disk first
+    static final int MERGE_FAN_IN = 64;
+
+    Operator child;
+    int[] sortColumns;
+    long memoryBudgetBytes;
+
+    Comparator<Tuple> comparator;
+
+    //  the sorted tuples when they fit in memory, or else the runs they were spilled to, null until the child has been sorted
+    List<Tuple> sortedTuples;
+    List<TupleSpillFile> runs;
+    int position;
+
+    //  the readers over the runs, ordered by the tuple each of them is currently at
+    PriorityQueue<RunCursor> mergeQueue;
+    boolean rewindRuns;
+
+    public SortOperator(Operator child, int[] sortColumns, long memoryBudgetBytes) {
+        if (memoryBudgetBytes <= 0) throw new IllegalArgumentException("A sort needs a positive memory budget!");
+
+        this.child = child;
+        this.sortColumns = sortColumns;
+        this.memoryBudgetBytes = memoryBudgetBytes;
+        this.comparator = (tuple1, tuple2) -> compareKeys(tuple1, sortColumns, tuple2, sortColumns);
+    }
+
+    @Override
+    public Tuple getNextTuple() throws IOException {
+        if (sortedTuples == null && runs == null) sort();
+
+        if (runs == null) return position < sortedTuples.size() ? sortedTuples.get(position++) : null;
+
+        if (rewindRuns) openMerge();
+
+        RunCursor cursor = mergeQueue.poll();
+        if (cursor == null) return null;
+
+        Tuple tuple = cursor.current;
+        if (cursor.advance()) mergeQueue.add(cursor);
+        return tuple;
+    }
+
+    //  the sorted output is kept, so resetting only rewinds it. The child isn't read again
+    @Override
+    public void reset() {
+        position = 0;
+        if (runs != null) rewindRuns = true;
+    }
+
+    @Override
+    public boolean[] getStringColumns() {
+        return child.getStringColumns();
+    }
+
+    //  reads the whole child, spilling a sorted run whenever the tuples held pass the memory budget
+    private void sort() throws IOException {
+        List<Tuple> buffer = new ArrayList<>();
+        long bufferBytes = 0;
+        List<TupleSpillFile> spilledRuns = new ArrayList<>();
+
+        Tuple tuple;
+        while ((tuple = child.getNextTuple()) != null) {
+            buffer.add(tuple);
+            bufferBytes += Tuple.estimateSizeInBytes(tuple.size());
+
+            if (bufferBytes > memoryBudgetBytes) {
+                spilledRuns.add(spillRun(buffer));
+                buffer.clear();
+                bufferBytes = 0;
+            }
+        }
+
+        if (spilledRuns.isEmpty()) {
+            buffer.sort(comparator);
+            this.sortedTuples = buffer;
+            return;
+        }
+
+        if (!buffer.isEmpty()) spilledRuns.add(spillRun(buffer));
+
+        //  merging groups of runs into longer ones until there are few enough of them to merge in one go
+        while (spilledRuns.size() > MERGE_FAN_IN) {
+            List<TupleSpillFile> mergedRuns = new ArrayList<>();
+            for (int start = 0; start < spilledRuns.size(); start += MERGE_FAN_IN) {
+                mergedRuns.add(mergeRuns(spilledRuns.subList(start, Math.min(start + MERGE_FAN_IN, spilledRuns.size()))));
+            }
+            spilledRuns = mergedRuns;
+        }
+
+        this.runs = spilledRuns;
+        this.rewindRuns = true;
+    }
+
+    private TupleSpillFile spillRun(List<Tuple> buffer) throws IOException {
+        buffer.sort(comparator);
+
+        TupleSpillFile run = new TupleSpillFile(buffer.get(0).getStringColumns());
+        for (Tuple tuple : buffer) run.write(tuple);
+        return run;
+    }
+
+    //  merges the given runs into a single new run, deleting them afterwards
+    private TupleSpillFile mergeRuns(List<TupleSpillFile> runsToMerge) throws IOException {
+        PriorityQueue<RunCursor> queue = new PriorityQueue<>((cursor1, cursor2) -> comparator.compare(cursor1.current, cursor2.current));
+        for (TupleSpillFile run : runsToMerge) {
+            RunCursor cursor = new RunCursor(run.openReader());
+            if (cursor.advance()) queue.add(cursor);
+        }
+
+        TupleSpillFile mergedRun = new TupleSpillFile(runsToMerge.get(0).getStringColumns());
+        RunCursor cursor;
+        while ((cursor = queue.poll()) != null) {
+            mergedRun.write(cursor.current);
+            if (cursor.advance()) queue.add(cursor);
+        }
+
+        for (TupleSpillFile run : runsToMerge) run.close();
+        return mergedRun;
+    }
+
+    //  opens a reader at the start of every run, closing any left open from before a reset
+    private void openMerge() throws IOException {
+        if (mergeQueue != null) {
+            for (RunCursor cursor : mergeQueue) cursor.reader.close();
+        }
+
+        mergeQueue = new PriorityQueue<>(runs.size(), (cursor1, cursor2) -> comparator.compare(cursor1.current, cursor2.current));
+        for (TupleSpillFile run : runs) {
+            RunCursor cursor = new RunCursor(run.openReader());
+            if (cursor.advance()) mergeQueue.add(cursor);
+        }
+        rewindRuns = false;
+    }
+
+    /**
+     * Compares two tuples on their key columns in turn, the first key column of each tuple against the other's first key column and so on.
+     * Columns are compared by their type first, ints before strings, then by their int values or dictionary codes.
+     *
+     * @return negative, zero or positive as the first tuple's key orders before, the same as or after the second's
+     */
+    public static int compareKeys(Tuple tuple1, int[] keyColumns1, Tuple tuple2, int[] keyColumns2) {
+        for (int i = 0; i < keyColumns1.length; i++) {
+            int comparison = Boolean.compare(tuple1.isString(keyColumns1[i]), tuple2.isString(keyColumns2[i]));
+            if (comparison == 0) comparison = Integer.compare(tuple1.getValue(keyColumns1[i]), tuple2.getValue(keyColumns2[i]));
+            if (comparison != 0) return comparison;
+        }
+        return 0;
+    }
+
+    //  whether the sorted output spilled to disk
+    public boolean isExternal() {
+        return runs != null;
+    }
+
+    public int[] getSortColumns() {
+        return sortColumns;
+    }
+
+    //  a reader over a run along with the tuple it is currently at
+    private static class RunCursor {
+        final TupleSpillFile.Reader reader;
+        Tuple current;
+
+        RunCursor(TupleSpillFile.Reader reader) {
+            this.reader = reader;
+        }
+
+        //  moves on to the next tuple of the run, closing the reader and returning false once there are none left
+        boolean advance() throws IOException {
+            current = reader.next();
+            if (current == null) reader.close();
+            return current != null;
+        }
+    }
+}
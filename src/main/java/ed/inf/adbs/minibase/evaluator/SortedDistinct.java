@@ -0,0 +1,57 @@
+package ed.inf.adbs.minibase.evaluator;
+
+import java.util.Arrays;
+
+/**
+ * Duplicate elimination over rows arriving sorted on some of their columns, as they come out of a sort-merge join whose key columns the projection keeps.
+ * Two rows that differ in the sorted columns can't be duplicates, and rows equal in them arrive one straight after another, so only the rows of the current run of equal sorted values are kept,
+ * and they are dropped as soon as the run ends. Nothing is ever held back, and rows sorted on all of their columns only ever keep a single one.
+ */
+public class SortedDistinct implements RowDeduplicator {
+
+    //  the positions in the rows of the columns they arrive sorted on
+    private final int[] sortedColumns;
+
+    //  the sorted values of the current run, null before the first row, and the rows seen within it
+    private int[] runValues;
+    private final IntRowSet runRows;
+
+    public SortedDistinct(int width, int[] sortedColumns) {
+        if (sortedColumns.length == 0) throw new IllegalArgumentException("A sorted distinct needs the rows to be sorted on at least one column!");
+
+        this.sortedColumns = sortedColumns;
+        this.runRows = new IntRowSet(width);
+    }
+
+    @Override
+    public boolean add(int[] row) {
+        if (runValues == null || !inRun(row)) {
+            if (runValues == null) runValues = new int[sortedColumns.length];
+            for (int i = 0; i < sortedColumns.length; i++) runValues[i] = row[sortedColumns[i]];
+            if (runRows.size() > 0) runRows.clear();
+        }
+        return runRows.add(row);
+    }
+
+    private boolean inRun(int[] row) {
+        for (int i = 0; i < sortedColumns.length; i++) {
+            if (row[sortedColumns[i]] != runValues[i]) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int[] nextDeferred() {
+        return null;
+    }
+
+    @Override
+    public void close() {
+        runValues = null;
+        runRows.clear();
+    }
+
+    public int[] getSortedColumns() {
+        return Arrays.copyOf(sortedColumns, sortedColumns.length);
+    }
+}
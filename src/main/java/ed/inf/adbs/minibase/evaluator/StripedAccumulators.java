@@ -0,0 +1,81 @@
+package ed.inf.adbs.minibase.evaluator;
+
+import ed.inf.adbs.minibase.dbstructures.Tuple;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Running sums and counts for a few groups, shared by every worker of a parallel aggregation. Each accumulator is a LongAdder, which spreads concurrent additions over
+ * separate cells rather than having the threads contend on one value, so the workers add straight into the shared groups without keeping partials to merge at the end.
+ * Only the first MAX_GROUPS groups get a slot. Workers keep accumulating any groups past that into their own tables.
+ */
+public class StripedAccumulators {
+
+    static final int MAX_GROUPS = 64;
+
+    private final int numSums;
+    private final boolean[] keyStringColumns;
+
+    //  the slot of each group's key, with the keys, sums and counts of the slots handed out so far
+    private final ConcurrentHashMap<Tuple, Integer> slots;
+    private final int[][] keys;
+    private final LongAdder[] sums;
+    private final LongAdder[] counts;
+    private final AtomicInteger nextSlot;
+
+    public StripedAccumulators(int keyWidth, int numSums) {
+        this.numSums = numSums;
+        this.keyStringColumns = new boolean[keyWidth];
+
+        this.slots = new ConcurrentHashMap<>();
+        this.keys = new int[MAX_GROUPS][];
+        this.sums = new LongAdder[MAX_GROUPS * numSums];
+        this.counts = new LongAdder[MAX_GROUPS];
+        this.nextSlot = new AtomicInteger();
+    }
+
+    //  the slot of the group with the given key, handing out a new one if the group doesn't have one yet. -1 once every slot has been handed out to other groups
+    public int slotOf(int[] key) {
+        if (nextSlot.get() >= MAX_GROUPS) {
+            Integer existing = slots.get(new Tuple(key, keyStringColumns));
+            return (existing == null) ? -1 : existing;
+        }
+
+        Integer slot = slots.computeIfAbsent(new Tuple(key, keyStringColumns), groupKey -> {
+            //  groups with different keys can be added at the same time, so the slots are claimed atomically
+            int newSlot = nextSlot.getAndIncrement();
+            if (newSlot >= MAX_GROUPS) return null;
+
+            keys[newSlot] = key;
+            for (int sum = 0; sum < numSums; sum++) sums[newSlot * numSums + sum] = new LongAdder();
+            counts[newSlot] = new LongAdder();
+            return newSlot;
+        });
+        return (slot == null) ? -1 : slot;
+    }
+
+    public void addToSum(int slot, int sum, long value) {
+        sums[slot * numSums + sum].add(value);
+    }
+
+    public void addToCount(int slot, long count) {
+        counts[slot].add(count);
+    }
+
+    //  adds every slot's sums and counts into the given table, once all the workers are done
+    public void drainInto(GroupTable groups) {
+        for (int slot = 0; slot < size(); slot++) {
+            if (counts[slot].sum() == 0) continue;
+
+            int group = groups.findOrInsert(keys[slot]);
+            groups.addToCount(group, counts[slot].sum());
+            for (int sum = 0; sum < numSums; sum++) groups.addToSum(group, sum, sums[slot * numSums + sum].sum());
+        }
+    }
+
+    public int size() {
+        return Math.min(nextSlot.get(), MAX_GROUPS);
+    }
+}
@@ -0,0 +1,68 @@
+package ed.inf.adbs.minibase.evaluator;
+
+import ed.inf.adbs.minibase.base.RelationalAtom;
+import ed.inf.adbs.minibase.base.Term;
+import ed.inf.adbs.minibase.base.Variable;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resolves the variables of the relational atoms making up a tuple to the column offsets they occupy in it.
+ * Built once while the plan is constructed, so operators only ever look up fixed positions per tuple instead of searching through term lists.
+ * For a tuple combined from several atoms, the offsets of each atom's terms are shifted by the total size of the atoms before it.
+ */
+public class VariableOffsets {
+
+    private static final int[] NO_OFFSETS = new int[0];
+
+    //  every offset at which each variable occurs, in increasing order
+    private final Map<Variable, int[]> offsets;
+    private final int width;
+
+    public VariableOffsets(RelationalAtom relationalAtom) {
+        this(Collections.singletonList(relationalAtom));
+    }
+
+    public VariableOffsets(List<RelationalAtom> relationalAtoms) {
+        this.offsets = new HashMap<>();
+
+        int offset = 0;
+        for (RelationalAtom relationalAtom : relationalAtoms) {
+            for (Term term : relationalAtom.getTerms()) {
+                if (term instanceof Variable) {
+                    int[] existing = offsets.getOrDefault(term, NO_OFFSETS);
+                    int[] extended = new int[existing.length + 1];
+                    System.arraycopy(existing, 0, extended, 0, existing.length);
+                    extended[existing.length] = offset;
+                    offsets.put((Variable) term, extended);
+                }
+                offset++;
+            }
+        }
+
+        this.width = offset;
+    }
+
+    //  returns every offset at which the variable occurs, an empty array if it doesn't occur at all
+    public int[] getOffsets(Variable variable) {
+        return offsets.getOrDefault(variable, NO_OFFSETS);
+    }
+
+    //  returns the offset of the first occurrence of the variable, -1 if it doesn't occur at all
+    public int getFirstOffset(Variable variable) {
+        int[] variableOffsets = getOffsets(variable);
+        return (variableOffsets.length == 0) ? -1 : variableOffsets[0];
+    }
+
+    public boolean contains(Variable variable) {
+        return offsets.containsKey(variable);
+    }
+
+    //  the number of columns in the tuples described by these offsets
+    public int getWidth() {
+        return width;
+    }
+}
@@ -6,7 +6,16 @@ query
 
 head
     : ID_UPPER '(' ')'
-    | ID_UPPER '(' variable (',' variable)* ')'
+    | ID_UPPER '(' headTerm (',' headTerm)* ')'
+    ;
+
+headTerm
+    : variable
+    | aggregate
+    ;
+
+aggregate
+    : ID_UPPER '(' variable ')'
     ;
 
 body
@@ -37,12 +37,12 @@ public class QueryParser {
         @Override
         public Query visitQuery(MinibaseParser.QueryContext ctx) {
             String headName = ctx.head().ID_UPPER().getText();
-            VariableVisitor variableVisitor = new VariableVisitor();
-            List<Term> headVariables = ctx.head().variable()
+            HeadTermVisitor headTermVisitor = new HeadTermVisitor();
+            List<Term> headTerms = ctx.head().headTerm()
                     .stream()
-                    .map(v -> v.accept(variableVisitor))
+                    .map(t -> t.accept(headTermVisitor))
                     .collect(toList());
-            RelationalAtom head = new RelationalAtom(headName, headVariables);
+            RelationalAtom head = new RelationalAtom(headName, headTerms);
 
             AtomVisitor atomVisitor = new AtomVisitor();
             List<Atom> body = ctx.body().atom()
@@ -104,6 +104,28 @@ public class QueryParser {
         }
     }
 
+    private static class HeadTermVisitor extends MinibaseBaseVisitor<Term> {
+        @Override
+        public Term visitHeadTerm(MinibaseParser.HeadTermContext ctx) {
+            if (ctx.variable() != null) {
+                return ctx.variable().accept(new VariableVisitor());
+            }
+            if (ctx.aggregate() != null) {
+                return ctx.aggregate().accept(new AggregateVisitor());
+            }
+            return null;
+        }
+    }
+
+    private static class AggregateVisitor extends MinibaseBaseVisitor<AggregateTerm> {
+        @Override
+        public AggregateTerm visitAggregate(MinibaseParser.AggregateContext ctx) {
+            AggregateFunction function = AggregateFunction.fromString(ctx.ID_UPPER().getText());
+            Variable variable = ctx.variable().accept(new VariableVisitor());
+            return new AggregateTerm(function, variable);
+        }
+    }
+
     private static class VariableVisitor extends MinibaseBaseVisitor<Variable> {
         @Override
         public Variable visitVariable(MinibaseParser.VariableContext ctx) {
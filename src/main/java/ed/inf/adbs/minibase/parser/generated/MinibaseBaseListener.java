@@ -35,6 +35,30 @@ public class MinibaseBaseListener implements MinibaseListener {
 	 * <p>The default implementation does nothing.</p>
 	 */
 	@Override public void exitHead(MinibaseParser.HeadContext ctx) { }
+	/**
+	 * {@inheritDoc}
+	 *
+	 * <p>The default implementation does nothing.</p>
+	 */
+	@Override public void enterHeadTerm(MinibaseParser.HeadTermContext ctx) { }
+	/**
+	 * {@inheritDoc}
+	 *
+	 * <p>The default implementation does nothing.</p>
+	 */
+	@Override public void exitHeadTerm(MinibaseParser.HeadTermContext ctx) { }
+	/**
+	 * {@inheritDoc}
+	 *
+	 * <p>The default implementation does nothing.</p>
+	 */
+	@Override public void enterAggregate(MinibaseParser.AggregateContext ctx) { }
+	/**
+	 * {@inheritDoc}
+	 *
+	 * <p>The default implementation does nothing.</p>
+	 */
+	@Override public void exitAggregate(MinibaseParser.AggregateContext ctx) { }
 	/**
 	 * {@inheritDoc}
 	 *
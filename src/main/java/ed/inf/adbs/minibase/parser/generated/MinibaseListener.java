@@ -27,6 +27,26 @@ public interface MinibaseListener extends ParseTreeListener {
 	 * @param ctx the parse tree
 	 */
 	void exitHead(MinibaseParser.HeadContext ctx);
+	/**
+	 * Enter a parse tree produced by {@link MinibaseParser#headTerm}.
+	 * @param ctx the parse tree
+	 */
+	void enterHeadTerm(MinibaseParser.HeadTermContext ctx);
+	/**
+	 * Exit a parse tree produced by {@link MinibaseParser#headTerm}.
+	 * @param ctx the parse tree
+	 */
+	void exitHeadTerm(MinibaseParser.HeadTermContext ctx);
+	/**
+	 * Enter a parse tree produced by {@link MinibaseParser#aggregate}.
+	 * @param ctx the parse tree
+	 */
+	void enterAggregate(MinibaseParser.AggregateContext ctx);
+	/**
+	 * Exit a parse tree produced by {@link MinibaseParser#aggregate}.
+	 * @param ctx the parse tree
+	 */
+	void exitAggregate(MinibaseParser.AggregateContext ctx);
 	/**
 	 * Enter a parse tree produced by {@link MinibaseParser#body}.
 	 * @param ctx the parse tree
@@ -20,13 +20,13 @@ public class MinibaseParser extends Parser {
 		T__0=1, T__1=2, T__2=3, T__3=4, T__4=5, T__5=6, T__6=7, T__7=8, T__8=9, 
 		T__9=10, INT=11, STRING=12, ID_UPPER=13, ID_LOWER=14, WS=15;
 	public static final int
-		RULE_query = 0, RULE_head = 1, RULE_body = 2, RULE_atom = 3, RULE_relationalAtom = 4, 
-		RULE_comparisonAtom = 5, RULE_term = 6, RULE_variable = 7, RULE_constant = 8, 
-		RULE_cmpOp = 9;
+		RULE_query = 0, RULE_head = 1, RULE_headTerm = 2, RULE_aggregate = 3, 
+		RULE_body = 4, RULE_atom = 5, RULE_relationalAtom = 6, RULE_comparisonAtom = 7, 
+		RULE_term = 8, RULE_variable = 9, RULE_constant = 10, RULE_cmpOp = 11;
 	private static String[] makeRuleNames() {
 		return new String[] {
-			"query", "head", "body", "atom", "relationalAtom", "comparisonAtom", 
-			"term", "variable", "constant", "cmpOp"
+			"query", "head", "headTerm", "aggregate", "body", "atom", "relationalAtom", 
+			"comparisonAtom", "term", "variable", "constant", "cmpOp"
 		};
 	}
 	public static final String[] ruleNames = makeRuleNames();
@@ -127,11 +127,11 @@ public class MinibaseParser extends Parser {
 		try {
 			enterOuterAlt(_localctx, 1);
 			{
-			setState(20);
+			setState(24);
 			head();
-			setState(21);
+			setState(25);
 			match(T__0);
-			setState(22);
+			setState(26);
 			body();
 			}
 		}
@@ -148,11 +148,11 @@ public class MinibaseParser extends Parser {
 
 	public static class HeadContext extends ParserRuleContext {
 		public TerminalNode ID_UPPER() { return getToken(MinibaseParser.ID_UPPER, 0); }
-		public List<VariableContext> variable() {
-			return getRuleContexts(VariableContext.class);
+		public List<HeadTermContext> headTerm() {
+			return getRuleContexts(HeadTermContext.class);
 		}
-		public VariableContext variable(int i) {
-			return getRuleContext(VariableContext.class,i);
+		public HeadTermContext headTerm(int i) {
+			return getRuleContext(HeadTermContext.class,i);
 		}
 		public HeadContext(ParserRuleContext parent, int invokingState) {
 			super(parent, invokingState);
@@ -178,46 +178,46 @@ public class MinibaseParser extends Parser {
 		enterRule(_localctx, 2, RULE_head);
 		int _la;
 		try {
-			setState(39);
+			setState(43);
 			_errHandler.sync(this);
 			switch ( getInterpreter().adaptivePredict(_input,1,_ctx) ) {
 			case 1:
 				enterOuterAlt(_localctx, 1);
 				{
-				setState(24);
+				setState(28);
 				match(ID_UPPER);
-				setState(25);
+				setState(29);
 				match(T__1);
-				setState(26);
+				setState(30);
 				match(T__2);
 				}
 				break;
 			case 2:
 				enterOuterAlt(_localctx, 2);
 				{
-				setState(27);
+				setState(31);
 				match(ID_UPPER);
-				setState(28);
+				setState(32);
 				match(T__1);
-				setState(29);
-				variable();
-				setState(34);
+				setState(33);
+				headTerm();
+				setState(38);
 				_errHandler.sync(this);
 				_la = _input.LA(1);
 				while (_la==T__3) {
 					{
 					{
-					setState(30);
+					setState(34);
 					match(T__3);
-					setState(31);
-					variable();
+					setState(35);
+					headTerm();
 					}
 					}
-					setState(36);
+					setState(40);
 					_errHandler.sync(this);
 					_la = _input.LA(1);
 				}
-				setState(37);
+				setState(41);
 				match(T__2);
 				}
 				break;
@@ -234,6 +234,119 @@ public class MinibaseParser extends Parser {
 		return _localctx;
 	}
 
+	public static class HeadTermContext extends ParserRuleContext {
+		public VariableContext variable() {
+			return getRuleContext(VariableContext.class,0);
+		}
+		public AggregateContext aggregate() {
+			return getRuleContext(AggregateContext.class,0);
+		}
+		public HeadTermContext(ParserRuleContext parent, int invokingState) {
+			super(parent, invokingState);
+		}
+		@Override public int getRuleIndex() { return RULE_headTerm; }
+		@Override
+		public void enterRule(ParseTreeListener listener) {
+			if ( listener instanceof MinibaseListener ) ((MinibaseListener)listener).enterHeadTerm(this);
+		}
+		@Override
+		public void exitRule(ParseTreeListener listener) {
+			if ( listener instanceof MinibaseListener ) ((MinibaseListener)listener).exitHeadTerm(this);
+		}
+		@Override
+		public <T> T accept(ParseTreeVisitor<? extends T> visitor) {
+			if ( visitor instanceof MinibaseVisitor ) return ((MinibaseVisitor<? extends T>)visitor).visitHeadTerm(this);
+			else return visitor.visitChildren(this);
+		}
+	}
+
+	public final HeadTermContext headTerm() throws RecognitionException {
+		HeadTermContext _localctx = new HeadTermContext(_ctx, getState());
+		enterRule(_localctx, 4, RULE_headTerm);
+		try {
+			setState(47);
+			_errHandler.sync(this);
+			switch (_input.LA(1)) {
+			case ID_LOWER:
+				enterOuterAlt(_localctx, 1);
+				{
+				setState(45);
+				variable();
+				}
+				break;
+			case ID_UPPER:
+				enterOuterAlt(_localctx, 2);
+				{
+				setState(46);
+				aggregate();
+				}
+				break;
+			default:
+				throw new NoViableAltException(this);
+			}
+		}
+		catch (RecognitionException re) {
+			_localctx.exception = re;
+			_errHandler.reportError(this, re);
+			_errHandler.recover(this, re);
+		}
+		finally {
+			exitRule();
+		}
+		return _localctx;
+	}
+
+	public static class AggregateContext extends ParserRuleContext {
+		public TerminalNode ID_UPPER() { return getToken(MinibaseParser.ID_UPPER, 0); }
+		public VariableContext variable() {
+			return getRuleContext(VariableContext.class,0);
+		}
+		public AggregateContext(ParserRuleContext parent, int invokingState) {
+			super(parent, invokingState);
+		}
+		@Override public int getRuleIndex() { return RULE_aggregate; }
+		@Override
+		public void enterRule(ParseTreeListener listener) {
+			if ( listener instanceof MinibaseListener ) ((MinibaseListener)listener).enterAggregate(this);
+		}
+		@Override
+		public void exitRule(ParseTreeListener listener) {
+			if ( listener instanceof MinibaseListener ) ((MinibaseListener)listener).exitAggregate(this);
+		}
+		@Override
+		public <T> T accept(ParseTreeVisitor<? extends T> visitor) {
+			if ( visitor instanceof MinibaseVisitor ) return ((MinibaseVisitor<? extends T>)visitor).visitAggregate(this);
+			else return visitor.visitChildren(this);
+		}
+	}
+
+	public final AggregateContext aggregate() throws RecognitionException {
+		AggregateContext _localctx = new AggregateContext(_ctx, getState());
+		enterRule(_localctx, 6, RULE_aggregate);
+		try {
+			enterOuterAlt(_localctx, 1);
+			{
+			setState(49);
+			match(ID_UPPER);
+			setState(50);
+			match(T__1);
+			setState(51);
+			variable();
+			setState(52);
+			match(T__2);
+			}
+		}
+		catch (RecognitionException re) {
+			_localctx.exception = re;
+			_errHandler.reportError(this, re);
+			_errHandler.recover(this, re);
+		}
+		finally {
+			exitRule();
+		}
+		return _localctx;
+	}
+
 	public static class BodyContext extends ParserRuleContext {
 		public List<AtomContext> atom() {
 			return getRuleContexts(AtomContext.class);
@@ -262,26 +375,26 @@ public class MinibaseParser extends Parser {
 
 	public final BodyContext body() throws RecognitionException {
 		BodyContext _localctx = new BodyContext(_ctx, getState());
-		enterRule(_localctx, 4, RULE_body);
+		enterRule(_localctx, 8, RULE_body);
 		int _la;
 		try {
 			enterOuterAlt(_localctx, 1);
 			{
-			setState(41);
+			setState(54);
 			atom();
-			setState(46);
+			setState(59);
 			_errHandler.sync(this);
 			_la = _input.LA(1);
 			while (_la==T__3) {
 				{
 				{
-				setState(42);
+				setState(55);
 				match(T__3);
-				setState(43);
+				setState(56);
 				atom();
 				}
 				}
-				setState(48);
+				setState(61);
 				_errHandler.sync(this);
 				_la = _input.LA(1);
 			}
@@ -326,15 +439,15 @@ public class MinibaseParser extends Parser {
 
 	public final AtomContext atom() throws RecognitionException {
 		AtomContext _localctx = new AtomContext(_ctx, getState());
-		enterRule(_localctx, 6, RULE_atom);
+		enterRule(_localctx, 10, RULE_atom);
 		try {
-			setState(51);
+			setState(64);
 			_errHandler.sync(this);
 			switch (_input.LA(1)) {
 			case ID_UPPER:
 				enterOuterAlt(_localctx, 1);
 				{
-				setState(49);
+				setState(62);
 				relationalAtom();
 				}
 				break;
@@ -343,7 +456,7 @@ public class MinibaseParser extends Parser {
 			case ID_LOWER:
 				enterOuterAlt(_localctx, 2);
 				{
-				setState(50);
+				setState(63);
 				comparisonAtom();
 				}
 				break;
@@ -391,34 +504,34 @@ public class MinibaseParser extends Parser {
 
 	public final RelationalAtomContext relationalAtom() throws RecognitionException {
 		RelationalAtomContext _localctx = new RelationalAtomContext(_ctx, getState());
-		enterRule(_localctx, 8, RULE_relationalAtom);
+		enterRule(_localctx, 12, RULE_relationalAtom);
 		int _la;
 		try {
 			enterOuterAlt(_localctx, 1);
 			{
-			setState(53);
+			setState(66);
 			match(ID_UPPER);
-			setState(54);
+			setState(67);
 			match(T__1);
-			setState(55);
+			setState(68);
 			term();
-			setState(60);
+			setState(73);
 			_errHandler.sync(this);
 			_la = _input.LA(1);
 			while (_la==T__3) {
 				{
 				{
-				setState(56);
+				setState(69);
 				match(T__3);
-				setState(57);
+				setState(70);
 				term();
 				}
 				}
-				setState(62);
+				setState(75);
 				_errHandler.sync(this);
 				_la = _input.LA(1);
 			}
-			setState(63);
+			setState(76);
 			match(T__2);
 			}
 		}
@@ -464,15 +577,15 @@ public class MinibaseParser extends Parser {
 
 	public final ComparisonAtomContext comparisonAtom() throws RecognitionException {
 		ComparisonAtomContext _localctx = new ComparisonAtomContext(_ctx, getState());
-		enterRule(_localctx, 10, RULE_comparisonAtom);
+		enterRule(_localctx, 14, RULE_comparisonAtom);
 		try {
 			enterOuterAlt(_localctx, 1);
 			{
-			setState(65);
+			setState(78);
 			term();
-			setState(66);
+			setState(79);
 			cmpOp();
-			setState(67);
+			setState(80);
 			term();
 			}
 		}
@@ -515,15 +628,15 @@ public class MinibaseParser extends Parser {
 
 	public final TermContext term() throws RecognitionException {
 		TermContext _localctx = new TermContext(_ctx, getState());
-		enterRule(_localctx, 12, RULE_term);
+		enterRule(_localctx, 16, RULE_term);
 		try {
-			setState(71);
+			setState(84);
 			_errHandler.sync(this);
 			switch (_input.LA(1)) {
 			case ID_LOWER:
 				enterOuterAlt(_localctx, 1);
 				{
-				setState(69);
+				setState(82);
 				variable();
 				}
 				break;
@@ -531,7 +644,7 @@ public class MinibaseParser extends Parser {
 			case STRING:
 				enterOuterAlt(_localctx, 2);
 				{
-				setState(70);
+				setState(83);
 				constant();
 				}
 				break;
@@ -573,11 +686,11 @@ public class MinibaseParser extends Parser {
 
 	public final VariableContext variable() throws RecognitionException {
 		VariableContext _localctx = new VariableContext(_ctx, getState());
-		enterRule(_localctx, 14, RULE_variable);
+		enterRule(_localctx, 18, RULE_variable);
 		try {
 			enterOuterAlt(_localctx, 1);
 			{
-			setState(73);
+			setState(86);
 			match(ID_LOWER);
 			}
 		}
@@ -616,12 +729,12 @@ public class MinibaseParser extends Parser {
 
 	public final ConstantContext constant() throws RecognitionException {
 		ConstantContext _localctx = new ConstantContext(_ctx, getState());
-		enterRule(_localctx, 16, RULE_constant);
+		enterRule(_localctx, 20, RULE_constant);
 		int _la;
 		try {
 			enterOuterAlt(_localctx, 1);
 			{
-			setState(75);
+			setState(88);
 			_la = _input.LA(1);
 			if ( !(_la==INT || _la==STRING) ) {
 			_errHandler.recoverInline(this);
@@ -666,12 +779,12 @@ public class MinibaseParser extends Parser {
 
 	public final CmpOpContext cmpOp() throws RecognitionException {
 		CmpOpContext _localctx = new CmpOpContext(_ctx, getState());
-		enterRule(_localctx, 18, RULE_cmpOp);
+		enterRule(_localctx, 22, RULE_cmpOp);
 		int _la;
 		try {
 			enterOuterAlt(_localctx, 1);
 			{
-			setState(77);
+			setState(90);
 			_la = _input.LA(1);
 			if ( !((((_la) & ~0x3f) == 0 && ((1L << _la) & ((1L << T__4) | (1L << T__5) | (1L << T__6) | (1L << T__7) | (1L << T__8) | (1L << T__9))) != 0)) ) {
 			_errHandler.recoverInline(this);
@@ -695,26 +808,28 @@ public class MinibaseParser extends Parser {
 	}
 
 	public static final String _serializedATN =
-		"\3\u608b\ua72a\u8133\ub9ed\u417c\u3be7\u7786\u5964\3\21R\4\2\t\2\4\3\t"+
-		"\3\4\4\t\4\4\5\t\5\4\6\t\6\4\7\t\7\4\b\t\b\4\t\t\t\4\n\t\n\4\13\t\13\3"+
-		"\2\3\2\3\2\3\2\3\3\3\3\3\3\3\3\3\3\3\3\3\3\3\3\7\3#\n\3\f\3\16\3&\13\3"+
-		"\3\3\3\3\5\3*\n\3\3\4\3\4\3\4\7\4/\n\4\f\4\16\4\62\13\4\3\5\3\5\5\5\66"+
-		"\n\5\3\6\3\6\3\6\3\6\3\6\7\6=\n\6\f\6\16\6@\13\6\3\6\3\6\3\7\3\7\3\7\3"+
-		"\7\3\b\3\b\5\bJ\n\b\3\t\3\t\3\n\3\n\3\13\3\13\3\13\2\2\f\2\4\6\b\n\f\16"+
-		"\20\22\24\2\4\3\2\r\16\3\2\7\f\2M\2\26\3\2\2\2\4)\3\2\2\2\6+\3\2\2\2\b"+
-		"\65\3\2\2\2\n\67\3\2\2\2\fC\3\2\2\2\16I\3\2\2\2\20K\3\2\2\2\22M\3\2\2"+
-		"\2\24O\3\2\2\2\26\27\5\4\3\2\27\30\7\3\2\2\30\31\5\6\4\2\31\3\3\2\2\2"+
-		"\32\33\7\17\2\2\33\34\7\4\2\2\34*\7\5\2\2\35\36\7\17\2\2\36\37\7\4\2\2"+
-		"\37$\5\20\t\2 !\7\6\2\2!#\5\20\t\2\" \3\2\2\2#&\3\2\2\2$\"\3\2\2\2$%\3"+
-		"\2\2\2%\'\3\2\2\2&$\3\2\2\2\'(\7\5\2\2(*\3\2\2\2)\32\3\2\2\2)\35\3\2\2"+
-		"\2*\5\3\2\2\2+\60\5\b\5\2,-\7\6\2\2-/\5\b\5\2.,\3\2\2\2/\62\3\2\2\2\60"+
-		".\3\2\2\2\60\61\3\2\2\2\61\7\3\2\2\2\62\60\3\2\2\2\63\66\5\n\6\2\64\66"+
-		"\5\f\7\2\65\63\3\2\2\2\65\64\3\2\2\2\66\t\3\2\2\2\678\7\17\2\289\7\4\2"+
-		"\29>\5\16\b\2:;\7\6\2\2;=\5\16\b\2<:\3\2\2\2=@\3\2\2\2><\3\2\2\2>?\3\2"+
-		"\2\2?A\3\2\2\2@>\3\2\2\2AB\7\5\2\2B\13\3\2\2\2CD\5\16\b\2DE\5\24\13\2"+
-		"EF\5\16\b\2F\r\3\2\2\2GJ\5\20\t\2HJ\5\22\n\2IG\3\2\2\2IH\3\2\2\2J\17\3"+
-		"\2\2\2KL\7\20\2\2L\21\3\2\2\2MN\t\2\2\2N\23\3\2\2\2OP\t\3\2\2P\25\3\2"+
-		"\2\2\b$)\60\65>I";
+		"\3\u608b\ua72a\u8133\ub9ed\u417c\u3be7\u7786\u5964\3\21_\4\2\t\2\4\3\t"+
+		"\3\4\4\t\4\4\5\t\5\4\6\t\6\4\7\t\7\4\b\t\b\4\t\t\t\4\n\t\n\4\13\t\13\4"+
+		"\f\t\f\4\r\t\r\3\2\3\2\3\2\3\2\3\3\3\3\3\3\3\3\3\3\3\3\3\3\3\3\7\3\'\n"+
+		"\3\f\3\16\3*\13\3\3\3\3\3\5\3.\n\3\3\4\3\4\5\4\62\n\4\3\5\3\5\3\5\3\5"+
+		"\3\5\3\6\3\6\3\6\7\6<\n\6\f\6\16\6?\13\6\3\7\3\7\5\7C\n\7\3\b\3\b\3\b"+
+		"\3\b\3\b\7\bJ\n\b\f\b\16\bM\13\b\3\b\3\b\3\t\3\t\3\t\3\t\3\n\3\n\5\nW"+
+		"\n\n\3\13\3\13\3\f\3\f\3\r\3\r\3\r\2\2\16\2\4\6\b\n\f\16\20\22\24\26\30"+
+		"\2\4\3\2\r\16\3\2\7\f\2Y\2\32\3\2\2\2\4-\3\2\2\2\6\61\3\2\2\2\b\63\3\2"+
+		"\2\2\n8\3\2\2\2\fB\3\2\2\2\16D\3\2\2\2\20P\3\2\2\2\22V\3\2\2\2\24X\3\2"+
+		"\2\2\26Z\3\2\2\2\30\\\3\2\2\2\32\33\5\4\3\2\33\34\7\3\2\2\34\35\5\n\6"+
+		"\2\35\3\3\2\2\2\36\37\7\17\2\2\37 \7\4\2\2 .\7\5\2\2!\"\7\17\2\2\"#\7"+
+		"\4\2\2#(\5\6\4\2$%\7\6\2\2%\'\5\6\4\2&$\3\2\2\2\'*\3\2\2\2(&\3\2\2\2("+
+		")\3\2\2\2)+\3\2\2\2*(\3\2\2\2+,\7\5\2\2,.\3\2\2\2-\36\3\2\2\2-!\3\2\2"+
+		"\2.\5\3\2\2\2/\62\5\24\13\2\60\62\5\b\5\2\61/\3\2\2\2\61\60\3\2\2\2\62"+
+		"\7\3\2\2\2\63\64\7\17\2\2\64\65\7\4\2\2\65\66\5\24\13\2\66\67\7\5\2\2"+
+		"\67\t\3\2\2\28=\5\f\7\29:\7\6\2\2:<\5\f\7\2;9\3\2\2\2<?\3\2\2\2=;\3\2"+
+		"\2\2=>\3\2\2\2>\13\3\2\2\2?=\3\2\2\2@C\5\16\b\2AC\5\20\t\2B@\3\2\2\2B"+
+		"A\3\2\2\2C\r\3\2\2\2DE\7\17\2\2EF\7\4\2\2FK\5\22\n\2GH\7\6\2\2HJ\5\22"+
+		"\n\2IG\3\2\2\2JM\3\2\2\2KI\3\2\2\2KL\3\2\2\2LN\3\2\2\2MK\3\2\2\2NO\7\5"+
+		"\2\2O\17\3\2\2\2PQ\5\22\n\2QR\5\30\r\2RS\5\22\n\2S\21\3\2\2\2TW\5\24\13"+
+		"\2UW\5\26\f\2VT\3\2\2\2VU\3\2\2\2W\23\3\2\2\2XY\7\20\2\2Y\25\3\2\2\2Z"+
+		"[\t\2\2\2[\27\3\2\2\2\\]\t\3\2\2]\31\3\2\2\2\t(-\61=BKV";
 	public static final ATN _ATN =
 		new ATNDeserializer().deserialize(_serializedATN.toCharArray());
 	static {
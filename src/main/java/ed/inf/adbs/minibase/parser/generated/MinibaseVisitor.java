@@ -22,6 +22,18 @@ public interface MinibaseVisitor<T> extends ParseTreeVisitor<T> {
 	 * @return the visitor result
 	 */
 	T visitHead(MinibaseParser.HeadContext ctx);
+	/**
+	 * Visit a parse tree produced by {@link MinibaseParser#headTerm}.
+	 * @param ctx the parse tree
+	 * @return the visitor result
+	 */
+	T visitHeadTerm(MinibaseParser.HeadTermContext ctx);
+	/**
+	 * Visit a parse tree produced by {@link MinibaseParser#aggregate}.
+	 * @param ctx the parse tree
+	 * @return the visitor result
+	 */
+	T visitAggregate(MinibaseParser.AggregateContext ctx);
 	/**
 	 * Visit a parse tree produced by {@link MinibaseParser#body}.
 	 * @param ctx the parse tree
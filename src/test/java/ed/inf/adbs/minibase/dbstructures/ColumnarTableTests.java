@@ -0,0 +1,102 @@
+package ed.inf.adbs.minibase.dbstructures;
+
+import ed.inf.adbs.minibase.base.*;
+import ed.inf.adbs.minibase.evaluator.BinaryScanOperator;
+import ed.inf.adbs.minibase.evaluator.Operator;
+import ed.inf.adbs.minibase.evaluator.ScanOperator;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ColumnarTableTests {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final Schema schema = new Schema("R", Arrays.asList(IntegerConstant.class, IntegerConstant.class, StringConstant.class));
+
+    private final RelationalAtom relationalAtom = new RelationalAtom("R", Arrays.asList(new Variable("x"), new Variable("y"), new Variable("z")));
+
+    private Relation writeCsvRelation(int numRows) throws IOException {
+        File filesDirectory = temporaryFolder.newFolder("files");
+        File csvFile = new File(filesDirectory, "R.csv");
+
+        try (FileWriter writer = new FileWriter(csvFile)) {
+            for (int i = 0; i < numRows; i++) {
+                writer.write(i + ", " + (i % 7 - 3) + ", '" + (i % 3 == 0 ? "adbs" : "mlpr") + "'\n");
+            }
+        }
+
+        return new Relation("R", schema, csvFile.getPath());
+    }
+
+    private static List<Tuple> drain(Operator operator) throws IOException {
+        List<Tuple> tuples = new ArrayList<>();
+        Tuple next;
+        while ((next = operator.getNextTuple()) != null) tuples.add(next);
+        return tuples;
+    }
+
+    @Test
+    public void test_convertCsv_roundTripsThroughBinaryScanAcrossBlocks() throws IOException {
+        Relation relation = writeCsvRelation(ColumnarTableWriter.BLOCK_SIZE * 2 + 17);
+        String binaryFileName = ColumnarTableWriter.convertCsv(relation);
+
+        List<Tuple> csvTuples = drain(new ScanOperator(relation.getFileLocation(), schema, relationalAtom));
+        List<Tuple> binaryTuples = drain(new BinaryScanOperator(binaryFileName, schema, relationalAtom));
+
+        assertEquals(csvTuples, binaryTuples);
+    }
+
+    @Test
+    public void test_columnarTableReader_readsHeaderAndDictionaries() throws IOException {
+        Relation relation = writeCsvRelation(10);
+        String binaryFileName = ColumnarTableWriter.convertCsv(relation);
+
+        try (ColumnarTableReader reader = new ColumnarTableReader(binaryFileName)) {
+            assertEquals(10, reader.getRowCount());
+            assertEquals(1, reader.getBlockCount());
+            assertEquals(schema.getDataTypes(), reader.getColumnTypes());
+            assertNull(reader.getDictionary(0));
+            assertArrayEquals(new String[] {"adbs", "mlpr"}, reader.getDictionary(2));
+        }
+    }
+
+    @Test
+    public void test_columnarTableReader_tellsWhenTheCsvHasChangedSinceConversion() throws IOException {
+        Relation relation = writeCsvRelation(10);
+        String binaryFileName = ColumnarTableWriter.convertCsv(relation);
+
+        try (ColumnarTableReader reader = new ColumnarTableReader(binaryFileName)) {
+            assertTrue(reader.isCurrent(relation.getFileLocation()));
+        }
+
+        try (FileWriter writer = new FileWriter(relation.getFileLocation(), true)) {
+            writer.write("10, 4, 'adbs'\n");
+        }
+
+        try (ColumnarTableReader reader = new ColumnarTableReader(binaryFileName)) {
+            assertFalse(reader.isCurrent(relation.getFileLocation()));
+        }
+    }
+
+    @Test
+    public void test_binaryScan_resetRewindsToTheFirstRow() throws IOException {
+        Relation relation = writeCsvRelation(5);
+        BinaryScanOperator scan = new BinaryScanOperator(ColumnarTableWriter.convertCsv(relation), schema, relationalAtom);
+
+        List<Tuple> firstRun = drain(scan);
+        scan.reset();
+
+        assertEquals(firstRun, drain(scan));
+    }
+}
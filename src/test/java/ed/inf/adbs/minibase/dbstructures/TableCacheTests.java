@@ -0,0 +1,103 @@
+package ed.inf.adbs.minibase.dbstructures;
+
+import ed.inf.adbs.minibase.base.IntegerConstant;
+import ed.inf.adbs.minibase.base.RelationalAtom;
+import ed.inf.adbs.minibase.base.StringConstant;
+import ed.inf.adbs.minibase.base.Variable;
+import ed.inf.adbs.minibase.evaluator.CachedScanOperator;
+import ed.inf.adbs.minibase.evaluator.ScanOperator;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TableCacheTests {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File filesDirectory;
+
+    @Before
+    public void createFilesDirectory() throws IOException {
+        filesDirectory = temporaryFolder.newFolder("files");
+    }
+
+    private Relation writeRelation(String name, int numRows) throws IOException {
+        File csvFile = new File(filesDirectory, name + ".csv");
+        try (FileWriter writer = new FileWriter(csvFile)) {
+            for (int i = 0; i < numRows; i++) {
+                writer.write(i + ", '" + (i % 2 == 0 ? "even" : "odd") + "'\n");
+            }
+        }
+        return new Relation(name, new Schema(name, Arrays.asList(IntegerConstant.class, StringConstant.class)), csvFile.getPath());
+    }
+
+    @Test
+    public void test_getTable_keepsTablesResidentAndReturnsTheSameInstance() throws IOException {
+        TableCache cache = new TableCache(1 << 20);
+        Relation relation = writeRelation("R", 100);
+
+        InMemoryTable table = cache.getTable(relation);
+
+        assertEquals(100, table.getRowCount());
+        assertSame(table, cache.getTable(relation));
+        assertTrue(cache.isResident("R"));
+    }
+
+    @Test
+    public void test_getTable_evictsTheLeastRecentlyUsedTableOnceOverBudget() throws IOException {
+        Relation relationR = writeRelation("R", 1000);
+        Relation relationS = writeRelation("S", 1000);
+        Relation relationT = writeRelation("T", 1000);
+
+        long tableSize = InMemoryTable.load(relationR).estimateSizeInBytes();
+        TableCache cache = new TableCache(tableSize * 2 + 1);
+
+        cache.getTable(relationR);
+        cache.getTable(relationS);
+        cache.getTable(relationR);
+        cache.getTable(relationT);
+
+        assertTrue(cache.isResident("R"));
+        assertFalse(cache.isResident("S"));
+        assertTrue(cache.isResident("T"));
+        assertTrue(cache.getUsedBytes() <= cache.getMemoryBudgetBytes());
+    }
+
+    @Test
+    public void test_getTable_doesNotCacheTablesLargerThanTheBudget() throws IOException {
+        TableCache cache = new TableCache(64);
+
+        assertNull(cache.getTable(writeRelation("R", 1000)));
+        assertEquals(0, cache.getUsedBytes());
+    }
+
+    @Test
+    public void test_cachedScan_matchesTheCsvScanAndResets() throws IOException {
+        Relation relation = writeRelation("R", 10);
+        RelationalAtom atom = new RelationalAtom("R", Arrays.asList(new Variable("x"), new Variable("y")));
+        CachedScanOperator cachedScan = new CachedScanOperator(new TableCache(1 << 20).getTable(relation), relation.getSchema(), atom);
+
+        List<Tuple> csvTuples = new ArrayList<>();
+        ScanOperator csvScan = new ScanOperator(relation.getFileLocation(), relation.getSchema(), atom);
+        Tuple next;
+        while ((next = csvScan.getNextTuple()) != null) csvTuples.add(next);
+
+        for (int run = 0; run < 2; run++) {
+            List<Tuple> cachedTuples = new ArrayList<>();
+            while ((next = cachedScan.getNextTuple()) != null) cachedTuples.add(next);
+            assertEquals(csvTuples, cachedTuples);
+            cachedScan.reset();
+        }
+    }
+}
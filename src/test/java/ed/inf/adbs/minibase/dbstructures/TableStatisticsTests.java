@@ -0,0 +1,119 @@
+package ed.inf.adbs.minibase.dbstructures;
+
+import ed.inf.adbs.minibase.base.*;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class TableStatisticsTests {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final Schema schema = new Schema("R", Arrays.asList(IntegerConstant.class, IntegerConstant.class, StringConstant.class));
+
+    //  x is unique from 0, y is 0 for half the rows and spread over 1..99 for the rest, z takes one of 3 strings
+    private Relation writeCsvRelation(int numRows) throws IOException {
+        File csvFile = new File(temporaryFolder.newFolder("files"), "R.csv");
+
+        try (FileWriter writer = new FileWriter(csvFile)) {
+            for (int i = 0; i < numRows; i++) {
+                writer.write(i + ", " + (i % 2 == 0 ? 0 : i % 99 + 1) + ", '" + (i % 3 == 0 ? "adbs" : (i % 3 == 1 ? "mlpr" : "rl")) + "'\n");
+            }
+        }
+
+        return new Relation("R", schema, csvFile.getPath());
+    }
+
+    @Test
+    public void test_hyperLogLog_estimatesWithinAFewPercent() {
+        HyperLogLog ints = new HyperLogLog();
+        HyperLogLog strings = new HyperLogLog();
+        for (int i = 0; i < 200000; i++) {
+            ints.addInt(i % 100000);
+            strings.addString("s" + (i % 100000));
+        }
+
+        assertEquals(100000, ints.estimate(), 3000);
+        assertEquals(100000, strings.estimate(), 3000);
+    }
+
+    @Test
+    public void test_analyze_smallRelationIsExact() throws IOException {
+        TableStatistics statistics = StatisticsCollector.analyze(writeCsvRelation(1000));
+
+        assertEquals(1000, statistics.getRowCount());
+
+        ColumnStatistics x = statistics.getColumnStatistics(0);
+        assertEquals(1000, x.getDistinctCount());
+        assertEquals(new IntegerConstant(0), x.getMin());
+        assertEquals(new IntegerConstant(999), x.getMax());
+        assertEquals(0, x.getMostCommonValues().length);
+        assertEquals(StatisticsCollector.HISTOGRAM_BUCKETS + 1, x.getHistogramBounds().length);
+
+        ColumnStatistics y = statistics.getColumnStatistics(1);
+        assertEquals(new IntegerConstant(0), y.getMostCommonValues()[0]);
+        assertEquals(0.5, y.getMostCommonFrequencies()[0], 1e-9);
+
+        ColumnStatistics z = statistics.getColumnStatistics(2);
+        assertTrue(z.isStringColumn());
+        assertEquals(3, z.getDistinctCount());
+        assertEquals(new StringConstant("adbs"), z.getMin());
+        assertEquals(new StringConstant("rl"), z.getMax());
+    }
+
+    @Test
+    public void test_estimateSelectivity_followsTheData() throws IOException {
+        TableStatistics statistics = StatisticsCollector.analyze(writeCsvRelation(100000));
+        ColumnStatistics x = statistics.getColumnStatistics(0);
+        ColumnStatistics y = statistics.getColumnStatistics(1);
+        ColumnStatistics z = statistics.getColumnStatistics(2);
+
+        assertEquals(0.25, x.estimateSelectivity(ComparisonOperator.LT, new IntegerConstant(25000)), 0.02);
+        assertEquals(0.75, x.estimateSelectivity(ComparisonOperator.GEQ, new IntegerConstant(25000)), 0.02);
+        assertEquals(0, x.estimateSelectivity(ComparisonOperator.GT, new IntegerConstant(200000)), 1e-9);
+        assertEquals(0.00001, x.estimateSelectivity(ComparisonOperator.EQ, new IntegerConstant(5)), 0.00001);
+
+        assertEquals(0.5, y.estimateSelectivity(ComparisonOperator.EQ, new IntegerConstant(0)), 0.02);
+        assertEquals(0.5, y.estimateSelectivity(ComparisonOperator.NEQ, new IntegerConstant(0)), 0.02);
+        assertEquals(0.5, y.estimateSelectivity(ComparisonOperator.GT, new IntegerConstant(0)), 0.02);
+
+        assertEquals(1.0 / 3, z.estimateSelectivity(ComparisonOperator.EQ, new StringConstant("mlpr")), 0.02);
+        assertEquals(0, z.estimateSelectivity(ComparisonOperator.EQ, new StringConstant("zzz")), 1e-9);
+        assertEquals(0, z.estimateSelectivity(ComparisonOperator.EQ, new IntegerConstant(1)), 1e-9);
+    }
+
+    @Test
+    public void test_writeStatistics_roundTrips() throws IOException {
+        TableStatistics statistics = StatisticsCollector.analyze(writeCsvRelation(5000));
+        String fileName = new File(temporaryFolder.getRoot(), TableStatistics.STATISTICS_FILE_NAME).getPath();
+
+        TableStatistics.writeStatistics(fileName, Collections.singletonList(statistics));
+        Map<String, TableStatistics> read = TableStatistics.readStatistics(fileName);
+
+        assertEquals(1, read.size());
+        TableStatistics readStatistics = read.get("R");
+        assertEquals(statistics.getRowCount(), readStatistics.getRowCount());
+
+        for (int i = 0; i < 3; i++) {
+            ColumnStatistics expected = statistics.getColumnStatistics(i);
+            ColumnStatistics actual = readStatistics.getColumnStatistics(i);
+
+            assertEquals(expected.getDistinctCount(), actual.getDistinctCount());
+            assertEquals(expected.getMin(), actual.getMin());
+            assertEquals(expected.getMax(), actual.getMax());
+            assertArrayEquals(expected.getMostCommonValues(), actual.getMostCommonValues());
+            assertArrayEquals(expected.getMostCommonFrequencies(), actual.getMostCommonFrequencies(), 0);
+            assertArrayEquals(expected.getHistogramBounds(), actual.getHistogramBounds());
+        }
+    }
+}
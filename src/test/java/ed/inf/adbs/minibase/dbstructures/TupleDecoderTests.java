@@ -0,0 +1,33 @@
+package ed.inf.adbs.minibase.dbstructures;
+
+import ed.inf.adbs.minibase.base.IntegerConstant;
+import ed.inf.adbs.minibase.base.StringConstant;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class TupleDecoderTests {
+
+    private final TupleDecoder decoder = new Schema("R", Arrays.asList(IntegerConstant.class, StringConstant.class, IntegerConstant.class)).getDecoder();
+
+    @Test
+    public void test_decode_parsesEachColumnWithItsType() {
+        Tuple tuple = decoder.decode("1, 'adbs', -9");
+
+        assertEquals(Arrays.asList(new IntegerConstant(1), new StringConstant("adbs"), new IntegerConstant(-9)), tuple.getFields());
+    }
+
+    @Test
+    public void test_decode_removesQuotesAnywhereInTheCell() {
+        assertEquals(new StringConstant("its"), decoder.decode("1, it's' , 2").getFields().get(1));
+        assertEquals(new IntegerConstant(5), decoder.decodeCell(0, " '5' "));
+    }
+
+    @Test
+    public void test_decode_rejectsLinesWithTheWrongNumberOfColumns() {
+        assertThrows(IllegalArgumentException.class, () -> decoder.decode("1, 'adbs'"));
+        assertThrows(IllegalArgumentException.class, () -> decoder.decode("1, 'adbs', 2, 3"));
+    }
+}
@@ -0,0 +1,50 @@
+package ed.inf.adbs.minibase.dbstructures;
+
+import ed.inf.adbs.minibase.base.Constant;
+import ed.inf.adbs.minibase.base.IntegerConstant;
+import ed.inf.adbs.minibase.base.StringConstant;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TupleTests {
+
+    private final List<Constant> fields = Arrays.asList(new IntegerConstant(4), new StringConstant("adbs"), new IntegerConstant(-2));
+
+    @Test
+    public void test_ConstantListConstructorRoundTripsFields() {
+        assertEquals(fields, new Tuple(fields).getFields());
+    }
+
+    @Test
+    public void test_EncodedTupleEqualsConstantListTuple() {
+        int code = StringDictionary.getDictionary().encode("adbs");
+        Tuple encoded = new Tuple(new int[] {4, code, -2}, new boolean[] {false, true, false});
+        Tuple fromConstants = new Tuple(fields);
+
+        assertEquals(fromConstants, encoded);
+        assertEquals(fromConstants.hashCode(), encoded.hashCode());
+    }
+
+    @Test
+    public void test_IntAndStringWithSameValueAreNotEqual() {
+        int code = StringDictionary.getDictionary().encode("adbs");
+        Tuple stringTuple = new Tuple(new int[] {code}, new boolean[] {true});
+        Tuple intTuple = new Tuple(new int[] {code}, new boolean[] {false});
+
+        assertNotEquals(stringTuple, intTuple);
+    }
+
+    @Test
+    public void test_ConcatJoinsValuesAndTypes() {
+        Tuple left = new Tuple(Arrays.asList(new IntegerConstant(1), new StringConstant("a")));
+        Tuple right = new Tuple(Arrays.asList(new StringConstant("b"), new IntegerConstant(2)));
+
+        Tuple combined = Tuple.concat(left, right, Tuple.concatStringColumns(left, right));
+        assertEquals(Arrays.asList(new IntegerConstant(1), new StringConstant("a"), new StringConstant("b"), new IntegerConstant(2)), combined.getFields());
+        assertEquals("1,'a','b',2", combined.toString());
+    }
+}
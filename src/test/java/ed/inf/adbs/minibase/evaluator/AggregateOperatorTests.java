@@ -0,0 +1,133 @@
+package ed.inf.adbs.minibase.evaluator;
+
+import ed.inf.adbs.minibase.base.*;
+import ed.inf.adbs.minibase.dbstructures.Tuple;
+import ed.inf.adbs.minibase.dbstructures.TupleBatch;
+import ed.inf.adbs.minibase.parser.QueryParser;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.*;
+
+import static ed.inf.adbs.minibase.evaluator.ListOperator.drain;
+import static org.junit.Assert.*;
+
+public class AggregateOperatorTests {
+
+    private final Variable variablex = new Variable("x");
+    private final Variable variabley = new Variable("y");
+    private final Variable variablez = new Variable("z");
+
+    private final RelationalAtom atom = new RelationalAtom("R", Arrays.asList(variablex, variabley, variablez));
+
+    private final List<Tuple> tuples = Arrays.asList(
+            tuple(1, 10, "a"),
+            tuple(2, 5, "b"),
+            tuple(1, 3, "a"),
+            tuple(1, 10, "b"),
+            tuple(2, -4, "b"));
+
+    private static Tuple tuple(int x, int y, String z) {
+        return new Tuple(Arrays.asList(new IntegerConstant(x), new IntegerConstant(y), new StringConstant(z)));
+    }
+
+    private static Tuple intTuple(int... values) {
+        List<Constant> fields = new ArrayList<>();
+        for (int value : values) fields.add(new IntegerConstant(value));
+        return new Tuple(fields);
+    }
+
+    private AggregateOperator aggregate(List<Tuple> input, Term... outputTerms) {
+        return new AggregateOperator(new ListOperator(input), Arrays.asList(outputTerms), Collections.singletonList(atom));
+    }
+
+    @Test
+    public void test_aggregate_groupsByTheHeadVariables() throws IOException {
+        AggregateOperator operator = aggregate(tuples, variablex, new AggregateTerm(AggregateFunction.SUM, variabley),
+                new AggregateTerm(AggregateFunction.COUNT, variablez), new AggregateTerm(AggregateFunction.AVG, variabley));
+
+        List<Tuple> expected = Arrays.asList(intTuple(1, 23, 3, 7), intTuple(2, 1, 2, 0));
+        assertEquals(expected, drain(operator));
+
+        operator.reset();
+        assertEquals(expected, drain(operator));
+    }
+
+    @Test
+    public void test_aggregate_countsEveryTupleOfTheBody() throws IOException {
+        //  the duplicate (1, 10) pairs are both summed, and the string key keeps its type
+        assertEquals(Collections.singletonList(intTuple(24)), drain(aggregate(tuples, new AggregateTerm(AggregateFunction.SUM, variabley))));
+
+        List<Tuple> expected = Arrays.asList(
+                new Tuple(Arrays.asList(new StringConstant("a"), new IntegerConstant(13))),
+                new Tuple(Arrays.asList(new StringConstant("b"), new IntegerConstant(11))));
+        assertEquals(expected, drain(aggregate(tuples, variablez, new AggregateTerm(AggregateFunction.SUM, variabley))));
+    }
+
+    @Test
+    public void test_aggregate_emitsNothingForAnEmptyInput() throws IOException {
+        assertTrue(drain(aggregate(Collections.emptyList(), new AggregateTerm(AggregateFunction.COUNT, variablex))).isEmpty());
+    }
+
+    @Test
+    public void test_aggregate_writesAggregatesPastTheIntRangeInFull() throws IOException {
+        List<Tuple> input = Arrays.asList(tuple(1, 2000000000, "a"), tuple(2, 2000000000, "a"));
+        AggregateOperator operator = aggregate(input, variablez, new AggregateTerm(AggregateFunction.SUM, variabley),
+                new AggregateTerm(AggregateFunction.AVG, variabley), new AggregateTerm(AggregateFunction.COUNT, variablex));
+
+        StringBuilder builder = new StringBuilder();
+        assertTrue(operator.appendNextRow(builder));
+        assertEquals("'a',4000000000,2000000000,2", builder.toString());
+        assertFalse(operator.appendNextRow(builder));
+    }
+
+    @Test(expected = ArithmeticException.class)
+    public void test_aggregate_cantPutAggregatesPastTheIntRangeInATuple() throws IOException {
+        drain(aggregate(Arrays.asList(tuple(1, 2000000000, "a"), tuple(2, 2000000000, "a")), new AggregateTerm(AggregateFunction.SUM, variabley)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_aggregate_rejectsSummingStrings() throws IOException {
+        drain(aggregate(tuples, new AggregateTerm(AggregateFunction.SUM, variablez)));
+    }
+
+    @Test
+    public void test_partialAggregators_mergeIntoTheSerialResult() throws IOException {
+        //  more groups than the shared accumulators have slots for, so the later groups stay in the partials
+        List<Tuple> input = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) input.add(tuple(i % (StripedAccumulators.MAX_GROUPS + 40), i % 17, "a"));
+
+        Term[] outputTerms = {variablex, new AggregateTerm(AggregateFunction.SUM, variabley), new AggregateTerm(AggregateFunction.COUNT, variabley)};
+        Set<Tuple> expected = new HashSet<>(drain(aggregate(input, outputTerms)));
+
+        for (boolean shared : new boolean[] {false, true}) {
+            AggregateOperator operator = aggregate(input, outputTerms);
+            StripedAccumulators sharedAccumulators = shared ? operator.newStripedAccumulators() : null;
+
+            //  three partials taking every third batch of the input each, as three workers would
+            List<PartialAggregator> partials = Arrays.asList(operator.newPartialAggregator(sharedAccumulators),
+                    operator.newPartialAggregator(sharedAccumulators), operator.newPartialAggregator(sharedAccumulators));
+            ListOperator child = new ListOperator(input);
+            TupleBatch batch;
+            for (int i = 0; (batch = child.getNextBatch()) != null; i++) partials.get(i % 3).accumulate(batch);
+
+            GroupTable groups = operator.newGroupTable();
+            if (shared) sharedAccumulators.drainInto(groups);
+            for (PartialAggregator partial : partials) groups.mergeFrom(partial.getGroups());
+            operator.setGroups(groups, partials.get(0).getInputStringColumns());
+
+            List<Tuple> result = drain(operator);
+            assertEquals(expected, new HashSet<>(result));
+            assertEquals(expected.size(), result.size());
+        }
+    }
+
+    @Test
+    public void test_queryParser_parsesAggregateHeadTerms() {
+        Query query = QueryParser.parse("Q(x, SUM(t), AVG(y)) :- R(x, y, z), S(x, w, t), x >= 5");
+
+        assertEquals(Arrays.asList(variablex, new AggregateTerm(AggregateFunction.SUM, new Variable("t")), new AggregateTerm(AggregateFunction.AVG, variabley)),
+                query.getHead().getTerms());
+        assertTrue(QueryPlanner.hasAggregates(query.getHead()));
+    }
+}
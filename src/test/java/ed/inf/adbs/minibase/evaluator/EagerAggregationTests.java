@@ -0,0 +1,130 @@
+package ed.inf.adbs.minibase.evaluator;
+
+import ed.inf.adbs.minibase.base.*;
+import ed.inf.adbs.minibase.dbstructures.Tuple;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.*;
+
+import static ed.inf.adbs.minibase.evaluator.ListOperator.drain;
+import static ed.inf.adbs.minibase.evaluator.ListOperator.tuple;
+import static org.junit.Assert.*;
+
+public class EagerAggregationTests {
+
+    private final Variable variablex = new Variable("x");
+    private final Variable variabley = new Variable("y");
+    private final Variable variablez = new Variable("z");
+    private final Variable variablew = new Variable("w");
+    private final Variable variablet = new Variable("t");
+
+    private final RelationalAtom atomR = new RelationalAtom("R", Arrays.asList(variablex, variabley, variablez));
+    private final RelationalAtom atomS = new RelationalAtom("S", Arrays.asList(variablex, variablew, variablet));
+
+    //  repeated join keys and groups on both sides, so the joined rows are multiplied out
+    private final List<Tuple> tuplesR = Arrays.asList(
+            tuple(1, 10, 7),
+            tuple(1, 3, 7),
+            tuple(2, 5, 8),
+            tuple(1, 10, 9),
+            tuple(3, -4, 7));
+
+    private final List<Tuple> tuplesS = Arrays.asList(
+            tuple(1, 100, 4),
+            tuple(1, 200, 6),
+            tuple(2, 100, -2),
+            tuple(2, 300, 5),
+            tuple(2, 100, 5),
+            tuple(4, 100, 1));
+
+    //  aggregates the full join of R and S, the way the plan would without the rewrite
+    private Set<Tuple> aggregateFullJoin(RelationalAtom head) throws IOException {
+        return aggregateFullJoin(head, tuplesR, tuplesS);
+    }
+
+    private Set<Tuple> aggregateFullJoin(RelationalAtom head, List<Tuple> tuplesR, List<Tuple> tuplesS) throws IOException {
+        HashJoinOperator join = new HashJoinOperator(new ListOperator(tuplesR), new ListOperator(tuplesS), Collections.singletonList(atomR), atomS, Collections.emptyList(), false);
+        return new HashSet<>(drain(new AggregateOperator(join, head.getTerms(), Arrays.asList(atomR, atomS))));
+    }
+
+    //  aggregates the join of R and S after aggregating the given leaves of them
+    private Set<Tuple> aggregateEagerly(RelationalAtom head, int... leaves) throws IOException {
+        return aggregateEagerly(head, tuplesR, tuplesS, leaves);
+    }
+
+    private Set<Tuple> aggregateEagerly(RelationalAtom head, List<Tuple> tuplesR, List<Tuple> tuplesS, int... leaves) throws IOException {
+        EagerAggregation eagerAggregation = new EagerAggregation(head, Arrays.asList(atomR, atomS), Collections.emptyList());
+        for (int leaf : leaves) eagerAggregation.aggregate(leaf);
+
+        RelationalAtom leafR = eagerAggregation.getLeafAtom(0);
+        RelationalAtom leafS = eagerAggregation.getLeafAtom(1);
+        HashJoinOperator join = new HashJoinOperator(eagerAggregation.constructLeaf(0, new ListOperator(tuplesR)), eagerAggregation.constructLeaf(1, new ListOperator(tuplesS)),
+                Collections.singletonList(leafR), leafS, Collections.emptyList(), false);
+        return new HashSet<>(drain(eagerAggregation.constructRoot(join, Arrays.asList(leafR, leafS))));
+    }
+
+    @Test
+    public void test_eagerAggregation_keepsOnlyTheVariablesNeededAboveTheLeaf() {
+        RelationalAtom head = new RelationalAtom("Q", Arrays.asList(variablez, new AggregateTerm(AggregateFunction.SUM, variablet)));
+        EagerAggregation eagerAggregation = new EagerAggregation(head, Arrays.asList(atomR, atomS),
+                Collections.singletonList(new ComparisonAtom(variabley, variablew, ComparisonOperator.LT)));
+
+        //  x is shared, z grouped by, y and w used by the join condition, while t is only summed up
+        assertEquals(Arrays.asList(variablex, variabley, variablez), eagerAggregation.getGroupVariables(0));
+        assertFalse(eagerAggregation.canAggregate(0));
+        assertEquals(Arrays.asList(variablex, variablew), eagerAggregation.getGroupVariables(1));
+        assertTrue(eagerAggregation.canAggregate(1));
+
+        eagerAggregation.aggregate(1);
+        assertEquals(atomR, eagerAggregation.getLeafAtom(0));
+        assertEquals(Arrays.asList(variablex, variablew, new Variable("#count1"), new Variable("#count1#high"), new Variable("#sum1_t"), new Variable("#sum1_t#high")),
+                eagerAggregation.getLeafAtom(1).getTerms());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_eagerAggregation_rejectsLeavesThatKeepEveryVariable() {
+        RelationalAtom head = new RelationalAtom("Q", Arrays.asList(variablex, variabley, variablez, new AggregateTerm(AggregateFunction.COUNT, variablet)));
+        new EagerAggregation(head, Arrays.asList(atomR, atomS), Collections.emptyList()).aggregate(0);
+    }
+
+    @Test
+    public void test_eagerAggregation_matchesAggregatingTheFullJoin() throws IOException {
+        List<RelationalAtom> heads = Arrays.asList(
+                new RelationalAtom("Q", Arrays.asList(variablex, new AggregateTerm(AggregateFunction.SUM, variablet), new AggregateTerm(AggregateFunction.AVG, variabley))),
+                new RelationalAtom("Q", Arrays.asList(variablez, new AggregateTerm(AggregateFunction.COUNT, variablew), new AggregateTerm(AggregateFunction.SUM, variabley))),
+                new RelationalAtom("Q", Arrays.asList(new AggregateTerm(AggregateFunction.SUM, variablex), new AggregateTerm(AggregateFunction.AVG, variablet))),
+                new RelationalAtom("Q", Arrays.asList(variablew, new AggregateTerm(AggregateFunction.COUNT, variablez), new AggregateTerm(AggregateFunction.SUM, variablet))));
+
+        for (RelationalAtom head : heads) {
+            Set<Tuple> expected = aggregateFullJoin(head);
+            assertFalse(expected.isEmpty());
+
+            //  either leaf on its own, or both of them
+            EagerAggregation eagerAggregation = new EagerAggregation(head, Arrays.asList(atomR, atomS), Collections.emptyList());
+            for (int leaf = 0; leaf < 2; leaf++) {
+                if (eagerAggregation.canAggregate(leaf)) assertEquals(head.toString(), expected, aggregateEagerly(head, leaf));
+            }
+            if (eagerAggregation.canAggregate(0) && eagerAggregation.canAggregate(1)) assertEquals(head.toString(), expected, aggregateEagerly(head, 0, 1));
+        }
+    }
+
+    @Test
+    public void test_eagerAggregation_keepsPartialSumsPastTheIntRange() throws IOException {
+        //  the partial sums of y for x = 1 and x = 2 are 4000000000 and -4000000000, while the sum over the whole join comes back to 30
+        List<Tuple> bigTuplesR = Arrays.asList(
+                tuple(1, 2000000000, 7),
+                tuple(1, 2000000000, 8),
+                tuple(2, -2000000000, 7),
+                tuple(2, -2000000000, 8),
+                tuple(3, 30, 7));
+        List<Tuple> bigTuplesS = Arrays.asList(tuple(1, 100, 4), tuple(2, 100, 4), tuple(3, 100, 4));
+
+        RelationalAtom head = new RelationalAtom("Q", Arrays.asList(new AggregateTerm(AggregateFunction.SUM, variabley), new AggregateTerm(AggregateFunction.COUNT, variablez)));
+        Set<Tuple> expected = aggregateFullJoin(head, bigTuplesR, bigTuplesS);
+        assertEquals(Collections.singleton(tuple(30, 5)), expected);
+
+        assertEquals(expected, aggregateEagerly(head, bigTuplesR, bigTuplesS, 0));
+        assertEquals(expected, aggregateEagerly(head, bigTuplesR, bigTuplesS, 0, 1));
+    }
+}
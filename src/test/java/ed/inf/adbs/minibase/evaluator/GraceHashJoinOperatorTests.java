@@ -0,0 +1,90 @@
+package ed.inf.adbs.minibase.evaluator;
+
+import ed.inf.adbs.minibase.base.*;
+import ed.inf.adbs.minibase.dbstructures.Tuple;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.*;
+
+import static ed.inf.adbs.minibase.evaluator.ListOperator.tuple;
+import static org.junit.Assert.*;
+
+public class GraceHashJoinOperatorTests {
+
+    private final Variable variablex = new Variable("x");
+    private final Variable variabley = new Variable("y");
+    private final Variable variablez = new Variable("z");
+
+    private final RelationalAtom leftAtom = new RelationalAtom("R", Arrays.asList(variablex, variabley));
+    private final RelationalAtom rightAtom = new RelationalAtom("S", Arrays.asList(variablex, variablez));
+
+    //  a few hundred tuples on each side over a spread of keys, with key 7 heavily repeated on both
+    private final List<Tuple> leftTuples = new ArrayList<>();
+    private final List<Tuple> rightTuples = new ArrayList<>();
+
+    {
+        for (int i = 0; i < 300; i++) leftTuples.add(tuple(i % 97, i));
+        for (int i = 0; i < 200; i++) rightTuples.add(tuple((i * 7) % 113, i));
+        for (int i = 0; i < 60; i++) {
+            leftTuples.add(tuple(7, 1000 + i));
+            rightTuples.add(tuple(7, 1000 + i));
+        }
+    }
+
+    //  the tuples an operator emits along with how many times each of them is emitted
+    private static Map<Tuple, Integer> drain(Operator operator) throws IOException {
+        Map<Tuple, Integer> result = new HashMap<>();
+        for (Tuple tuple : ListOperator.drain(operator)) result.merge(tuple, 1, Integer::sum);
+        return result;
+    }
+
+    private Map<Tuple, Integer> nestedLoopResult(List<ComparisonAtom> joinConditions) throws IOException {
+        return drain(new JoinOperator(new ListOperator(leftTuples), new ListOperator(rightTuples), Collections.singletonList(leftAtom), rightAtom, joinConditions));
+    }
+
+    private GraceHashJoinOperator graceHashJoin(List<ComparisonAtom> joinConditions, boolean buildOnLeft, long memoryBudgetBytes) {
+        return new GraceHashJoinOperator(new ListOperator(leftTuples), new ListOperator(rightTuples), Collections.singletonList(leftAtom), rightAtom, joinConditions, buildOnLeft, memoryBudgetBytes);
+    }
+
+    @Test
+    public void test_graceHashJoin_staysInMemoryWithinTheBudget() throws IOException {
+        GraceHashJoinOperator join = graceHashJoin(Collections.emptyList(), false, 1024 * 1024);
+
+        assertEquals(nestedLoopResult(Collections.emptyList()), drain(join));
+        assertFalse(join.isPartitioned());
+    }
+
+    @Test
+    public void test_graceHashJoin_partitionsBeyondTheBudget() throws IOException {
+        GraceHashJoinOperator join = graceHashJoin(Collections.emptyList(), false, 4 * 1024);
+
+        Map<Tuple, Integer> expected = nestedLoopResult(Collections.emptyList());
+        assertEquals(expected, drain(join));
+        assertTrue(join.isPartitioned());
+
+        join.reset();
+        assertEquals(expected, drain(join));
+    }
+
+    @Test
+    public void test_graceHashJoin_repartitionsSkewedPartitions() throws IOException {
+        //  the tuples with key 7 alone are over budget, so their partition is split until the depth limit and then joined in memory regardless
+        GraceHashJoinOperator join = graceHashJoin(Collections.emptyList(), true, 2 * 1024);
+
+        assertEquals(nestedLoopResult(Collections.emptyList()), drain(join));
+        assertTrue(join.getPartitionsSpilled() > GraceHashJoinOperator.MAX_PARTITIONING_DEPTH);
+    }
+
+    @Test
+    public void test_graceHashJoin_checksResidualConditions() throws IOException {
+        List<ComparisonAtom> joinConditions = Collections.singletonList(new ComparisonAtom(variabley, variablez, ComparisonOperator.GT));
+
+        for (boolean buildOnLeft : new boolean[] {false, true}) {
+            GraceHashJoinOperator join = graceHashJoin(joinConditions, buildOnLeft, 4 * 1024);
+
+            assertEquals(joinConditions, join.getResidualConditions());
+            assertEquals(nestedLoopResult(joinConditions), drain(join));
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package ed.inf.adbs.minibase.evaluator;
+
+import ed.inf.adbs.minibase.base.*;
+import ed.inf.adbs.minibase.dbstructures.Tuple;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.*;
+
+import static ed.inf.adbs.minibase.evaluator.ListOperator.drain;
+import static ed.inf.adbs.minibase.evaluator.ListOperator.drainBatches;
+import static ed.inf.adbs.minibase.evaluator.ListOperator.tuple;
+import static org.junit.Assert.*;
+
+public class HashDistinctTests {
+
+    private final Variable variablex = new Variable("x");
+    private final Variable variabley = new Variable("y");
+    private final Variable variablez = new Variable("z");
+
+    private final RelationalAtom atom = new RelationalAtom("R", Arrays.asList(variablex, variabley, variablez));
+
+    //  every (x, y) pair occurs three times over, with a different z each time
+    private static List<Tuple> tuples(int numPairs) {
+        List<Tuple> tuples = new ArrayList<>();
+        for (int copy = 0; copy < 3; copy++) {
+            for (int i = 0; i < numPairs; i++) tuples.add(tuple(i % 97, i, copy));
+        }
+        return tuples;
+    }
+
+    @Test
+    public void test_intRowSet_addsEachRowOnce() {
+        IntRowSet rows = new IntRowSet(2);
+        for (int i = 0; i < 1000; i++) assertTrue(rows.add(new int[] {i, -i}));
+        for (int i = 0; i < 1000; i++) assertFalse(rows.add(new int[] {i, -i}));
+
+        assertEquals(1000, rows.size());
+        assertArrayEquals(new int[] {7, -7}, rows.getRow(7));
+    }
+
+    @Test
+    public void test_hashDistinct_spillsPastItsBudgetAndLetsEveryRowThroughOnce() throws IOException {
+        //  a budget far smaller than the rows, so partitions are spilled and spilled again
+        HashDistinct distinct = new HashDistinct(new boolean[] {false, false}, 4096);
+
+        Set<List<Integer>> seen = new HashSet<>();
+        int emitted = 0;
+        for (Tuple tuple : tuples(5000)) {
+            int[] row = {tuple.getValue(0), tuple.getValue(1)};
+            if (distinct.add(row)) {
+                assertTrue(seen.add(Arrays.asList(row[0], row[1])));
+                emitted++;
+            }
+        }
+        assertTrue(distinct.getPartitionsSpilled() > 0);
+
+        int[] row;
+        while ((row = distinct.nextDeferred()) != null) {
+            assertTrue(seen.add(Arrays.asList(row[0], row[1])));
+            emitted++;
+        }
+        distinct.close();
+
+        assertEquals(5000, emitted);
+    }
+
+    @Test
+    public void test_project_withSmallBudget_matchesTheInMemoryDistinct() throws IOException {
+        List<Tuple> input = tuples(5000);
+        List<Variable> outputVariables = Arrays.asList(variabley, variablex);
+
+        Set<Tuple> expected = new HashSet<>(drain(new ProjectOperator(new ListOperator(input), outputVariables, atom)));
+        assertEquals(5000, expected.size());
+
+        ProjectOperator project = new ProjectOperator(new ListOperator(input), outputVariables, atom, 4096);
+        List<Tuple> result = drain(project);
+        assertEquals(expected, new HashSet<>(result));
+        assertEquals(expected.size(), result.size());
+
+        //  resetting starts the duplicate elimination over as well
+        project.reset();
+        List<Tuple> batchResult = drainBatches(project);
+        assertEquals(expected, new HashSet<>(batchResult));
+        assertEquals(expected.size(), batchResult.size());
+    }
+
+    @Test
+    public void test_project_overDistinctInput_letsEveryRowThrough() throws IOException {
+        List<Tuple> input = tuples(500);
+
+        ProjectOperator project = new ProjectOperator(new ListOperator(input), Arrays.asList(variablez, variablex), atom, 4096);
+        project.setDistinctInput(true);
+        assertEquals(1500, drain(project).size());
+
+        project.reset();
+        assertEquals(1500, drainBatches(project).size());
+    }
+
+    @Test
+    public void test_project_overSortedInput_eliminatesDuplicatesRunByRun() throws IOException {
+        List<Tuple> input = new ArrayList<>(tuples(500));
+        input.sort(Comparator.comparingInt((Tuple tuple) -> tuple.getValue(0)));
+
+        ProjectOperator project = new ProjectOperator(new ListOperator(input), Arrays.asList(variabley, variablex), atom, 4096);
+        project.setSortedInputColumns(new int[] {0, 2});
+
+        //  x is kept, at position 1 of the output, while z isn't, so only the runs of equal x are relied on
+        assertArrayEquals(new int[] {1}, project.getSortedOutputColumns());
+
+        List<Tuple> result = drain(project);
+        assertEquals(500, result.size());
+        assertEquals(500, new HashSet<>(result).size());
+    }
+}
@@ -0,0 +1,134 @@
+package ed.inf.adbs.minibase.evaluator;
+
+import ed.inf.adbs.minibase.base.*;
+import ed.inf.adbs.minibase.dbstructures.Tuple;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.*;
+
+import static ed.inf.adbs.minibase.evaluator.ListOperator.drain;
+import static ed.inf.adbs.minibase.evaluator.ListOperator.drainBatches;
+import static ed.inf.adbs.minibase.evaluator.ListOperator.tuple;
+import static org.junit.Assert.*;
+
+public class HashJoinOperatorTests {
+
+    private final Variable variablex = new Variable("x");
+    private final Variable variabley = new Variable("y");
+    private final Variable variablez = new Variable("z");
+    private final Variable variableu = new Variable("u");
+    private final Variable variablew = new Variable("w");
+
+    private final RelationalAtom leftAtom = new RelationalAtom("R", Arrays.asList(variablex, variabley));
+    private final RelationalAtom rightAtom = new RelationalAtom("S", Arrays.asList(variablex, variablez));
+    private final RelationalAtom unrelatedRightAtom = new RelationalAtom("S", Arrays.asList(variableu, variablew));
+
+    private final List<Tuple> leftTuples = Arrays.asList(
+            tuple(1, 10),
+            tuple(2, 20),
+            tuple(3, 30));
+
+    private final List<Tuple> rightTuples = Arrays.asList(
+            tuple(1, 5),
+            tuple(1, 15),
+            tuple(3, 50),
+            tuple(4, 60));
+
+    private Set<Tuple> nestedLoopResult(RelationalAtom right, List<ComparisonAtom> joinConditions) throws IOException {
+        return new HashSet<>(drain(new JoinOperator(new ListOperator(leftTuples), new ListOperator(rightTuples), Collections.singletonList(leftAtom), right, joinConditions)));
+    }
+
+    private Set<Tuple> hashJoinResult(RelationalAtom right, List<ComparisonAtom> joinConditions) throws IOException {
+        return new HashSet<>(drain(new HashJoinOperator(new ListOperator(leftTuples), new ListOperator(rightTuples), Collections.singletonList(leftAtom), right, joinConditions)));
+    }
+
+    @Test
+    public void test_hasEquiJoinKey_detectsSharedVariable() {
+        assertTrue(HashJoinOperator.hasEquiJoinKey(Collections.singletonList(leftAtom), rightAtom, new ArrayList<>()));
+    }
+
+    @Test
+    public void test_hasEquiJoinKey_detectsExplicitEquality() {
+        List<ComparisonAtom> conditions = Collections.singletonList(new ComparisonAtom(variablex, variableu, ComparisonOperator.EQ));
+        assertTrue(HashJoinOperator.hasEquiJoinKey(Collections.singletonList(leftAtom), unrelatedRightAtom, conditions));
+    }
+
+    @Test
+    public void test_hasEquiJoinKey_falseForCartesianProductsAndNonEquiJoins() {
+        List<ComparisonAtom> conditions = Collections.singletonList(new ComparisonAtom(variablex, variableu, ComparisonOperator.LT));
+        assertFalse(HashJoinOperator.hasEquiJoinKey(Collections.singletonList(leftAtom), unrelatedRightAtom, conditions));
+    }
+
+    @Test
+    public void test_hashJoin_sharedVariableMatchesNestedLoop() throws IOException {
+        Set<Tuple> result = hashJoinResult(rightAtom, new ArrayList<>());
+
+        assertEquals(3, result.size());
+        assertEquals(nestedLoopResult(rightAtom, new ArrayList<>()), result);
+    }
+
+    @Test
+    public void test_hashJoin_explicitEqualityWithResidualConditionMatchesNestedLoop() throws IOException {
+        List<ComparisonAtom> conditions = Arrays.asList(
+                new ComparisonAtom(variableu, variablex, ComparisonOperator.EQ),
+                new ComparisonAtom(variabley, variablew, ComparisonOperator.LT));
+
+        Set<Tuple> result = hashJoinResult(unrelatedRightAtom, conditions);
+
+        assertEquals(2, result.size());
+        assertEquals(nestedLoopResult(unrelatedRightAtom, conditions), result);
+    }
+
+    @Test
+    public void test_hashJoin_resetReplaysTheOutput() throws IOException {
+        HashJoinOperator hashJoin = new HashJoinOperator(new ListOperator(leftTuples), new ListOperator(rightTuples), Collections.singletonList(leftAtom), rightAtom, new ArrayList<>());
+        Set<Tuple> firstRun = new HashSet<>(drain(hashJoin));
+        hashJoin.reset();
+
+        assertEquals(firstRun, new HashSet<>(drain(hashJoin)));
+    }
+
+    @Test
+    public void test_batchedJoinsMatchTupleAtATimeJoins() throws IOException {
+        List<ComparisonAtom> conditions = Arrays.asList(
+                new ComparisonAtom(variableu, variablex, ComparisonOperator.EQ),
+                new ComparisonAtom(variabley, variablew, ComparisonOperator.LT));
+
+        List<Tuple> batchedHashJoin = drainBatches(new HashJoinOperator(new ListOperator(leftTuples), new ListOperator(rightTuples), Collections.singletonList(leftAtom), unrelatedRightAtom, conditions));
+        List<Tuple> batchedNestedLoop = drainBatches(new JoinOperator(new ListOperator(leftTuples), new ListOperator(rightTuples), Collections.singletonList(leftAtom), unrelatedRightAtom, conditions));
+
+        assertEquals(2, batchedHashJoin.size());
+        assertEquals(hashJoinResult(unrelatedRightAtom, conditions), new HashSet<>(batchedHashJoin));
+        assertEquals(nestedLoopResult(unrelatedRightAtom, conditions), new HashSet<>(batchedNestedLoop));
+    }
+
+    @Test
+    public void test_batchedJoinsSplitOutputAcrossFullBatches() throws IOException {
+        //  a cartesian product of 40 x 40 rows overflows a single output batch
+        List<Tuple> manyTuples = new ArrayList<>();
+        for (int i = 0; i < 40; i++) manyTuples.add(tuple(i % 2, i));
+
+        RelationalAtom sharedX = new RelationalAtom("S", Arrays.asList(variablex, variablez));
+        List<Tuple> batchedHashJoin = drainBatches(new HashJoinOperator(new ListOperator(manyTuples), new ListOperator(manyTuples), Collections.singletonList(leftAtom), sharedX, new ArrayList<>()));
+        List<Tuple> batchedNestedLoop = drainBatches(new JoinOperator(new ListOperator(manyTuples), new ListOperator(manyTuples), Collections.singletonList(leftAtom), unrelatedRightAtom, new ArrayList<>()));
+
+        assertEquals(800, batchedHashJoin.size());
+        assertEquals(1600, batchedNestedLoop.size());
+        assertEquals(1600, new HashSet<>(batchedNestedLoop).size());
+    }
+
+    @Test
+    public void test_hashJoin_buildingOnTheLeftGivesTheSameTuples() throws IOException {
+        List<ComparisonAtom> conditions = Arrays.asList(
+                new ComparisonAtom(variableu, variablex, ComparisonOperator.EQ),
+                new ComparisonAtom(variabley, variablew, ComparisonOperator.LT));
+
+        HashJoinOperator buildLeft = new HashJoinOperator(new ListOperator(leftTuples), new ListOperator(rightTuples), Collections.singletonList(leftAtom), unrelatedRightAtom, conditions, true);
+        HashJoinOperator batchedBuildLeft = new HashJoinOperator(new ListOperator(leftTuples), new ListOperator(rightTuples), Collections.singletonList(leftAtom), unrelatedRightAtom, conditions, true);
+
+        assertTrue(buildLeft.buildsOnLeft());
+        assertEquals(hashJoinResult(unrelatedRightAtom, conditions), new HashSet<>(drain(buildLeft)));
+        assertEquals(nestedLoopResult(unrelatedRightAtom, conditions), new HashSet<>(drainBatches(batchedBuildLeft)));
+    }
+}
@@ -0,0 +1,110 @@
+package ed.inf.adbs.minibase.evaluator;
+
+import ed.inf.adbs.minibase.base.*;
+import ed.inf.adbs.minibase.dbstructures.*;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.*;
+
+import static ed.inf.adbs.minibase.evaluator.ListOperator.drain;
+import static ed.inf.adbs.minibase.evaluator.ListOperator.drainBatches;
+import static ed.inf.adbs.minibase.evaluator.ListOperator.tuple;
+import static org.junit.Assert.*;
+
+public class IndexNestedLoopJoinOperatorTests {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final Variable variablex = new Variable("x");
+    private final Variable variabley = new Variable("y");
+    private final Variable variablez = new Variable("z");
+    private final Variable variablew = new Variable("w");
+
+    private final Schema schema = new Schema("S", Arrays.asList(IntegerConstant.class, StringConstant.class, IntegerConstant.class));
+
+    private final RelationalAtom leftAtom = new RelationalAtom("R", Arrays.asList(variablex, variabley));
+    private final RelationalAtom rightAtom = new RelationalAtom("S", Arrays.asList(variablex, variablez, variablew));
+
+    private final List<Tuple> leftTuples = Arrays.asList(
+            tuple(1, 11),
+            tuple(2, 22),
+            tuple(3, 33),
+            tuple(3, 38),
+            tuple(7, 70));
+
+    //  S(x, z, w) with x cycling through 0..4, z through 3 strings and w the row number
+    private Relation writeCsvRelation() throws IOException {
+        File csvFile = new File(temporaryFolder.newFolder("files"), "S.csv");
+
+        try (FileWriter writer = new FileWriter(csvFile)) {
+            for (int i = 0; i < 60; i++) {
+                writer.write((i % 5) + ", 's" + (i % 3) + "', " + i + "\n");
+            }
+        }
+
+        return new Relation("S", schema, csvFile.getPath());
+    }
+
+    private Set<Tuple> nestedLoopResult(Relation relation, List<ComparisonAtom> rightSelections, List<ComparisonAtom> joinConditions) throws IOException {
+        Operator right = new ScanOperator(relation.getFileLocation(), schema, rightAtom);
+        if (!rightSelections.isEmpty()) right = new SelectOperator(right, rightAtom, rightSelections);
+        return new HashSet<>(drain(new JoinOperator(new ListOperator(leftTuples), right, Collections.singletonList(leftAtom), rightAtom, joinConditions)));
+    }
+
+    private IndexNestedLoopJoinOperator indexJoin(Relation relation, ColumnIndex index, List<ComparisonAtom> rightSelections, List<ComparisonAtom> joinConditions) throws IOException {
+        return new IndexNestedLoopJoinOperator(new ListOperator(leftTuples), new MappedScanOperator(relation.getFileLocation(), schema, rightAtom),
+                Collections.singletonList(leftAtom), rightAtom, rightSelections, joinConditions, index);
+    }
+
+    @Test
+    public void test_indexJoin_onSharedVariableMatchesNestedLoopJoin() throws IOException {
+        Relation relation = writeCsvRelation();
+        String indexFileName = new File(temporaryFolder.getRoot(), "S.0.hash").getPath();
+        HashIndex.build(relation, 0, indexFileName);
+        ColumnIndex index = HashIndex.open(indexFileName);
+
+        List<ComparisonAtom> rightSelections = Collections.singletonList(new ComparisonAtom(variablez, new StringConstant("s1"), ComparisonOperator.NEQ));
+        List<ComparisonAtom> joinConditions = Collections.singletonList(new ComparisonAtom(variabley, variablew, ComparisonOperator.GT));
+
+        Set<Tuple> expected = nestedLoopResult(relation, rightSelections, joinConditions);
+        assertFalse(expected.isEmpty());
+
+        IndexNestedLoopJoinOperator join = indexJoin(relation, index, rightSelections, joinConditions);
+        assertEquals(expected, new HashSet<>(drain(join)));
+        join.reset();
+        assertEquals(expected, new HashSet<>(drainBatches(join)));
+    }
+
+    @Test
+    public void test_indexJoin_onJoinConditionMatchesNestedLoopJoin() throws IOException {
+        Relation relation = writeCsvRelation();
+        String indexFileName = new File(temporaryFolder.getRoot(), "S.2.sorted").getPath();
+        SortedIndex.build(relation, 2, indexFileName);
+        ColumnIndex index = SortedIndex.open(indexFileName);
+
+        List<ComparisonAtom> joinConditions = Collections.singletonList(new ComparisonAtom(variabley, variablew, ComparisonOperator.EQ));
+        assertEquals(1, IndexNestedLoopJoinOperator.getLeftKeyOffset(Collections.singletonList(leftAtom), rightAtom, joinConditions, 2));
+
+        Set<Tuple> expected = nestedLoopResult(relation, Collections.emptyList(), joinConditions);
+        assertEquals(4, expected.size());
+        assertEquals(expected, new HashSet<>(drain(indexJoin(relation, index, Collections.emptyList(), joinConditions))));
+        assertEquals(expected, new HashSet<>(drainBatches(indexJoin(relation, index, Collections.emptyList(), joinConditions))));
+    }
+
+    @Test
+    public void test_findUsableIndex_needsAnEqualityOnTheIndexedColumn() throws IOException {
+        Relation relation = writeCsvRelation();
+        String indexFileName = new File(temporaryFolder.getRoot(), "S.1.hash").getPath();
+        HashIndex.build(relation, 1, indexFileName);
+        List<ColumnIndex> indexes = Collections.singletonList(HashIndex.open(indexFileName));
+
+        List<ComparisonAtom> joinConditions = Collections.singletonList(new ComparisonAtom(variabley, variablez, ComparisonOperator.LT));
+        assertNull(IndexNestedLoopJoinOperator.findUsableIndex(Collections.singletonList(leftAtom), rightAtom, joinConditions, indexes));
+    }
+}
@@ -0,0 +1,142 @@
+package ed.inf.adbs.minibase.evaluator;
+
+import ed.inf.adbs.minibase.base.*;
+import ed.inf.adbs.minibase.dbstructures.*;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static ed.inf.adbs.minibase.evaluator.ListOperator.drain;
+import static ed.inf.adbs.minibase.evaluator.ListOperator.drainBatches;
+import static org.junit.Assert.*;
+
+public class IndexScanOperatorTests {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final Schema schema = new Schema("R", Arrays.asList(IntegerConstant.class, StringConstant.class, IntegerConstant.class));
+
+    private final RelationalAtom relationalAtom = new RelationalAtom("R", Arrays.asList(new Variable("x"), new Variable("y"), new Variable("z")));
+
+    //  x cycles through 0..49, y through 7 strings and z is the row number
+    private Relation writeCsvRelation(int numRows) throws IOException {
+        File csvFile = new File(temporaryFolder.newFolder("files"), "R.csv");
+
+        try (FileWriter writer = new FileWriter(csvFile)) {
+            for (int i = 0; i < numRows; i++) {
+                writer.write((i % 50) + ", 's" + (i % 7) + "', " + i + (i % 2 == 0 ? "\n" : "\r\n"));
+            }
+        }
+
+        return new Relation("R", schema, csvFile.getPath());
+    }
+
+    private String buildIndex(Relation relation, int column) throws IOException {
+        String indexFileName = new File(temporaryFolder.getRoot(), "R." + column + ".hash").getPath();
+        HashIndex.build(relation, column, indexFileName);
+        return indexFileName;
+    }
+
+    private String buildSortedIndex(Relation relation, int column) throws IOException {
+        String indexFileName = new File(temporaryFolder.getRoot(), "R." + column + ".sorted").getPath();
+        SortedIndex.build(relation, column, indexFileName);
+        return indexFileName;
+    }
+
+    private List<Tuple> filteredScan(Relation relation, ComparisonAtom predicate) throws IOException {
+        return drain(new SelectOperator(new ScanOperator(relation.getFileLocation(), schema, relationalAtom), relationalAtom, Collections.singletonList(predicate)));
+    }
+
+    @Test
+    public void test_indexScan_intKeyMatchesFilteredScan() throws IOException {
+        Relation relation = writeCsvRelation(5000);
+        ColumnIndex index = HashIndex.open(buildIndex(relation, 0));
+
+        ComparisonAtom predicate = new ComparisonAtom(new Variable("x"), new IntegerConstant(17), ComparisonOperator.EQ);
+        List<Tuple> expected = filteredScan(relation, predicate);
+        assertEquals(100, expected.size());
+
+        assertEquals(expected, drain(new IndexScanOperator(relation.getFileLocation(), schema, relationalAtom, index, predicate)));
+        assertEquals(expected, drainBatches(new IndexScanOperator(relation.getFileLocation(), schema, relationalAtom, index, predicate)));
+
+        ComparisonAtom missing = new ComparisonAtom(new IntegerConstant(50), new Variable("x"), ComparisonOperator.EQ);
+        assertTrue(drain(new IndexScanOperator(relation.getFileLocation(), schema, relationalAtom, index, missing)).isEmpty());
+    }
+
+    @Test
+    public void test_indexScan_stringKeyMatchesFilteredScanAfterReset() throws IOException {
+        Relation relation = writeCsvRelation(5000);
+        ColumnIndex index = HashIndex.open(buildIndex(relation, 1));
+
+        ComparisonAtom predicate = new ComparisonAtom(new StringConstant("s3"), new Variable("y"), ComparisonOperator.EQ);
+        List<Tuple> expected = filteredScan(relation, predicate);
+
+        IndexScanOperator indexScan = new IndexScanOperator(relation.getFileLocation(), schema, relationalAtom, index, predicate);
+        assertEquals(expected, drain(indexScan));
+        indexScan.reset();
+        assertEquals(expected, drainBatches(indexScan));
+    }
+
+    @Test
+    public void test_sortedIndexScan_matchesFilteredScanForEveryOperator() throws IOException {
+        Relation relation = writeCsvRelation(5000);
+        ColumnIndex intIndex = SortedIndex.open(buildSortedIndex(relation, 0));
+        ColumnIndex stringIndex = SortedIndex.open(buildSortedIndex(relation, 1));
+
+        List<Constant> intKeys = Arrays.asList(new IntegerConstant(-1), new IntegerConstant(0), new IntegerConstant(17), new IntegerConstant(49), new IntegerConstant(100));
+        List<Constant> stringKeys = Arrays.asList(new StringConstant(""), new StringConstant("s0"), new StringConstant("s35"), new StringConstant("s6"), new StringConstant("t"));
+
+        for (ComparisonOperator op : Arrays.asList(ComparisonOperator.EQ, ComparisonOperator.LT, ComparisonOperator.LEQ, ComparisonOperator.GT, ComparisonOperator.GEQ)) {
+            for (Constant key : intKeys) {
+                ComparisonAtom predicate = new ComparisonAtom(new Variable("x"), key, op);
+                List<Tuple> expected = filteredScan(relation, predicate);
+                assertEquals(predicate.toString(), expected, drain(new IndexScanOperator(relation.getFileLocation(), schema, relationalAtom, intIndex, predicate)));
+                assertEquals(predicate.toString(), expected, drainBatches(new IndexScanOperator(relation.getFileLocation(), schema, relationalAtom, intIndex, predicate)));
+            }
+            for (Constant key : stringKeys) {
+                ComparisonAtom predicate = new ComparisonAtom(key, new Variable("y"), op);
+                assertEquals(predicate.toString(), filteredScan(relation, predicate), drain(new IndexScanOperator(relation.getFileLocation(), schema, relationalAtom, stringIndex, predicate)));
+            }
+        }
+    }
+
+    @Test
+    public void test_sortedIndex_rangeLookupOnlyReturnsMatchingRows() throws IOException {
+        Relation relation = writeCsvRelation(5000);
+        ColumnIndex index = SortedIndex.open(buildSortedIndex(relation, 2));
+
+        assertFalse(index.supports(ComparisonOperator.NEQ));
+        assertEquals(10, index.lookup(ComparisonOperator.GEQ, new IntegerConstant(4990)).length);
+        assertEquals(0, index.lookup(ComparisonOperator.LT, new IntegerConstant(0)).length);
+        assertEquals(0, index.lookup(ComparisonOperator.EQ, new StringConstant("s1")).length);
+    }
+
+    @Test
+    public void test_hashIndex_isStaleOnceTheCsvChanges() throws IOException {
+        Relation relation = writeCsvRelation(100);
+        ColumnIndex index = HashIndex.open(buildIndex(relation, 0));
+        assertTrue(index.isCurrent(relation.getFileLocation()));
+
+        try (FileWriter writer = new FileWriter(relation.getFileLocation(), true)) {
+            writer.write("1, 'new', 100\n");
+        }
+        assertFalse(index.isCurrent(relation.getFileLocation()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_indexScan_rejectsPredicatesOffTheIndexedColumn() throws IOException {
+        Relation relation = writeCsvRelation(100);
+        ColumnIndex index = HashIndex.open(buildIndex(relation, 0));
+
+        ComparisonAtom predicate = new ComparisonAtom(new Variable("z"), new IntegerConstant(3), ComparisonOperator.EQ);
+        new IndexScanOperator(relation.getFileLocation(), schema, relationalAtom, index, predicate);
+    }
+}
@@ -0,0 +1,162 @@
+package ed.inf.adbs.minibase.evaluator;
+
+import ed.inf.adbs.minibase.base.*;
+import ed.inf.adbs.minibase.dbstructures.ColumnStatistics;
+import ed.inf.adbs.minibase.dbstructures.TableStatistics;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class JoinOrderOptimizerTests {
+
+    private final Variable variablex = new Variable("x");
+    private final Variable variabley = new Variable("y");
+    private final Variable variablez = new Variable("z");
+    private final Variable variableu = new Variable("u");
+    private final Variable variablew = new Variable("w");
+
+    private static CostModel costModel(Map<String, Long> rowCounts) {
+        return new CostModel(rowCounts::get);
+    }
+
+    private static RelationalAtom atom(String name, Variable... variables) {
+        return new RelationalAtom(name, Arrays.<Term>asList(variables));
+    }
+
+    private static boolean sharesVariable(RelationalAtom first, RelationalAtom second) {
+        return first.getTerms().stream().anyMatch(second.getTerms()::contains);
+    }
+
+    @Test
+    public void test_estimateCardinality_dividesByTheLargerDistinctValues() {
+        Map<String, Long> rowCounts = new HashMap<>();
+        rowCounts.put("A", 100L);
+        rowCounts.put("B", 1000L);
+
+        JoinOrderOptimizer optimizer = new JoinOrderOptimizer(Arrays.asList(atom("A", variablex, variabley), atom("B", variabley, variablez)), new ArrayList<>(), costModel(rowCounts));
+
+        assertEquals(100, optimizer.estimateCardinality(0b11), 1e-9);
+        assertEquals(1000, optimizer.estimateCardinality(0b10), 1e-9);
+    }
+
+    @Test
+    public void test_optimise_avoidsCrossProducts() {
+        Map<String, Long> rowCounts = new HashMap<>();
+        rowCounts.put("R", 10L);
+        rowCounts.put("S", 10L);
+        rowCounts.put("T", 100000L);
+
+        //  written so that joining in body order starts with a cross product of the two small relations
+        List<RelationalAtom> body = Arrays.asList(atom("R", variablex, variabley), atom("S", variableu, variablew), atom("T", variabley, variableu));
+        List<RelationalAtom> order = new JoinOrderOptimizer(body, new ArrayList<>(), costModel(rowCounts)).optimise().getRelationalAtoms();
+
+        assertEquals(new HashSet<>(body), new HashSet<>(order));
+        assertTrue(sharesVariable(order.get(0), order.get(1)));
+    }
+
+    @Test
+    public void test_optimise_startsFromTheSelectiveEndOfAChain() {
+        Map<String, Long> rowCounts = new HashMap<>();
+        rowCounts.put("A", 1000000L);
+        rowCounts.put("B", 1000L);
+        rowCounts.put("C", 1000L);
+
+        List<RelationalAtom> body = Arrays.asList(atom("A", variablex, variabley), atom("B", variabley, variablez), atom("C", variablez, variablew));
+        List<ComparisonAtom> comparisons = Collections.singletonList(new ComparisonAtom(variablew, new IntegerConstant(3), ComparisonOperator.EQ));
+
+        JoinOrderOptimizer.JoinOrder joinOrder = new JoinOrderOptimizer(body, comparisons, costModel(rowCounts)).optimise();
+
+        assertEquals("dynamic programming", joinOrder.getStrategy());
+        assertEquals("C", joinOrder.getRelationalAtoms().get(0).getName());
+        assertEquals("A", joinOrder.getRelationalAtoms().get(2).getName());
+        assertEquals(100, joinOrder.getAtomCardinality(0), 1e-9);
+        //  the small intermediate result is hashed rather than the million rows of A
+        assertTrue(joinOrder.buildsOnLeft(2));
+    }
+
+    @Test
+    public void test_optimiseGreedily_matchesDynamicProgrammingOnAChain() {
+        Map<String, Long> rowCounts = new HashMap<>();
+        List<RelationalAtom> body = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            rowCounts.put("R" + i, (long) (i + 1) * 100);
+            body.add(atom("R" + i, new Variable("v" + i), new Variable("v" + (i + 1))));
+        }
+
+        JoinOrderOptimizer optimizer = new JoinOrderOptimizer(body, new ArrayList<>(), costModel(rowCounts));
+        JoinOrderOptimizer.JoinOrder dynamicProgramming = optimizer.optimiseWithDynamicProgramming();
+        JoinOrderOptimizer.JoinOrder greedy = optimizer.optimiseGreedily();
+
+        assertEquals(dynamicProgramming.getCost(), greedy.getCost(), 1e-6);
+        List<RelationalAtom> greedyOrder = greedy.getRelationalAtoms();
+        for (int i = 1; i < greedyOrder.size(); i++) {
+            RelationalAtom next = greedyOrder.get(i);
+            assertTrue(greedyOrder.subList(0, i).stream().anyMatch(previous -> sharesVariable(previous, next)));
+        }
+    }
+
+    @Test
+    public void test_optimise_ordersChainsOfMoreAtomsThanAnIntHasBits() {
+        Map<String, Long> rowCounts = new HashMap<>();
+        rowCounts.put("T", 139L);
+
+        List<RelationalAtom> body = new ArrayList<>();
+        for (int i = 0; i < 40; i++) body.add(atom("T", new Variable("v" + i), new Variable("v" + (i + 1))));
+
+        JoinOrderOptimizer.JoinOrder joinOrder = new JoinOrderOptimizer(body, new ArrayList<>(), costModel(rowCounts)).optimise();
+
+        assertEquals("greedy", joinOrder.getStrategy());
+        List<RelationalAtom> order = joinOrder.getRelationalAtoms();
+        assertEquals(new HashSet<>(body), new HashSet<>(order));
+        for (int i = 1; i < order.size(); i++) {
+            RelationalAtom next = order.get(i);
+            assertTrue(order.subList(0, i).stream().anyMatch(previous -> sharesVariable(previous, next)));
+        }
+    }
+
+    @Test
+    public void test_optimise_ordersDisconnectedQueries() {
+        Map<String, Long> rowCounts = new HashMap<>();
+        rowCounts.put("R", 50L);
+        rowCounts.put("S", 5L);
+
+        List<RelationalAtom> body = Arrays.asList(atom("R", variablex), atom("S", variabley));
+        JoinOrderOptimizer.JoinOrder joinOrder = new JoinOrderOptimizer(body, new ArrayList<>(), costModel(rowCounts)).optimise();
+
+        assertEquals(2, joinOrder.getRelationalAtoms().size());
+        assertEquals(250, joinOrder.getCost(), 1e-9);
+    }
+
+    @Test
+    public void test_optimise_usesStatisticsForSelections() {
+        Map<String, Long> rowCounts = new HashMap<>();
+        rowCounts.put("R", 1000L);
+        rowCounts.put("S", 1000L);
+
+        //  x = 7 holds for 90% of R, far more than the default equality selectivity
+        ColumnStatistics skewedColumn = new ColumnStatistics(false, 1000, 0, 50, new IntegerConstant(0), new IntegerConstant(100),
+                new Constant[] {new IntegerConstant(7)}, new double[] {0.9}, new Constant[0]);
+        ColumnStatistics otherColumn = new ColumnStatistics(false, 1000, 0, 1000, new IntegerConstant(0), new IntegerConstant(999),
+                new Constant[0], new double[0], new Constant[0]);
+        TableStatistics statistics = new TableStatistics("R", 1000, Arrays.asList(skewedColumn, otherColumn));
+        SelectivityEstimator estimator = new SelectivityEstimator(name -> name.equals("R") ? statistics : null);
+
+        RelationalAtom r = atom("R", variablex, variabley);
+        RelationalAtom s = atom("S", variabley, variablez);
+        ComparisonAtom flippedSelection = new ComparisonAtom(new IntegerConstant(7), variablex, ComparisonOperator.EQ);
+
+        assertEquals(0.9, estimator.estimateSelectivity(flippedSelection, r), 1e-9);
+        assertEquals(0.1, estimator.estimateSelectivity(new ComparisonAtom(variablez, new IntegerConstant(3), ComparisonOperator.EQ), s), 1e-9);
+
+        List<ComparisonAtom> comparisons = Arrays.asList(flippedSelection, new ComparisonAtom(variablez, new IntegerConstant(3), ComparisonOperator.EQ));
+        JoinOrderOptimizer.JoinOrder joinOrder = new JoinOrderOptimizer(Arrays.asList(r, s), comparisons, new CostModel(rowCounts::get, estimator)).optimise();
+
+        int positionOfR = joinOrder.getRelationalAtoms().indexOf(r);
+        assertEquals(900, joinOrder.getAtomCardinality(positionOfR), 1e-9);
+        assertEquals(100, joinOrder.getAtomCardinality(1 - positionOfR), 1e-9);
+        //  the 100 rows of S are hashed rather than the 900 of R
+        assertEquals(positionOfR == 1, joinOrder.buildsOnLeft(1));
+    }
+}
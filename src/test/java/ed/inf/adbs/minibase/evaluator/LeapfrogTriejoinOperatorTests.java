@@ -0,0 +1,96 @@
+package ed.inf.adbs.minibase.evaluator;
+
+import ed.inf.adbs.minibase.base.*;
+import ed.inf.adbs.minibase.dbstructures.StringDictionary;
+import ed.inf.adbs.minibase.dbstructures.Tuple;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.*;
+
+import static ed.inf.adbs.minibase.evaluator.ListOperator.tuple;
+import static org.junit.Assert.*;
+
+public class LeapfrogTriejoinOperatorTests {
+
+    private final Variable variablex = new Variable("x");
+    private final Variable variabley = new Variable("y");
+    private final Variable variablez = new Variable("z");
+
+    private final RelationalAtom atomR = new RelationalAtom("R", Arrays.asList(variablex, variabley));
+    private final RelationalAtom atomS = new RelationalAtom("S", Arrays.asList(variabley, variablez));
+    private final RelationalAtom atomT = new RelationalAtom("T", Arrays.asList(variablez, variablex));
+
+    //  a random graph over a few vertices, with some edges repeated
+    private static List<Tuple> edges(long seed) {
+        Random random = new Random(seed);
+        List<Tuple> edges = new ArrayList<>();
+        for (int i = 0; i < 60; i++) edges.add(tuple(random.nextInt(12), random.nextInt(12)));
+        return edges;
+    }
+
+    //  the tuples an operator emits along with how many times each of them is emitted
+    private static Map<Tuple, Integer> drain(Operator operator) throws IOException {
+        Map<Tuple, Integer> result = new HashMap<>();
+        for (Tuple tuple : ListOperator.drain(operator)) result.merge(tuple, 1, Integer::sum);
+        return result;
+    }
+
+    //  the triangle query joined pairwise by nested loops
+    private static Operator pairwiseTriangles(List<Tuple> r, List<Tuple> s, List<Tuple> t, RelationalAtom atomR, RelationalAtom atomS, RelationalAtom atomT, List<ComparisonAtom> joinConditions) {
+        Operator first = new JoinOperator(new ListOperator(r), new ListOperator(s), Collections.singletonList(atomR), atomS, Collections.emptyList());
+        return new JoinOperator(first, new ListOperator(t), Arrays.asList(atomR, atomS), atomT, joinConditions);
+    }
+
+    @Test
+    public void test_leapfrogTriejoin_findsTrianglesWithDuplicates() throws IOException {
+        List<Tuple> r = edges(1);
+        List<Tuple> s = edges(2);
+        List<Tuple> t = edges(3);
+
+        LeapfrogTriejoinOperator join = new LeapfrogTriejoinOperator(Arrays.asList(new ListOperator(r), new ListOperator(s), new ListOperator(t)), Arrays.asList(atomR, atomS, atomT), Collections.emptyList());
+
+        Map<Tuple, Integer> expected = drain(pairwiseTriangles(r, s, t, atomR, atomS, atomT, Collections.emptyList()));
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, drain(join));
+
+        join.reset();
+        assertEquals(expected, drain(join));
+    }
+
+    @Test
+    public void test_leapfrogTriejoin_checksJoinConditions() throws IOException {
+        List<Tuple> r = edges(4);
+        List<Tuple> s = edges(5);
+        List<Tuple> t = edges(6);
+        List<ComparisonAtom> joinConditions = Collections.singletonList(new ComparisonAtom(variablex, variablez, ComparisonOperator.LT));
+
+        LeapfrogTriejoinOperator join = new LeapfrogTriejoinOperator(Arrays.asList(new ListOperator(r), new ListOperator(s), new ListOperator(t)), Arrays.asList(atomR, atomS, atomT), joinConditions);
+
+        assertEquals(drain(pairwiseTriangles(r, s, t, atomR, atomS, atomT, joinConditions)), drain(join));
+    }
+
+    @Test
+    public void test_leapfrogTriejoin_joinsStringColumnsAndEmptyInputs() throws IOException {
+        StringDictionary dictionary = StringDictionary.getDictionary();
+        boolean[] stringColumns = {false, true};
+        List<Tuple> r = Arrays.asList(new Tuple(new int[] {1, dictionary.encode("a")}, stringColumns), new Tuple(new int[] {2, dictionary.encode("b")}, stringColumns));
+        List<Tuple> s = Arrays.asList(new Tuple(new int[] {dictionary.encode("a"), 7}, new boolean[] {true, false}), new Tuple(new int[] {dictionary.encode("b"), 8}, new boolean[] {true, false}));
+        List<Tuple> t = Arrays.asList(tuple(7, 1), tuple(8, 1), tuple(-3, 2));
+
+        LeapfrogTriejoinOperator join = new LeapfrogTriejoinOperator(Arrays.asList(new ListOperator(r), new ListOperator(s), new ListOperator(t)), Arrays.asList(atomR, atomS, atomT), Collections.emptyList());
+        Map<Tuple, Integer> joined = drain(join);
+        assertEquals(drain(pairwiseTriangles(r, s, t, atomR, atomS, atomT, Collections.emptyList())), joined);
+        assertEquals(1, joined.size());
+
+        LeapfrogTriejoinOperator emptyJoin = new LeapfrogTriejoinOperator(Arrays.asList(new ListOperator(r), new ListOperator(s), new ListOperator(Collections.emptyList())), Arrays.asList(atomR, atomS, atomT), Collections.emptyList());
+        assertNull(emptyJoin.getNextTuple());
+    }
+
+    @Test
+    public void test_chooseVariableOrder_bindsSharedVariablesFirst() {
+        RelationalAtom atomU = new RelationalAtom("U", Arrays.asList(new Variable("w"), variabley));
+        assertEquals(Arrays.asList(variabley, variablex, variablez, new Variable("w")),
+                LeapfrogTriejoinOperator.chooseVariableOrder(Arrays.asList(atomR, atomS, atomT, atomU)));
+    }
+}
@@ -0,0 +1,67 @@
+package ed.inf.adbs.minibase.evaluator;
+
+import ed.inf.adbs.minibase.base.Constant;
+import ed.inf.adbs.minibase.base.IntegerConstant;
+import ed.inf.adbs.minibase.dbstructures.Tuple;
+import ed.inf.adbs.minibase.dbstructures.TupleBatch;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+//  simple child operator emitting a fixed list of tuples, shared by the operator tests and benchmarks, along with helpers for making tuples and collecting an operator's output
+class ListOperator extends Operator {
+    private final List<Tuple> tuples;
+    private final boolean[] stringColumns;
+    private int position = 0;
+
+    ListOperator(List<Tuple> tuples) {
+        this(tuples, null);
+    }
+
+    //  the same as above, with the type flags of the tuples given up front, for operators that look at their children's columns before the first tuple comes through
+    ListOperator(List<Tuple> tuples, boolean[] stringColumns) {
+        this.tuples = tuples;
+        this.stringColumns = stringColumns;
+    }
+
+    @Override
+    public Tuple getNextTuple() {
+        return position < tuples.size() ? tuples.get(position++) : null;
+    }
+
+    @Override
+    public void reset() {
+        position = 0;
+    }
+
+    @Override
+    public boolean[] getStringColumns() {
+        return stringColumns;
+    }
+
+    //  a tuple of the given integer values
+    static Tuple tuple(int... values) {
+        List<Constant> fields = new ArrayList<>();
+        for (int value : values) fields.add(new IntegerConstant(value));
+        return new Tuple(fields);
+    }
+
+    //  every tuple the operator emits, pulled one at a time
+    static List<Tuple> drain(Operator operator) throws IOException {
+        List<Tuple> result = new ArrayList<>();
+        Tuple next;
+        while ((next = operator.getNextTuple()) != null) result.add(next);
+        return result;
+    }
+
+    //  every selected row of the batches the operator emits
+    static List<Tuple> drainBatches(Operator operator) throws IOException {
+        List<Tuple> result = new ArrayList<>();
+        TupleBatch batch;
+        while ((batch = operator.getNextBatch()) != null) {
+            for (int i = 0; i < batch.getSelectedCount(); i++) result.add(batch.getTuple(batch.getSelection()[i]));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,101 @@
+package ed.inf.adbs.minibase.evaluator;
+
+import ed.inf.adbs.minibase.base.*;
+import ed.inf.adbs.minibase.dbstructures.Schema;
+import ed.inf.adbs.minibase.dbstructures.Tuple;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Benchmark of the ParallelExecutor's two-phase aggregation against the number of threads, over the query Q(x, SUM(t)) :- R(x, y), S(x, t) on generated data.
+ * It runs once with few distinct values of x, where the groups get shared striped accumulators, and once with many, where every worker keeps partial aggregates that are merged at the end.
+ * R is split into morsels and probes a hash table over S, which is built before the timing starts.
+ * Not run as part of the test suite. Run it with
+ * java -cp target/classes:target/test-classes ed.inf.adbs.minibase.evaluator.ParallelAggregationBenchmark [R rows] [max threads] [rounds]
+ */
+public class ParallelAggregationBenchmark {
+
+    //  the type flags of the list children, whose tuples are all pairs of ints
+    private static final boolean[] INT_COLUMNS = {false, false};
+
+    public static void main(String[] args) throws IOException {
+        int numRows = (args.length > 0) ? Integer.parseInt(args[0]) : 4_000_000;
+        int maxThreads = (args.length > 1) ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int rounds = (args.length > 2) ? Integer.parseInt(args[2]) : 3;
+
+        for (int distinctKeys : new int[] {16, numRows / 4}) {
+            Setup setup = new Setup(numRows, distinctKeys);
+
+            for (int round = 0; round < rounds; round++) {
+                for (int threads = 1; threads <= maxThreads; threads *= 2) {
+                    ExecutorService pool = Executors.newFixedThreadPool(threads);
+                    try {
+                        AggregateOperator aggregate = setup.newAggregate(distinctKeys);
+                        ParallelExecutor.Pipeline pipeline = setup.newPipeline(aggregate);
+
+                        long start = System.nanoTime();
+                        new ParallelExecutor(threads, false).aggregate(pool, pipeline);
+                        long nanos = System.nanoTime() - start;
+
+                        int groups = 0;
+                        while (aggregate.getNextTuple() != null) groups++;
+
+                        System.out.printf("%d keys, round %d, %d threads: %.2f M rows/s, %d groups%n", distinctKeys, round, threads, numRows * 1e3 / nanos, groups);
+                    } finally {
+                        pool.shutdown();
+                    }
+                }
+            }
+        }
+    }
+
+    //  R(x, y) held column by column with x uniform over the keys, and S(x, t) with one tuple per key
+    private static class Setup {
+
+        private final Variable x = new Variable("x");
+        private final Variable y = new Variable("y");
+        private final Variable t = new Variable("t");
+        private final RelationalAtom atomR = new RelationalAtom("R", Arrays.asList(x, y));
+        private final RelationalAtom atomS = new RelationalAtom("S", Arrays.asList(x, t));
+        private final Schema schemaR = new Schema("R", Arrays.asList(IntegerConstant.class, IntegerConstant.class));
+
+        private final int[][] columnsR;
+        private final HashJoinOperator join;
+
+        Setup(int numRows, int distinctKeys) throws IOException {
+            Random random = new Random(42);
+            columnsR = new int[2][numRows];
+            for (int i = 0; i < numRows; i++) {
+                columnsR[0][i] = random.nextInt(distinctKeys);
+                columnsR[1][i] = i;
+            }
+
+            List<Tuple> tuplesS = new ArrayList<>();
+            for (int key = 0; key < distinctKeys; key++) tuplesS.add(new Tuple(new int[] {key, random.nextInt(100)}, new boolean[] {false, false}));
+
+            join = new HashJoinOperator(new ListOperator(Collections.emptyList(), INT_COLUMNS), new ListOperator(tuplesS, INT_COLUMNS), Collections.singletonList(atomR), atomS, Collections.emptyList(), false);
+            join.ensureHashTableBuilt();
+        }
+
+        AggregateOperator newAggregate(int distinctKeys) {
+            AggregateOperator aggregate = new AggregateOperator(join, Arrays.asList(x, new AggregateTerm(AggregateFunction.SUM, t)), Arrays.asList(atomR, atomS));
+            aggregate.setEstimatedGroupCount(distinctKeys);
+            return aggregate;
+        }
+
+        ParallelExecutor.Pipeline newPipeline(AggregateOperator aggregate) {
+            ParallelExecutor.Pipeline pipeline = new ParallelExecutor.Pipeline();
+            pipeline.aggregate = aggregate;
+            pipeline.joins = Collections.singletonList(join);
+            pipeline.leafAtom = atomR;
+            pipeline.schema = schemaR;
+            pipeline.columns = columnsR;
+            pipeline.stringColumns = new boolean[] {false, false};
+            pipeline.rowCount = columnsR[0].length;
+            return pipeline;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package ed.inf.adbs.minibase.evaluator;
+
+import ed.inf.adbs.minibase.base.*;
+import ed.inf.adbs.minibase.dbstructures.Schema;
+import ed.inf.adbs.minibase.dbstructures.Tuple;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static ed.inf.adbs.minibase.evaluator.ListOperator.drainBatches;
+import static ed.inf.adbs.minibase.evaluator.ListOperator.tuple;
+import static org.junit.Assert.*;
+
+public class ParallelExecutorTests {
+
+    private final Variable variablex = new Variable("x");
+    private final Variable variabley = new Variable("y");
+    private final Variable variablez = new Variable("z");
+
+    private final Schema schema = new Schema("R", Arrays.asList(IntegerConstant.class, IntegerConstant.class));
+    private final RelationalAtom probeAtom = new RelationalAtom("R", Arrays.asList(variablex, variabley));
+    private final RelationalAtom buildAtom = new RelationalAtom("S", Arrays.asList(variablex, variablez));
+
+    //  the probe relation column by column, with many rows projecting to the same output so that different morsels produce duplicates
+    private final int rowCount = 500;
+    private final int[][] probeColumns = new int[2][rowCount];
+    private final List<Tuple> buildTuples = new ArrayList<>();
+
+    {
+        for (int row = 0; row < rowCount; row++) {
+            probeColumns[0][row] = row % 37;
+            probeColumns[1][row] = row % 5;
+        }
+        for (int i = 0; i < 40; i++) buildTuples.add(tuple(i % 23, i % 7));
+    }
+
+    private MorselScanOperator morselScan() {
+        return new MorselScanOperator(probeColumns, new boolean[2], schema, probeAtom);
+    }
+
+    @Test
+    public void test_morselScan_readsOnlyItsRange() throws IOException {
+        MorselScanOperator scan = morselScan();
+        scan.setRange(100, 103);
+
+        List<Tuple> expected = Arrays.asList(tuple(100 % 37, 0), tuple(101 % 37, 1), tuple(102 % 37, 2));
+        assertEquals(expected, drainBatches(scan));
+
+        scan.reset();
+        assertEquals(expected.get(0), scan.getNextTuple());
+    }
+
+    @Test
+    public void test_parallelPipelines_matchTheSerialPlan() throws Exception {
+        List<Variable> outputVariables = Arrays.asList(variabley, variablez);
+        List<RelationalAtom> joinedAtoms = Arrays.asList(probeAtom, buildAtom);
+
+        MorselScanOperator serialScan = morselScan();
+        serialScan.setRange(0, rowCount);
+        HashJoinOperator join = new HashJoinOperator(serialScan, new ListOperator(buildTuples), Collections.singletonList(probeAtom), buildAtom, Collections.emptyList(), false);
+        Set<Tuple> expected = new HashSet<>(drainBatches(new ProjectOperator(join, outputVariables, joinedAtoms)));
+
+        //  four workers taking morsels of 7 rows in turn, probing the one hash table and deduplicating through one set
+        int morselSize = 7;
+        int morselCount = (rowCount + morselSize - 1) / morselSize;
+        Set<Tuple> tuplesOutputSoFar = ConcurrentHashMap.newKeySet();
+        List<Tuple> output = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger nextMorsel = new AtomicInteger();
+
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Callable<Void>> workers = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                workers.add(() -> {
+                    MorselScanOperator scan = morselScan();
+                    Operator project = new ProjectOperator(join.withProbeChild(scan), outputVariables, joinedAtoms, tuplesOutputSoFar);
+                    int morsel;
+                    while ((morsel = nextMorsel.getAndIncrement()) < morselCount) {
+                        scan.setRange(morsel * morselSize, Math.min((morsel + 1) * morselSize, rowCount));
+                        project.reset();
+                        output.addAll(drainBatches(project));
+                    }
+                    return null;
+                });
+            }
+            for (Future<Void> future : pool.invokeAll(workers)) future.get();
+        } finally {
+            pool.shutdown();
+        }
+
+        assertEquals(expected, new HashSet<>(output));
+        assertEquals(expected.size(), output.size());
+    }
+
+    @Test
+    public void test_parallelExecutor_onlyTakesSinglePipelines() {
+        assertNull(ParallelExecutor.Pipeline.of(new ListOperator(buildTuples)));
+        assertNull(ParallelExecutor.Pipeline.of(new ProjectOperator(new ListOperator(buildTuples), Collections.singletonList(variablex), buildAtom)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_parallelExecutor_rejectsNoThreads() {
+        new ParallelExecutor(0, false);
+    }
+}
@@ -0,0 +1,106 @@
+package ed.inf.adbs.minibase.evaluator;
+
+import ed.inf.adbs.minibase.base.IntegerConstant;
+import ed.inf.adbs.minibase.base.RelationalAtom;
+import ed.inf.adbs.minibase.base.Variable;
+import ed.inf.adbs.minibase.dbstructures.Schema;
+import ed.inf.adbs.minibase.dbstructures.Tuple;
+import ed.inf.adbs.minibase.dbstructures.TupleBatch;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Benchmark of the hash join's build and probe throughput against the number of threads, over generated data: a build side with uniformly random keys
+ * and a probe side around four times its size, about half of whose keys have a match. The build radix-partitions the tuples into a RadixPartitionedHashTable,
+ * and the probe runs a copy of the join over every morsel of the probe side the same way the ParallelExecutor does. One thread builds a single hash table serially as the baseline.
+ * Not run as part of the test suite. Run it with
+ * java -cp target/classes:target/test-classes ed.inf.adbs.minibase.evaluator.ParallelHashJoinBenchmark [build rows] [max threads] [rounds]
+ */
+public class ParallelHashJoinBenchmark {
+
+    //  the type flags of the list children, whose tuples are all pairs of ints
+    private static final boolean[] INT_COLUMNS = {false, false};
+
+    public static void main(String[] args) throws IOException {
+        int numBuildRows = (args.length > 0) ? Integer.parseInt(args[0]) : 2_000_000;
+        int maxThreads = (args.length > 1) ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int rounds = (args.length > 2) ? Integer.parseInt(args[2]) : 3;
+        int numProbeRows = 4 * numBuildRows;
+
+        Variable x = new Variable("x");
+        Variable y = new Variable("y");
+        Variable z = new Variable("z");
+        RelationalAtom probeAtom = new RelationalAtom("R", Arrays.asList(x, y));
+        RelationalAtom buildAtom = new RelationalAtom("S", Arrays.asList(x, z));
+        Schema probeSchema = new Schema("R", Arrays.asList(IntegerConstant.class, IntegerConstant.class));
+
+        Random random = new Random(42);
+        boolean[] stringColumns = {false, false};
+        List<Tuple> buildTuples = new ArrayList<>();
+        for (int i = 0; i < numBuildRows; i++) buildTuples.add(new Tuple(new int[] {random.nextInt(numBuildRows), i}, stringColumns));
+
+        int[][] probeColumns = new int[2][numProbeRows];
+        for (int i = 0; i < numProbeRows; i++) {
+            probeColumns[0][i] = random.nextInt(2 * numBuildRows);
+            probeColumns[1][i] = i;
+        }
+
+        for (int round = 0; round < rounds; round++) {
+            for (int threads = 1; threads <= maxThreads; threads *= 2) {
+                ExecutorService pool = Executors.newFixedThreadPool(threads);
+                try {
+                    HashJoinOperator join = new HashJoinOperator(new ListOperator(Collections.emptyList(), INT_COLUMNS), new ListOperator(buildTuples, INT_COLUMNS),
+                            Collections.singletonList(probeAtom), buildAtom, Collections.emptyList(), false);
+
+                    long start = System.nanoTime();
+                    if (threads == 1) join.ensureHashTableBuilt();
+                    else join.buildHashTableInParallel(pool, threads);
+                    long buildNanos = System.nanoTime() - start;
+
+                    start = System.nanoTime();
+                    long matches = probe(join, probeColumns, probeSchema, probeAtom, pool, threads);
+                    long probeNanos = System.nanoTime() - start;
+
+                    System.out.printf("round %d, %d threads: build %.2f M rows/s, probe %.2f M rows/s, %d matches%n", round, threads,
+                            numBuildRows * 1e3 / buildNanos, numProbeRows * 1e3 / probeNanos, matches);
+                } finally {
+                    pool.shutdown();
+                }
+            }
+        }
+    }
+
+    //  probes the join with every morsel of the probe columns, each worker running its own copy of the join, and counts the joined rows
+    private static long probe(HashJoinOperator join, int[][] probeColumns, Schema schema, RelationalAtom probeAtom, ExecutorService pool, int threads) throws IOException {
+        int numRows = probeColumns[0].length;
+        int morselCount = (numRows + ParallelExecutor.MORSEL_SIZE - 1) / ParallelExecutor.MORSEL_SIZE;
+        AtomicInteger nextMorsel = new AtomicInteger();
+        AtomicLong matches = new AtomicLong();
+
+        List<Callable<Void>> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            workers.add(() -> {
+                MorselScanOperator scan = new MorselScanOperator(probeColumns, new boolean[] {false, false}, schema, probeAtom);
+                HashJoinOperator workerJoin = join.withProbeChild(scan);
+
+                long count = 0;
+                int morsel;
+                while ((morsel = nextMorsel.getAndIncrement()) < morselCount) {
+                    scan.setRange(morsel * ParallelExecutor.MORSEL_SIZE, Math.min((morsel + 1) * ParallelExecutor.MORSEL_SIZE, numRows));
+                    workerJoin.reset();
+
+                    TupleBatch batch;
+                    while ((batch = workerJoin.getNextBatch()) != null) count += batch.getSelectedCount();
+                }
+                matches.addAndGet(count);
+                return null;
+            });
+        }
+        ParallelExecutor.runAll(pool, workers);
+        return matches.get();
+    }
+}
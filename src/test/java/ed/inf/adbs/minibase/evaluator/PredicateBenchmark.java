@@ -0,0 +1,95 @@
+package ed.inf.adbs.minibase.evaluator;
+
+import ed.inf.adbs.minibase.base.*;
+import ed.inf.adbs.minibase.dbstructures.StringDictionary;
+import ed.inf.adbs.minibase.dbstructures.Tuple;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Micro-benchmark comparing the ways of evaluating selection predicates over the same rows:
+ * substituting the tuple's constants into a new ComparisonAtom per tuple, the generic offset based ColumnComparison, and the predicates compiled by PredicateCompiler.
+ * Not run as part of the test suite. Run it with
+ * java -cp target/classes:target/test-classes ed.inf.adbs.minibase.evaluator.PredicateBenchmark [rows] [rounds]
+ */
+public class PredicateBenchmark {
+
+    public static void main(String[] args) {
+        int numRows = (args.length > 0) ? Integer.parseInt(args[0]) : 1_000_000;
+        int rounds = (args.length > 1) ? Integer.parseInt(args[1]) : 10;
+
+        Variable x = new Variable("x");
+        Variable y = new Variable("y");
+        Variable z = new Variable("z");
+        RelationalAtom relationalAtom = new RelationalAtom("R", Arrays.<Term>asList(x, y, z));
+
+        List<ComparisonAtom> predicates = Arrays.asList(
+                new ComparisonAtom(y, new IntegerConstant(9), ComparisonOperator.EQ),
+                new ComparisonAtom(x, new IntegerConstant(500), ComparisonOperator.LT),
+                new ComparisonAtom(z, new StringConstant("s3"), ComparisonOperator.NEQ),
+                new ComparisonAtom(x, y, ComparisonOperator.GEQ));
+
+        boolean[] stringColumns = {false, false, true};
+        Tuple[] rows = generateRows(numRows, stringColumns);
+
+        VariableOffsets offsets = new VariableOffsets(relationalAtom);
+        ColumnComparison[] boundPredicates = new ColumnComparison[predicates.size()];
+        RowPredicate[] compiledPredicates = new RowPredicate[predicates.size()];
+        for (int i = 0; i < predicates.size(); i++) {
+            boundPredicates[i] = new ColumnComparison(predicates.get(i), offsets, null);
+            compiledPredicates[i] = PredicateCompiler.compile(predicates.get(i), offsets, stringColumns);
+        }
+
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            int substitutedMatches = 0;
+            for (Tuple row : rows) {
+                for (ComparisonAtom predicate : predicates) {
+                    if (SelectOperator.passesPredicate(row, predicate, relationalAtom)) substitutedMatches++;
+                }
+            }
+            long substitutedNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            int boundMatches = 0;
+            for (Tuple row : rows) {
+                for (ColumnComparison predicate : boundPredicates) {
+                    if (predicate.evaluate(row)) boundMatches++;
+                }
+            }
+            long boundNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            int compiledMatches = 0;
+            for (Tuple row : rows) {
+                for (RowPredicate predicate : compiledPredicates) {
+                    if (predicate.test(row, null)) compiledMatches++;
+                }
+            }
+            long compiledNanos = System.nanoTime() - start;
+
+            if (substitutedMatches != boundMatches || boundMatches != compiledMatches) throw new IllegalStateException("The evaluation strategies disagree!");
+
+            System.out.printf("round %d: substituted %.1f ns/row, column comparison %.1f ns/row, compiled %.1f ns/row%n", round,
+                    (double) substitutedNanos / numRows, (double) boundNanos / numRows, (double) compiledNanos / numRows);
+        }
+    }
+
+    private static Tuple[] generateRows(int numRows, boolean[] stringColumns) {
+        Random random = new Random(42);
+        StringDictionary dictionary = StringDictionary.getDictionary();
+
+        int[] stringCodes = new int[16];
+        for (int i = 0; i < stringCodes.length; i++) {
+            stringCodes[i] = dictionary.encode("s" + i);
+        }
+
+        Tuple[] rows = new Tuple[numRows];
+        for (int i = 0; i < numRows; i++) {
+            rows[i] = new Tuple(new int[] {random.nextInt(1000), random.nextInt(20), stringCodes[random.nextInt(stringCodes.length)]}, stringColumns);
+        }
+        return rows;
+    }
+}
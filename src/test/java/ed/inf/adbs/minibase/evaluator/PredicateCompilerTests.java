@@ -0,0 +1,159 @@
+package ed.inf.adbs.minibase.evaluator;
+
+import ed.inf.adbs.minibase.base.*;
+import ed.inf.adbs.minibase.dbstructures.Tuple;
+import ed.inf.adbs.minibase.dbstructures.TupleBatch;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PredicateCompilerTests {
+
+    private final Variable a = new Variable("a");
+    private final Variable b = new Variable("b");
+    private final Variable s = new Variable("s");
+    private final Variable c = new Variable("c");
+    private final Variable t = new Variable("t");
+
+    //  R(a, b, s) on the left and S(c, t) on the right
+    private final RelationalAtom leftAtom = new RelationalAtom("R", Arrays.<Term>asList(a, b, s));
+    private final RelationalAtom rightAtom = new RelationalAtom("S", Arrays.<Term>asList(c, t));
+
+    private final boolean[] leftStringColumns = {false, false, true};
+    private final boolean[] rightStringColumns = {false, true};
+
+    private final List<List<Constant>> leftRows = Arrays.asList(
+            Arrays.asList(new IntegerConstant(1), new IntegerConstant(5), new StringConstant("apple")),
+            Arrays.asList(new IntegerConstant(5), new IntegerConstant(5), new StringConstant("pear")),
+            Arrays.asList(new IntegerConstant(-3), new IntegerConstant(2), new StringConstant("fig")));
+
+    private final List<List<Constant>> rightRows = Arrays.asList(
+            Arrays.asList(new IntegerConstant(5), new StringConstant("pear")),
+            Arrays.asList(new IntegerConstant(0), new StringConstant("apple")),
+            Arrays.asList(new IntegerConstant(1), new StringConstant("kiwi")));
+
+    //  checks every compiled join predicate against the substitution based evaluation over every pair of rows, for all operators and pairs of a left and a right variable
+    @Test
+    public void test_compiledJoinPredicatesMatchSubstitutedComparisons() {
+        VariableOffsets leftOffsets = new VariableOffsets(leftAtom);
+        VariableOffsets rightOffsets = new VariableOffsets(rightAtom);
+
+        List<Term[]> termPairs = new ArrayList<>();
+        for (Term leftVariable : Arrays.asList(a, b, s)) {
+            for (Term rightVariable : Arrays.asList(c, t)) {
+                termPairs.add(new Term[] {leftVariable, rightVariable});
+                termPairs.add(new Term[] {rightVariable, leftVariable});
+            }
+        }
+
+        for (Term[] termPair : termPairs) {
+            for (ComparisonOperator op : ComparisonOperator.values()) {
+                ComparisonAtom comparisonAtom = new ComparisonAtom(termPair[0], termPair[1], op);
+                RowPredicate predicate = PredicateCompiler.compile(comparisonAtom, leftOffsets, leftStringColumns, rightOffsets, rightStringColumns);
+
+                for (List<Constant> leftRow : leftRows) {
+                    for (List<Constant> rightRow : rightRows) {
+                        Tuple leftTuple = new Tuple(leftRow);
+                        Tuple rightTuple = new Tuple(rightRow);
+
+                        boolean expectsThrow = false;
+                        boolean expected = false;
+                        try {
+                            expected = JoinOperator.passesMultiAtomPredicateList(leftTuple, rightTuple, Collections.singletonList(comparisonAtom), Collections.singletonList(leftAtom), rightAtom);
+                        } catch (IllegalArgumentException iae) {
+                            expectsThrow = true;
+                        }
+
+                        if (expectsThrow) {
+                            assertThrows(comparisonAtom.toString(), IllegalArgumentException.class, () -> predicate.test(leftTuple, rightTuple));
+                        } else {
+                            assertEquals(comparisonAtom + " over " + leftTuple + " and " + rightTuple, expected, predicate.test(leftTuple, rightTuple));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void test_compiledSelectionPredicatesMatchSubstitutedComparisons() {
+        VariableOffsets offsets = new VariableOffsets(leftAtom);
+        List<Term> selectionTerms = Arrays.asList(a, b, s, new IntegerConstant(5), new StringConstant("fig"));
+
+        for (Term term1 : selectionTerms) {
+            for (Term term2 : selectionTerms) {
+                for (ComparisonOperator op : ComparisonOperator.values()) {
+                    ComparisonAtom comparisonAtom = new ComparisonAtom(term1, term2, op);
+                    RowPredicate predicate = PredicateCompiler.compile(comparisonAtom, offsets, leftStringColumns);
+
+                    for (List<Constant> row : leftRows) {
+                        Tuple tuple = new Tuple(row);
+
+                        boolean expectsThrow = false;
+                        boolean expected = false;
+                        try {
+                            expected = SelectOperator.passesPredicate(tuple, comparisonAtom, leftAtom);
+                        } catch (IllegalArgumentException iae) {
+                            expectsThrow = true;
+                        }
+
+                        if (expectsThrow) {
+                            assertThrows(comparisonAtom.toString(), IllegalArgumentException.class, () -> predicate.test(tuple, null));
+                        } else {
+                            assertEquals(comparisonAtom + " over " + tuple, expected, predicate.test(tuple, null));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void test_unknownColumnTypesFallBackToCheckingPerTuple() {
+        RowPredicate predicate = PredicateCompiler.compile(new ComparisonAtom(s, new StringConstant("fig"), ComparisonOperator.GT), new VariableOffsets(leftAtom), null);
+
+        assertTrue(predicate.test(new Tuple(leftRows.get(1)), null));
+        assertFalse(predicate.test(new Tuple(leftRows.get(0)), null));
+    }
+
+    @Test
+    public void test_compiledBatchPredicatesMatchRowPredicates() {
+        VariableOffsets offsets = new VariableOffsets(leftAtom);
+        List<Term> selectionTerms = Arrays.asList(a, b, s, new IntegerConstant(5), new StringConstant("fig"));
+
+        TupleBatch batch = new TupleBatch(leftStringColumns);
+        for (List<Constant> row : leftRows) batch.appendTuple(new Tuple(row));
+
+        for (Term term1 : selectionTerms) {
+            for (Term term2 : selectionTerms) {
+                for (ComparisonOperator op : ComparisonOperator.values()) {
+                    ComparisonAtom comparisonAtom = new ComparisonAtom(term1, term2, op);
+                    RowPredicate rowPredicate = PredicateCompiler.compile(comparisonAtom, offsets, leftStringColumns);
+                    BatchPredicate batchPredicate = PredicateCompiler.compileBatch(comparisonAtom, offsets, leftStringColumns);
+
+                    int[] selection = {0, 1, 2};
+                    List<Integer> expectedRows = new ArrayList<>();
+                    try {
+                        for (int row = 0; row < leftRows.size(); row++) {
+                            if (rowPredicate.test(batch.getTuple(row), null)) expectedRows.add(row);
+                        }
+                    } catch (IllegalArgumentException iae) {
+                        assertThrows(comparisonAtom.toString(), IllegalArgumentException.class, () -> batchPredicate.filter(batch.getColumns(), selection, selection.length));
+                        continue;
+                    }
+
+                    int kept = batchPredicate.filter(batch.getColumns(), selection, selection.length);
+                    List<Integer> keptRows = new ArrayList<>();
+                    for (int i = 0; i < kept; i++) keptRows.add(selection[i]);
+
+                    assertEquals(comparisonAtom.toString(), expectedRows, keptRows);
+                }
+            }
+        }
+    }
+}
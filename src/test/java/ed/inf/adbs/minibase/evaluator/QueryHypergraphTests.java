@@ -0,0 +1,68 @@
+package ed.inf.adbs.minibase.evaluator;
+
+import ed.inf.adbs.minibase.base.RelationalAtom;
+import ed.inf.adbs.minibase.base.Term;
+import ed.inf.adbs.minibase.base.Variable;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class QueryHypergraphTests {
+
+    private static RelationalAtom atom(String name, String... variables) {
+        List<Term> terms = new ArrayList<>();
+        for (String variable : variables) terms.add(new Variable(variable));
+        return new RelationalAtom(name, terms);
+    }
+
+    @Test
+    public void test_isAcyclic_acceptsPathsAndStars() {
+        assertTrue(QueryHypergraph.isAcyclic(Arrays.asList(atom("R", "x", "y"), atom("S", "y", "z"), atom("T", "z", "w"))));
+        assertTrue(QueryHypergraph.isAcyclic(Arrays.asList(atom("R", "x", "y"), atom("S", "x", "z"), atom("T", "x", "w"))));
+        assertTrue(QueryHypergraph.isAcyclic(Arrays.asList(atom("R", "x", "y"), atom("S", "u", "v"))));
+    }
+
+    @Test
+    public void test_isAcyclic_rejectsTrianglesAndCycles() {
+        assertFalse(QueryHypergraph.isAcyclic(Arrays.asList(atom("R", "x", "y"), atom("S", "y", "z"), atom("T", "z", "x"))));
+        assertFalse(QueryHypergraph.isAcyclic(Arrays.asList(atom("R", "a", "b"), atom("R", "b", "c"), atom("R", "c", "d"), atom("R", "d", "a"))));
+    }
+
+    @Test
+    public void test_isAcyclic_acceptsATriangleCoveredByOneAtom() {
+        //  the hyperedge over all three variables absorbs the pairwise ones
+        assertTrue(QueryHypergraph.isAcyclic(Arrays.asList(atom("R", "x", "y"), atom("S", "y", "z"), atom("T", "z", "x"), atom("U", "x", "y", "z"))));
+    }
+
+    @Test
+    public void test_buildJoinTree_putsChildrenBeforeTheirParents() {
+        List<RelationalAtom> atoms = Arrays.asList(atom("R", "x", "y"), atom("S", "y", "z"), atom("T", "z", "w"), atom("U", "y", "v"));
+        QueryHypergraph.JoinTree joinTree = QueryHypergraph.buildJoinTree(atoms);
+
+        assertNotNull(joinTree);
+        int[] eliminationOrder = joinTree.getEliminationOrder();
+        assertEquals(atoms.size(), eliminationOrder.length);
+        assertEquals(joinTree.getRoot(), eliminationOrder[eliminationOrder.length - 1]);
+        assertEquals(-1, joinTree.getParent(joinTree.getRoot()));
+
+        for (int i = 0; i < eliminationOrder.length - 1; i++) {
+            int parent = joinTree.getParent(eliminationOrder[i]);
+            boolean parentLater = false;
+            for (int j = i + 1; j < eliminationOrder.length; j++) parentLater |= eliminationOrder[j] == parent;
+            assertTrue(parentLater);
+        }
+
+        //  R and T only share y and z respectively, which S is the only other atom holding
+        assertEquals(1, joinTree.getParent(0));
+        assertEquals(1, joinTree.getParent(2));
+    }
+
+    @Test
+    public void test_buildJoinTree_returnsNullForCycles() {
+        assertNull(QueryHypergraph.buildJoinTree(Arrays.asList(atom("R", "x", "y"), atom("S", "y", "z"), atom("T", "z", "x"))));
+    }
+}
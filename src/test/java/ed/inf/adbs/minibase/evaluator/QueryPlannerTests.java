@@ -0,0 +1,91 @@
+package ed.inf.adbs.minibase.evaluator;
+
+import ed.inf.adbs.minibase.base.*;
+import ed.inf.adbs.minibase.dbstructures.Schema;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class QueryPlannerTests {
+
+    private final Variable variablex = new Variable("x");
+    private final Variable variabley = new Variable("y");
+    private final Variable variablez = new Variable("z");
+    private final Variable variablew = new Variable("w");
+
+    private final RelationalAtom atomR = new RelationalAtom("R", Arrays.asList(variablex, variabley, variablez));
+    private final RelationalAtom atomS = new RelationalAtom("S", Arrays.asList(variablez, variablew));
+
+    //  R keyed on its first column, S on both of its columns
+    private Map<String, Schema> keyedSchemas() {
+        Map<String, Schema> schemas = new HashMap<>();
+        schemas.put("R", schema("R", 3));
+        schemas.put("S", schema("S", 2));
+        schemas.get("R").addKey(new int[] {0});
+        schemas.get("S").addKey(new int[] {0, 1});
+        return schemas;
+    }
+
+    private static Schema schema(String name, int width) {
+        return new Schema(name, new ArrayList<>(Collections.nCopies(width, IntegerConstant.class)));
+    }
+
+    @Test
+    public void test_isDuplicateFree_needsADeclaredKey() {
+        Map<String, Schema> schemas = new HashMap<>();
+        schemas.put("R", schema("R", 3));
+
+        //  without a key, R may hold the same row twice, even though the head keeps all of its columns
+        assertFalse(QueryPlanner.isDuplicateFree(Arrays.asList(variablex, variabley, variablez), Collections.singletonList(atomR), Collections.emptyList(), schemas));
+
+        schemas.get("R").addKey(new int[] {0, 1, 2});
+        assertTrue(QueryPlanner.isDuplicateFree(Arrays.asList(variablez, variablex, variabley), Collections.singletonList(atomR), Collections.emptyList(), schemas));
+    }
+
+    @Test
+    public void test_isDuplicateFree_needsTheHeadToDetermineAKeyOfEveryAtom() {
+        Map<String, Schema> schemas = keyedSchemas();
+        List<RelationalAtom> atoms = Arrays.asList(atomR, atomS);
+
+        assertTrue(QueryPlanner.isDuplicateFree(Arrays.asList(variablez, variablew, variablex), atoms, Collections.emptyList(), schemas));
+
+        //  x determines the whole of its R row, z included, which together with w makes up the key of S
+        assertTrue(QueryPlanner.isDuplicateFree(Arrays.asList(variablex, variablew), atoms, Collections.emptyList(), schemas));
+        assertTrue(QueryPlanner.isDuplicateFree(Collections.singletonList(variablex), Collections.singletonList(atomR), Collections.emptyList(), schemas));
+
+        //  many R rows join the same S row, so w alone repeats
+        assertFalse(QueryPlanner.isDuplicateFree(Arrays.asList(variabley, variablew), atoms, Collections.emptyList(), schemas));
+        assertFalse(QueryPlanner.isDuplicateFree(Collections.singletonList(variablex), atoms, Collections.emptyList(), schemas));
+
+        //  atoms over relations missing from the schemas are never known to be free of duplicates
+        RelationalAtom atomT = new RelationalAtom("T", Collections.singletonList(variablex));
+        assertFalse(QueryPlanner.isDuplicateFree(Collections.singletonList(variablex), Collections.singletonList(atomT), Collections.emptyList(), schemas));
+    }
+
+    @Test
+    public void test_isDuplicateFree_followsEqualitiesToHeadVariablesAndConstants() {
+        Map<String, Schema> schemas = keyedSchemas();
+        List<RelationalAtom> atoms = Arrays.asList(atomR, atomS);
+
+        //  w is fixed to a constant, so x determines the keys of both atoms, through the z of its R row
+        List<ComparisonAtom> fixedW = Collections.singletonList(new ComparisonAtom(variablew, new IntegerConstant(5), ComparisonOperator.EQ));
+        assertTrue(QueryPlanner.isDuplicateFree(Collections.singletonList(variablex), atoms, fixedW, schemas));
+
+        //  x is tied to y by a chain of equalities through w
+        List<ComparisonAtom> chain = Arrays.asList(
+                new ComparisonAtom(variablex, variablew, ComparisonOperator.EQ),
+                new ComparisonAtom(variablew, variabley, ComparisonOperator.EQ));
+        assertTrue(QueryPlanner.isDuplicateFree(Collections.singletonList(variabley), atoms, chain, schemas));
+
+        //  anything other than an equality determines nothing
+        List<ComparisonAtom> bounded = Collections.singletonList(new ComparisonAtom(variablew, new IntegerConstant(5), ComparisonOperator.LEQ));
+        assertFalse(QueryPlanner.isDuplicateFree(Collections.singletonList(variablex), atoms, bounded, schemas));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_schema_rejectsKeysOutOfRange() {
+        schema("R", 3).addKey(new int[] {0, 3});
+    }
+}
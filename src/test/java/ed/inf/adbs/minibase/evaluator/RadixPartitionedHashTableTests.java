@@ -0,0 +1,76 @@
+package ed.inf.adbs.minibase.evaluator;
+
+import ed.inf.adbs.minibase.base.*;
+import ed.inf.adbs.minibase.dbstructures.Tuple;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static ed.inf.adbs.minibase.evaluator.ListOperator.drain;
+import static ed.inf.adbs.minibase.evaluator.ListOperator.tuple;
+import static org.junit.Assert.*;
+
+public class RadixPartitionedHashTableTests {
+
+    private final Variable variablex = new Variable("x");
+    private final Variable variabley = new Variable("y");
+    private final Variable variablez = new Variable("z");
+
+    private final RelationalAtom leftAtom = new RelationalAtom("R", Arrays.asList(variablex, variabley));
+    private final RelationalAtom rightAtom = new RelationalAtom("S", Arrays.asList(variablex, variablez));
+
+    //  enough build tuples for several partitions, with every key repeated so that the order within a key's bucket shows
+    private final List<Tuple> buildTuples = new ArrayList<>();
+    private final List<Tuple> probeTuples = new ArrayList<>();
+
+    {
+        for (int i = 0; i < 20_000; i++) buildTuples.add(tuple(i % 3001, i));
+        for (int i = 0; i < 5_000; i++) probeTuples.add(tuple(i % 3500, -i));
+    }
+
+    @Test
+    public void test_radixPartitionedHashTable_keepsEveryKeysTuplesInOrder() throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            RadixPartitionedHashTable table = RadixPartitionedHashTable.build(buildTuples, Collections.singletonList(0), pool, 4);
+            assertTrue(table.getNumPartitions() > 1);
+
+            for (int key = 0; key < 3001; key++) {
+                List<Tuple> expected = new ArrayList<>();
+                for (int i = key; i < buildTuples.size(); i += 3001) expected.add(buildTuples.get(i));
+                assertEquals(expected, table.get(tuple(key)));
+            }
+            assertTrue(table.get(tuple(3001)).isEmpty());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void test_hashJoin_builtInParallelMatchesTheSerialBuild() throws IOException {
+        HashJoinOperator serialJoin = new HashJoinOperator(new ListOperator(probeTuples), new ListOperator(buildTuples), Collections.singletonList(leftAtom), rightAtom, Collections.emptyList(), false);
+        List<Tuple> expected = drain(serialJoin);
+
+        ExecutorService pool = Executors.newFixedThreadPool(3);
+        try {
+            HashJoinOperator parallelJoin = new HashJoinOperator(new ListOperator(probeTuples), new ListOperator(buildTuples), Collections.singletonList(leftAtom), rightAtom, Collections.emptyList(), false);
+            parallelJoin.buildHashTableInParallel(pool, 3);
+
+            assertEquals(expected, drain(parallelJoin));
+            assertEquals(expected, drain(parallelJoin.withProbeChild(new ListOperator(probeTuples))));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void test_chooseRadixBits_givesEveryThreadSeveralPartitions() {
+        assertEquals(0, RadixPartitionedHashTable.chooseRadixBits(100, 1));
+        assertEquals(4, RadixPartitionedHashTable.chooseRadixBits(100, 4));
+        assertEquals(5, RadixPartitionedHashTable.chooseRadixBits(32 * RadixPartitionedHashTable.TUPLES_PER_PARTITION, 2));
+        assertEquals(RadixPartitionedHashTable.MAX_RADIX_BITS, RadixPartitionedHashTable.chooseRadixBits(Integer.MAX_VALUE, 8));
+    }
+}
@@ -1,4 +1,95 @@
 package ed.inf.adbs.minibase.evaluator;
 
+import ed.inf.adbs.minibase.base.*;
+import ed.inf.adbs.minibase.dbstructures.Schema;
+import ed.inf.adbs.minibase.dbstructures.Tuple;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static ed.inf.adbs.minibase.evaluator.ListOperator.drain;
+import static ed.inf.adbs.minibase.evaluator.ListOperator.drainBatches;
+import static org.junit.Assert.*;
+
 public class ScanOperatorTests {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final Schema schema = new Schema("R", Arrays.asList(IntegerConstant.class, StringConstant.class, IntegerConstant.class));
+
+    private final RelationalAtom relationalAtom = new RelationalAtom("R", Arrays.asList(new Variable("x"), new Variable("y"), new Variable("z")));
+
+    private String writeCsv(String contents) throws IOException {
+        File csvFile = new File(temporaryFolder.newFolder("files"), "R.csv");
+        try (FileWriter writer = new FileWriter(csvFile)) {
+            writer.write(contents);
+        }
+        return csvFile.getPath();
+    }
+
+    @Test
+    public void test_mappedScan_matchesBufferedScan() throws IOException {
+        String fileName = writeCsv("1, 'adbs', 9\n-42,'ml pr' ,  0\r\n7, '', 2147483647\n 3 ,x,-2147483648");
+
+        List<Tuple> bufferedTuples = drain(new ScanOperator(fileName, schema, relationalAtom));
+        List<Tuple> mappedTuples = drain(new MappedScanOperator(fileName, schema, relationalAtom));
+
+        assertEquals(4, bufferedTuples.size());
+        assertEquals(bufferedTuples, mappedTuples);
+    }
+
+    @Test
+    public void test_mappedScan_resetRewindsToTheFirstRow() throws IOException {
+        MappedScanOperator scan = new MappedScanOperator(writeCsv("1, 'a', 2\n3, 'b', 4\n"), schema, relationalAtom);
+
+        List<Tuple> firstRun = drain(scan);
+        scan.reset();
+
+        assertEquals(2, firstRun.size());
+        assertEquals(firstRun, drain(scan));
+    }
+
+    @Test
+    public void test_mappedScan_rejectsRowsWithTheWrongNumberOfColumns() throws IOException {
+        MappedScanOperator scan = new MappedScanOperator(writeCsv("1, 'a'\n"), schema, relationalAtom);
+
+        assertThrows(IllegalArgumentException.class, scan::getNextTuple);
+    }
+
+    @Test
+    public void test_batchedScans_matchTupleAtATimeScans() throws IOException {
+        StringBuilder contents = new StringBuilder();
+        for (int i = 0; i < 2500; i++) contents.append(i).append(", 's").append(i % 7).append("', ").append(-i).append('\n');
+        String fileName = writeCsv(contents.toString());
+
+        List<Tuple> expected = drain(new ScanOperator(fileName, schema, relationalAtom));
+
+        assertEquals(2500, expected.size());
+        assertEquals(expected, drainBatches(new ScanOperator(fileName, schema, relationalAtom)));
+        assertEquals(expected, drainBatches(new MappedScanOperator(fileName, schema, relationalAtom)));
+    }
+
+    @Test
+    public void test_batchedSelect_filtersTheSelectionVector() throws IOException {
+        StringBuilder contents = new StringBuilder();
+        for (int i = 0; i < 2500; i++) contents.append(i).append(", 's").append(i % 7).append("', ").append(i % 10).append('\n');
+        String fileName = writeCsv(contents.toString());
+
+        List<ComparisonAtom> predicates = Arrays.asList(
+                new ComparisonAtom(new Variable("z"), new IntegerConstant(9), ComparisonOperator.EQ),
+                new ComparisonAtom(new Variable("y"), new StringConstant("s3"), ComparisonOperator.GEQ));
+
+        List<Tuple> expected = drain(new SelectOperator(new ScanOperator(fileName, schema, relationalAtom), relationalAtom, predicates));
+        List<Tuple> batched = drainBatches(new SelectOperator(new ScanOperator(fileName, schema, relationalAtom), relationalAtom, predicates));
+
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, batched);
+    }
 }
@@ -79,4 +79,29 @@ public class SelectOperatorTests {
     public void test_predicateContainsValueNotInRelationalAtom() {
         assertThrows(UnsupportedOperationException.class,() -> SelectOperator.passesPredicate(testTuple, fGTy, relationalAtom));
     }
+
+    @Test
+    public void test_columnComparison_matchesPassesPredicate() {
+        VariableOffsets offsets = new VariableOffsets(relationalAtom);
+
+        assertTrue(new ColumnComparison(xLTy, offsets, null).evaluate(testTuple));
+        assertFalse(new ColumnComparison(xGTy, offsets, null).evaluate(testTuple));
+        assertTrue(new ColumnComparison(xLT420, offsets, null).evaluate(testTuple));
+    }
+
+    @Test
+    public void test_columnComparison_stringAgainstIntOnlyFailsForOrdering() {
+        VariableOffsets offsets = new VariableOffsets(relationalAtom);
+
+        assertFalse(new ColumnComparison(new ComparisonAtom(variablez, integerConstant420, ComparisonOperator.EQ), offsets, null).evaluate(testTuple));
+        assertTrue(new ColumnComparison(new ComparisonAtom(variablez, integerConstant420, ComparisonOperator.NEQ), offsets, null).evaluate(testTuple));
+        assertThrows(IllegalArgumentException.class, () -> new ColumnComparison(new ComparisonAtom(variablez, integerConstant420, ComparisonOperator.LT), offsets, null).evaluate(testTuple));
+    }
+
+    @Test
+    public void test_selectOperator_rejectsPredicateOutsideRelationalAtom() {
+        List<ComparisonAtom> predicates = new ArrayList<>();
+        predicates.add(fGTy);
+        assertThrows(UnsupportedOperationException.class, () -> new SelectOperator(null, relationalAtom, predicates));
+    }
 }
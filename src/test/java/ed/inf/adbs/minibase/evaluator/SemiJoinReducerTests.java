@@ -0,0 +1,73 @@
+package ed.inf.adbs.minibase.evaluator;
+
+import ed.inf.adbs.minibase.base.*;
+import ed.inf.adbs.minibase.dbstructures.Tuple;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.*;
+
+import static ed.inf.adbs.minibase.evaluator.ListOperator.drain;
+import static ed.inf.adbs.minibase.evaluator.ListOperator.tuple;
+import static org.junit.Assert.*;
+
+public class SemiJoinReducerTests {
+
+    private final Variable variablex = new Variable("x");
+    private final Variable variabley = new Variable("y");
+    private final Variable variablez = new Variable("z");
+    private final Variable variablew = new Variable("w");
+
+    //  a chain R(x, y), S(y, z), T(z, w)
+    private final List<RelationalAtom> atoms = Arrays.asList(
+            new RelationalAtom("R", Arrays.asList(variablex, variabley)),
+            new RelationalAtom("S", Arrays.asList(variabley, variablez)),
+            new RelationalAtom("T", Arrays.asList(variablez, variablew)));
+
+    //  R(2, 20) has no y partner in S, S(30, 300) none in R, S(10, 101) no z partner in T and T(999, 0) none in S
+    private final List<Tuple> r = Arrays.asList(tuple(1, 10), tuple(2, 20), tuple(3, 10));
+    private final List<Tuple> s = Arrays.asList(tuple(10, 100), tuple(10, 101), tuple(30, 300));
+    private final List<Tuple> t = Arrays.asList(tuple(100, 1), tuple(100, 2), tuple(300, 3), tuple(999, 0));
+
+    private List<Operator> children(List<Tuple> r, List<Tuple> s, List<Tuple> t) {
+        return Arrays.asList(new ListOperator(r), new ListOperator(s), new ListOperator(t));
+    }
+
+    private static Operator chainJoin(List<Operator> children, List<RelationalAtom> atoms) {
+        Operator first = new HashJoinOperator(children.get(0), children.get(1), atoms.subList(0, 1), atoms.get(1), Collections.emptyList(), false);
+        return new HashJoinOperator(first, children.get(2), atoms.subList(0, 2), atoms.get(2), Collections.emptyList(), false);
+    }
+
+    @Test
+    public void test_semiJoinReducer_dropsDanglingTuples() throws IOException {
+        SemiJoinReducer reducer = new SemiJoinReducer(children(r, s, t), QueryHypergraph.buildJoinTree(atoms));
+
+        assertEquals(Arrays.asList(tuple(1, 10), tuple(3, 10)), reducer.getReducedTuples(0));
+        assertEquals(Collections.singletonList(tuple(10, 100)), reducer.getReducedTuples(1));
+        assertEquals(Arrays.asList(tuple(100, 1), tuple(100, 2)), reducer.getReducedTuples(2));
+        assertEquals(10, reducer.getTuplesRead());
+        assertEquals(5, reducer.getTuplesKept());
+    }
+
+    @Test
+    public void test_reducedRelationOperators_joinToTheSameResult() throws IOException {
+        List<Operator> children = children(r, s, t);
+        SemiJoinReducer reducer = new SemiJoinReducer(children, QueryHypergraph.buildJoinTree(atoms));
+
+        List<Operator> reducedChildren = new ArrayList<>();
+        for (int i = 0; i < atoms.size(); i++) reducedChildren.add(new ReducedRelationOperator(reducer, i, children.get(i), atoms.get(i)));
+
+        List<Tuple> expected = drain(chainJoin(children(r, s, t), atoms));
+        List<Tuple> joined = drain(chainJoin(reducedChildren, atoms));
+        assertEquals(4, joined.size());
+        assertEquals(new HashSet<>(expected), new HashSet<>(joined));
+        assertEquals(expected.size(), joined.size());
+    }
+
+    @Test
+    public void test_semiJoinReducer_emptiesEverythingWhenAnAtomIsEmpty() throws IOException {
+        SemiJoinReducer reducer = new SemiJoinReducer(children(r, s, Collections.emptyList()), QueryHypergraph.buildJoinTree(atoms));
+
+        for (int i = 0; i < atoms.size(); i++) assertTrue(reducer.getReducedTuples(i).isEmpty());
+    }
+}
@@ -0,0 +1,84 @@
+package ed.inf.adbs.minibase.evaluator;
+
+import ed.inf.adbs.minibase.base.*;
+import ed.inf.adbs.minibase.dbstructures.Tuple;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.*;
+
+import static ed.inf.adbs.minibase.evaluator.ListOperator.drain;
+import static ed.inf.adbs.minibase.evaluator.ListOperator.tuple;
+import static org.junit.Assert.*;
+
+public class SortMergeJoinOperatorTests {
+
+    private final Variable variablex = new Variable("x");
+    private final Variable variabley = new Variable("y");
+    private final Variable variablez = new Variable("z");
+    private final Variable variablew = new Variable("w");
+
+    private final RelationalAtom leftAtom = new RelationalAtom("R", Arrays.asList(variablex, variabley));
+    private final RelationalAtom rightAtom = new RelationalAtom("S", Arrays.asList(variablex, variablez));
+    private final RelationalAtom thirdAtom = new RelationalAtom("T", Arrays.asList(variablex, variablew));
+
+    //  keys repeat on both sides, and some only occur on one of them
+    private final List<Tuple> leftTuples = Arrays.asList(
+            tuple(3, 30),
+            tuple(1, 10),
+            tuple(2, 20),
+            tuple(1, 11),
+            tuple(5, 50),
+            tuple(3, 31));
+
+    private final List<Tuple> rightTuples = Arrays.asList(
+            tuple(1, 5),
+            tuple(4, 60),
+            tuple(1, 15),
+            tuple(3, 50),
+            tuple(3, 25),
+            tuple(0, 1));
+
+    private Set<Tuple> nestedLoopResult(List<ComparisonAtom> joinConditions) throws IOException {
+        return new HashSet<>(drain(new JoinOperator(new ListOperator(leftTuples), new ListOperator(rightTuples), Collections.singletonList(leftAtom), rightAtom, joinConditions)));
+    }
+
+    @Test
+    public void test_sortMergeJoin_handlesDuplicateKeysOnBothSides() throws IOException {
+        SortMergeJoinOperator join = new SortMergeJoinOperator(new ListOperator(leftTuples), new ListOperator(rightTuples), Collections.singletonList(leftAtom), rightAtom, Collections.emptyList(), false, 1024 * 1024);
+
+        List<Tuple> joined = drain(join);
+        assertEquals(8, joined.size());
+        assertEquals(nestedLoopResult(Collections.emptyList()), new HashSet<>(joined));
+
+        for (int i = 1; i < joined.size(); i++) assertTrue(joined.get(i - 1).getValue(0) <= joined.get(i).getValue(0));
+
+        join.reset();
+        assertEquals(joined, drain(join));
+    }
+
+    @Test
+    public void test_sortMergeJoin_checksResidualConditions() throws IOException {
+        List<ComparisonAtom> joinConditions = Collections.singletonList(new ComparisonAtom(variabley, variablez, ComparisonOperator.GT));
+        SortMergeJoinOperator join = new SortMergeJoinOperator(new ListOperator(leftTuples), new ListOperator(rightTuples), Collections.singletonList(leftAtom), rightAtom, joinConditions, false, 1024 * 1024);
+
+        assertEquals(Collections.singletonList(new ComparisonAtom(variabley, variablez, ComparisonOperator.GT)), join.getResidualConditions());
+        assertEquals(nestedLoopResult(joinConditions), new HashSet<>(drain(join)));
+    }
+
+    @Test
+    public void test_sortMergeJoin_reusesASortedLeftSide() throws IOException {
+        SortMergeJoinOperator first = new SortMergeJoinOperator(new ListOperator(leftTuples), new ListOperator(rightTuples), Collections.singletonList(leftAtom), rightAtom, Collections.emptyList(), false, 1024 * 1024);
+
+        List<RelationalAtom> leftAtoms = Arrays.asList(leftAtom, rightAtom);
+        int[] leftKeys = SortMergeJoinOperator.getLeftKeyIndices(leftAtoms, thirdAtom, Collections.emptyList());
+        assertTrue(first.isSortedOn(leftKeys));
+
+        List<Tuple> thirdTuples = Arrays.asList(tuple(3, 7), tuple(1, 8), tuple(3, 9));
+        SortMergeJoinOperator second = new SortMergeJoinOperator(first, new ListOperator(thirdTuples), leftAtoms, thirdAtom, Collections.emptyList(), true, 1024 * 1024);
+
+        Set<Tuple> expected = new HashSet<>(drain(new JoinOperator(new ListOperator(drain(new JoinOperator(new ListOperator(leftTuples), new ListOperator(rightTuples), Collections.singletonList(leftAtom), rightAtom, Collections.emptyList()))),
+                new ListOperator(thirdTuples), leftAtoms, thirdAtom, Collections.emptyList())));
+        assertEquals(expected, new HashSet<>(drain(second)));
+    }
+}
@@ -0,0 +1,67 @@
+package ed.inf.adbs.minibase.evaluator;
+
+import ed.inf.adbs.minibase.base.*;
+import ed.inf.adbs.minibase.dbstructures.Tuple;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.*;
+
+import static ed.inf.adbs.minibase.evaluator.ListOperator.drain;
+import static org.junit.Assert.*;
+
+public class SortOperatorTests {
+
+    //  (k, i) rows with k drawn from a small range so that keys repeat, and i the row number
+    private static List<Tuple> randomTuples(int numTuples) {
+        Random random = new Random(7);
+        List<Tuple> tuples = new ArrayList<>();
+        for (int i = 0; i < numTuples; i++) {
+            tuples.add(new Tuple(Arrays.asList(new IntegerConstant(random.nextInt(200) - 100), new IntegerConstant(i))));
+        }
+        return tuples;
+    }
+
+    private static void assertSortedOnFirstColumn(List<Tuple> tuples) {
+        for (int i = 1; i < tuples.size(); i++) {
+            assertTrue(tuples.get(i - 1).getValue(0) <= tuples.get(i).getValue(0));
+        }
+    }
+
+    @Test
+    public void test_sort_inMemory() throws IOException {
+        List<Tuple> tuples = randomTuples(1000);
+        SortOperator sort = new SortOperator(new ListOperator(tuples), new int[] {0}, 1024 * 1024);
+
+        List<Tuple> sorted = drain(sort);
+        assertFalse(sort.isExternal());
+        assertSortedOnFirstColumn(sorted);
+        assertEquals(new HashSet<>(tuples), new HashSet<>(sorted));
+    }
+
+    @Test
+    public void test_sort_spillsAndMergesRunsBeyondTheBudget() throws IOException {
+        List<Tuple> tuples = randomTuples(20000);
+
+        //  room for about a hundred tuples per run, which gives more runs than can be merged in one go
+        SortOperator sort = new SortOperator(new ListOperator(tuples), new int[] {0}, 100 * Tuple.estimateSizeInBytes(2));
+
+        List<Tuple> sorted = drain(sort);
+        assertTrue(sort.isExternal());
+        assertEquals(tuples.size(), sorted.size());
+        assertSortedOnFirstColumn(sorted);
+        assertEquals(new HashSet<>(tuples), new HashSet<>(sorted));
+
+        sort.reset();
+        assertEquals(sorted.size(), drain(sort).size());
+    }
+
+    @Test
+    public void test_compareKeys_ordersIntsBeforeStrings() {
+        Tuple intTuple = new Tuple(Collections.singletonList(new IntegerConstant(5)));
+        Tuple stringTuple = new Tuple(Collections.singletonList(new StringConstant("a")));
+
+        assertTrue(SortOperator.compareKeys(intTuple, new int[] {0}, stringTuple, new int[] {0}) < 0);
+        assertEquals(0, SortOperator.compareKeys(stringTuple, new int[] {0}, new Tuple(Collections.singletonList(new StringConstant("a"))), new int[] {0}));
+    }
+}
@@ -0,0 +1,79 @@
+package ed.inf.adbs.minibase.evaluator;
+
+import ed.inf.adbs.minibase.base.RelationalAtom;
+import ed.inf.adbs.minibase.base.Variable;
+import ed.inf.adbs.minibase.dbstructures.Tuple;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Benchmark comparing the triangle query Q(x, y, z) :- R(x, y), R(y, z), R(z, x) joined pairwise by hash joins, as a left-deep plan would,
+ * against the LeapfrogTriejoinOperator over the same edges. The graph has a few hub vertices connected to most others,
+ * so the pairwise plan's intermediate result of two-edge paths is far larger than the number of triangles.
+ * Not run as part of the test suite. Run it with
+ * java -cp target/classes:target/test-classes ed.inf.adbs.minibase.evaluator.TriangleJoinBenchmark [edges] [rounds]
+ */
+public class TriangleJoinBenchmark {
+
+    //  the type flags of the list children, whose tuples are all pairs of ints
+    private static final boolean[] INT_COLUMNS = {false, false};
+
+    public static void main(String[] args) throws IOException {
+        int numEdges = (args.length > 0) ? Integer.parseInt(args[0]) : 100_000;
+        int rounds = (args.length > 1) ? Integer.parseInt(args[1]) : 5;
+
+        Variable x = new Variable("x");
+        Variable y = new Variable("y");
+        Variable z = new Variable("z");
+        RelationalAtom atomR = new RelationalAtom("R", Arrays.asList(x, y));
+        RelationalAtom atomS = new RelationalAtom("R", Arrays.asList(y, z));
+        RelationalAtom atomT = new RelationalAtom("R", Arrays.asList(z, x));
+
+        List<Tuple> edges = generateEdges(numEdges);
+
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            Operator firstJoin = new HashJoinOperator(new ListOperator(edges, INT_COLUMNS), new ListOperator(edges, INT_COLUMNS), Collections.singletonList(atomR), atomS, Collections.emptyList(), false);
+            long pairwiseTriangles = count(new HashJoinOperator(firstJoin, new ListOperator(edges, INT_COLUMNS), Arrays.asList(atomR, atomS), atomT, Collections.emptyList(), false));
+            long pairwiseNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            long leapfrogTriangles = count(new LeapfrogTriejoinOperator(Arrays.asList(new ListOperator(edges, INT_COLUMNS), new ListOperator(edges, INT_COLUMNS), new ListOperator(edges, INT_COLUMNS)),
+                    Arrays.asList(atomR, atomS, atomT), Collections.emptyList()));
+            long leapfrogNanos = System.nanoTime() - start;
+
+            if (pairwiseTriangles != leapfrogTriangles) throw new IllegalStateException("The join strategies disagree!");
+
+            System.out.printf("round %d: %d triangles, pairwise hash joins %.1f ms, leapfrog triejoin %.1f ms%n", round, leapfrogTriangles,
+                    pairwiseNanos / 1e6, leapfrogNanos / 1e6);
+        }
+    }
+
+    private static long count(Operator operator) throws IOException {
+        long count = 0;
+        while (operator.getNextTuple() != null) count++;
+        return count;
+    }
+
+    //  a quarter of the edges go from or to one of a handful of hubs, the rest are spread uniformly over the vertices
+    private static List<Tuple> generateEdges(int numEdges) {
+        Random random = new Random(42);
+        int numVertices = Math.max(numEdges / 10, 10);
+        boolean[] stringColumns = {false, false};
+
+        Set<Long> seen = new HashSet<>();
+        List<Tuple> edges = new ArrayList<>();
+        while (edges.size() < numEdges) {
+            int from = random.nextInt(numVertices);
+            int to = random.nextInt(numVertices);
+            if (random.nextInt(4) == 0) {
+                if (random.nextBoolean()) from = random.nextInt(5);
+                else to = random.nextInt(5);
+            }
+
+            if (seen.add(((long) from << 32) | to)) edges.add(new Tuple(new int[] {from, to}, stringColumns));
+        }
+        return edges;
+    }
+}
@@ -0,0 +1,39 @@
+package ed.inf.adbs.minibase.evaluator;
+
+import ed.inf.adbs.minibase.base.RelationalAtom;
+import ed.inf.adbs.minibase.base.Term;
+import ed.inf.adbs.minibase.base.Variable;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class VariableOffsetsTests {
+
+    private final Variable x = new Variable("x");
+    private final Variable y = new Variable("y");
+    private final Variable z = new Variable("z");
+
+    private final RelationalAtom rxy = new RelationalAtom("R", Arrays.<Term>asList(x, y));
+    private final RelationalAtom syzx = new RelationalAtom("S", Arrays.<Term>asList(y, z, x));
+
+    @Test
+    public void test_offsetsAreShiftedByPrecedingAtoms() {
+        VariableOffsets offsets = new VariableOffsets(Arrays.asList(rxy, syzx));
+
+        assertEquals(5, offsets.getWidth());
+        assertArrayEquals(new int[] {0, 4}, offsets.getOffsets(x));
+        assertArrayEquals(new int[] {1, 2}, offsets.getOffsets(y));
+        assertEquals(3, offsets.getFirstOffset(z));
+    }
+
+    @Test
+    public void test_missingVariableHasNoOffsets() {
+        VariableOffsets offsets = new VariableOffsets(rxy);
+
+        assertFalse(offsets.contains(z));
+        assertEquals(-1, offsets.getFirstOffset(z));
+        assertEquals(0, offsets.getOffsets(z).length);
+    }
+}